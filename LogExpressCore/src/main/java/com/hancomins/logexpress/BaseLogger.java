@@ -4,10 +4,12 @@
 package com.hancomins.logexpress;
 
 import com.hancomins.logexpress.configuration.Configuration;
-import com.hancomins.logexpress.configuration.StyleOption;
 import com.hancomins.logexpress.configuration.WriterOption;
+import com.hancomins.logexpress.configuration.WriterType;
 import com.hancomins.logexpress.queue.AbsLineQueue;
 
+import java.util.Arrays;
+
 
 @SuppressWarnings({"NonAtomicOperationOnVolatileField", "unused"})
 public class BaseLogger implements Logger {
@@ -38,7 +40,7 @@ public class BaseLogger implements Logger {
 	protected BaseLogger(String marker, WriterOption option) {
 		this.marker = marker;
 		level =  option.getLevel();
-		initFormatter(option.getPattern(), option.styleOption());
+		initFormatter(option);
 		setLevel(option.getLevel());
 		stackTraceElementsIndex = DEF_ELEMENT_IDX + option.getStackTraceDepth();
 	}
@@ -48,7 +50,7 @@ public class BaseLogger implements Logger {
 		absLineQueue = concurrentLineQueue;
 		level = option.getLevel();
 		setLevel(level);
-		initFormatter(option.getPattern(), option.styleOption());
+		initFormatter(option);
 		stackTraceElementsIndex = DEF_ELEMENT_IDX + option.getStackTraceDepth();
 	}
 
@@ -69,8 +71,12 @@ public class BaseLogger implements Logger {
 		return absLineQueue;
 	}
 	
-	private void initFormatter(String pattern, StyleOption styleOption) {
-		formatter = LineFormatter.parse(pattern, styleOption);
+	private void initFormatter(WriterOption option) {
+		formatter = LineFormatter.parse(option.getPattern(), option.styleOption(), option.getLayout());
+		// 바이너리 레코드는 기록한 뒤에 다른 패턴으로 읽을 수 있으므로 스레드 정보는 패턴과 관계없이 담는다.
+		if(Arrays.asList(option.getWriterTypes()).contains(WriterType.Binary)) {
+			formatter.setNeedThreadInfo();
+		}
 	}
 	
 	protected void setLineQueue(AbsLineQueue queue) {
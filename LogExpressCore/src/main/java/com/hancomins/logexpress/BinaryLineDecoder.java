@@ -0,0 +1,350 @@
+package com.hancomins.logexpress;
+
+import com.hancomins.logexpress.configuration.WriterType;
+import com.hancomins.logexpress.writer.BlockFileReader;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * {@link BinaryLineEncoder} 로 기록한 레코드를 읽어 라인 패턴에 맞춘 텍스트로 만든다.<br>
+ * Reads records written by WriterType.Binary and renders them as text with a line pattern.<br>
+ * {hostname}, {pid} 는 디코딩하는 프로세스의 값으로 출력한다. 알 수 없는 레코드는 건너뛴다.<br>
+ * {hostname} and {pid} are rendered with the values of the decoding process. Unknown records are skipped.
+ * <pre>
+ * java -cp logexpress.jar com.hancomins.logexpress.BinaryLineDecoder [-p pattern] file...
+ * </pre>
+ */
+public class BinaryLineDecoder {
+
+	/**
+	 * 패턴을 지정하지 않았을 때 사용하는 라인 패턴.<br>
+	 * Line pattern used when no pattern is given.
+	 */
+	public static final String DEFAULT_PATTERN = "{time::yyyy-MM-dd HH:mm:ss.SSS} [{level}] {marker} <{thread}:{tid}> {caller} | {message}";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final Level[] LEVELS = Level.values();
+
+	private final DataInputStream in;
+	private final LineCombiner lineCombiner;
+	private String[] dictionary = new String[64];
+	private byte[] record = new byte[512];
+	private int position;
+	private int limit;
+
+
+	/**
+	 * @param in 레코드를 읽을 스트림<br>
+	 *           stream to read records from
+	 * @param pattern 라인 패턴. null 이면 {@link #DEFAULT_PATTERN}<br>
+	 *                line pattern. {@link #DEFAULT_PATTERN} if null
+	 */
+	public BinaryLineDecoder(InputStream in, String pattern) {
+		this.in = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in));
+		this.lineCombiner = LineFormatter.parse(pattern == null ? DEFAULT_PATTERN : pattern).getLineCombiner();
+	}
+
+	/**
+	 * 다음 라인을 텍스트로 만들어 out 뒤에 이어서 쓴다.<br>
+	 * Renders the next line and appends it to out.
+	 *
+	 * @return 더 읽을 라인이 없다면 false<br>
+	 *         false if there are no more lines
+	 * @throws IOException 읽을 수 없거나 레코드가 손상된 경우<br>
+	 *                     if the stream cannot be read or a record is corrupted
+	 */
+	public boolean read(StringBuilder out) throws IOException {
+		for(;;) {
+			if(!nextRecord()) {
+				return false;
+			}
+			byte type = record[position++];
+			if(type == BinaryLineEncoder.RECORD_LINE) {
+				readLine().makeLine(WriterType.File, out);
+				return true;
+			} else if(type == BinaryLineEncoder.RECORD_TEXT) {
+				getLong();
+				out.append(getString());
+				return true;
+			} else if(type == BinaryLineEncoder.RECORD_DEFINE) {
+				int id = getVarInt();
+				if(id < 0 || id >= BinaryLineEncoder.MAX_DICTIONARY_SIZE) {
+					throw new IOException("Corrupted record. (dictionary id: " + id + ")");
+				}
+				if(id >= dictionary.length) {
+					String[] newDictionary = new String[Math.min(BinaryLineEncoder.MAX_DICTIONARY_SIZE, Math.max(id + 1, dictionary.length * 2))];
+					System.arraycopy(dictionary, 0, newDictionary, 0, dictionary.length);
+					dictionary = newDictionary;
+				}
+				dictionary[id] = getString();
+			} else if(type == BinaryLineEncoder.RECORD_HEADER) {
+				if(getInt() != BinaryLineEncoder.MAGIC) {
+					throw new IOException("Not a binary log record.");
+				}
+				// 새로 연 파일의 레코드는 새 사전을 사용한다.
+				Arrays.fill(dictionary, null);
+			}
+		}
+	}
+
+	/**
+	 * 스트림을 닫는다.<br>
+	 * Closes the stream.
+	 */
+	public void close() {
+		try {
+			in.close();
+		} catch (IOException ignored) {}
+	}
+
+	private Line readLine() throws IOException {
+		long time = getLong();
+		byte levelOrdinal = record[position++];
+		String marker = getId();
+		long tid = getVarLong() - 1;
+		String threadName = getId();
+		String caller = getId();
+		int flags = record[position++];
+		StackTraceElement callerElement;
+		if((flags & BinaryLineEncoder.FLAG_CALLER_ELEMENT) != 0) {
+			String className = getId();
+			String methodName = getId();
+			String fileName = getId();
+			callerElement = new StackTraceElement(className == null ? "" : className, methodName == null ? "" : methodName, fileName, getVarInt() - 2);
+		} else {
+			// 호출 위치를 기록하지 않은 라인도 {method}, {line} 같은 패턴을 출력할 수 있도록 한다.
+			callerElement = new StackTraceElement(caller == null ? "" : caller, "", null, -1);
+		}
+		String message;
+		if((flags & BinaryLineEncoder.FLAG_FORMAT) != 0) {
+			String pattern = getId();
+			int count = getVarInt();
+			Object[] args = new Object[count];
+			for(int i = 0; i < count; ++i) {
+				args[i] = getArgument();
+			}
+			message = MessageFormatter.newFormat(pattern, args).toString();
+		} else {
+			message = getString();
+		}
+		String errorText = (flags & BinaryLineEncoder.FLAG_ERROR) != 0 ? getString() : null;
+		if(levelOrdinal >= LEVELS.length) {
+			throw new IOException("Corrupted record. (level: " + levelOrdinal + ")");
+		}
+		Line line = new Line(lineCombiner, levelOrdinal < 0 ? null : LEVELS[levelOrdinal], time, tid, threadName, marker, caller, message, 0, 0);
+		line.setCallerElement(callerElement);
+		if(errorText != null) {
+			line.setError(new RenderedThrowable(errorText));
+		}
+		return line;
+	}
+
+	private Object getArgument() throws IOException {
+		byte type = record[position++];
+		switch (type) {
+			case BinaryLineEncoder.ARG_NULL:
+				return null;
+			case BinaryLineEncoder.ARG_STRING:
+				return getString();
+			case BinaryLineEncoder.ARG_INT:
+				return (int)unZigZag(getVarLong());
+			case BinaryLineEncoder.ARG_LONG:
+				return unZigZag(getVarLong());
+			case BinaryLineEncoder.ARG_DOUBLE:
+				return Double.longBitsToDouble(getLong());
+			case BinaryLineEncoder.ARG_FLOAT:
+				return Float.intBitsToFloat(getInt());
+			case BinaryLineEncoder.ARG_TRUE:
+				return Boolean.TRUE;
+			case BinaryLineEncoder.ARG_FALSE:
+				return Boolean.FALSE;
+			case BinaryLineEncoder.ARG_CHAR:
+				return (char)getVarInt();
+			case BinaryLineEncoder.ARG_SHORT:
+				return (short)unZigZag(getVarLong());
+			case BinaryLineEncoder.ARG_BYTE:
+				return record[position++];
+			default:
+				throw new IOException("Corrupted record. (argument type: " + type + ")");
+		}
+	}
+
+	/**
+	 * 다음 레코드를 읽는다. 길이가 0 인 레코드는 미리 늘려 둔 파일의 끝으로 보고 더 읽지 않는다.
+	 */
+	private boolean nextRecord() throws IOException {
+		int length;
+		try {
+			length = in.readInt();
+		} catch (EOFException e) {
+			return false;
+		}
+		if(length == 0) {
+			return false;
+		}
+		if(length < 0) {
+			throw new IOException("Corrupted record. (length: " + length + ")");
+		}
+		if(length > record.length) {
+			record = new byte[length];
+		}
+		try {
+			in.readFully(record, 0, length);
+		} catch (EOFException e) {
+			// 기록하는 도중에 끝난 레코드는 버린다.
+			return false;
+		}
+		position = 0;
+		limit = length;
+		return true;
+	}
+
+	private String getId() throws IOException {
+		int id = getVarInt() - 2;
+		if(id == BinaryLineEncoder.INLINE_ID) {
+			return getString();
+		}
+		if(id == BinaryLineEncoder.NULL_ID) {
+			return null;
+		}
+		if(id < 0 || id >= dictionary.length || dictionary[id] == null) {
+			throw new IOException("Corrupted record. (undefined id: " + id + ")");
+		}
+		return dictionary[id];
+	}
+
+	private String getString() throws IOException {
+		int length = getVarInt() - 1;
+		if(length < 0) {
+			return null;
+		}
+		if(position + length > limit) {
+			throw new IOException("Corrupted record. (string length: " + length + ")");
+		}
+		String value = new String(record, position, length, UTF8);
+		position += length;
+		return value;
+	}
+
+	private int getInt() {
+		int value = ((record[position] & 0xFF) << 24) | ((record[position + 1] & 0xFF) << 16) | ((record[position + 2] & 0xFF) << 8) | (record[position + 3] & 0xFF);
+		position += 4;
+		return value;
+	}
+
+	private long getLong() {
+		long high = getInt() & 0xFFFFFFFFL;
+		return (high << 32) | (getInt() & 0xFFFFFFFFL);
+	}
+
+	private int getVarInt() throws IOException {
+		return (int)getVarLong();
+	}
+
+	private long getVarLong() throws IOException {
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7) {
+			if(position >= limit) {
+				break;
+			}
+			byte b = record[position++];
+			value |= (long)(b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Corrupted record. (variable length number)");
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+
+	/**
+	 * 바이너리 로그 파일을 읽어 텍스트로 표준 출력에 출력한다. FileMode.Block 으로 기록한 파일도 읽는다.<br>
+	 * Prints binary log files as text to standard output. Files written with FileMode.Block are also supported.
+	 * <pre>
+	 * BinaryLineDecoder [-p pattern] file...
+	 * </pre>
+	 */
+	public static void main(String[] args) throws IOException {
+		String pattern = null;
+		int index = 0;
+		if(args.length >= 2 && "-p".equals(args[0])) {
+			pattern = args[1];
+			index = 2;
+		}
+		if(index >= args.length) {
+			System.err.println("Usage: java -cp logexpress.jar " + BinaryLineDecoder.class.getName() + " [-p pattern] file...");
+			System.exit(1);
+			return;
+		}
+		Writer out = new OutputStreamWriter(System.out);
+		StringBuilder stringBuilder = new StringBuilder(256);
+		for(; index < args.length; ++index) {
+			BinaryLineDecoder decoder = new BinaryLineDecoder(open(new File(args[index])), pattern);
+			try {
+				while(decoder.read(stringBuilder)) {
+					out.append(stringBuilder);
+					stringBuilder.setLength(0);
+				}
+			} finally {
+				decoder.close();
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * 파일을 연다. 블록 압축 파일이라면 블록을 차례로 풀어 읽는다.
+	 */
+	static InputStream open(File file) throws IOException {
+		if(!BlockFileReader.isBlockFile(file)) {
+			return new FileInputStream(file);
+		}
+		final BlockFileReader reader = new BlockFileReader(file);
+		return new InputStream() {
+			private byte[] block = new byte[0];
+			private int offset = 0;
+			private int next = 0;
+
+			@Override
+			public int read() throws IOException {
+				byte[] buffer = new byte[1];
+				return read(buffer, 0, 1) < 0 ? -1 : buffer[0] & 0xFF;
+			}
+
+			@Override
+			public int read(byte[] buffer, int off, int len) throws IOException {
+				while(offset == block.length) {
+					if(next >= reader.getBlockCount()) {
+						return -1;
+					}
+					block = reader.readBlock(next++);
+					offset = 0;
+				}
+				int length = Math.min(len, block.length - offset);
+				System.arraycopy(block, offset, buffer, off, length);
+				offset += length;
+				return length;
+			}
+
+			@Override
+			public void close() {
+				reader.close();
+			}
+		};
+	}
+
+}
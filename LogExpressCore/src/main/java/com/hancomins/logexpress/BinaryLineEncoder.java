@@ -0,0 +1,341 @@
+package com.hancomins.logexpress;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashMap;
+
+/**
+ * {@link Line} 을 문자열로 포맷하지 않고 길이가 앞에 붙은 바이너리 레코드로 만든다. {@link BinaryLineDecoder} 로 다시 읽어 원하는 패턴의 텍스트로 만든다.<br>
+ * 메시지가 {@link MessageFormatter} 라면 포맷한 문자열 대신 메시지 패턴의 번호와 인자 값을 그대로 기록한다.
+ * 마커, 스레드 이름, 호출 클래스, 메시지 패턴 같이 반복되는 문자열은 처음 나올 때 정의 레코드로 한 번만 기록하고 이후에는 번호로 기록한다.
+ * 사전은 파일마다 따로 만들어 파일만으로 읽을 수 있도록 하며, 사전이 가득 차면 문자열을 레코드에 그대로 기록한다.<br>
+ * 레코드 형식 (정수는 big-endian, var 는 7bit 가변 길이)
+ * <pre>
+ * 레코드 : length(int) type(byte) 내용(length - 1)
+ * 'H'    : magic "LXBI"(int) version(byte). 이후의 레코드는 새 사전을 사용한다.
+ * 'D'    : id(var) 문자열
+ * 'L'    : time(long) level(byte) marker(id) tid(var) threadName(id) caller(id) flags(byte)
+ *          [className(id) methodName(id) fileName(id) lineNumber(var)]
+ *          { pattern(id) argumentCount(var) 인자들 | message(문자열) } [error(문자열)]
+ * 'T'    : time(long) text(문자열). 라인이 아닌 텍스트 (버린 라인 수 등)
+ * 문자열 : UTF-8 byte 수 + 1 (var, 0 은 null) 과 UTF-8 byte
+ * id     : 사전 번호 + 2 (var). 0 은 레코드에 그대로 기록한 문자열이 뒤따르고, 1 은 null
+ * </pre>
+ * 한 스레드에서만 사용해야 한다.
+ */
+public final class BinaryLineEncoder {
+
+	static final int MAGIC = 0x4C584249; // "LXBI"
+	static final byte VERSION = 1;
+
+	static final byte RECORD_HEADER = 'H';
+	static final byte RECORD_DEFINE = 'D';
+	static final byte RECORD_LINE = 'L';
+	static final byte RECORD_TEXT = 'T';
+
+	static final int FLAG_CALLER_ELEMENT = 1;
+	static final int FLAG_ERROR = 1 << 1;
+	static final int FLAG_FORMAT = 1 << 2;
+
+	static final int INLINE_ID = -2;
+	static final int NULL_ID = -1;
+	static final int MAX_DICTIONARY_SIZE = 4096;
+
+	static final byte ARG_NULL = 0;
+	static final byte ARG_STRING = 1;
+	static final byte ARG_INT = 2;
+	static final byte ARG_LONG = 3;
+	static final byte ARG_DOUBLE = 4;
+	static final byte ARG_FLOAT = 5;
+	static final byte ARG_TRUE = 6;
+	static final byte ARG_FALSE = 7;
+	static final byte ARG_CHAR = 8;
+	static final byte ARG_SHORT = 9;
+	static final byte ARG_BYTE = 10;
+
+	private static final int INITIAL_CAPACITY = 512;
+	/**
+	 * 큰 라인을 한 번 기록한 뒤에도 이보다 큰 버퍼는 붙잡아 두지 않는다.
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+	private byte[] buffer = new byte[INITIAL_CAPACITY];
+	private int position = 0;
+	private boolean headerWritten = false;
+
+
+	/**
+	 * 인코딩한 레코드를 담은 배열. encode 가 배열을 늘릴 수 있으므로 encode 를 호출한 뒤에 가져와야 하며, 다음 encode 를 호출하기 전까지 유효하다.
+	 */
+	public byte[] array() {
+		return buffer;
+	}
+
+	/**
+	 * line 을 레코드로 만든다. 처음 나온 문자열의 정의 레코드가 앞에 붙을 수 있다.
+	 * @return {@link #array()} 에 기록한 byte 수
+	 */
+	public int encode(Line line) {
+		begin();
+		CharSequence message = line.getMessage();
+		MessageFormatter formatter = message instanceof MessageFormatter ? (MessageFormatter)message : null;
+		StackTraceElement callerElement = line.hasCallerStackTrace() ? line.getStackTraceElement() : null;
+		CharSequence callerFQCN = line.getCallerFQCN();
+		// 정의 레코드는 라인 레코드보다 먼저 기록해야 하므로 번호를 먼저 찾는다.
+		int markerId = idOf(line.getMarker());
+		int threadNameId = idOf(line.getThreadName());
+		int callerId = idOf(callerFQCN == null ? null : callerFQCN.toString());
+		int classNameId = 0, methodNameId = 0, fileNameId = 0;
+		if(callerElement != null) {
+			classNameId = idOf(callerElement.getClassName());
+			methodNameId = idOf(callerElement.getMethodName());
+			fileNameId = idOf(callerElement.getFileName());
+		}
+		int patternId = formatter == null ? 0 : idOf(formatter.getPattern());
+
+		int start = beginRecord(RECORD_LINE);
+		putLong(line.getTime());
+		Level level = line.getLevel();
+		putByte(level == null ? -1 : level.ordinal());
+		putId(markerId, line.getMarker());
+		putVarLong(line.getTID() + 1);
+		putId(threadNameId, line.getThreadName());
+		putId(callerId, callerFQCN);
+		Throwable error = line.getError();
+		int flags = 0;
+		if(callerElement != null) flags |= FLAG_CALLER_ELEMENT;
+		if(error != null) flags |= FLAG_ERROR;
+		if(formatter != null) flags |= FLAG_FORMAT;
+		putByte(flags);
+		if(callerElement != null) {
+			putId(classNameId, callerElement.getClassName());
+			putId(methodNameId, callerElement.getMethodName());
+			putId(fileNameId, callerElement.getFileName());
+			putVarInt(callerElement.getLineNumber() + 2);
+		}
+		if(formatter != null) {
+			putId(patternId, formatter.getPattern());
+			int count = formatter.getArgumentCount();
+			putVarInt(count);
+			for(int i = 0; i < count; ++i) {
+				putArgument(formatter.getArgument(i));
+			}
+		} else {
+			putString(message);
+		}
+		if(error != null) {
+			StringWriter stringWriter = new StringWriter(512);
+			PrintWriter printWriter = new PrintWriter(stringWriter);
+			error.printStackTrace(printWriter);
+			printWriter.flush();
+			putString(stringWriter.toString());
+		}
+		endRecord(start);
+		return position;
+	}
+
+	/**
+	 * 라인이 아닌 텍스트를 레코드로 만든다. 디코더는 패턴과 관계없이 그대로 출력한다.
+	 * @return {@link #array()} 에 기록한 byte 수
+	 */
+	public int encodeText(long time, CharSequence text) {
+		begin();
+		int start = beginRecord(RECORD_TEXT);
+		putLong(time);
+		putString(text);
+		endRecord(start);
+		return position;
+	}
+
+	private void begin() {
+		if(buffer.length > MAX_RETAINED_CAPACITY) {
+			buffer = new byte[INITIAL_CAPACITY];
+		}
+		position = 0;
+		if(!headerWritten) {
+			headerWritten = true;
+			int start = beginRecord(RECORD_HEADER);
+			putInt(MAGIC);
+			putByte(VERSION);
+			endRecord(start);
+		}
+	}
+
+	/**
+	 * 사전에서 value 의 번호를 찾고, 없다면 등록한 뒤 정의 레코드를 기록한다. 사전이 가득 찼다면 INLINE_ID 를 반환한다.
+	 */
+	private int idOf(String value) {
+		if(value == null) {
+			return NULL_ID;
+		}
+		Integer id = ids.get(value);
+		if(id != null) {
+			return id;
+		}
+		if(ids.size() >= MAX_DICTIONARY_SIZE) {
+			return INLINE_ID;
+		}
+		int newId = ids.size();
+		ids.put(value, newId);
+		int start = beginRecord(RECORD_DEFINE);
+		putVarInt(newId);
+		putString(value);
+		endRecord(start);
+		return newId;
+	}
+
+	private void putId(int id, CharSequence value) {
+		putVarInt(id + 2);
+		if(id == INLINE_ID) {
+			putString(value);
+		}
+	}
+
+	private void putArgument(Object arg) {
+		if(arg == null) {
+			putByte(ARG_NULL);
+		} else if(arg instanceof Integer) {
+			putByte(ARG_INT);
+			putVarLong(zigZag((Integer)arg));
+		} else if(arg instanceof Long) {
+			putByte(ARG_LONG);
+			putVarLong(zigZag((Long)arg));
+		} else if(arg instanceof Double) {
+			putByte(ARG_DOUBLE);
+			putLong(Double.doubleToRawLongBits((Double)arg));
+		} else if(arg instanceof Float) {
+			putByte(ARG_FLOAT);
+			putInt(Float.floatToRawIntBits((Float)arg));
+		} else if(arg instanceof Boolean) {
+			putByte((Boolean)arg ? ARG_TRUE : ARG_FALSE);
+		} else if(arg instanceof Character) {
+			putByte(ARG_CHAR);
+			putVarInt((Character)arg);
+		} else if(arg instanceof Short) {
+			putByte(ARG_SHORT);
+			putVarLong(zigZag((Short)arg));
+		} else if(arg instanceof Byte) {
+			putByte(ARG_BYTE);
+			putByte((Byte)arg);
+		} else {
+			// 그 밖의 객체는 MessageFormatter 와 같이 문자열로 바꾸어 기록한다.
+			putByte(ARG_STRING);
+			putString(arg instanceof CharSequence ? (CharSequence)arg : String.valueOf(arg));
+		}
+	}
+
+	private int beginRecord(byte type) {
+		int start = position;
+		ensure(5);
+		position += 4;
+		buffer[position++] = type;
+		return start;
+	}
+
+	private void endRecord(int start) {
+		int length = position - start - 4;
+		buffer[start] = (byte)(length >>> 24);
+		buffer[start + 1] = (byte)(length >>> 16);
+		buffer[start + 2] = (byte)(length >>> 8);
+		buffer[start + 3] = (byte)length;
+	}
+
+	private void putByte(int value) {
+		ensure(1);
+		buffer[position++] = (byte)value;
+	}
+
+	private void putInt(int value) {
+		ensure(4);
+		buffer[position++] = (byte)(value >>> 24);
+		buffer[position++] = (byte)(value >>> 16);
+		buffer[position++] = (byte)(value >>> 8);
+		buffer[position++] = (byte)value;
+	}
+
+	private void putLong(long value) {
+		putInt((int)(value >>> 32));
+		putInt((int)value);
+	}
+
+	private void putVarInt(int value) {
+		putVarLong(value & 0xFFFFFFFFL);
+	}
+
+	private void putVarLong(long value) {
+		ensure(10);
+		while((value & ~0x7FL) != 0) {
+			buffer[position++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte)value;
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * 문자열을 UTF-8 로 기록한다. 짝이 없는 surrogate 는 '?' 로 기록한다.
+	 */
+	private void putString(CharSequence value) {
+		if(value == null) {
+			putVarInt(0);
+			return;
+		}
+		int length = value.length();
+		int byteLength = 0;
+		for(int i = 0; i < length; ++i) {
+			char ch = value.charAt(i);
+			if(ch < 0x80) {
+				++byteLength;
+			} else if(ch < 0x800) {
+				byteLength += 2;
+			} else if(Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				byteLength += 4;
+				++i;
+			} else if(ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+				++byteLength;
+			} else {
+				byteLength += 3;
+			}
+		}
+		putVarInt(byteLength + 1);
+		ensure(byteLength);
+		byte[] buffer = this.buffer;
+		int pos = position;
+		for(int i = 0; i < length; ++i) {
+			char ch = value.charAt(i);
+			if(ch < 0x80) {
+				buffer[pos++] = (byte)ch;
+			} else if(ch < 0x800) {
+				buffer[pos++] = (byte)(0xC0 | (ch >> 6));
+				buffer[pos++] = (byte)(0x80 | (ch & 0x3F));
+			} else if(Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(ch, value.charAt(++i));
+				buffer[pos++] = (byte)(0xF0 | (codePoint >> 18));
+				buffer[pos++] = (byte)(0x80 | ((codePoint >> 12) & 0x3F));
+				buffer[pos++] = (byte)(0x80 | ((codePoint >> 6) & 0x3F));
+				buffer[pos++] = (byte)(0x80 | (codePoint & 0x3F));
+			} else if(ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+				buffer[pos++] = '?';
+			} else {
+				buffer[pos++] = (byte)(0xE0 | (ch >> 12));
+				buffer[pos++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+				buffer[pos++] = (byte)(0x80 | (ch & 0x3F));
+			}
+		}
+		position = pos;
+	}
+
+	private void ensure(int size) {
+		if(position + size <= buffer.length) {
+			return;
+		}
+		byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + size)];
+		System.arraycopy(buffer, 0, newBuffer, 0, position);
+		buffer = newBuffer;
+	}
+
+}
@@ -3,8 +3,27 @@ package com.hancomins.logexpress;
 import com.hancomins.logexpress.configuration.WriterType;
 import com.hancomins.logexpress.writer.CurrentTimeMillisGetter;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 public class Line {
 
+	// 큐에 쌓인 라인이 차지하는 메모리를 추정하기 위한 값. 64bit JVM 기준의 대략적인 크기다.
+	private static final int LINE_BYTES = 128;
+	private static final int STRING_BYTES = 40;
+	private static final int ARGUMENT_BYTES = 32;
+	private static final int THROWABLE_BYTES = 64;
+	private static final int STACK_FRAME_BYTES = 96;
+	/**
+	 * 호출 위치를 찾기 위해 만든 Throwable. 스택 트레이스는 기록할 때 풀리므로 큐에서는 압축된 backtrace 만 차지한다.
+	 */
+	private static final int CALLER_STACK_BYTES = 1024;
+	private static final int MAX_CAUSE_DEPTH = 16;
+	private static final int MAX_CACHED_STACK_TRACE_TYPES = 512;
+	/**
+	 * 예외 타입별 스택 트레이스 크기. 같은 타입의 예외는 대부분 비슷한 깊이에서 던져진다.
+	 */
+	private static final ConcurrentHashMap<Class<?>, Integer> stackTraceBytesCache = new ConcurrentHashMap<Class<?>, Integer>();
+
 	Line(LineFormatter formatter, Level level, String marker, CharSequence message, Throwable error, int elementIndex) {
 		this(formatter,"",level,marker,message,error,elementIndex);
 	}
@@ -35,6 +54,22 @@ public class Line {
 		 }
 	 }
 
+	/**
+	 * {@link LineCodec} 이 버퍼에서 읽은 값으로 라인을 복원할 때 사용한다.
+	 */
+	Line(LineCombiner lineCombiner, Level level, long time, long tid, String threadName, String marker, CharSequence callerFQCN, CharSequence message, int elementIndex, long sequence) {
+		this.lineCombiner = lineCombiner;
+		this.level = level;
+		this.time = time;
+		this.tid = tid;
+		this.threadName = threadName;
+		this.marker = marker;
+		this.callerFQCN = callerFQCN == null ? "" : callerFQCN;
+		this.message = message;
+		this.elementIndex = elementIndex;
+		this.sequence = sequence;
+	}
+
 	 public boolean isConsistentOutputLine() {
 		return this.lineCombiner.isConsistentOutputLine();
 	 }
@@ -48,6 +83,56 @@ public class Line {
 		 return result;
 	 }
 
+	 /**
+	  * 라인을 stringBuilder 뒤에 이어서 만든다. 새 StringBuilder 를 만들지 않는다.
+	  * @param writerType 출력 대상. null 이면 콘솔과 파일에 같은 내용을 출력한다.
+	  * @param stringBuilder 라인을 이어서 쓸 StringBuilder
+	  * @return stringBuilder
+	  */
+	 public StringBuilder makeLine(WriterType writerType, StringBuilder stringBuilder) {
+		 if (lineCombiner != null) {
+			 this.lineCombiner.combine(this, writerType, stringBuilder);
+		 }
+		 return stringBuilder;
+	 }
+
+	 /**
+	  * 스타일 설정과 관계없이 ANSI 코드 없이 라인을 stringBuilder 뒤에 이어서 만든다.
+	  * @param stringBuilder 라인을 이어서 쓸 StringBuilder
+	  * @return stringBuilder
+	  */
+	 public StringBuilder makePlainLine(StringBuilder stringBuilder) {
+		 if (lineCombiner != null) {
+			 this.lineCombiner.combine(this, false, stringBuilder, null);
+		 }
+		 return stringBuilder;
+	 }
+
+	 /**
+	  * 라인을 한 번만 포맷하여 스타일 없는 라인과 스타일 위치를 함께 만든다.<br>
+	  * 스타일 없는 라인은 stringBuilder 뒤에 이어서 쓰고, ANSI 코드를 넣을 위치와 코드는 styleSpans 에 담는다.
+	  * 스타일이 있는 라인은 {@link StyleSpans#applyTo(CharSequence, StringBuilder)} 로 만든다.
+	  * stringBuilder 는 비어 있어야 한다.
+	  * @param stringBuilder 스타일 없는 라인을 쓸 빈 StringBuilder
+	  * @param styleSpans 스타일 위치를 담을 StyleSpans
+	  * @return stringBuilder
+	  */
+	 public StringBuilder makeLine(StringBuilder stringBuilder, StyleSpans styleSpans) {
+		 if (lineCombiner != null) {
+			 this.lineCombiner.combine(this, true, stringBuilder, styleSpans);
+		 }
+		 return stringBuilder;
+	 }
+
+	 /**
+	  * writerType 에 출력할 라인에 스타일(ANSI 코드)이 들어가는지 확인한다.
+	  * @param writerType 출력 대상
+	  * @return 스타일이 들어가면 true
+	  */
+	 public boolean isStyledOutput(WriterType writerType) {
+		 return lineCombiner != null && lineCombiner.isStyled(writerType);
+	 }
+
 	 
 	 public void release() {
 		 callerFQCN = null;
@@ -57,6 +142,7 @@ public class Line {
 		 level = null;
 		 error = null;
 		 throwable = null;
+		 callerElement = null;
 		 lineCombiner = null;
 	 }
 	 
@@ -95,6 +181,9 @@ public class Line {
 	}
 
 	public StackTraceElement getStackTraceElement() {
+		if(callerElement != null) {
+			return callerElement;
+		}
 		StackTraceElement[] stackTraceElements = throwable.getStackTrace();
 		if(stackTraceElements.length <= elementIndex) {
 			return stackTraceElements[stackTraceElements.length - 1];	
@@ -104,6 +193,29 @@ public class Line {
 		return throwable.getStackTrace()[elementIndex];
 	}
 	
+	boolean hasCallerStackTrace() {
+		return throwable != null;
+	}
+
+	/**
+	 * {@link LineCodec} 이 기록해 둔 호출 위치로 복원할 때 사용한다.
+	 */
+	void setCallerElement(StackTraceElement callerElement) {
+		this.callerElement = callerElement;
+	}
+
+	void setError(Throwable error) {
+		this.error = error;
+	}
+
+	int getElementIndex() {
+		return elementIndex;
+	}
+
+	LineCombiner getLineCombiner() {
+		return lineCombiner;
+	}
+
 	public Level getLevel() {
 		return level;
 	}
@@ -113,9 +225,76 @@ public class Line {
 		
 	}
 
+	/**
+	 * 큐에 들어간 전역 순서. StripedLineQueue 의 strict 모드에서만 매겨진다.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	public void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+
+	/**
+	 * 라인이 큐에 머무는 동안 차지하는 메모리(byte)의 추정치.<br>
+	 * 메시지 길이, 포맷 인자의 수, 예외와 그 cause 들의 스택 트레이스 크기로 계산하며 처음 계산한 값을 계속 사용한다.
+	 */
+	public int getEstimatedSize() {
+		if(estimatedSize < 0) {
+			estimatedSize = estimateSize();
+		}
+		return estimatedSize;
+	}
+
+	void setEstimatedSize(int estimatedSize) {
+		this.estimatedSize = estimatedSize;
+	}
+
+	private int estimateSize() {
+		long size = LINE_BYTES;
+		if(message != null) {
+			size += STRING_BYTES + 2L * message.length();
+			if(message instanceof MessageFormatter) {
+				size += (long)ARGUMENT_BYTES * ((MessageFormatter)message).getArgumentCount();
+			}
+		}
+		if(throwable != null) {
+			size += CALLER_STACK_BYTES;
+		}
+		Throwable cause = error;
+		for(int depth = 0; cause != null && depth < MAX_CAUSE_DEPTH; ++depth) {
+			size += THROWABLE_BYTES + stackTraceBytesOf(cause);
+			String causeMessage = cause.getMessage();
+			if(causeMessage != null) {
+				size += STRING_BYTES + 2L * causeMessage.length();
+			}
+			if(cause.getCause() == cause) {
+				break;
+			}
+			cause = cause.getCause();
+		}
+		return (int)Math.min(size, Integer.MAX_VALUE);
+	}
+
+	private static int stackTraceBytesOf(Throwable error) {
+		Class<?> type = error.getClass();
+		Integer cached = stackTraceBytesCache.get(type);
+		if(cached != null) {
+			return cached;
+		}
+		int bytes = error.getStackTrace().length * STACK_FRAME_BYTES;
+		if(stackTraceBytesCache.size() < MAX_CACHED_STACK_TRACE_TYPES) {
+			stackTraceBytesCache.put(type, bytes);
+		}
+		return bytes;
+	}
+
 	
 	private final int elementIndex;
 	private final long time;
+	private long sequence = 0;
+	private int estimatedSize = -1;
 	private long tid = -1;
 	private String threadName = null;
 	private String marker;
@@ -123,6 +302,7 @@ public class Line {
 	private CharSequence callerFQCN;
 	private Level level;
 	private Throwable throwable = null;
+	private StackTraceElement callerElement = null;
 	private Throwable error;
 	private LineCombiner lineCombiner;
 }
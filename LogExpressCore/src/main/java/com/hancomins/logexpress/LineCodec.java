@@ -0,0 +1,367 @@
+package com.hancomins.logexpress;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link Line} 을 바이너리 레코드로 기록하고 다시 읽는다.<br>
+ * 마커, 스레드 이름, 호출 클래스 이름과 라인 포맷은 사전에 등록한 번호로 기록하기 때문에 레코드에는 숫자와 메시지 바이트만 남는다.<br>
+ * 라인 포맷은 문자열과 다른 사전에 등록하므로 스레드 이름처럼 계속 늘어나는 문자열이 사전을 채워도 라인 포맷은 등록할 수 있다.
+ * 문자열 사전이 가득 차면 문자열을 레코드 뒤에 그대로 기록한다. 사전이 가득 차면 한 번 경고를 남긴다.<br>
+ * 메시지의 모든 문자가 0xFF 이하라면 문자당 1byte, 아니라면 2byte(UTF-16) 로 기록한다.<br>
+ * {@link #encode} 는 예외나 호출 위치의 스택 트레이스를 갖는 라인을 기록하지 않는다.
+ * {@link #encodeDetached} 는 호출 위치를 찾고 예외를 문자열로 출력하여 함께 기록하므로 모든 라인을 기록할 수 있다.<br>
+ * 사전은 메모리에만 있으므로 레코드는 같은 LineCodec 인스턴스로만 읽을 수 있다.<br>
+ * 생산자는 여러 스레드, 소비자는 한 스레드라는 전제로 만들어졌다.
+ */
+public final class LineCodec {
+
+	private static final int OFFSET_MESSAGE_LENGTH = 0;
+	private static final int OFFSET_LEVEL = 4;
+	private static final int OFFSET_ENCODING = 5;
+	private static final int OFFSET_FLAGS = 6;
+	private static final int OFFSET_TIME = 8;
+	private static final int OFFSET_TID = 16;
+	private static final int OFFSET_SEQUENCE = 24;
+	private static final int OFFSET_ELEMENT_INDEX = 32;
+	private static final int OFFSET_COMBINER = 36;
+	private static final int OFFSET_MARKER = 40;
+	private static final int OFFSET_THREAD_NAME = 44;
+	private static final int OFFSET_CALLER = 48;
+	private static final int OFFSET_ESTIMATED_SIZE = 52;
+	/**
+	 * 메시지 앞에 기록되는 고정 필드의 크기(byte).
+	 */
+	public static final int HEADER_SIZE = 56;
+
+	private static final byte ENCODING_LATIN1 = 0;
+	private static final byte ENCODING_UTF16 = 1;
+
+	private static final byte FLAG_CALLER_ELEMENT = 1;
+	private static final byte FLAG_ERROR = 1 << 1;
+
+	private static final int NULL_ID = -1;
+	private static final int NO_ID = -2;
+	/**
+	 * 사전이 가득 차서 문자열을 레코드 뒤에 그대로 기록했다.
+	 */
+	private static final int INLINE_ID = -3;
+	private static final int MAX_DICTIONARY_SIZE = 4096;
+	private static final int MAX_COMBINER_DICTIONARY_SIZE = 1024;
+
+	private static final Level[] LEVELS = Level.values();
+
+	/**
+	 * 마커, 스레드 이름, 호출 클래스 이름.
+	 */
+	private final Dictionary strings = new Dictionary(MAX_DICTIONARY_SIZE,
+			"The string dictionary of LineCodec is full (" + MAX_DICTIONARY_SIZE + " entries). New markers, thread names and callers are written inline.");
+	private final Dictionary combiners = new Dictionary(MAX_COMBINER_DICTIONARY_SIZE,
+			"The line format dictionary of LineCodec is full (" + MAX_COMBINER_DICTIONARY_SIZE + " entries). Lines with new formats are not encoded.");
+
+
+	/**
+	 * line 을 buffer 의 offset 위치부터 최대 length byte 로 기록한다. buffer 의 position 은 바뀌지 않는다.
+	 * @return 기록한 byte 수. 기록할 수 없는 라인이라면 -1
+	 */
+	public int encode(Line line, ByteBuffer buffer, int offset, int length) {
+		if(line.getError() != null || line.hasCallerStackTrace()) {
+			return -1;
+		}
+		return encode(line, buffer, offset, length, null, null, false);
+	}
+
+	/**
+	 * {@link #encode} 와 같지만 호출 위치와 예외도 함께 기록한다.
+	 * @return 기록한 byte 수. length 안에 들어가지 않는다면 필요한 byte 수에 -1 을 곱한 값, 기록할 수 없는 라인이라면 -1
+	 */
+	public int encodeDetached(Line line, ByteBuffer buffer, int offset, int length) {
+		StackTraceElement callerElement = line.hasCallerStackTrace() ? line.getStackTraceElement() : null;
+		String errorText = null;
+		if(line.getError() != null) {
+			StringWriter stringWriter = new StringWriter(512);
+			PrintWriter printWriter = new PrintWriter(stringWriter);
+			line.getError().printStackTrace(printWriter);
+			printWriter.flush();
+			errorText = stringWriter.toString();
+		}
+		return encode(line, buffer, offset, length, callerElement, errorText, true);
+	}
+
+	private int encode(Line line, ByteBuffer buffer, int offset, int length, StackTraceElement callerElement, String errorText, boolean detached) {
+		CharSequence message = line.getMessage();
+		String text = message == null ? null : message.toString();
+		byte encoding = ENCODING_LATIN1;
+		int size = HEADER_SIZE;
+		if(text != null) {
+			int textLength = text.length();
+			for(int i = 0; i < textLength; ++i) {
+				if(text.charAt(i) > 0xFF) {
+					encoding = ENCODING_UTF16;
+					break;
+				}
+			}
+			size += encoding == ENCODING_LATIN1 ? textLength : textLength * 2;
+		}
+		int combinerId = combiners.idOf(line.getLineCombiner());
+		if(combinerId == NO_ID) {
+			return -1;
+		}
+		String marker = line.getMarker();
+		String threadName = line.getThreadName();
+		CharSequence callerFQCN = line.getCallerFQCN();
+		String caller = callerFQCN == null ? null : callerFQCN.toString();
+		int markerId = strings.idOf(marker);
+		int threadNameId = strings.idOf(threadName);
+		int callerId = strings.idOf(caller);
+		// 사전이 가득 찼다면 문자열을 그대로 기록한다.
+		if(markerId == NO_ID) {
+			markerId = INLINE_ID;
+			size += sizeOf(marker);
+		}
+		if(threadNameId == NO_ID) {
+			threadNameId = INLINE_ID;
+			size += sizeOf(threadName);
+		}
+		if(callerId == NO_ID) {
+			callerId = INLINE_ID;
+			size += sizeOf(caller);
+		}
+		byte flags = 0;
+		if(callerElement != null) {
+			flags |= FLAG_CALLER_ELEMENT;
+			size += sizeOf(callerElement.getClassName()) + sizeOf(callerElement.getMethodName()) + sizeOf(callerElement.getFileName()) + 4;
+		}
+		if(errorText != null) {
+			flags |= FLAG_ERROR;
+			size += sizeOf(errorText);
+		}
+		if(size > length) {
+			return detached ? -size : -1;
+		}
+
+		Level level = line.getLevel();
+		buffer.putInt(offset + OFFSET_MESSAGE_LENGTH, text == null ? -1 : text.length());
+		buffer.put(offset + OFFSET_LEVEL, level == null ? -1 : (byte)level.ordinal());
+		buffer.put(offset + OFFSET_ENCODING, encoding);
+		buffer.put(offset + OFFSET_FLAGS, flags);
+		buffer.putLong(offset + OFFSET_TIME, line.getTime());
+		buffer.putLong(offset + OFFSET_TID, line.getTID());
+		buffer.putLong(offset + OFFSET_SEQUENCE, line.getSequence());
+		buffer.putInt(offset + OFFSET_ELEMENT_INDEX, line.getElementIndex());
+		buffer.putInt(offset + OFFSET_COMBINER, combinerId);
+		buffer.putInt(offset + OFFSET_MARKER, markerId);
+		buffer.putInt(offset + OFFSET_THREAD_NAME, threadNameId);
+		buffer.putInt(offset + OFFSET_CALLER, callerId);
+		// 복원한 라인은 포맷 인자를 갖지 않으므로, 큐의 메모리 계산이 어긋나지 않도록 원래의 추정치를 그대로 옮긴다.
+		buffer.putInt(offset + OFFSET_ESTIMATED_SIZE, line.getEstimatedSize());
+		int pos = offset + HEADER_SIZE;
+		if(text != null) {
+			int textLength = text.length();
+			if(encoding == ENCODING_LATIN1) {
+				for(int i = 0; i < textLength; ++i) {
+					buffer.put(pos + i, (byte)text.charAt(i));
+				}
+				pos += textLength;
+			} else {
+				for(int i = 0; i < textLength; ++i) {
+					buffer.putChar(pos + (i << 1), text.charAt(i));
+				}
+				pos += textLength << 1;
+			}
+		}
+		if(callerElement != null) {
+			pos = putString(buffer, pos, callerElement.getClassName());
+			pos = putString(buffer, pos, callerElement.getMethodName());
+			pos = putString(buffer, pos, callerElement.getFileName());
+			buffer.putInt(pos, callerElement.getLineNumber());
+			pos += 4;
+		}
+		if(errorText != null) {
+			pos = putString(buffer, pos, errorText);
+		}
+		if(markerId == INLINE_ID) {
+			pos = putString(buffer, pos, marker);
+		}
+		if(threadNameId == INLINE_ID) {
+			pos = putString(buffer, pos, threadName);
+		}
+		if(callerId == INLINE_ID) {
+			pos = putString(buffer, pos, caller);
+		}
+		return pos - offset;
+	}
+
+	/**
+	 * buffer 의 offset 위치에 기록된 레코드를 읽어서 Line 을 만든다.
+	 */
+	public Line decode(ByteBuffer buffer, int offset) {
+		int textLength = buffer.getInt(offset + OFFSET_MESSAGE_LENGTH);
+		byte levelOrdinal = buffer.get(offset + OFFSET_LEVEL);
+		byte flags = buffer.get(offset + OFFSET_FLAGS);
+		String text = null;
+		int pos = offset + HEADER_SIZE;
+		if(textLength >= 0) {
+			char[] chars = new char[textLength];
+			if(buffer.get(offset + OFFSET_ENCODING) == ENCODING_LATIN1) {
+				for(int i = 0; i < textLength; ++i) {
+					chars[i] = (char)(buffer.get(pos + i) & 0xFF);
+				}
+				pos += textLength;
+			} else {
+				for(int i = 0; i < textLength; ++i) {
+					chars[i] = buffer.getChar(pos + (i << 1));
+				}
+				pos += textLength << 1;
+			}
+			text = new String(chars);
+		}
+		StackTraceElement callerElement = null;
+		if((flags & FLAG_CALLER_ELEMENT) != 0) {
+			String className = getString(buffer, pos);
+			pos += sizeOf(className);
+			String methodName = getString(buffer, pos);
+			pos += sizeOf(methodName);
+			String fileName = getString(buffer, pos);
+			pos += sizeOf(fileName);
+			callerElement = new StackTraceElement(className, methodName, fileName, buffer.getInt(pos));
+			pos += 4;
+		}
+		String errorText = null;
+		if((flags & FLAG_ERROR) != 0) {
+			errorText = getString(buffer, pos);
+			pos += sizeOf(errorText);
+		}
+		int markerId = buffer.getInt(offset + OFFSET_MARKER);
+		int threadNameId = buffer.getInt(offset + OFFSET_THREAD_NAME);
+		int callerId = buffer.getInt(offset + OFFSET_CALLER);
+		String marker;
+		String threadName;
+		String caller;
+		if(markerId == INLINE_ID) {
+			marker = getString(buffer, pos);
+			pos += sizeOf(marker);
+		} else {
+			marker = (String)strings.valueOf(markerId);
+		}
+		if(threadNameId == INLINE_ID) {
+			threadName = getString(buffer, pos);
+			pos += sizeOf(threadName);
+		} else {
+			threadName = (String)strings.valueOf(threadNameId);
+		}
+		if(callerId == INLINE_ID) {
+			caller = getString(buffer, pos);
+		} else {
+			caller = (String)strings.valueOf(callerId);
+		}
+		Line line = new Line((LineCombiner)combiners.valueOf(buffer.getInt(offset + OFFSET_COMBINER)),
+				levelOrdinal < 0 ? null : LEVELS[levelOrdinal],
+				buffer.getLong(offset + OFFSET_TIME),
+				buffer.getLong(offset + OFFSET_TID),
+				threadName,
+				marker,
+				caller,
+				text,
+				buffer.getInt(offset + OFFSET_ELEMENT_INDEX),
+				buffer.getLong(offset + OFFSET_SEQUENCE));
+		line.setEstimatedSize(buffer.getInt(offset + OFFSET_ESTIMATED_SIZE));
+		if(callerElement != null) {
+			line.setCallerElement(callerElement);
+		}
+		if(errorText != null) {
+			line.setError(new RenderedThrowable(errorText));
+		}
+		return line;
+	}
+
+	private static int sizeOf(String value) {
+		return value == null ? 4 : 4 + (value.length() << 1);
+	}
+
+	private static int putString(ByteBuffer buffer, int pos, String value) {
+		if(value == null) {
+			buffer.putInt(pos, -1);
+			return pos + 4;
+		}
+		int length = value.length();
+		buffer.putInt(pos, length);
+		pos += 4;
+		for(int i = 0; i < length; ++i) {
+			buffer.putChar(pos + (i << 1), value.charAt(i));
+		}
+		return pos + (length << 1);
+	}
+
+	private static String getString(ByteBuffer buffer, int pos) {
+		int length = buffer.getInt(pos);
+		if(length < 0) {
+			return null;
+		}
+		pos += 4;
+		char[] chars = new char[length];
+		for(int i = 0; i < length; ++i) {
+			chars[i] = buffer.getChar(pos + (i << 1));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * 값을 번호로 바꾸는 사전. 등록한 값은 지우지 않는다.
+	 */
+	private static final class Dictionary {
+		private final int capacity;
+		private final String fullMessage;
+		private final ConcurrentHashMap<Object, Integer> ids = new ConcurrentHashMap<Object, Integer>();
+		private final AtomicReferenceArray<Object> values;
+		private volatile int nextId = 0;
+
+		private Dictionary(int capacity, String fullMessage) {
+			this.capacity = capacity;
+			this.fullMessage = fullMessage;
+			this.values = new AtomicReferenceArray<Object>(capacity);
+		}
+
+		/**
+		 * value 의 번호를 찾고, 없다면 새로 등록한다. 사전이 가득 찼다면 NO_ID 를 반환한다.
+		 */
+		private int idOf(Object value) {
+			if(value == null) {
+				return NULL_ID;
+			}
+			Integer id = ids.get(value);
+			if(id != null) {
+				return id;
+			}
+			if(nextId > capacity) {
+				return NO_ID;
+			}
+			synchronized (ids) {
+				id = ids.get(value);
+				if(id != null) {
+					return id;
+				}
+				if(nextId >= capacity) {
+					if(nextId == capacity) {
+						// 가득 찼음을 한 번만 알린다. 이후로는 잠그지 않고 NO_ID 를 반환한다.
+						++nextId;
+						InLogger.WARN(fullMessage, null);
+					}
+					return NO_ID;
+				}
+				// 번호를 공개하기 전에 사전에 먼저 넣어야 소비자가 항상 값을 찾을 수 있다.
+				values.set(nextId, value);
+				ids.put(value, nextId);
+				return nextId++;
+			}
+		}
+
+		private Object valueOf(int id) {
+			return id < 0 ? null : values.get(id);
+		}
+	}
+
+}
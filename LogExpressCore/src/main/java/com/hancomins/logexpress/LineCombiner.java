@@ -3,25 +3,36 @@ package com.hancomins.logexpress;
 import com.hancomins.logexpress.configuration.StyleOption;
 import com.hancomins.logexpress.configuration.WriterType;
 import com.hancomins.logexpress.configuration.ANSIColor;
+import com.hancomins.logexpress.util.StringUtil;
 import com.hancomins.logexpress.util.SysTool;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintWriter;
+import java.io.Writer;
 
 class LineCombiner {
 
     private final LineFormatter.FormatItem[] formatItems;
     private final StyleOption styleOption;
+    private final boolean json;
 
 
 
     LineCombiner(LineFormatter.FormatItem[] formatItems, StyleOption styleOption) {
+        this(formatItems, styleOption, false);
+    }
+
+    /**
+     * @param json true 이면 라인을 JSON 객체 한 줄로 만든다. (LineLayout.Json)
+     */
+    LineCombiner(LineFormatter.FormatItem[] formatItems, StyleOption styleOption, boolean json) {
         this.formatItems = formatItems;
         this.styleOption = styleOption;
+        this.json = json;
     }
 
     boolean isConsistentOutputLine() {
-        if(styleOption == null) {
+        if(styleOption == null || json) {
             return true;
         }
         return styleOption.isEnabledConsole() == styleOption.isEnabledFile();
@@ -102,14 +113,39 @@ class LineCombiner {
 
 
 
-    @SuppressWarnings("ForLoopReplaceableByForEach")
     CharSequence combine(Line line, WriterType writerType) {
-        StringBuilder stringBuilder = new StringBuilder();
-        Level level = line.getLevel();
-        boolean allowStyle = styleOption != null &&
+        return combine(line, writerType, new StringBuilder());
+    }
+
+    /**
+     * 라인을 stringBuilder 뒤에 이어서 만든다. WriteWorker 가 StringBuilder 를 재사용할 때 사용한다.
+     */
+    StringBuilder combine(Line line, WriterType writerType, StringBuilder stringBuilder) {
+        return combine(line, isStyled(writerType), stringBuilder, null);
+    }
+
+    /**
+     * writerType 에 출력할 라인에 스타일(ANSI 코드)이 들어가는지 확인한다.
+     * @param writerType 출력 대상. null 이면 콘솔과 파일 중 하나라도 스타일을 사용하는지 확인한다.
+     */
+    boolean isStyled(WriterType writerType) {
+        return styleOption != null && !json &&
                         ((writerType == null && (styleOption.isEnabledConsole() || styleOption.isEnabledFile())) ||
                         (writerType == WriterType.Console && styleOption.isEnabledConsole()) ||
                         (writerType == WriterType.File && styleOption.isEnabledFile()));
+    }
+
+    /**
+     * 라인을 stringBuilder 뒤에 이어서 만든다. allowStyle 이 false 이면 스타일 설정과 관계없이 ANSI 코드를 넣지 않는다.<br>
+     * styleSpans 가 null 이 아니면 ANSI 코드를 stringBuilder 에 넣지 않고, 넣을 위치와 코드를 styleSpans 에 담는다.
+     * 위치는 stringBuilder 의 처음부터 센다.
+     */
+    @SuppressWarnings("ForLoopReplaceableByForEach")
+    StringBuilder combine(Line line, boolean allowStyle, StringBuilder stringBuilder, StyleSpans styleSpans) {
+        if(json) {
+            return combineJson(line, stringBuilder);
+        }
+        Level level = line.getLevel();
         boolean writeColor = false;
 
 
@@ -125,7 +161,11 @@ class LineCombiner {
                 writeColor = false;
                 String colorCode = styleOption.getAnsiCode(level, item.type);
                 if(colorCode != null) {
-                    stringBuilder.append(colorCode);
+                    if(styleSpans != null) {
+                        styleSpans.add(stringBuilder.length(), colorCode);
+                    } else {
+                        stringBuilder.append(colorCode);
+                    }
                     writeColor = true;
                 }
             }
@@ -167,7 +207,7 @@ class LineCombiner {
                         stringBuilder.append(line.getMarker());
                     break;
                 case Time:
-                    stringBuilder.append(item.dateFormat.format(line.getTime()));
+                    stringBuilder.append(item.formatTime(line.getTime()));
                     break;
                 case Level:
                     stringBuilder.append(line.getLevel());
@@ -243,7 +283,11 @@ class LineCombiner {
                     break;
             }
             if(writeColor) {
-                stringBuilder.append(ANSIColor.ANSI_RESET);
+                if(styleSpans != null) {
+                    styleSpans.add(stringBuilder.length(), ANSIColor.ANSI_RESET);
+                } else {
+                    stringBuilder.append(ANSIColor.ANSI_RESET);
+                }
             }
         }
         stringBuilder.append("\n");
@@ -257,4 +301,178 @@ class LineCombiner {
         }
         return stringBuilder;
     }
+
+    /**
+     * 라인을 JSON 객체 한 줄로 만들어 stringBuilder 뒤에 붙인다. 패턴의 항목을 항목 이름을 키로 하는 필드로 쓰고,
+     * 텍스트 항목과 길이 제한, 스타일은 사용하지 않는다. 같은 항목이 여러 번 있다면 처음 것만 쓴다.<br>
+     * 문자열은 중간 문자열을 만들지 않고 stringBuilder 에 바로 이스케이프한다.
+     */
+    @SuppressWarnings("ForLoopReplaceableByForEach")
+    private StringBuilder combineJson(Line line, StringBuilder stringBuilder) {
+        Level level = line.getLevel();
+        int writtenTypes = 0;
+        boolean first = true;
+        stringBuilder.append('{');
+        for(int i = 0, n = formatItems.length; i < n; ++i) {
+            LineFormatter.FormatItem item = formatItems[i];
+            if(item.type == LinePatternItemType.Text || !level.isLowerThan(item.level)) {
+                continue;
+            }
+            if(!item.isMarkerAllowed(line.getMarker())) {
+                continue;
+            }
+            int typeBit = 1 << item.type.ordinal();
+            if((writtenTypes & typeBit) != 0) {
+                continue;
+            }
+            writtenTypes |= typeBit;
+            if(!first) {
+                stringBuilder.append(',');
+            }
+            first = false;
+            stringBuilder.append('"').append(JSON_KEYS[item.type.ordinal()]).append("\":");
+
+            switch(item.type) {
+                case Caller:
+                    StringUtil.appendJsonString(stringBuilder, line.getCallerFQCN());
+                    break;
+                case CallerSimple:
+                    CharSequence callerName = line.getCallerFQCN();
+                    if(callerName == null) {
+                        stringBuilder.append("null");
+                    } else {
+                        stringBuilder.append('"');
+                        StringUtil.appendJsonEscaped(stringBuilder, callerName, lastIndexOf(callerName, '.') + 1, callerName.length());
+                        stringBuilder.append('"');
+                    }
+                    break;
+                case CallerPackage:
+                    CharSequence callerPackage = line.getCallerFQCN();
+                    if(callerPackage == null) {
+                        stringBuilder.append("null");
+                    } else {
+                        int lastDot = lastIndexOf(callerPackage, '.');
+                        stringBuilder.append('"');
+                        StringUtil.appendJsonEscaped(stringBuilder, callerPackage, 0, lastDot < 0 ? callerPackage.length() : lastDot);
+                        stringBuilder.append('"');
+                    }
+                    break;
+                case Marker:
+                    StringUtil.appendJsonString(stringBuilder, line.getMarker());
+                    break;
+                case Time:
+                    StringUtil.appendJsonString(stringBuilder, item.formatTime(line.getTime()));
+                    break;
+                case Level:
+                    stringBuilder.append('"').append(level).append('"');
+                    break;
+                case Thread:
+                    StringUtil.appendJsonString(stringBuilder, line.getThreadName());
+                    break;
+                case Tid:
+                    stringBuilder.append(line.getTID());
+                    break;
+                case Class:
+                    StringUtil.appendJsonString(stringBuilder, line.getStackTraceElement().getClassName());
+                    break;
+                case ClassName:
+                    String simpleClassName = line.getStackTraceElement().getClassName();
+                    stringBuilder.append('"');
+                    StringUtil.appendJsonEscaped(stringBuilder, simpleClassName, simpleClassName.lastIndexOf('.') + 1, simpleClassName.length());
+                    stringBuilder.append('"');
+                    break;
+                case ClassPackage:
+                    String packageName = line.getStackTraceElement().getClassName();
+                    int lastDotClass = packageName.lastIndexOf('.');
+                    stringBuilder.append('"');
+                    StringUtil.appendJsonEscaped(stringBuilder, packageName, 0, lastDotClass < 0 ? packageName.length() : lastDotClass);
+                    stringBuilder.append('"');
+                    break;
+                case Line:
+                    stringBuilder.append(line.getStackTraceElement().getLineNumber());
+                    break;
+                case Method:
+                    StringUtil.appendJsonString(stringBuilder, line.getStackTraceElement().getMethodName());
+                    break;
+                case File:
+                    StringUtil.appendJsonString(stringBuilder, line.getStackTraceElement().getFileName());
+                    break;
+                case Message:
+                    StringUtil.appendJsonString(stringBuilder, line.getMessage());
+                    break;
+                case Hostname:
+                    StringUtil.appendJsonString(stringBuilder, SysTool.hostname());
+                    break;
+                case Pid:
+                    stringBuilder.append(SysTool.pid());
+                    break;
+            }
+        }
+        if(line.getError() != null) {
+            if(!first) {
+                stringBuilder.append(',');
+            }
+            stringBuilder.append("\"error\":\"");
+            PrintWriter printWriter = new PrintWriter(new JsonEscapeWriter(stringBuilder));
+            line.getError().printStackTrace(printWriter);
+            printWriter.flush();
+            stringBuilder.append('"');
+        }
+        stringBuilder.append("}\n");
+        return stringBuilder;
+    }
+
+    /**
+     * JSON 필드 이름. 라인 패턴의 항목 이름을 사용한다.
+     */
+    private static final String[] JSON_KEYS = new String[LinePatternItemType.values().length];
+    static {
+        LinePatternItemType[] types = LinePatternItemType.values();
+        //noinspection ForLoopReplaceableByForEach
+        for(int i = 0; i < types.length; ++i) {
+            JSON_KEYS[i] = types[i].name().toLowerCase();
+        }
+        JSON_KEYS[LinePatternItemType.ClassName.ordinal()] = "class-name";
+        JSON_KEYS[LinePatternItemType.ClassPackage.ordinal()] = "class-package";
+        JSON_KEYS[LinePatternItemType.CallerSimple.ordinal()] = "caller-simple";
+        JSON_KEYS[LinePatternItemType.CallerPackage.ordinal()] = "caller-package";
+    }
+
+    private static int lastIndexOf(CharSequence text, char ch) {
+        for(int i = text.length() - 1; i >= 0; --i) {
+            if(text.charAt(i) == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 스택 트레이스를 JSON 문자열 값으로 이스케이프하여 StringBuilder 에 바로 쓴다.
+     */
+    private static class JsonEscapeWriter extends Writer {
+        private final StringBuilder stringBuilder;
+
+        JsonEscapeWriter(StringBuilder stringBuilder) {
+            this.stringBuilder = stringBuilder;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            StringUtil.appendJsonEscaped(stringBuilder, chars, offset, length);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            StringUtil.appendJsonEscaped(stringBuilder, text, offset, offset + length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
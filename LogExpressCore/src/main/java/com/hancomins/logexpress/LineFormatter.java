@@ -1,5 +1,6 @@
 package com.hancomins.logexpress;
 
+import com.hancomins.logexpress.configuration.LineLayout;
 import com.hancomins.logexpress.configuration.StyleOption;
 import com.hancomins.logexpress.util.StringUtil;
 
@@ -36,6 +37,13 @@ class LineFormatter {
 		return needStacktrace;
 	}
 
+	/**
+	 * 패턴에 스레드 항목이 없어도 라인에 스레드 정보를 담도록 한다.
+	 */
+	void setNeedThreadInfo() {
+		needThreadInfo = true;
+	}
+
 	public LineCombiner getLineCombiner() {
 		return lineCombiner;
 	}
@@ -56,6 +64,17 @@ class LineFormatter {
 	 * @return LineFormatter
 	 */
 	static LineFormatter parse(String format, StyleOption styleOption) {
+		return parse(format, styleOption, LineLayout.Text);
+	}
+
+	/**
+	 * 라인 포맷을 파싱하여 LineFormatter 객체를 생성하는 메서드.
+	 * @param format 패턴으로 이루어진 라인 포맷
+	 * @param styleOption 색상 옵션
+	 * @param layout 출력 형식. Json 이면 패턴의 항목을 JSON 필드로 출력한다.
+	 * @return LineFormatter
+	 */
+	static LineFormatter parse(String format, StyleOption styleOption, LineLayout layout) {
 		final int MODE_TEXT = 0;
 		final int MODE_IN_TYPE = 1;
 
@@ -169,7 +188,7 @@ class LineFormatter {
 		formatter.formatItems = items.toArray(new FormatItem[0]);
 		formatter.needStacktrace = needStacktrace;
 		formatter.needThreadInfo = needThreadInfo;
-		formatter.lineCombiner = new LineCombiner(formatter.formatItems, styleOption);
+		formatter.lineCombiner = new LineCombiner(formatter.formatItems, styleOption, layout == LineLayout.Json);
 		return formatter;
 	}
 
@@ -306,6 +325,10 @@ class LineFormatter {
 		String text = "";
 		LinePatternItemType type = LinePatternItemType.Text;
 		SimpleDateFormat dateFormat = null;
+		/**
+		 * SimpleDateFormat 은 스레드에 안전하지 않다. 여러 포맷 스레드가 같은 항목을 기다리지 않도록 스레드마다 복제하여 사용한다.
+		 */
+		private ThreadLocal<SimpleDateFormat> threadDateFormat = null;
 		LenRange lenRange = null;
 		Level level = null;
 		Set<String> markerQualifiers = null;
@@ -338,10 +361,23 @@ class LineFormatter {
 		}
 
 
+		/**
+		 * 시간을 이 항목의 날짜 형식으로 만든다. 스레드마다 복제한 SimpleDateFormat 을 사용하므로 잠그지 않는다.
+		 */
+		String formatTime(long time) {
+			return threadDateFormat.get().format(time);
+		}
+
 		private static FormatItem newTimeType(String pattern) {
-			FormatItem item = new FormatItem();
+			final FormatItem item = new FormatItem();
 			item.type = LinePatternItemType.Time;
 			item.dateFormat = new SimpleDateFormat(pattern);
+			item.threadDateFormat = new ThreadLocal<SimpleDateFormat>() {
+				@Override
+				protected SimpleDateFormat initialValue() {
+					return (SimpleDateFormat) item.dateFormat.clone();
+				}
+			};
 			return item;
 		}
 		
@@ -8,6 +8,7 @@ import com.hancomins.logexpress.writer.OnTerminatedListener;
 import com.hancomins.logexpress.writer.WriteWorker;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -95,8 +96,7 @@ class LoggerContext {
 	}
 	
 	private void init() {
-		absLineQueue = LineQueueFactory.create(configuration.isNonBlockingQueue() ? LineQueueFactory.LineQueueType.NonBlocking : LineQueueFactory.LineQueueType.Blocking,
-				configuration.getQueueSize());
+		absLineQueue = LineQueueFactory.create(configuration);
 		logWriter = new WriteWorker(configuration);
 		if(configuration.isAutoShutdown()) {
 			logWriter.setOnRequestShutdown(new Runnable() {
@@ -125,6 +125,7 @@ class LoggerContext {
 		final long currentThreadID = Thread.currentThread().getId();
 		final ShutdownFuture shutdownFuture = new ShutdownFuture() {
 			final AtomicBoolean isEnd = new AtomicBoolean(false);
+			final CountDownLatch endLatch = new CountDownLatch(1);
 			Runnable onEndCallback = null;
 
 
@@ -135,23 +136,34 @@ class LoggerContext {
 
 			@Override
 			public void onEnd() {
-				isEnd.set(true);
-				if(onEndCallback != null) {
-					callEvent(onEndCallback);
+				Runnable callback;
+				// 콜백을 등록하는 스레드와 경합하여 콜백을 놓치지 않도록 한다.
+				synchronized (this) {
+					isEnd.set(true);
+					callback = onEndCallback;
+					onEndCallback = null;
+				}
+				endLatch.countDown();
+				if(callback != null) {
+					callEvent(callback);
 				}
 			}
 
 			@Override
 			public void addOnEndCallback(Runnable runnable) {
-				if(isEnd.get()) {
-					callEvent(runnable);
-					return;
+				synchronized (this) {
+					if(!isEnd.get()) {
+						onEndCallback = runnable;
+						return;
+					}
 				}
-				onEndCallback = runnable;
+				callEvent(runnable);
 			}
 
 			@Override
-			public void await() {}
+			public void await() throws InterruptedException {
+				endLatch.await();
+			}
 
 			private void callEvent(Runnable runnable) {
 				//System.out.println(Thread.currentThread().getId());
@@ -21,6 +21,27 @@ public class MessageFormatter implements CharSequence {
 
 
 
+    /**
+     * 포맷에 사용된 인자의 개수. 인자는 라인이 기록될 때까지 참조가 유지된다.
+     */
+    public int getArgumentCount() {
+        return args == null ? 0 : args.length;
+    }
+
+    /**
+     * 인자를 넣기 전의 메시지 패턴.
+     */
+    String getPattern() {
+        return message;
+    }
+
+    /**
+     * index 번째 포맷 인자.
+     */
+    Object getArgument(int index) {
+        return args[index];
+    }
+
     private String format() {
         if (args == null || args.length == 0) {
             return message;
@@ -0,0 +1,41 @@
+package com.hancomins.logexpress;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+/**
+ * 미리 출력해 둔 스택 트레이스 문자열을 원래 예외처럼 출력하는 Throwable.<br>
+ * {@link LineCodec} 으로 기록했다가 다시 읽은 라인의 예외로 사용된다.
+ */
+final class RenderedThrowable extends Throwable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String stackTrace;
+
+	RenderedThrowable(String stackTrace) {
+		super(null, null);
+		this.stackTrace = stackTrace;
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+
+	@Override
+	public void printStackTrace(PrintWriter s) {
+		s.print(stackTrace);
+	}
+
+	@Override
+	public void printStackTrace(PrintStream s) {
+		s.print(stackTrace);
+	}
+
+	@Override
+	public String toString() {
+		int end = stackTrace.indexOf('\n');
+		return end < 0 ? stackTrace : stackTrace.substring(0, end).trim();
+	}
+}
@@ -0,0 +1,54 @@
+package com.hancomins.logexpress;
+
+/**
+ * 스타일 없이 만든 라인에 넣을 ANSI 코드의 위치와 코드를 담는다.<br>
+ * 콘솔과 파일 중 한 쪽만 스타일을 사용할 때, 라인을 한 번만 포맷한 뒤 스타일이 있는 출력은 이 정보로 만든다.<br>
+ * 스레드에 안전하지 않다. 재사용할 때는 {@link #clear()} 를 호출해야 한다.
+ */
+public final class StyleSpans {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] offsets = new int[INITIAL_CAPACITY];
+	private String[] codes = new String[INITIAL_CAPACITY];
+	private int size = 0;
+
+	void add(int offset, String code) {
+		if(size == offsets.length) {
+			int[] newOffsets = new int[size * 2];
+			String[] newCodes = new String[size * 2];
+			System.arraycopy(offsets, 0, newOffsets, 0, size);
+			System.arraycopy(codes, 0, newCodes, 0, size);
+			offsets = newOffsets;
+			codes = newCodes;
+		}
+		offsets[size] = offset;
+		codes[size] = code;
+		++size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * 스타일 없는 라인 plain 에 ANSI 코드를 넣어 out 뒤에 이어서 쓴다.
+	 * @param plain 스타일 없이 만든 라인
+	 * @param out 스타일이 있는 라인을 쓸 StringBuilder
+	 * @return out
+	 */
+	public StringBuilder applyTo(CharSequence plain, StringBuilder out) {
+		int start = 0;
+		for(int i = 0; i < size; ++i) {
+			int offset = offsets[i];
+			out.append(plain, start, offset).append(codes[i]);
+			start = offset;
+		}
+		return out.append(plain, start, plain.length());
+	}
+
+}
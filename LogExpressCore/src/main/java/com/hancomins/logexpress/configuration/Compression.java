@@ -0,0 +1,52 @@
+package com.hancomins.logexpress.configuration;
+
+/**
+ * 교체되어 닫힌 로그 파일을 압축하는 방식.<br>
+ * Compression applied to log files that have been rotated and closed.
+ */
+public enum Compression {
+	/**
+	 * 압축하지 않는다. (기본 값)<br>
+	 * No compression. (default)
+	 */
+	None(null),
+	/**
+	 * gzip 형식으로 압축한다. 파일 이름 뒤에 .gz 를 붙인다.<br>
+	 * Compresses in gzip format and appends .gz to the file name.
+	 */
+	Gzip(".gz"),
+	/**
+	 * zlib(deflate) 형식으로 압축한다. 파일 이름 뒤에 .deflate 를 붙인다.<br>
+	 * Compresses in zlib (deflate) format and appends .deflate to the file name.
+	 */
+	Deflate(".deflate");
+
+	private final String extension;
+
+	Compression(String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * 압축한 파일 이름 뒤에 붙이는 확장자를 반환한다. 압축하지 않는다면 null.<br>
+	 * Returns the extension appended to compressed file names, or null for None.
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	public static Compression typeNameOf(String name) {
+		if(name == null) {
+			return null;
+		}
+		name = name.trim();
+		Compression[] compressions = values();
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < compressions.length; ++i) {
+			if(compressions[i].name().equalsIgnoreCase(name)) {
+				return compressions[i];
+			}
+		}
+		return null;
+	}
+}
@@ -3,7 +3,12 @@ package com.hancomins.logexpress.configuration;
 import com.hancomins.logexpress.InLogger;
 import com.hancomins.logexpress.Level;
 import com.hancomins.logexpress.LogExpress;
+import com.hancomins.logexpress.queue.LineQueueFactory.LineQueueType;
+import com.hancomins.logexpress.queue.OffHeapLineQueue;
+import com.hancomins.logexpress.queue.OverflowPolicy;
+import com.hancomins.logexpress.queue.WaitStrategy;
 import com.hancomins.logexpress.util.Files;
+import com.hancomins.logexpress.writer.FileWriter;
 
 import java.io.*;
 import java.util.ArrayList;
@@ -31,6 +36,22 @@ public final class Configuration implements Cloneable {
 	public static final String PROPERTIES_KEY_FILE = "logexpress.configurationFile";
 	public static final int DEFAULT_QUEUE_SIZE = 128000;
 	public static final int DEFAULT_WRITER_WORKER_INTERVAL = 3000;
+	public static final int DEFAULT_WRITER_WORKER_THREADS = 1;
+	public static final int DEFAULT_GROUP_COMMIT_LATENCY = 50;
+	public static final int DEFAULT_CONSOLE_BUFFER_SIZE = 256 * 1024;
+	public static final LineQueueType DEFAULT_QUEUE_TYPE = LineQueueType.Ring;
+	public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.Block;
+	public static final Level DEFAULT_OVERFLOW_LEVEL = Level.WARN;
+	public static final int DEFAULT_OVERFLOW_TIMEOUT = 100;
+	public static final float DEFAULT_OVERFLOW_HIGH_WATERMARK = 0.8f;
+	public static final float DEFAULT_OVERFLOW_SAMPLE_RATE = 0.1f;
+	public static final float DEFAULT_QUEUE_MEMORY_HIGH_WATERMARK = 1.0f;
+	public static final float DEFAULT_QUEUE_MEMORY_LOW_WATERMARK = 0.8f;
+	public static final int DEFAULT_QUEUE_SPILL_SEGMENT_SIZE = 64;
+	public static final int DEFAULT_QUEUE_SPILL_MAX_SIZE = 1024;
+	public static final float DEFAULT_QUEUE_SPILL_WATERMARK = 0.9f;
+	public static final WaitStrategy DEFAULT_PRODUCER_WAIT_STRATEGY = WaitStrategy.ParkNanos;
+	public static final WaitStrategy DEFAULT_CONSUMER_WAIT_STRATEGY = WaitStrategy.Blocking;
 
 	private boolean isDaemonThread = false;
 	private volatile boolean closed = false;
@@ -50,7 +71,33 @@ public final class Configuration implements Cloneable {
 	private Level defaultLevel = DEFAULT_LEVEL;
 
 	private boolean nonBlockingMode = true;
+	private LineQueueType queueType = DEFAULT_QUEUE_TYPE;
+	private OverflowPolicy overflowPolicy = DEFAULT_OVERFLOW_POLICY;
+	private Level overflowLevel = DEFAULT_OVERFLOW_LEVEL;
+	private int overflowTimeout = DEFAULT_OVERFLOW_TIMEOUT;
+	private float overflowHighWatermark = DEFAULT_OVERFLOW_HIGH_WATERMARK;
+	private float overflowSampleRate = DEFAULT_OVERFLOW_SAMPLE_RATE;
+	private WaitStrategy producerWaitStrategy = DEFAULT_PRODUCER_WAIT_STRATEGY;
+	private WaitStrategy consumerWaitStrategy = DEFAULT_CONSUMER_WAIT_STRATEGY;
+	private int queueStripes = 0;
+	private int queueRecordSize = OffHeapLineQueue.DEFAULT_RECORD_SIZE;
+	private int queueMemoryLimit = 0;
+	private float queueMemoryHighWatermark = DEFAULT_QUEUE_MEMORY_HIGH_WATERMARK;
+	private float queueMemoryLowWatermark = DEFAULT_QUEUE_MEMORY_LOW_WATERMARK;
+	private String queueSpillDir = "";
+	private Level queuePriorityLevel = Level.OFF;
+	private int queueSpillSegmentSize = DEFAULT_QUEUE_SPILL_SEGMENT_SIZE;
+	private int queueSpillMaxSize = DEFAULT_QUEUE_SPILL_MAX_SIZE;
+	private float queueSpillWatermark = DEFAULT_QUEUE_SPILL_WATERMARK;
+	private boolean queueStrictOrder = false;
 	private int writerWorkerInterval = DEFAULT_WRITER_WORKER_INTERVAL;
+	private int writerWorkerThreads = DEFAULT_WRITER_WORKER_THREADS;
+	private int formatterThreads = 0;
+	private int groupCommitSize = 0;
+	private int groupCommitLatency = DEFAULT_GROUP_COMMIT_LATENCY;
+	private int consoleBufferSize = DEFAULT_CONSOLE_BUFFER_SIZE;
+	private boolean consoleStderr = false;
+	private ConsoleAnsi consoleAnsi = ConsoleAnsi.Auto;
 
 	private String staticVariableReplacedDefaultMarker = null;
 	private StyleOption defaultStyleOption = new StyleOption();
@@ -136,10 +183,36 @@ public final class Configuration implements Cloneable {
 		configuration.defaultMarker = this.defaultMarker;
 		configuration.autoShutdown = this.autoShutdown;
 		configuration.writerWorkerInterval = this.writerWorkerInterval;
+		configuration.writerWorkerThreads = this.writerWorkerThreads;
+		configuration.formatterThreads = this.formatterThreads;
+		configuration.groupCommitSize = this.groupCommitSize;
+		configuration.groupCommitLatency = this.groupCommitLatency;
+		configuration.consoleBufferSize = this.consoleBufferSize;
+		configuration.consoleStderr = this.consoleStderr;
+		configuration.consoleAnsi = this.consoleAnsi;
 		configuration.writerOptionList = new ArrayList<WriterOption>();
 		WriterOption writerOption = this.getDefaultWriterOption();
 		configuration.defaultOption = writerOption == null ? null : writerOption.clone();
 		configuration.nonBlockingMode = this.nonBlockingMode;
+		configuration.queueType = this.queueType;
+		configuration.overflowPolicy = this.overflowPolicy;
+		configuration.overflowLevel = this.overflowLevel;
+		configuration.overflowTimeout = this.overflowTimeout;
+		configuration.overflowHighWatermark = this.overflowHighWatermark;
+		configuration.overflowSampleRate = this.overflowSampleRate;
+		configuration.producerWaitStrategy = this.producerWaitStrategy;
+		configuration.consumerWaitStrategy = this.consumerWaitStrategy;
+		configuration.queueStripes = this.queueStripes;
+		configuration.queueRecordSize = this.queueRecordSize;
+		configuration.queueStrictOrder = this.queueStrictOrder;
+		configuration.queueMemoryLimit = this.queueMemoryLimit;
+		configuration.queueMemoryHighWatermark = this.queueMemoryHighWatermark;
+		configuration.queueMemoryLowWatermark = this.queueMemoryLowWatermark;
+		configuration.queueSpillDir = this.queueSpillDir;
+		configuration.queuePriorityLevel = this.queuePriorityLevel;
+		configuration.queueSpillSegmentSize = this.queueSpillSegmentSize;
+		configuration.queueSpillMaxSize = this.queueSpillMaxSize;
+		configuration.queueSpillWatermark = this.queueSpillWatermark;
 		configuration.defaultLevel = this.defaultLevel;
 		configuration.defaultStyleOption = this.defaultStyleOption.clone();
 		for(int i = 0, n = this.writerOptionList.size(); i < n; ++i) {
@@ -398,9 +471,553 @@ public final class Configuration implements Cloneable {
 	public Configuration setNonBlockingMode(boolean enable) {
 		if(this.closed) return this;
 		this.nonBlockingMode = enable;
+		if(!enable) {
+			this.queueType = LineQueueType.Blocking;
+		} else if(this.queueType == LineQueueType.Blocking) {
+			this.queueType = DEFAULT_QUEUE_TYPE;
+		}
+		return this;
+	}
+
+	/**
+	 * 로그 큐의 종류를 설정합니다.<br>
+	 * Ring: 슬롯마다 시퀀스 번호를 갖는 원형 큐. 생산자 스레드가 많을수록 유리합니다.<br>
+	 * NonBlocking: 이전 버전의 CAS 기반 원형 큐.<br>
+	 * Blocking: synchronized 기반 큐. {@link #setNonBlockingMode(boolean)} 에 false 를 설정한 것과 같습니다.<br>
+	 * Striped: 생산자 스레드를 여러 개의 Ring 큐로 나누고 WriteWorker 가 시간 순서로 합칩니다. 코어가 많은 환경에 유리합니다.<br>
+	 * OffHeap: 로그를 바이너리 레코드로 직렬화하여 direct 메모리에 담는 Ring 큐. 큐에 쌓인 로그가 힙을 차지하지 않습니다.<br>
+	 * Elastic: 작게 시작하여 로그가 밀리면 큐 크기까지 커지고, 한가해지면 다시 작아지는 큐. 대부분 한가한 서비스의 메모리를 줄입니다.<br>
+	 * 기본 값은 Ring 입니다.<br>
+	 * Sets the type of the log queue.<br>
+	 * Ring: a ring buffer with a sequence number per slot. Scales better with many producer threads.<br>
+	 * NonBlocking: the CAS based ring buffer of earlier versions.<br>
+	 * Blocking: a synchronized queue. Same as setting {@link #setNonBlockingMode(boolean)} to false.<br>
+	 * Striped: spreads producer threads over several Ring queues that the WriteWorker merges in time order. Suited to machines with many cores.<br>
+	 * OffHeap: a Ring queue that serializes lines into binary records in direct memory. Queued lines take no heap.<br>
+	 * Elastic: starts small, grows up to the queue size under backlog and shrinks back when idle. Saves memory for mostly idle services.<br>
+	 * The default value is Ring.
+	 *
+	 * @param queueType 큐 종류<br>
+	 *                  queue type
+	 */
+	public Configuration setQueueType(LineQueueType queueType) {
+		if(this.closed || queueType == null) return this;
+		this.queueType = queueType;
+		this.nonBlockingMode = queueType != LineQueueType.Blocking;
+		return this;
+	}
+
+	/**
+	 * Striped 큐의 stripe 개수를 설정합니다. 2의 거듭제곱으로 올림되며 최대 64 입니다.<br>
+	 * 0 이하라면 CPU 코어 수를 사용합니다. 기본 값은 0 입니다.<br>
+	 * Sets the number of stripes of the Striped queue. Rounded up to a power of two, at most 64.<br>
+	 * 0 or less uses the number of CPU cores. The default value is 0.
+	 *
+	 * @param stripes stripe 개수<br>
+	 *                number of stripes
+	 */
+	public Configuration setQueueStripes(int stripes) {
+		if(this.closed) return this;
+		this.queueStripes = Math.max(0, stripes);
+		return this;
+	}
+
+	/**
+	 * 설정된 Striped 큐의 stripe 개수를 반환합니다.<br>
+	 * Returns the number of stripes of the Striped queue.
+	 *
+	 * @return stripe 개수. 0 이면 CPU 코어 수<br>
+	 *         number of stripes. 0 means the number of CPU cores
+	 */
+	public int getQueueStripes() {
+		return this.queueStripes;
+	}
+
+	/**
+	 * OffHeap 큐에서 로그 하나를 담는 레코드의 크기(byte)를 설정합니다. 기본 값은 512 입니다.<br>
+	 * 큐 크기 × 레코드 크기만큼의 direct 메모리를 미리 할당합니다. 메시지가 레코드에 들어가지 않거나 예외를 갖는 로그는 힙에 그대로 담습니다.<br>
+	 * Sets the size (bytes) of the record holding one line in the OffHeap queue. The default value is 512.<br>
+	 * Queue size × record size bytes of direct memory are allocated up front. Lines whose message does not fit or that carry an error stay on the heap.
+	 *
+	 * @param recordSize 레코드 크기(byte)<br>
+	 *                   record size (bytes)
+	 */
+	public Configuration setQueueRecordSize(int recordSize) {
+		if(this.closed) return this;
+		this.queueRecordSize = recordSize <= 0 ? OffHeapLineQueue.DEFAULT_RECORD_SIZE : recordSize;
+		return this;
+	}
+
+	/**
+	 * 설정된 OffHeap 큐의 레코드 크기(byte)를 반환합니다.<br>
+	 * Returns the record size (bytes) of the OffHeap queue.
+	 *
+	 * @return 레코드 크기(byte)<br>
+	 *         record size (bytes)
+	 */
+	public int getQueueRecordSize() {
+		return this.queueRecordSize;
+	}
+
+	/**
+	 * Striped 큐에서 스레드 간의 순서까지 엄격하게 지킬지 여부를 설정합니다.<br>
+	 * true 라면 로그마다 전역 순서 번호를 매기고 번호 순서대로 기록합니다. 번호를 매기는 카운터를 모든 스레드가 공유하므로 경합이 늘어납니다.<br>
+	 * false 라면 로그가 만들어진 시간 순서로 합치며, 같은 스레드의 로그 순서만 보장합니다. 기본 값은 false 입니다.<br>
+	 * Sets whether the Striped queue keeps strict ordering across threads.<br>
+	 * When true, each line gets a global sequence number and lines are written in that order. All threads share the counter, which adds contention.<br>
+	 * When false, lines are merged by creation time and only per-thread order is guaranteed. The default value is false.
+	 *
+	 * @param strictOrder 엄격한 순서 유지 여부<br>
+	 *                    whether to keep strict ordering
+	 */
+	public Configuration setQueueStrictOrder(boolean strictOrder) {
+		if(this.closed) return this;
+		this.queueStrictOrder = strictOrder;
+		return this;
+	}
+
+	/**
+	 * Striped 큐에서 스레드 간의 순서까지 엄격하게 지키는지 여부를 반환합니다.<br>
+	 * Returns whether the Striped queue keeps strict ordering across threads.
+	 *
+	 * @return 엄격한 순서 유지 여부<br>
+	 *         whether to keep strict ordering
+	 */
+	public boolean isQueueStrictOrder() {
+		return this.queueStrictOrder;
+	}
+
+	/**
+	 * 로그 큐에 쌓인 로그가 차지할 수 있는 메모리의 한도(MiB)를 설정합니다.<br>
+	 * 로그마다 메시지 길이, 포맷 인자의 수, 예외의 스택 트레이스 크기로 메모리를 추정하며, 한도를 넘으면 큐가 가득 찬 것으로 취급하여
+	 * overflow 정책을 적용합니다. 큐의 로그 개수 제한(queueSize)도 함께 적용됩니다.<br>
+	 * 0 이하라면 메모리 한도를 사용하지 않습니다. 기본 값은 0 입니다.<br>
+	 * Sets the memory limit (MiB) of the lines held in the log queue.<br>
+	 * Each line's memory is estimated from the message length, the number of format arguments and the stack trace size of the error.
+	 * Above the limit the queue is treated as full and the overflow policy applies. The line count limit (queueSize) still applies.<br>
+	 * 0 or less disables the memory limit. The default value is 0.
+	 *
+	 * @param limit 메모리 한도(MiB)<br>
+	 *              memory limit (MiB)
+	 */
+	public Configuration setQueueMemoryLimit(int limit) {
+		if(this.closed) return this;
+		this.queueMemoryLimit = Math.max(0, limit);
+		return this;
+	}
+
+	/**
+	 * 설정된 로그 큐의 메모리 한도(MiB)를 반환합니다.<br>
+	 * Returns the memory limit (MiB) of the log queue.
+	 *
+	 * @return 메모리 한도(MiB). 0 이면 사용하지 않음<br>
+	 *         memory limit (MiB). 0 means disabled
+	 */
+	public int getQueueMemoryLimit() {
+		return this.queueMemoryLimit;
+	}
+
+	/**
+	 * 큐가 가득 찬 것으로 취급하기 시작하는 메모리 사용률(0.0 ~ 1.0)을 설정합니다. 기본 값은 1.0 입니다.<br>
+	 * Sets the memory usage (0.0 ~ 1.0) at which the queue is treated as full. The default value is 1.0.
+	 *
+	 * @param highWatermark 메모리 사용률<br>
+	 *                      memory usage
+	 */
+	public Configuration setQueueMemoryHighWatermark(float highWatermark) {
+		if(this.closed) return this;
+		this.queueMemoryHighWatermark = Math.max(0f, Math.min(1f, highWatermark));
+		return this;
+	}
+
+	/**
+	 * 큐가 가득 찬 것으로 취급하기 시작하는 메모리 사용률을 반환합니다.<br>
+	 * Returns the memory usage at which the queue is treated as full.
+	 *
+	 * @return 메모리 사용률<br>
+	 *         memory usage
+	 */
+	public float getQueueMemoryHighWatermark() {
+		return this.queueMemoryHighWatermark;
+	}
+
+	/**
+	 * 가득 찬 큐가 다시 로그를 받아들이기 시작하는 메모리 사용률(0.0 ~ 1.0)을 설정합니다.<br>
+	 * high watermark 보다 크다면 high watermark 를 사용합니다. 기본 값은 0.8 입니다.<br>
+	 * Sets the memory usage (0.0 ~ 1.0) below which a full queue accepts lines again.<br>
+	 * Values above the high watermark use the high watermark. The default value is 0.8.
+	 *
+	 * @param lowWatermark 메모리 사용률<br>
+	 *                     memory usage
+	 */
+	public Configuration setQueueMemoryLowWatermark(float lowWatermark) {
+		if(this.closed) return this;
+		this.queueMemoryLowWatermark = Math.max(0f, Math.min(1f, lowWatermark));
+		return this;
+	}
+
+	/**
+	 * 가득 찬 큐가 다시 로그를 받아들이기 시작하는 메모리 사용률을 반환합니다.<br>
+	 * Returns the memory usage below which a full queue accepts lines again.
+	 *
+	 * @return 메모리 사용률<br>
+	 *         memory usage
+	 */
+	public float getQueueMemoryLowWatermark() {
+		return this.queueMemoryLowWatermark;
+	}
+
+	/**
+	 * 로그 큐가 넘칠 때 로그를 기록할 디렉토리를 설정합니다. 비어 있으면 사용하지 않습니다. 기본 값은 비어 있습니다.<br>
+	 * 큐 사용률이 {@link #setQueueSpillWatermark(float)} 를 넘으면 로그를 이 디렉토리의 메모리 맵 파일에 기록하고,
+	 * WriteWorker 가 큐를 비운 뒤 기록된 순서대로 읽어서 출력합니다. 다 읽은 파일은 삭제됩니다.<br>
+	 * 파일은 실행 중에만 읽을 수 있으므로 프로세스가 종료된 뒤에 남은 파일은 지워도 됩니다.<br>
+	 * Sets the directory where lines are spilled when the log queue overflows. Empty disables spilling. The default value is empty.<br>
+	 * Above {@link #setQueueSpillWatermark(float)} lines are written to memory-mapped files in this directory, and the WriteWorker
+	 * reads them back in order once it has drained the queue. Files are deleted after they are read.<br>
+	 * The files are only readable by the running process, so files left after the process exits can be removed.
+	 *
+	 * @param dir 디렉토리 경로<br>
+	 *            directory path
+	 */
+	public Configuration setQueueSpillDir(String dir) {
+		if(this.closed) return this;
+		this.queueSpillDir = dir == null ? "" : dir.trim();
+		return this;
+	}
+
+	/**
+	 * 로그 큐가 넘칠 때 로그를 기록할 디렉토리를 반환합니다.<br>
+	 * Returns the directory where lines are spilled when the log queue overflows.
+	 *
+	 * @return 디렉토리 경로. 비어 있으면 사용하지 않음<br>
+	 *         directory path. Empty means disabled
+	 */
+	public String getQueueSpillDir() {
+		return this.queueSpillDir;
+	}
+
+	/**
+	 * spill 파일 하나의 크기(MiB)를 설정합니다. 기본 값은 64 입니다.<br>
+	 * Sets the size (MiB) of one spill file. The default value is 64.
+	 *
+	 * @param size 파일 크기(MiB)<br>
+	 *             file size (MiB)
+	 */
+	public Configuration setQueueSpillSegmentSize(int size) {
+		if(this.closed) return this;
+		this.queueSpillSegmentSize = size <= 0 ? DEFAULT_QUEUE_SPILL_SEGMENT_SIZE : Math.min(size, 1024);
+		return this;
+	}
+
+	/**
+	 * spill 파일 하나의 크기(MiB)를 반환합니다.<br>
+	 * Returns the size (MiB) of one spill file.
+	 *
+	 * @return 파일 크기(MiB)<br>
+	 *         file size (MiB)
+	 */
+	public int getQueueSpillSegmentSize() {
+		return this.queueSpillSegmentSize;
+	}
+
+	/**
+	 * spill 파일에 쌓을 수 있는 로그 크기의 합(MiB)을 설정합니다. 한도에 이르면 overflow 정책을 적용합니다.<br>
+	 * 0 이하라면 제한하지 않습니다. 기본 값은 1024 입니다.<br>
+	 * Sets the total size (MiB) of lines that may be held in spill files. At the limit the overflow policy applies.<br>
+	 * 0 or less means unlimited. The default value is 1024.
+	 *
+	 * @param size 최대 크기(MiB)<br>
+	 *             maximum size (MiB)
+	 */
+	public Configuration setQueueSpillMaxSize(int size) {
+		if(this.closed) return this;
+		this.queueSpillMaxSize = Math.max(0, size);
+		return this;
+	}
+
+	/**
+	 * spill 파일에 쌓을 수 있는 로그 크기의 합(MiB)을 반환합니다.<br>
+	 * Returns the total size (MiB) of lines that may be held in spill files.
+	 *
+	 * @return 최대 크기(MiB). 0 이면 제한 없음<br>
+	 *         maximum size (MiB). 0 means unlimited
+	 */
+	public int getQueueSpillMaxSize() {
+		return this.queueSpillMaxSize;
+	}
+
+	/**
+	 * spill 파일에 기록하기 시작하는 큐 사용률(0.0 ~ 1.0)을 설정합니다. 기본 값은 0.9 입니다.<br>
+	 * Sets the queue usage (0.0 ~ 1.0) at which lines start to spill. The default value is 0.9.
+	 *
+	 * @param watermark 큐 사용률<br>
+	 *                  queue usage
+	 */
+	public Configuration setQueueSpillWatermark(float watermark) {
+		if(this.closed) return this;
+		this.queueSpillWatermark = Math.max(0f, Math.min(1f, watermark));
+		return this;
+	}
+
+	/**
+	 * spill 파일에 기록하기 시작하는 큐 사용률을 반환합니다.<br>
+	 * Returns the queue usage at which lines start to spill.
+	 *
+	 * @return 큐 사용률<br>
+	 *         queue usage
+	 */
+	public float getQueueSpillWatermark() {
+		return this.queueSpillWatermark;
+	}
+
+	/**
+	 * 이 레벨 이상의 로그를 별도의 우선 큐에 담아 쌓여 있는 다른 로그보다 먼저 기록하도록 설정합니다.<br>
+	 * 다른 파일에 기록될 로그가 많이 밀려 있어도 ERROR, FATAL 로그가 기다리지 않고 파일에 기록됩니다.
+	 * 같은 파일이나 콘솔에 먼저 들어온 로그는 우선 로그보다 먼저 기록되므로 파일마다 순서가 유지됩니다.
+	 * 우선 로그는 overflow 정책으로 버려지지 않습니다.<br>
+	 * 우선 큐는 일반 큐가 들어온 순서대로 꺼낸다고 보고 순서를 맞춥니다. 따라서 설정을 닫을 때 Striped 큐는 엄격한 순서(queueStrictOrder)로 바뀌고,
+	 * spill 디렉토리(queueSpillDir)가 설정되어 있다면 우선 큐를 사용하지 않습니다.<br>
+	 * OFF 라면 사용하지 않습니다. 기본 값은 OFF 입니다.<br>
+	 * Lines at or above this level go to a separate priority lane and are written ahead of the backlog.<br>
+	 * ERROR and FATAL lines do not wait for lines queued for other files.
+	 * Older lines for the same file or the console are written first, so the order within each file is kept.
+	 * Priority lines are never dropped by the overflow policy.<br>
+	 * The priority lane relies on the normal queue handing out lines in the order they were offered. When the configuration is closed,
+	 * the Striped queue is switched to strict order (queueStrictOrder), and the priority lane is disabled if a spill directory (queueSpillDir) is set.<br>
+	 * OFF disables the priority lane. The default value is OFF.
+	 *
+	 * @param level 우선 레벨<br>
+	 *              priority level
+	 */
+	public Configuration setQueuePriorityLevel(Level level) {
+		if(this.closed) return this;
+		this.queuePriorityLevel = level == null ? Level.OFF : level;
 		return this;
 	}
 
+	/**
+	 * 우선 큐에 담을 로그의 레벨을 반환합니다.<br>
+	 * Returns the level at or above which lines go to the priority lane.
+	 *
+	 * @return 우선 레벨. OFF 라면 사용하지 않음<br>
+	 *         priority level. OFF means disabled
+	 */
+	public Level getQueuePriorityLevel() {
+		return this.queuePriorityLevel;
+	}
+
+	/**
+	 * 설정된 로그 큐의 종류를 반환합니다.<br>
+	 * Returns the type of the log queue.
+	 *
+	 * @return 큐 종류<br>
+	 *         queue type
+	 */
+	public LineQueueType getQueueType() {
+		return this.queueType;
+	}
+
+	/**
+	 * 로그 큐가 가득 찼을 때의 처리 정책을 설정합니다.<br>
+	 * Block: 빈 자리가 생길 때까지 로그를 남기는 스레드가 대기합니다.<br>
+	 * DropNewest: 새로운 로그를 버립니다.<br>
+	 * DropOldest: 큐에서 가장 오래된 로그를 버립니다.<br>
+	 * DropBelowLevel: {@link #setOverflowLevel(Level)} 보다 낮은 레벨의 로그는 버리고, 나머지는 대기합니다.<br>
+	 * Sample: 큐가 high watermark 를 넘으면 {@link #setOverflowSampleRate(float)} 비율만큼만 로그를 받아들입니다.<br>
+	 * BlockTimeout: {@link #setOverflowTimeout(int)} 만큼만 대기하고, 그래도 가득 차 있으면 버립니다.<br>
+	 * CallerRuns: 로그를 남기는 스레드가 직접 로그를 기록합니다.<br>
+	 * 버려진 로그의 수는 "N lines dropped" 요약 라인으로 기본 writer 에 기록됩니다.<br>
+	 * 기본 값은 Block 입니다.<br>
+	 * Sets the policy applied when the log queue is full.<br>
+	 * Block: the logging thread waits until the queue has room.<br>
+	 * DropNewest: the new line is dropped.<br>
+	 * DropOldest: the oldest queued line is dropped.<br>
+	 * DropBelowLevel: lines below {@link #setOverflowLevel(Level)} are dropped, the others wait.<br>
+	 * Sample: above the high watermark only {@link #setOverflowSampleRate(float)} of the lines are accepted.<br>
+	 * BlockTimeout: waits up to {@link #setOverflowTimeout(int)} and then drops the line.<br>
+	 * CallerRuns: the logging thread writes the line itself.<br>
+	 * Dropped lines are reported to the default writer as an "N lines dropped" summary line.<br>
+	 * The default value is Block.
+	 *
+	 * @param overflowPolicy 큐 overflow 정책<br>
+	 *                       queue overflow policy
+	 */
+	public Configuration setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		if(this.closed || overflowPolicy == null) return this;
+		this.overflowPolicy = overflowPolicy;
+		return this;
+	}
+
+	/**
+	 * 설정된 큐 overflow 정책을 반환합니다.<br>
+	 * Returns the queue overflow policy.
+	 *
+	 * @return 큐 overflow 정책<br>
+	 *         queue overflow policy
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return this.overflowPolicy;
+	}
+
+	/**
+	 * DropBelowLevel 정책에서 버리지 않을 최소 레벨을 설정합니다. 기본 값은 WARN 입니다.<br>
+	 * Sets the lowest level that is kept by the DropBelowLevel policy. The default value is WARN.
+	 *
+	 * @param level 버리지 않을 최소 레벨<br>
+	 *              lowest level that is kept
+	 */
+	public Configuration setOverflowLevel(Level level) {
+		if(this.closed || level == null) return this;
+		this.overflowLevel = level;
+		return this;
+	}
+
+	/**
+	 * DropBelowLevel 정책에서 버리지 않을 최소 레벨을 반환합니다.<br>
+	 * Returns the lowest level that is kept by the DropBelowLevel policy.
+	 *
+	 * @return 버리지 않을 최소 레벨<br>
+	 *         lowest level that is kept
+	 */
+	public Level getOverflowLevel() {
+		return this.overflowLevel;
+	}
+
+	/**
+	 * BlockTimeout 정책의 최대 대기 시간(ms)을 설정합니다. 기본 값은 100 입니다.<br>
+	 * Sets the maximum wait time (ms) of the BlockTimeout policy. The default value is 100.
+	 *
+	 * @param timeout 최대 대기 시간(ms)<br>
+	 *                maximum wait time (ms)
+	 */
+	public Configuration setOverflowTimeout(int timeout) {
+		if(this.closed) return this;
+		this.overflowTimeout = Math.max(0, timeout);
+		return this;
+	}
+
+	/**
+	 * BlockTimeout 정책의 최대 대기 시간(ms)을 반환합니다.<br>
+	 * Returns the maximum wait time (ms) of the BlockTimeout policy.
+	 *
+	 * @return 최대 대기 시간(ms)<br>
+	 *         maximum wait time (ms)
+	 */
+	public int getOverflowTimeout() {
+		return this.overflowTimeout;
+	}
+
+	/**
+	 * Sample 정책이 동작하기 시작하는 큐 사용률(0.0 ~ 1.0)을 설정합니다. 기본 값은 0.8 입니다.<br>
+	 * Sets the queue usage (0.0 ~ 1.0) above which the Sample policy starts sampling. The default value is 0.8.
+	 *
+	 * @param highWatermark 큐 사용률<br>
+	 *                      queue usage
+	 */
+	public Configuration setOverflowHighWatermark(float highWatermark) {
+		if(this.closed) return this;
+		this.overflowHighWatermark = Math.max(0f, Math.min(1f, highWatermark));
+		return this;
+	}
+
+	/**
+	 * Sample 정책이 동작하기 시작하는 큐 사용률을 반환합니다.<br>
+	 * Returns the queue usage above which the Sample policy starts sampling.
+	 *
+	 * @return 큐 사용률<br>
+	 *         queue usage
+	 */
+	public float getOverflowHighWatermark() {
+		return this.overflowHighWatermark;
+	}
+
+	/**
+	 * Sample 정책에서 받아들일 로그의 비율(0.0 ~ 1.0)을 설정합니다. 기본 값은 0.1 입니다.<br>
+	 * Sets the ratio (0.0 ~ 1.0) of lines accepted by the Sample policy. The default value is 0.1.
+	 *
+	 * @param sampleRate 받아들일 로그의 비율<br>
+	 *                   ratio of accepted lines
+	 */
+	public Configuration setOverflowSampleRate(float sampleRate) {
+		if(this.closed) return this;
+		this.overflowSampleRate = Math.max(0f, Math.min(1f, sampleRate));
+		return this;
+	}
+
+	/**
+	 * Sample 정책에서 받아들일 로그의 비율을 반환합니다.<br>
+	 * Returns the ratio of lines accepted by the Sample policy.
+	 *
+	 * @return 받아들일 로그의 비율<br>
+	 *         ratio of accepted lines
+	 */
+	public float getOverflowSampleRate() {
+		return this.overflowSampleRate;
+	}
+
+	/**
+	 * 큐가 가득 찼을 때 로그를 남기는 스레드가 기다리는 방법을 설정합니다.<br>
+	 * BusySpin: 쉬지 않고 다시 시도합니다. 지연 시간이 가장 짧지만 CPU 를 계속 사용합니다.<br>
+	 * Yield: 다시 시도하기 전에 CPU 를 양보합니다.<br>
+	 * ParkNanos: 잠시 스핀한 뒤 점점 길게 park 합니다.<br>
+	 * Blocking: WriteWorker 가 큐를 비울 때까지 잠듭니다.<br>
+	 * Blocking 큐 종류는 이 설정과 관계없이 항상 잠듭니다. 기본 값은 ParkNanos 입니다.<br>
+	 * Sets how logging threads wait while the queue is full.<br>
+	 * BusySpin: retries without pausing. Lowest latency, but keeps the CPU busy.<br>
+	 * Yield: yields the CPU before retrying.<br>
+	 * ParkNanos: spins briefly, then parks for increasing periods.<br>
+	 * Blocking: sleeps until the WriteWorker makes room.<br>
+	 * The Blocking queue type always sleeps regardless of this setting. The default value is ParkNanos.
+	 *
+	 * @param waitStrategy 생산자 대기 전략<br>
+	 *                     producer wait strategy
+	 */
+	public Configuration setProducerWaitStrategy(WaitStrategy waitStrategy) {
+		if(this.closed || waitStrategy == null) return this;
+		this.producerWaitStrategy = waitStrategy;
+		return this;
+	}
+
+	/**
+	 * 설정된 생산자 대기 전략을 반환합니다.<br>
+	 * Returns the producer wait strategy.
+	 *
+	 * @return 생산자 대기 전략<br>
+	 *         producer wait strategy
+	 */
+	public WaitStrategy getProducerWaitStrategy() {
+		return this.producerWaitStrategy;
+	}
+
+	/**
+	 * 큐가 비었을 때 WriteWorker 스레드가 기다리는 방법을 설정합니다.<br>
+	 * 지연 시간이 중요한 서비스는 BusySpin 이나 Yield 를, 대기 중의 CPU 사용량이 중요한 환경은 Blocking 을 사용합니다.<br>
+	 * 어떤 전략이든 workerInterval 보다 오래 잠들지 않습니다. 기본 값은 Blocking 입니다.<br>
+	 * Sets how the WriteWorker thread waits while the queue is empty.<br>
+	 * Latency sensitive services can use BusySpin or Yield, and Blocking keeps idle CPU usage near zero.<br>
+	 * No strategy sleeps longer than workerInterval. The default value is Blocking.
+	 *
+	 * @param waitStrategy 소비자 대기 전략<br>
+	 *                     consumer wait strategy
+	 */
+	public Configuration setConsumerWaitStrategy(WaitStrategy waitStrategy) {
+		if(this.closed || waitStrategy == null) return this;
+		this.consumerWaitStrategy = waitStrategy;
+		return this;
+	}
+
+	/**
+	 * 설정된 소비자(WriteWorker) 대기 전략을 반환합니다.<br>
+	 * Returns the consumer (WriteWorker) wait strategy.
+	 *
+	 * @return 소비자 대기 전략<br>
+	 *         consumer wait strategy
+	 */
+	public WaitStrategy getConsumerWaitStrategy() {
+		return this.consumerWaitStrategy;
+	}
+
 	/**
 	 * 설정된 non-blocking 큐 사용 여부를 반환합니다.<br>
 	 * Returns whether the non-blocking queue is enabled.
@@ -510,6 +1127,210 @@ public final class Configuration implements Cloneable {
 		return this.writerWorkerInterval;
 	}
 
+	/**
+	 * 로그를 파일에 기록하는 WriterWorker 스레드의 수를 설정합니다.<br>
+	 * 2 이상이면 같은 파일을 쓰는 writer 끼리 묶어 여러 스레드에 나누어 맡깁니다. 마커별로 다른 파일에 많은 로그를 남길 때
+	 * 포맷과 파일 쓰기가 여러 코어와 디스크로 나뉩니다.<br>
+	 * 한 파일 안의 로그 순서는 유지되지만, 서로 다른 파일(또는 콘솔) 사이의 기록 순서는 보장되지 않습니다.<br>
+	 * 나눌 파일이 하나뿐이라면 스레드를 하나만 사용합니다. 기본 값은 1 입니다.<br>
+	 * Sets the number of WriterWorker threads that write logs.<br>
+	 * With 2 or more, writers sharing a file are grouped and the groups are spread across the threads, so formatting and
+	 * file writes for busy markers with their own files scale across cores and disks.<br>
+	 * Order is kept within a file, but not across different files or the console.<br>
+	 * A single thread is used when there is only one file to write. The default value is 1.
+	 *
+	 * @param threads 스레드 수<br>
+	 *                number of threads
+	 */
+	public Configuration setWorkerThreads(int threads) {
+		if(this.closed) return this;
+		this.writerWorkerThreads = Math.max(1, threads);
+		return this;
+	}
+
+	/**
+	 * 설정된 WriterWorker 스레드의 수를 반환합니다.<br>
+	 * Returns the configured number of WriterWorker threads.
+	 *
+	 * @return 스레드 수<br>
+	 *         number of threads
+	 */
+	public int getWorkerThreads() {
+		return this.writerWorkerThreads;
+	}
+
+	/**
+	 * 로그 라인을 포맷하는 스레드의 수를 설정합니다.<br>
+	 * 1 이상이면 WriterWorker 가 큐에서 꺼낸 라인 묶음을 여러 스레드가 나누어 포맷하고, WriterWorker 는 그 결과를 원래 순서대로 파일에 기록합니다.
+	 * {time}, {class}, {line} 처럼 포맷 비용이 큰 패턴을 사용할 때 포맷 처리량이 코어 수에 따라 늘어납니다.<br>
+	 * 0 이면 WriterWorker 가 직접 포맷합니다. 기본 값은 0 입니다.<br>
+	 * Sets the number of threads that format log lines.<br>
+	 * With 1 or more, each batch taken from the queue is formatted by several threads and the WriterWorker writes
+	 * the results to the file in the original order. Formatting throughput scales with cores for costly patterns such as {time}, {class} or {line}.<br>
+	 * With 0, the WriterWorker formats lines itself. The default value is 0.
+	 *
+	 * @param threads 스레드 수<br>
+	 *                number of threads
+	 */
+	public Configuration setFormatterThreads(int threads) {
+		if(this.closed) return this;
+		this.formatterThreads = Math.max(0, threads);
+		return this;
+	}
+
+	/**
+	 * 설정된 포맷 스레드의 수를 반환합니다.<br>
+	 * Returns the configured number of formatter threads.
+	 *
+	 * @return 스레드 수. 0 이면 사용하지 않음<br>
+	 *         number of threads. 0 means disabled
+	 */
+	public int getFormatterThreads() {
+		return this.formatterThreads;
+	}
+
+	/**
+	 * 파일에 한 번에 기록할 최대 라인 수(group commit)를 설정합니다.<br>
+	 * 2 이상이면 쓰기 버퍼가 가득 차도 바로 기록하지 않고 다음 버퍼에 이어서 모아 두었다가, 이 수만큼 모이거나
+	 * {@link #setGroupCommitLatency(int)} 시간이 지나거나 큐가 비었을 때 모아 둔 버퍼들을 한 번의 gathering write 로 기록합니다.
+	 * bufferSize 가 작을 때 시스템 호출 수가 크게 줄어듭니다.<br>
+	 * 최대 값은 1024 입니다. 0 이면 사용하지 않습니다. 기본 값은 0 입니다.<br>
+	 * Sets the maximum number of lines written to a file at once (group commit).<br>
+	 * With 2 or more, a full write buffer is not written right away; lines continue into further buffers, and all of them are
+	 * written with a single gathering write when this many lines are collected, when {@link #setGroupCommitLatency(int)} has passed
+	 * or when the queue is empty.
+	 * This greatly reduces system calls when bufferSize is small.<br>
+	 * The maximum value is 1024. 0 disables group commit. The default value is 0.
+	 *
+	 * @param size 라인 수<br>
+	 *             number of lines
+	 */
+	public Configuration setGroupCommitSize(int size) {
+		if(this.closed) return this;
+		this.groupCommitSize = Math.max(0, Math.min(size, FileWriter.MAX_GROUP_COMMIT_SIZE));
+		return this;
+	}
+
+	/**
+	 * 설정된 group commit 라인 수를 반환합니다.<br>
+	 * Returns the configured group commit size in lines.
+	 *
+	 * @return 라인 수. 0 이면 사용하지 않음<br>
+	 *         number of lines. 0 means disabled
+	 */
+	public int getGroupCommitSize() {
+		return this.groupCommitSize;
+	}
+
+	/**
+	 * group commit 으로 라인을 모아 둘 수 있는 최대 시간을 ms 단위로 설정합니다.<br>
+	 * 로그가 끊임없이 들어와 큐가 비지 않더라도 이 시간이 지나면 모아 둔 라인을 기록합니다. 기본 값은 50ms 입니다.<br>
+	 * Sets the maximum time in milliseconds that lines are held for a group commit.<br>
+	 * Collected lines are written after this time even if the queue never becomes empty. The default value is 50ms.
+	 *
+	 * @param latency ms 단위의 시간<br>
+	 *                time in milliseconds
+	 */
+	public Configuration setGroupCommitLatency(int latency) {
+		if(this.closed) return this;
+		this.groupCommitLatency = Math.max(0, latency);
+		return this;
+	}
+
+	/**
+	 * 설정된 group commit 최대 대기 시간을 반환합니다.<br>
+	 * Returns the configured maximum group commit latency.
+	 *
+	 * @return ms 단위의 시간<br>
+	 *         time in milliseconds
+	 */
+	public int getGroupCommitLatency() {
+		return this.groupCommitLatency;
+	}
+
+	/**
+	 * 콘솔 출력 대기열의 크기를 byte 단위로 설정합니다.<br>
+	 * 1 이상이면 콘솔 출력은 별도의 스레드가 모아서 한 번에 출력하며, 콘솔이 느려 대기열이 가득 차면 콘솔에 출력할 라인을 버리고
+	 * 버린 라인 수를 출력합니다. 느린 터미널이나 컨테이너 로그 파이프가 파일 기록을 늦추지 않습니다.<br>
+	 * 0 이면 로그를 기록하는 스레드가 직접 콘솔에 출력합니다. 기본 값은 256KiB 입니다.<br>
+	 * Sets the size in bytes of the console output queue.<br>
+	 * With 1 or more, console output is collected and written in batches by a separate thread. When the console is too slow
+	 * and the queue is full, console lines are dropped and the number of dropped lines is printed, so a slow terminal or
+	 * container log pipe never slows file writing.<br>
+	 * With 0, the writing thread prints to the console itself. The default value is 256KiB.
+	 *
+	 * @param size byte 단위의 크기<br>
+	 *             size in bytes
+	 */
+	public Configuration setConsoleBufferSize(int size) {
+		if(this.closed) return this;
+		this.consoleBufferSize = Math.max(0, size);
+		return this;
+	}
+
+	/**
+	 * 설정된 콘솔 출력 대기열의 크기를 반환합니다.<br>
+	 * Returns the configured size of the console output queue.
+	 *
+	 * @return byte 단위의 크기. 0 이면 사용하지 않음<br>
+	 *         size in bytes. 0 means disabled
+	 */
+	public int getConsoleBufferSize() {
+		return this.consoleBufferSize;
+	}
+
+	/**
+	 * 콘솔 로그를 표준 에러(System.err)로 출력할지 설정합니다. 기본 값은 false 로 표준 출력(System.out)에 출력합니다.<br>
+	 * Sets whether console logs go to standard error (System.err). The default is false, which uses standard output (System.out).
+	 *
+	 * @param stderr 표준 에러로 출력할지 여부<br>
+	 *               whether to write to standard error
+	 */
+	public Configuration setConsoleStderr(boolean stderr) {
+		if(this.closed) return this;
+		this.consoleStderr = stderr;
+		return this;
+	}
+
+	/**
+	 * 콘솔 로그를 표준 에러로 출력하는지 여부를 반환합니다.<br>
+	 * Returns whether console logs go to standard error.
+	 *
+	 * @return 표준 에러로 출력하면 true<br>
+	 *         true if writing to standard error
+	 */
+	public boolean isConsoleStderr() {
+		return this.consoleStderr;
+	}
+
+	/**
+	 * 콘솔에 ANSI 스타일(색상)을 출력할지 결정하는 방식을 설정합니다.<br>
+	 * Auto 이면 프로세스가 터미널에 연결되어 있지 않을 때 스타일 없이 출력합니다. 기본 값은 Auto 입니다.<br>
+	 * System.setOut() 으로 바꾼 스트림이나 IDE 콘솔에서 색상을 보려면 Always 로 설정합니다.<br>
+	 * Sets how to decide whether ANSI styles (colors) are written to the console.<br>
+	 * With Auto, styles are skipped when the process is not attached to a terminal. The default value is Auto.<br>
+	 * Set Always to see colors in streams set with System.setOut() or in IDE consoles.
+	 *
+	 * @param consoleAnsi ANSI 출력 방식<br>
+	 *                    ANSI output mode
+	 */
+	public Configuration setConsoleAnsi(ConsoleAnsi consoleAnsi) {
+		if(this.closed) return this;
+		this.consoleAnsi = consoleAnsi == null ? ConsoleAnsi.Auto : consoleAnsi;
+		return this;
+	}
+
+	/**
+	 * 설정된 콘솔 ANSI 출력 방식을 반환합니다.<br>
+	 * Returns the configured console ANSI output mode.
+	 *
+	 * @return ANSI 출력 방식<br>
+	 *         ANSI output mode
+	 */
+	public ConsoleAnsi getConsoleAnsi() {
+		return this.consoleAnsi;
+	}
+
 	/**
 	 * 마커에 해당하는 WriterOption을 찾아서 반환합니다.<br>
 	 * 찾을 수 없다면 null을 반환합니다.<br>
@@ -731,6 +1552,19 @@ public final class Configuration implements Cloneable {
 			}
 		}
 
+		// 우선 lane 은 일반 큐에서 꺼낸 라인의 수로 먼저 들어온 라인을 센다. 들어온 순서대로 꺼내지 않는 큐와는 함께 사용할 수 없다.
+		if(this.queuePriorityLevel != Level.OFF) {
+			if(this.queueSpillDir != null && !this.queueSpillDir.isEmpty()) {
+				// spill 중에는 나중에 메모리 큐에 들어간 라인이 파일에 기록된 라인보다 먼저 꺼내질 수 있다.
+				this.queuePriorityLevel = Level.OFF;
+				InLogger.WARN("queuePriorityLevel cannot be used with queueSpillDir. The priority lane is disabled.", true);
+			} else if(this.queueType == LineQueueType.Striped && !this.queueStrictOrder) {
+				// strict 모드가 아니라면 stripe 들을 시간 순서로 합친다.
+				this.queueStrictOrder = true;
+				InLogger.WARN("queuePriorityLevel requires queueStrictOrder with the Striped queue. queueStrictOrder is enabled.", true);
+			}
+		}
+
 		// 기본값 설정
         //noinspection ForLoopReplaceableByForEach
         for(int i = 0, n = this.writerOptionList.size(); i < n; ++i) {
@@ -3,6 +3,10 @@ package com.hancomins.logexpress.configuration;
 import com.hancomins.logexpress.InLogger;
 import com.hancomins.logexpress.Level;
 import com.hancomins.logexpress.LinePatternItemType;
+import com.hancomins.logexpress.queue.LineQueueFactory.LineQueueType;
+import com.hancomins.logexpress.queue.OffHeapLineQueue;
+import com.hancomins.logexpress.queue.OverflowPolicy;
+import com.hancomins.logexpress.queue.WaitStrategy;
 import com.hancomins.logexpress.util.StringUtil;
 import com.hancomins.logexpress.util.SysTool;
 import com.hancomins.logexpress.util.Files;
@@ -84,6 +88,9 @@ class ConfigurationParser {
 				String strDebugModeConsole = properties.getProperty("debugMode.console","false");
 				String strIsAutoShutdown = properties.getProperty("autoShutdown","false");
 				String strIsNonBlockingQueue = properties.getProperty("nonBlockingQueue","");
+				String strQueueType = properties.getProperty("queueType","");
+				String strOverflowPolicy = properties.getProperty("overflowPolicy","");
+				String strOverflowLevel = properties.getProperty("overflowLevel","");
 
 				String strDefaultLevel = properties.getProperty("level","");
 
@@ -119,7 +126,64 @@ class ConfigurationParser {
 				configuration.setDaemonThread("true".equalsIgnoreCase(properties.getProperty("daemonThread","false")));
 				configuration.setDefaultMarker(defaultMarker);
 				configuration.setNonBlockingMode(isNonBlockingQueue);
+				if(!strQueueType.isEmpty()) {
+					LineQueueType queueType = LineQueueType.typeNameOf(strQueueType);
+					if(queueType == null) {
+						InLogger.WARN("Unknown queueType `" + strQueueType + "`. Using `" + Configuration.DEFAULT_QUEUE_TYPE + "`.", true);
+						queueType = Configuration.DEFAULT_QUEUE_TYPE;
+					}
+					configuration.setQueueType(queueType);
+				}
+				if(!strOverflowPolicy.isEmpty()) {
+					OverflowPolicy overflowPolicy = OverflowPolicy.typeNameOf(strOverflowPolicy);
+					if(overflowPolicy == null) {
+						InLogger.WARN("Unknown overflowPolicy `" + strOverflowPolicy + "`. Using `" + Configuration.DEFAULT_OVERFLOW_POLICY + "`.", true);
+						overflowPolicy = Configuration.DEFAULT_OVERFLOW_POLICY;
+					}
+					configuration.setOverflowPolicy(overflowPolicy);
+				}
+				if(!strOverflowLevel.isEmpty()) {
+					Level overflowLevel = Level.stringValueOrNull(strOverflowLevel);
+					configuration.setOverflowLevel(overflowLevel == null ? Configuration.DEFAULT_OVERFLOW_LEVEL : overflowLevel);
+				}
+				configuration.setOverflowTimeout(parseInteger(properties.getProperty("overflowTimeout", Configuration.DEFAULT_OVERFLOW_TIMEOUT + ""), Configuration.DEFAULT_OVERFLOW_TIMEOUT));
+				configuration.setOverflowHighWatermark(parseFloat(properties.getProperty("overflowHighWatermark", Configuration.DEFAULT_OVERFLOW_HIGH_WATERMARK + ""), Configuration.DEFAULT_OVERFLOW_HIGH_WATERMARK));
+				configuration.setOverflowSampleRate(parseFloat(properties.getProperty("overflowSampleRate", Configuration.DEFAULT_OVERFLOW_SAMPLE_RATE + ""), Configuration.DEFAULT_OVERFLOW_SAMPLE_RATE));
+				configuration.setQueueStripes(parseInteger(properties.getProperty("queueStripes", "0"), 0));
+				configuration.setQueueRecordSize(parseInteger(properties.getProperty("queueRecordSize", OffHeapLineQueue.DEFAULT_RECORD_SIZE + ""), OffHeapLineQueue.DEFAULT_RECORD_SIZE));
+				configuration.setQueueStrictOrder("true".equalsIgnoreCase(properties.getProperty("queueStrictOrder", "false")));
+				configuration.setQueueMemoryLimit(parseInteger(properties.getProperty("queueMemoryLimit", "0"), 0));
+				configuration.setQueueMemoryHighWatermark(parseFloat(properties.getProperty("queueMemoryHighWatermark", Configuration.DEFAULT_QUEUE_MEMORY_HIGH_WATERMARK + ""), Configuration.DEFAULT_QUEUE_MEMORY_HIGH_WATERMARK));
+				configuration.setQueueMemoryLowWatermark(parseFloat(properties.getProperty("queueMemoryLowWatermark", Configuration.DEFAULT_QUEUE_MEMORY_LOW_WATERMARK + ""), Configuration.DEFAULT_QUEUE_MEMORY_LOW_WATERMARK));
+				configuration.setQueueSpillDir(properties.getProperty("queueSpillDir", ""));
+				configuration.setQueuePriorityLevel(Level.stringValueOrNull(properties.getProperty("queuePriorityLevel", "off")));
+				configuration.setQueueSpillSegmentSize(parseInteger(properties.getProperty("queueSpillSegmentSize", Configuration.DEFAULT_QUEUE_SPILL_SEGMENT_SIZE + ""), Configuration.DEFAULT_QUEUE_SPILL_SEGMENT_SIZE));
+				configuration.setQueueSpillMaxSize(parseInteger(properties.getProperty("queueSpillMaxSize", Configuration.DEFAULT_QUEUE_SPILL_MAX_SIZE + ""), Configuration.DEFAULT_QUEUE_SPILL_MAX_SIZE));
+				configuration.setQueueSpillWatermark(parseFloat(properties.getProperty("queueSpillWatermark", Configuration.DEFAULT_QUEUE_SPILL_WATERMARK + ""), Configuration.DEFAULT_QUEUE_SPILL_WATERMARK));
+				configuration.setProducerWaitStrategy(parseWaitStrategy(properties.getProperty("waitStrategy.producer", ""), Configuration.DEFAULT_PRODUCER_WAIT_STRATEGY));
+				configuration.setConsumerWaitStrategy(parseWaitStrategy(properties.getProperty("waitStrategy.consumer", ""), Configuration.DEFAULT_CONSUMER_WAIT_STRATEGY));
 				configuration.setWorkerInterval(parseInteger(writeWorkerInterval, Configuration.DEFAULT_WRITER_WORKER_INTERVAL));
+				configuration.setWorkerThreads(parseInteger(properties.getProperty("workerThreads", Configuration.DEFAULT_WRITER_WORKER_THREADS + ""), Configuration.DEFAULT_WRITER_WORKER_THREADS));
+				configuration.setFormatterThreads(parseInteger(properties.getProperty("formatterThreads", "0"), 0));
+				configuration.setGroupCommitSize(parseInteger(properties.getProperty("groupCommitSize", "0"), 0));
+				configuration.setGroupCommitLatency(parseInteger(properties.getProperty("groupCommitLatency", Configuration.DEFAULT_GROUP_COMMIT_LATENCY + ""), Configuration.DEFAULT_GROUP_COMMIT_LATENCY));
+				configuration.setConsoleBufferSize(parseInteger(properties.getProperty("consoleBufferSize", Configuration.DEFAULT_CONSOLE_BUFFER_SIZE + ""), Configuration.DEFAULT_CONSOLE_BUFFER_SIZE));
+				String strConsoleStream = properties.getProperty("consoleStream", "").trim();
+				if(!strConsoleStream.isEmpty()) {
+					boolean stderr = "stderr".equalsIgnoreCase(strConsoleStream);
+					if(!stderr && !"stdout".equalsIgnoreCase(strConsoleStream)) {
+						InLogger.WARN("Unknown consoleStream `" + strConsoleStream + "`. Using `stdout`.", true);
+					}
+					configuration.setConsoleStderr(stderr);
+				}
+				String strConsoleAnsi = properties.getProperty("consoleAnsi", "").trim();
+				if(!strConsoleAnsi.isEmpty()) {
+					ConsoleAnsi consoleAnsi = ConsoleAnsi.typeNameOf(strConsoleAnsi);
+					if(consoleAnsi == null) {
+						InLogger.WARN("Unknown consoleAnsi `" + strConsoleAnsi + "`. Using `" + ConsoleAnsi.Auto + "`.", true);
+					}
+					configuration.setConsoleAnsi(consoleAnsi);
+				}
 			}
 			else if(key.startsWith("writer/") ) {
 				String defaultName = key.replaceAll("^writer/{1,}", "");
@@ -158,6 +222,44 @@ class ConfigurationParser {
 				option.setEncoding(encoding);
 				option.setFile(filePattern);
 				option.setLinePattern(pattern);
+				option.setFlushInterval(parseInteger(properties.getProperty("flushInterval", "0"), 0));
+				option.setFlushSize(parseInteger(properties.getProperty("flushSize", "0"), 0));
+				option.setFlushPerBatch("true".equalsIgnoreCase(properties.getProperty("flushPerBatch", "false").trim()));
+				String strFsync = properties.getProperty("fsync", "").trim();
+				if(!strFsync.isEmpty()) {
+					FsyncPolicy fsyncPolicy = FsyncPolicy.typeNameOf(strFsync);
+					if(fsyncPolicy == null) {
+						InLogger.WARN("Unknown fsync policy `" + strFsync + "`. Using `" + FsyncPolicy.Never + "`.", true);
+					}
+					option.setFsyncPolicy(fsyncPolicy);
+				}
+				option.setFsyncInterval(parseInteger(properties.getProperty("fsyncInterval", WriterOption.DEFAULT_FSYNC_INTERVAL + ""), WriterOption.DEFAULT_FSYNC_INTERVAL));
+				option.setFsyncLevel(Level.stringValueOrNull(properties.getProperty("fsyncLevel", "")));
+				String strFileMode = properties.getProperty("fileMode", "").trim();
+				if(!strFileMode.isEmpty()) {
+					FileMode fileMode = FileMode.typeNameOf(strFileMode);
+					if(fileMode == null) {
+						InLogger.WARN("Unknown file mode `" + strFileMode + "`. Using `" + FileMode.Stream + "`.", true);
+					}
+					option.setFileMode(fileMode);
+				}
+				option.setPreallocate("true".equalsIgnoreCase(properties.getProperty("preallocate", "false").trim()));
+				String strCompress = properties.getProperty("compress", "").trim();
+				if(!strCompress.isEmpty()) {
+					Compression compression = Compression.typeNameOf(strCompress);
+					if(compression == null) {
+						InLogger.WARN("Unknown compression `" + strCompress + "`. Using `" + Compression.None + "`.", true);
+					}
+					option.setCompression(compression);
+				}
+				String strLayout = properties.getProperty("layout", "").trim();
+				if(!strLayout.isEmpty()) {
+					LineLayout layout = LineLayout.typeNameOf(strLayout);
+					if(layout == null) {
+						InLogger.WARN("Unknown layout `" + strLayout + "`. Using `" + LineLayout.Text + "`.", true);
+					}
+					option.setLayout(layout);
+				}
 				
 				String[] markerArray = markers.split(",");
 				option.addMarker(defaultName);
@@ -176,6 +278,8 @@ class ConfigurationParser {
 						option.addWriterType(WriterType.Console);
 					else if("file".equalsIgnoreCase(typeName))
 						option.addWriterType(WriterType.File);
+					else if("binary".equalsIgnoreCase(typeName))
+						option.addWriterType(WriterType.Binary);
 				}
 			}
 		}
@@ -224,9 +328,35 @@ class ConfigurationParser {
 		strignBuilder.append("autoShutdown").append('=').append(configuration.isAutoShutdown()).append(lb);
 		strignBuilder.append("queueSize").append('=').append(configuration.getQueueSize()).append(lb);
 		strignBuilder.append("nonBlockingQueue").append('=').append(configuration.isNonBlockingQueue()).append(lb);
+		strignBuilder.append("queueType").append('=').append(configuration.getQueueType()).append(lb);
+		strignBuilder.append("queueStripes").append('=').append(configuration.getQueueStripes()).append(lb);
+		strignBuilder.append("queueRecordSize").append('=').append(configuration.getQueueRecordSize()).append(lb);
+		strignBuilder.append("queueStrictOrder").append('=').append(configuration.isQueueStrictOrder()).append(lb);
+		strignBuilder.append("queueMemoryLimit").append('=').append(configuration.getQueueMemoryLimit()).append(lb);
+		strignBuilder.append("queueMemoryHighWatermark").append('=').append(configuration.getQueueMemoryHighWatermark()).append(lb);
+		strignBuilder.append("queueMemoryLowWatermark").append('=').append(configuration.getQueueMemoryLowWatermark()).append(lb);
+		strignBuilder.append("queueSpillDir").append('=').append(configuration.getQueueSpillDir()).append(lb);
+		strignBuilder.append("queueSpillSegmentSize").append('=').append(configuration.getQueueSpillSegmentSize()).append(lb);
+		strignBuilder.append("queueSpillMaxSize").append('=').append(configuration.getQueueSpillMaxSize()).append(lb);
+		strignBuilder.append("queueSpillWatermark").append('=').append(configuration.getQueueSpillWatermark()).append(lb);
+		strignBuilder.append("queuePriorityLevel").append('=').append(configuration.getQueuePriorityLevel()).append(lb);
+		strignBuilder.append("overflowPolicy").append('=').append(configuration.getOverflowPolicy()).append(lb);
+		strignBuilder.append("overflowLevel").append('=').append(configuration.getOverflowLevel()).append(lb);
+		strignBuilder.append("overflowTimeout").append('=').append(configuration.getOverflowTimeout()).append(lb);
+		strignBuilder.append("overflowHighWatermark").append('=').append(configuration.getOverflowHighWatermark()).append(lb);
+		strignBuilder.append("overflowSampleRate").append('=').append(configuration.getOverflowSampleRate()).append(lb);
+		strignBuilder.append("waitStrategy.producer").append('=').append(configuration.getProducerWaitStrategy()).append(lb);
+		strignBuilder.append("waitStrategy.consumer").append('=').append(configuration.getConsumerWaitStrategy()).append(lb);
 
 		strignBuilder.append("defaultMarker").append('=').append(configuration.getDefaultMarker()).append(lb);
 		strignBuilder.append("workerInterval").append('=').append(workerInterval).append(lb);
+		strignBuilder.append("workerThreads").append('=').append(configuration.getWorkerThreads()).append(lb);
+		strignBuilder.append("formatterThreads").append('=').append(configuration.getFormatterThreads()).append(lb);
+		strignBuilder.append("groupCommitSize").append('=').append(configuration.getGroupCommitSize()).append(lb);
+		strignBuilder.append("groupCommitLatency").append('=').append(configuration.getGroupCommitLatency()).append(lb);
+		strignBuilder.append("consoleBufferSize").append('=').append(configuration.getConsoleBufferSize()).append(lb);
+		strignBuilder.append("consoleStream").append('=').append(configuration.isConsoleStderr() ? "stderr" : "stdout").append(lb);
+		strignBuilder.append("consoleAnsi").append('=').append(configuration.getConsoleAnsi()).append(lb);
 		strignBuilder.append("fileExistCheck").append('=').append(configuration.isFileExistCheck()).append(lb);
 
 		strignBuilder.append("level").append('=').append(configuration.getDefaultLevel()).append(lb);
@@ -271,6 +401,16 @@ class ConfigurationParser {
 			String encoding = option.getEncoding(); 
 			strignBuilder.append("encoding").append('=').append(encoding == null ? ""  : encoding).append(lb);
 			strignBuilder.append("addedStackTraceElementsIndex").append('=').append(option.getStackTraceDepth()).append(lb);
+			strignBuilder.append("flushInterval").append('=').append(option.getFlushInterval()).append(lb);
+			strignBuilder.append("flushSize").append('=').append(option.getFlushSize()).append(lb);
+			strignBuilder.append("flushPerBatch").append('=').append(option.isFlushPerBatch()).append(lb);
+			strignBuilder.append("fsync").append('=').append(option.getFsyncPolicy()).append(lb);
+			strignBuilder.append("fsyncInterval").append('=').append(option.getFsyncInterval()).append(lb);
+			strignBuilder.append("fsyncLevel").append('=').append(option.getFsyncLevel()).append(lb);
+			strignBuilder.append("fileMode").append('=').append(option.getFileMode()).append(lb);
+			strignBuilder.append("preallocate").append('=').append(option.isPreallocate()).append(lb);
+			strignBuilder.append("compress").append('=').append(option.getCompression()).append(lb);
+			strignBuilder.append("layout").append('=').append(option.getLayout()).append(lb);
 
 			styleOptionWriteString(strignBuilder, configuration.defaultStyleOption(), lb);
 			
@@ -306,6 +446,26 @@ class ConfigurationParser {
 			return def;
 		}
 	}
+
+	static private WaitStrategy parseWaitStrategy(String value, WaitStrategy def) {
+		if(value.isEmpty()) {
+			return def;
+		}
+		WaitStrategy waitStrategy = WaitStrategy.typeNameOf(value);
+		if(waitStrategy == null) {
+			InLogger.WARN("Unknown waitStrategy `" + value + "`. Using `" + def + "`.", true);
+			return def;
+		}
+		return waitStrategy;
+	}
+
+	static private float parseFloat(String value, float def) {
+		try {
+			return Float.parseFloat(value.trim());
+		} catch (Exception e) {
+			return def;
+		}
+	}
 	
 	
 	private static LinkedHashMap<String, Properties> parseINI(Reader reader) throws IOException  {
@@ -0,0 +1,40 @@
+package com.hancomins.logexpress.configuration;
+
+/**
+ * 콘솔에 ANSI 스타일(색상)을 출력할지 결정하는 방식.<br>
+ * Decides whether ANSI styles (colors) are written to the console.
+ */
+public enum ConsoleAnsi {
+	/**
+	 * StyleOption 설정대로 항상 출력한다.<br>
+	 * System.setOut() 으로 바꾼 스트림이나 IDE 콘솔처럼 터미널이 아니어도 ANSI 를 해석하는 출력에 사용한다.<br>
+	 * Always writes styles as configured by StyleOption.<br>
+	 * Use it for outputs that understand ANSI without being a terminal, such as streams set with System.setOut() or IDE consoles.
+	 */
+	Always,
+	/**
+	 * 프로세스가 터미널에 연결되어 있을 때만 출력한다. 파이프나 파일, 컨테이너 로그로 출력될 때는 건너뛴다. (기본 값)<br>
+	 * Writes styles only when the process is attached to a terminal. Skips them for pipes, files and container logs. (default)
+	 */
+	Auto,
+	/**
+	 * 콘솔에는 스타일을 출력하지 않는다.<br>
+	 * Never writes styles to the console.
+	 */
+	Never;
+
+	public static ConsoleAnsi typeNameOf(String name) {
+		if(name == null) {
+			return null;
+		}
+		name = name.trim();
+		ConsoleAnsi[] values = values();
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < values.length; ++i) {
+			if(values[i].name().equalsIgnoreCase(name)) {
+				return values[i];
+			}
+		}
+		return null;
+	}
+}
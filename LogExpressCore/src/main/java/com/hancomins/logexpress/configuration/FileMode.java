@@ -0,0 +1,56 @@
+package com.hancomins.logexpress.configuration;
+
+/**
+ * 로그 파일에 byte 를 기록하는 방식.<br>
+ * Method used to write bytes to a log file.
+ */
+public enum FileMode {
+	/**
+	 * 버퍼에 모았다가 FileChannel 로 기록한다. (기본 값)<br>
+	 * Collects bytes in a buffer and writes them through a FileChannel. (default)
+	 */
+	Stream,
+	/**
+	 * 파일을 메모리에 매핑하여 기록한다. 로그를 기록할 때 write 시스템 콜을 호출하지 않으며,
+	 * 기록한 라인은 플러시하지 않아도 JVM 이 비정상 종료되어도 남는다.
+	 * 파일은 큰 단위로 미리 늘려 매핑하고, 닫거나 교체할 때 실제 길이로 줄인다.<br>
+	 * Maps the file into memory. No write system call is made while logging, and written lines
+	 * survive a JVM crash without a flush. The file is extended and mapped in large chunks
+	 * and truncated to its real length when it is closed or rotated.
+	 */
+	Mmap,
+	/**
+	 * 여러 버퍼를 번갈아 채우며, 가득 찬 버퍼는 별도의 I/O 스레드가 정해진 파일 위치에 기록한다.
+	 * 이전 버퍼가 기록되는 동안에도 다음 버퍼를 채우므로 느린 저장소(네트워크 볼륨 등)가 로그 기록을 멈추지 않는다.
+	 * 버퍼는 최소 64KB 이다.<br>
+	 * Fills several buffers in turn while separate I/O threads write full buffers at their assigned file positions.
+	 * The next buffer is filled while previous ones are in flight, so slow storage (such as network volumes) does not stall logging.
+	 * Each buffer is at least 64KB.
+	 */
+	Async,
+	/**
+	 * 라인을 64KB 단위의 블록으로 모아 블록마다 따로 압축하여 기록한다. 블록마다 라인의 시간 범위를 기록하고
+	 * 닫을 때 블록 색인을 파일 끝에 붙이므로, 파일 전체를 풀지 않고 원하는 시간대의 블록만 찾아 읽을 수 있다.
+	 * 플러시하면 모은 라인을 블록으로 만들어 기록한다. 파일은 {@link com.hancomins.logexpress.writer.BlockFileReader} 로 읽는다.<br>
+	 * Collects lines into 64KB blocks and compresses each block independently. Each block records the time range of its lines
+	 * and a block index is appended when the file is closed, so a tool can find and read only the blocks of a time range
+	 * without decompressing the whole file. A flush turns the collected lines into a block.
+	 * Files are read with {@link com.hancomins.logexpress.writer.BlockFileReader}.
+	 */
+	Block;
+
+	public static FileMode typeNameOf(String name) {
+		if(name == null) {
+			return null;
+		}
+		name = name.trim();
+		FileMode[] modes = values();
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < modes.length; ++i) {
+			if(modes[i].name().equalsIgnoreCase(name)) {
+				return modes[i];
+			}
+		}
+		return null;
+	}
+}
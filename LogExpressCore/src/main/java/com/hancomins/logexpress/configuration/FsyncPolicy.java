@@ -0,0 +1,45 @@
+package com.hancomins.logexpress.configuration;
+
+/**
+ * 파일에 기록한 로그를 언제 디스크에 강제로 기록(fsync)할지 결정하는 정책.<br>
+ * Never 를 제외한 정책은 파일을 닫을 때에도 fsync 한다.<br>
+ * Policy that decides when written logs are forced to disk (fsync).<br>
+ * Every policy except Never also forces the file when it is closed.
+ */
+public enum FsyncPolicy {
+	/**
+	 * fsync 하지 않는다. 운영체제가 알아서 디스크에 기록한다. (기본 값)<br>
+	 * Never forces. The operating system writes to disk on its own. (default)
+	 */
+	Never,
+	/**
+	 * 설정된 주기마다 별도의 스레드에서 fsync 한다.<br>
+	 * Forces from a separate thread at the configured interval.
+	 */
+	Interval,
+	/**
+	 * 파일이 교체되거나 닫힐 때만 fsync 한다.<br>
+	 * Forces only when the file is rotated or closed.
+	 */
+	Rotation,
+	/**
+	 * 설정된 레벨 이상의 라인을 기록하면 바로 플러시하고 별도의 스레드에서 fsync 한다.<br>
+	 * Flushes as soon as a line at or above the configured level is written, and forces from a separate thread.
+	 */
+	Level;
+
+	public static FsyncPolicy typeNameOf(String name) {
+		if(name == null) {
+			return null;
+		}
+		name = name.trim();
+		FsyncPolicy[] policies = values();
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < policies.length; ++i) {
+			if(policies[i].name().equalsIgnoreCase(name)) {
+				return policies[i];
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,38 @@
+package com.hancomins.logexpress.configuration;
+
+/**
+ * 로그 라인을 출력하는 형식.<br>
+ * Format in which log lines are written.
+ */
+public enum LineLayout {
+	/**
+	 * 라인 패턴대로 텍스트를 출력한다. (기본 값)<br>
+	 * Writes text as laid out by the line pattern. (default)
+	 */
+	Text,
+	/**
+	 * 라인 하나를 JSON 객체 한 줄로 출력한다. (JSON Lines)
+	 * 라인 패턴에 있는 항목(time, level, marker, thread, tid, caller, class, method, line, pid, hostname, message 등)을
+	 * 항목 이름을 키로 하는 필드로 출력하며, 패턴의 텍스트와 길이 제한, 스타일은 사용하지 않는다. 예외가 있다면 error 필드에 스택 트레이스를 출력한다.<br>
+	 * Writes each line as a single-line JSON object. (JSON Lines)
+	 * Items in the line pattern (time, level, marker, thread, tid, caller, class, method, line, pid, hostname, message, ...)
+	 * become fields keyed by the item name. Pattern text, length ranges and styles are not used.
+	 * If the line has an exception, its stack trace is written in the error field.
+	 */
+	Json;
+
+	public static LineLayout typeNameOf(String name) {
+		if(name == null) {
+			return null;
+		}
+		name = name.trim();
+		LineLayout[] layouts = values();
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < layouts.length; ++i) {
+			if(layouts[i].name().equalsIgnoreCase(name)) {
+				return layouts[i];
+			}
+		}
+		return null;
+	}
+}
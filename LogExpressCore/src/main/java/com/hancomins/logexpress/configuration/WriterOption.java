@@ -23,6 +23,8 @@ public class WriterOption implements Cloneable {
 	public static final int DEFAULT_MAXSIZE = 512;
 	public static final int DEFAULT_BUFFER_SIZE = 1024;
 	public static final int DEFAULT_ADDED_INDEX_OF_STACKTRACE_ELEMENTS = 1;
+	public static final int DEFAULT_FSYNC_INTERVAL = 1000;
+	public static final Level DEFAULT_FSYNC_LEVEL = Level.ERROR;
 
 	private Level level = null;
 	@SuppressWarnings("RedundantArrayCreation")
@@ -36,6 +38,16 @@ public class WriterOption implements Cloneable {
 	private String encoding = null;
 	private String file = DEFAULT_FILE_PATTERN;
 	private String pattern = FULL_PATTERN;
+	private int flushInterval = 0;
+	private int flushSize = 0;
+	private boolean flushPerBatch = false;
+	private FsyncPolicy fsyncPolicy = FsyncPolicy.Never;
+	private int fsyncInterval = DEFAULT_FSYNC_INTERVAL;
+	private Level fsyncLevel = DEFAULT_FSYNC_LEVEL;
+	private FileMode fileMode = FileMode.Stream;
+	private boolean preallocate = false;
+	private Compression compression = Compression.None;
+	private LineLayout layout = LineLayout.Text;
 
 	private String staticVariableReplacedEncoding = null;
 	private String staticVariableReplacedFile = null;
@@ -64,6 +76,16 @@ public class WriterOption implements Cloneable {
 		option.pattern = this.pattern;
 		option.encoding = this.encoding;
 		option.stackTraceDepth = this.stackTraceDepth;
+		option.flushInterval = this.flushInterval;
+		option.flushSize = this.flushSize;
+		option.flushPerBatch = this.flushPerBatch;
+		option.fsyncPolicy = this.fsyncPolicy;
+		option.fsyncInterval = this.fsyncInterval;
+		option.fsyncLevel = this.fsyncLevel;
+		option.fileMode = this.fileMode;
+		option.preallocate = this.preallocate;
+		option.compression = this.compression;
+		option.layout = this.layout;
 		option.staticVariableReplacedFile = null;
 		option.staticVariableReplacedPattern = null;
 		option.staticVariableReplacedEncoding = null;
@@ -411,6 +433,283 @@ public class WriterOption implements Cloneable {
 		return this.stackTraceDepth;
 	}
 
+	/**
+	 * 기록한 로그를 최대 이 시간(ms) 안에 파일에 플러시하도록 설정합니다.<br>
+	 * 다른 파일에 로그가 계속 쌓여 큐가 비지 않더라도 버퍼에 남은 로그가 이 시간보다 오래 머물지 않습니다.<br>
+	 * 0 이하이면 사용하지 않습니다. 기본값은 0입니다.<br>
+	 * Sets the maximum time in milliseconds that written logs stay in the buffer before being flushed.<br>
+	 * Buffered logs are flushed within this time even when the queue never becomes empty because of other files.<br>
+	 * 0 or less disables it. The default is 0.
+	 *
+	 * @param interval 플러시 주기 (ms)<br>
+	 *                 flush interval (ms)
+	 */
+	public void setFlushInterval(int interval) {
+		if(this.isClosed) return;
+		this.flushInterval = Math.max(0, interval);
+	}
+
+	/**
+	 * 설정된 플러시 주기를 반환합니다.<br>
+	 * Returns the configured flush interval.
+	 *
+	 * @return 플러시 주기 (ms). 0 이면 사용하지 않음<br>
+	 *         flush interval (ms). 0 means disabled
+	 */
+	public int getFlushInterval() {
+		return this.flushInterval;
+	}
+
+	/**
+	 * 마지막 플러시 이후 이만큼 기록하면 플러시하도록 설정합니다. byte 단위.<br>
+	 * 0 이하이면 사용하지 않습니다. 기본값은 0입니다.<br>
+	 * Flushes whenever this many bytes have been written since the last flush.<br>
+	 * 0 or less disables it. The default is 0.
+	 *
+	 * @param size 플러시 크기 (byte)<br>
+	 *             flush size (bytes)
+	 */
+	public void setFlushSize(int size) {
+		if(this.isClosed) return;
+		this.flushSize = Math.max(0, size);
+	}
+
+	/**
+	 * 설정된 플러시 크기를 반환합니다.<br>
+	 * Returns the configured flush size.
+	 *
+	 * @return 플러시 크기 (byte). 0 이면 사용하지 않음<br>
+	 *         flush size (bytes). 0 means disabled
+	 */
+	public int getFlushSize() {
+		return this.flushSize;
+	}
+
+	/**
+	 * 큐에서 꺼낸 배치 하나를 기록할 때마다 플러시할지 설정합니다.<br>
+	 * 기본값은 false 이며, 이 경우 큐가 비었을 때 플러시합니다.<br>
+	 * Sets whether to flush after every batch taken from the queue.<br>
+	 * The default is false, which flushes when the queue becomes empty.
+	 *
+	 * @param flushPerBatch 배치마다 플러시할지 여부<br>
+	 *                      whether to flush after every batch
+	 */
+	public void setFlushPerBatch(boolean flushPerBatch) {
+		if(this.isClosed) return;
+		this.flushPerBatch = flushPerBatch;
+	}
+
+	/**
+	 * 배치마다 플러시하는지 여부를 반환합니다.<br>
+	 * Returns whether to flush after every batch.
+	 *
+	 * @return 배치마다 플러시하면 true<br>
+	 *         true if flushing after every batch
+	 */
+	public boolean isFlushPerBatch() {
+		return this.flushPerBatch;
+	}
+
+	/**
+	 * 파일에 기록한 로그를 언제 디스크에 강제로 기록(fsync)할지 설정합니다.<br>
+	 * Never: fsync 하지 않습니다. Interval: {@link #setFsyncInterval(int)} 주기마다 fsync 합니다.
+	 * Rotation: 파일이 교체되거나 닫힐 때 fsync 합니다. Level: {@link #setFsyncLevel(Level)} 이상의 로그를 기록하면 fsync 합니다.<br>
+	 * fsync 는 가능하면 별도의 스레드에서 수행되어 로그 기록을 멈추지 않습니다. 기본값은 Never 입니다.<br>
+	 * Sets when written logs are forced to disk (fsync).<br>
+	 * Never: no fsync. Interval: every {@link #setFsyncInterval(int)}. Rotation: when the file is rotated or closed.
+	 * Level: when a line at or above {@link #setFsyncLevel(Level)} is written.<br>
+	 * Where possible fsync runs on a separate thread so that it does not stall writing. The default is Never.
+	 *
+	 * @param policy fsync 정책<br>
+	 *               fsync policy
+	 */
+	public void setFsyncPolicy(FsyncPolicy policy) {
+		if(this.isClosed) return;
+		this.fsyncPolicy = policy == null ? FsyncPolicy.Never : policy;
+	}
+
+	/**
+	 * 설정된 fsync 정책을 반환합니다.<br>
+	 * Returns the configured fsync policy.
+	 *
+	 * @return fsync 정책<br>
+	 *         fsync policy
+	 */
+	public FsyncPolicy getFsyncPolicy() {
+		return this.fsyncPolicy;
+	}
+
+	/**
+	 * Interval 정책의 fsync 주기를 설정합니다. ms 단위.<br>
+	 * 기본값은 1000ms 입니다.<br>
+	 * Sets the fsync interval in milliseconds for the Interval policy.<br>
+	 * The default is 1000ms.
+	 *
+	 * @param interval fsync 주기 (ms)<br>
+	 *                 fsync interval (ms)
+	 */
+	public void setFsyncInterval(int interval) {
+		if(this.isClosed) return;
+		this.fsyncInterval = interval <= 0 ? DEFAULT_FSYNC_INTERVAL : interval;
+	}
+
+	/**
+	 * 설정된 fsync 주기를 반환합니다.<br>
+	 * Returns the configured fsync interval.
+	 *
+	 * @return fsync 주기 (ms)<br>
+	 *         fsync interval (ms)
+	 */
+	public int getFsyncInterval() {
+		return this.fsyncInterval;
+	}
+
+	/**
+	 * Level 정책에서 fsync 할 로그의 레벨을 설정합니다.<br>
+	 * 기본값은 ERROR 입니다.<br>
+	 * Sets the level at or above which lines trigger fsync for the Level policy.<br>
+	 * The default is ERROR.
+	 *
+	 * @param level fsync 레벨<br>
+	 *              fsync level
+	 */
+	public void setFsyncLevel(Level level) {
+		if(this.isClosed) return;
+		this.fsyncLevel = level == null ? DEFAULT_FSYNC_LEVEL : level;
+	}
+
+	/**
+	 * 설정된 fsync 레벨을 반환합니다.<br>
+	 * Returns the configured fsync level.
+	 *
+	 * @return fsync 레벨<br>
+	 *         fsync level
+	 */
+	public Level getFsyncLevel() {
+		return this.fsyncLevel;
+	}
+
+	/**
+	 * 로그 파일에 byte 를 기록하는 방식을 설정합니다.<br>
+	 * Stream: 버퍼에 모았다가 FileChannel 로 기록합니다. Mmap: 파일을 메모리에 매핑하여 write 시스템 콜 없이 기록합니다.
+	 * Async: 여러 버퍼를 번갈아 채우고 가득 찬 버퍼는 별도의 스레드에서 기록합니다.
+	 * Block: 라인을 블록으로 모아 블록마다 압축하고 시간 색인을 붙여 기록합니다.
+	 * Mmap 으로 기록한 라인은 플러시하지 않아도 JVM 이 비정상 종료되어도 남습니다.
+	 * 같은 파일을 여러 writer 가 쓴다면 파일을 먼저 연 writer 의 방식을 따릅니다. 기본값은 Stream 입니다.<br>
+	 * Sets how bytes are written to the log file.<br>
+	 * Stream: collects bytes in a buffer and writes them through a FileChannel. Mmap: maps the file into memory and writes without write system calls.
+	 * Async: fills several buffers in turn and writes full buffers on separate threads.
+	 * Block: collects lines into blocks, compresses each block and writes it with a time index.
+	 * Lines written with Mmap survive a JVM crash without a flush.
+	 * If several writers share a file, the writer that opens it first decides the mode. The default is Stream.
+	 *
+	 * @param fileMode 파일 기록 방식<br>
+	 *                 file write mode
+	 */
+	public void setFileMode(FileMode fileMode) {
+		if(this.isClosed) return;
+		this.fileMode = fileMode == null ? FileMode.Stream : fileMode;
+	}
+
+	/**
+	 * 설정된 파일 기록 방식을 반환합니다.<br>
+	 * Returns the configured file write mode.
+	 *
+	 * @return 파일 기록 방식<br>
+	 *         file write mode
+	 */
+	public FileMode getFileMode() {
+		return this.fileMode;
+	}
+
+	/**
+	 * 로그 파일을 열 때 최대 파일 크기(maxSize)로 미리 늘려 둘지 설정합니다.<br>
+	 * 파일은 기록하면서 조금씩 늘어나지 않으며, 닫거나 교체할 때 실제 기록한 길이로 줄어듭니다.
+	 * 또한 다음에 교체할 파일을 별도의 스레드에서 미리 열어 두어, 파일을 교체할 때 새 파일을 열며 기다리지 않습니다.
+	 * 최대 파일 크기가 없다면 사용하지 않습니다. 기본값은 false 입니다.<br>
+	 * Sets whether to extend each log file to the maximum file size (maxSize) when it is opened.<br>
+	 * The file does not grow through small extending writes and is trimmed to the written length when it is closed or rotated.
+	 * The next rotation target is also opened ahead of time on a separate thread, so rotation does not wait for a new file to open.
+	 * It has no effect without a maximum file size. The default is false.
+	 *
+	 * @param preallocate 파일을 미리 늘려 둘지 여부<br>
+	 *                    whether to preallocate files
+	 */
+	public void setPreallocate(boolean preallocate) {
+		if(this.isClosed) return;
+		this.preallocate = preallocate;
+	}
+
+	/**
+	 * 로그 파일을 미리 늘려 두는지 여부를 반환합니다.<br>
+	 * Returns whether log files are preallocated.
+	 *
+	 * @return 미리 늘려 두면 true<br>
+	 *         true if files are preallocated
+	 */
+	public boolean isPreallocate() {
+		return this.preallocate;
+	}
+
+	/**
+	 * 교체되어 닫힌 로그 파일을 압축할지 설정합니다.<br>
+	 * None: 압축하지 않습니다. Gzip: gzip 으로 압축하고 파일 이름 뒤에 .gz 를 붙입니다.
+	 * Deflate: zlib(deflate) 로 압축하고 파일 이름 뒤에 .deflate 를 붙입니다.<br>
+	 * 압축은 우선순위가 낮은 별도의 스레드에서 하며, 압축 파일이 완성되면 원본을 삭제합니다. 압축한 파일도 maxHistory 에 따라 삭제됩니다.
+	 * 기본값은 None 입니다.<br>
+	 * Sets whether rotated and closed log files are compressed.<br>
+	 * None: no compression. Gzip: gzip, appending .gz to the file name. Deflate: zlib (deflate), appending .deflate to the file name.<br>
+	 * Compression runs on a low-priority background thread, and the original is removed once the compressed file is complete.
+	 * Compressed files are also removed according to maxHistory. The default is None.
+	 *
+	 * @param compression 압축 방식<br>
+	 *                    compression
+	 */
+	public void setCompression(Compression compression) {
+		if(this.isClosed) return;
+		this.compression = compression == null ? Compression.None : compression;
+	}
+
+	/**
+	 * 설정된 압축 방식을 반환합니다.<br>
+	 * Returns the configured compression.
+	 *
+	 * @return 압축 방식<br>
+	 *         compression
+	 */
+	public Compression getCompression() {
+		return this.compression;
+	}
+
+	/**
+	 * 로그 라인을 출력하는 형식을 설정합니다.<br>
+	 * Text: 라인 패턴대로 텍스트를 출력합니다. Json: 라인 하나를 JSON 객체 한 줄로 출력합니다. (JSON Lines)
+	 * Json 은 라인 패턴에 있는 항목을 항목 이름을 키로 하는 필드로 출력하고, 예외가 있다면 error 필드에 스택 트레이스를 출력합니다.
+	 * 패턴의 텍스트와 길이 제한, 스타일은 사용하지 않습니다. 기본값은 Text 입니다.<br>
+	 * Sets the format in which log lines are written.<br>
+	 * Text: writes text as laid out by the line pattern. Json: writes each line as a single-line JSON object. (JSON Lines)
+	 * Json writes the items in the line pattern as fields keyed by the item name, and the stack trace of an exception in the error field.
+	 * Pattern text, length ranges and styles are not used. The default is Text.
+	 *
+	 * @param layout 출력 형식<br>
+	 *               output layout
+	 */
+	public void setLayout(LineLayout layout) {
+		if(this.isClosed) return;
+		this.layout = layout == null ? LineLayout.Text : layout;
+	}
+
+	/**
+	 * 설정된 출력 형식을 반환합니다.<br>
+	 * Returns the configured output layout.
+	 *
+	 * @return 출력 형식<br>
+	 *         output layout
+	 */
+	public LineLayout getLayout() {
+		return this.layout;
+	}
+
 	/**
 	 * 설정을 종료합니다. 설정이 종료되면 더 이상 수정할 수 없습니다.<br>
 	 * Closes the configuration. Once closed, it cannot be modified.
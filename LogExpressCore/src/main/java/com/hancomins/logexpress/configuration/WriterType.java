@@ -11,6 +11,13 @@ public enum WriterType {
 	/**
 	 * 파일에 기록합니다.
 	 */
-	File
+	File,
+	/**
+	 * 파일에 라인을 포맷하지 않고 바이너리 레코드로 기록합니다. File 대신 사용하며 파일 설정(file, maxSize 등)은 같습니다.
+	 * 레코드에는 시간, 레벨, 마커, 스레드, 메시지 패턴과 인자 값, 예외가 담기며
+	 * {@link com.hancomins.logexpress.BinaryLineDecoder} 로 원하는 라인 패턴의 텍스트로 바꾸어 읽습니다.
+	 * 같은 파일을 쓰는 writer 는 모두 Binary 를 사용해야 합니다.
+	 */
+	Binary
 
 }
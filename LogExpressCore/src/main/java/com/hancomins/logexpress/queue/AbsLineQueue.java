@@ -4,8 +4,23 @@ import com.hancomins.logexpress.Line;
 
 public abstract class AbsLineQueue {
 
+	/**
+	 * 생산자가 Blocking 전략으로 한 번에 잠드는 최대 시간.
+	 */
+	private static final long PRODUCER_MAX_WAIT_NANOS = 10000000L;
+
 	protected final int capacity;
 
+	private WaitStrategy producerWaitStrategy = WaitStrategy.ParkNanos;
+	/**
+	 * 소비자가 라인을 꺼내어 빈 자리가 생겼음을 잠든 생산자에게 알린다.
+	 */
+	private final WaitSignal notFullSignal = new WaitSignal() {
+		@Override
+		protected boolean isReady() {
+			return hasSpace();
+		}
+	};
 
 	private OnPushLineListener pushLineListener = new OnPushLineListener() {
 		@Override
@@ -27,14 +42,111 @@ public abstract class AbsLineQueue {
 		this.pushLineListener = pushLineListener;
 	}
 
+	/**
+	 * 큐가 가득 찼을 때 생산자가 기다리는 방법을 설정한다.
+	 */
+	public void setProducerWaitStrategy(WaitStrategy waitStrategy) {
+		if(waitStrategy != null) {
+			this.producerWaitStrategy = waitStrategy;
+		}
+	}
+
+	public WaitStrategy getProducerWaitStrategy() {
+		return producerWaitStrategy;
+	}
+
+	/**
+	 * CallerRuns 정책에서 큐가 가득 찼을 때 라인을 직접 기록할 대상을 설정한다. 정책을 처리하는 큐만 사용한다.
+	 */
+	public void setCallerRunsHandler(CallerRunsHandler callerRunsHandler) {
+	}
+
+	/**
+	 * 라인이 기록될 곳을 구분하는 방법을 설정한다. 우선 lane 을 처리하는 큐만 사용한다.
+	 */
+	public void setOutputResolver(LineOutputResolver outputResolver) {
+	}
+
+	/**
+	 * 큐가 가득 차서 다시 시도하기 전에 생산자 스레드에서 호출한다.
+	 * @param tries 연속으로 실패한 횟수
+	 */
+	protected void waitForSpace(int tries) {
+		producerWaitStrategy.idle(notFullSignal, tries, PRODUCER_MAX_WAIT_NANOS);
+	}
+
+	/**
+	 * 최대 maxWaitNanos 만큼만 기다린다.
+	 */
+	protected void waitForSpace(int tries, long maxWaitNanos) {
+		producerWaitStrategy.idle(notFullSignal, tries, Math.min(maxWaitNanos, PRODUCER_MAX_WAIT_NANOS));
+	}
+
+	/**
+	 * 잠든 생산자를 깨워도 되는지 판단한다. 라인 수 외의 기준으로 가득 차는 큐는 재정의한다.
+	 */
+	protected boolean hasSpace() {
+		return size() < capacity;
+	}
+
+	/**
+	 * 라인을 꺼낸 뒤 소비자 스레드에서 호출한다. 잠든 생산자가 있을 때만 깨운다.
+	 */
+	protected final void signalNotFull() {
+		notFullSignal.signal();
+	}
+
 	
 	
 	public void push(Line line) {
 		pushLineListener.onPushLine();
 	}
 
+	/**
+	 * 큐에 빈 자리가 있을 때만 Line 을 넣는다. 큐가 가득 차 있으면 기다리지 않고 false 를 반환한다.
+	 * @param line 넣을 Line
+	 * @return 큐에 넣었다면 true
+	 */
+	public boolean offer(Line line) {
+		push(line);
+		return true;
+	}
+
+	/**
+	 * 큐에 쌓인 Line 의 대략적인 개수.
+	 */
+	public int size() {
+		return 0;
+	}
+
+	/**
+	 * 마지막 호출 이후 버려진 Line 의 개수를 반환하고 0 으로 초기화한다.
+	 */
+	public long takeDroppedCount() {
+		return 0;
+	}
+
 	public abstract Line pop();
 
+	/**
+	 * 큐에 쌓인 Line 을 최대 max 개까지 한 번에 꺼내어 batch 배열의 앞에서부터 채운다.
+	 * @param batch Line 을 담을 배열
+	 * @param max 꺼낼 최대 개수
+	 * @return 꺼낸 Line 의 개수. 큐가 비어 있으면 0
+	 */
+	public int drainTo(Line[] batch, int max) {
+		int limit = Math.min(max, batch.length);
+		int count = 0;
+		while(count < limit) {
+			Line line = pop();
+			if(line == null) {
+				break;
+			}
+			batch[count++] = line;
+		}
+		return count;
+	}
+
 	
 
 	
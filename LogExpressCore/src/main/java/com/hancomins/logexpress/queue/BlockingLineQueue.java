@@ -25,7 +25,27 @@ public class BlockingLineQueue extends AbsLineQueue {
                 } catch (InterruptedException ignored) {}
             }
             lineQueue.push(line);
-            super.push(line);
+        }
+        // WriteWorker 의 monitor 와 교착되지 않도록 락 밖에서 알린다.
+        super.push(line);
+    }
+
+    @Override
+    public boolean offer(Line line) {
+        synchronized (monitor) {
+            if(lineQueue.size() >= capacity) {
+                return false;
+            }
+            lineQueue.push(line);
+        }
+        super.push(line);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        synchronized (monitor) {
+            return lineQueue.size();
         }
     }
 
@@ -37,5 +57,21 @@ public class BlockingLineQueue extends AbsLineQueue {
         }
     }
 
+    @Override
+    public int drainTo(Line[] batch, int max) {
+        int limit = Math.min(max, batch.length);
+        int count = 0;
+        synchronized (monitor) {
+            Line line;
+            while(count < limit && (line = lineQueue.poll()) != null) {
+                batch[count++] = line;
+            }
+            if(count > 0) {
+                monitor.notifyAll();
+            }
+        }
+        return count;
+    }
+
 
 }
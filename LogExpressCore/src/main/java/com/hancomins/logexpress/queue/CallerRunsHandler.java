@@ -0,0 +1,14 @@
+package com.hancomins.logexpress.queue;
+
+import com.hancomins.logexpress.Line;
+
+/**
+ * {@link OverflowPolicy#CallerRuns} 정책에서 큐가 가득 찼을 때 호출한 스레드에서 라인을 직접 기록한다.
+ */
+public interface CallerRunsHandler {
+	/**
+	 * @param line 기록할 라인
+	 * @return 기록하지 못했다면 false. 이 경우 라인은 큐에 넣어진다.
+	 */
+	boolean runInCaller(Line line);
+}
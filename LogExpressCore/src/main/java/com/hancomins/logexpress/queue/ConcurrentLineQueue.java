@@ -3,11 +3,12 @@ package com.hancomins.logexpress.queue;
 import com.hancomins.logexpress.Line;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class ConcurrentLineQueue extends AbsLineQueue {
 
 	private int endIndex = capacity - 1;
-	private final Line[] circleQueue;
+	private final AtomicReferenceArray<Line> circleQueue;
 	private final AtomicInteger writePos = new AtomicInteger(0);
 	private final AtomicInteger readPos = new AtomicInteger(0);
 	private final AtomicInteger size = new AtomicInteger(0);
@@ -17,7 +18,7 @@ public class ConcurrentLineQueue extends AbsLineQueue {
 	protected ConcurrentLineQueue(int capacity) {
 		super(capacity);
 		endIndex = capacity - 1;
-		circleQueue = new Line[capacity];
+		circleQueue = new AtomicReferenceArray<Line>(capacity);
 	}
 	
 	
@@ -27,28 +28,61 @@ public class ConcurrentLineQueue extends AbsLineQueue {
 	public void push(Line line) {
 		waitFor();
 		int pos = getAndUpdate(writePos, endIndex);
-		circleQueue[pos] = line;
+		circleQueue.set(pos, line);
 		super.push(line);
 	}
 
 
+	@Override
+	public boolean offer(Line line) {
+		for (;;) {
+			int current = size.get();
+			if(current == capacity) {
+				return false;
+			}
+			if (size.compareAndSet(current, current + 1)) {
+				break;
+			}
+		}
+		int pos = getAndUpdate(writePos, endIndex);
+		circleQueue.set(pos, line);
+		super.push(line);
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return size.get();
+	}
+
+
 	@Override
 	public Line pop() {
 		if(size.get() == 0) {
 			return null;
 		}
-		int pos = getAndUpdate(readPos, endIndex);
-		Line result = circleQueue[pos];
-		circleQueue[pos] = null;
+		// 생산자는 size 를 늘린 뒤에 슬롯을 채우므로, 아직 비어 있는 슬롯이라면 읽기 위치를 넘기지 않는다.
+		int pos = readPos.get();
+		Line result = circleQueue.get(pos);
+		if(result == null) {
+			return null;
+		}
+		circleQueue.set(pos, null);
+		readPos.set(pos == endIndex ? 0 : pos + 1);
 		size.decrementAndGet();
+		signalNotFull();
 		return result;
 	}
 	
 	
 	public final void waitFor() {
+		int tries = 0;
 		for (;;) {
 			int current = size.get();
-			if(current == capacity) continue;
+			if(current == capacity) {
+				waitForSpace(++tries);
+				continue;
+			}
 			int next = current + 1;
 			if (size.compareAndSet(current, next)) {
 				return;
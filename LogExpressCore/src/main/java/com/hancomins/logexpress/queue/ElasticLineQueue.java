@@ -0,0 +1,289 @@
+package com.hancomins.logexpress.queue;
+
+import com.hancomins.logexpress.Line;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 필요할 때 segment 를 이어 붙여 커지고, 한가해지면 다시 작아지는 MPSC 큐.<br>
+ * 처음에는 작은 segment 하나만 할당한다. segment 가 가득 찼을 때 소비자가 밀려 있다면 두 배 크기의 segment 를,
+ * 그렇지 않다면 절반 크기의 segment 를 이어 붙인다. 살아 있는 segment 크기의 합은 설정된 큐 크기를 넘지 않는다.<br>
+ * 소비자는 다 읽은 segment 를 버리며, 큐가 한동안 비어 있으면 큰 segment 를 닫고 처음 크기의 segment 로 바꾼다.<br>
+ * 생산자는 tail segment 의 쓰기 위치만 CAS 로 선점하며, 슬롯에 Line 이 기록되면 발행된 것으로 본다.
+ */
+public class ElasticLineQueue extends AbsLineQueue {
+
+	private static final int INITIAL_SEGMENT_SIZE = 1024;
+	private static final int MAX_SEGMENT_SIZE = 1 << 16;
+	/**
+	 * 큐가 이 시간(ms) 동안 비어 있으면 큰 segment 를 처음 크기로 줄인다.
+	 */
+	private static final long IDLE_SHRINK_MILLIS = 5000;
+
+	private final int initialSegmentSize;
+	private final AtomicReference<Segment> tail;
+	/**
+	 * 살아 있는 segment 크기의 합.
+	 */
+	private final AtomicInteger reserved = new AtomicInteger(0);
+
+	// 아래는 소비자 스레드만 갱신한다. size() 를 위해 생산자도 읽는다.
+	private volatile Segment head;
+	private volatile int readIndex = 0;
+	private long lastActiveTime = System.currentTimeMillis();
+
+
+	protected ElasticLineQueue(int capacity) {
+		super(Math.max(capacity, 1));
+		this.initialSegmentSize = Integer.highestOneBit(Math.min(this.capacity, INITIAL_SEGMENT_SIZE));
+		Segment segment = newSegment(initialSegmentSize);
+		head = segment;
+		tail = new AtomicReference<Segment>(segment);
+	}
+
+	/**
+	 * 현재 할당된 슬롯의 수.
+	 */
+	public int getAllocatedCapacity() {
+		return reserved.get();
+	}
+
+
+	@Override
+	public void push(Line line) {
+		int tries = 0;
+		while(!offer(line)) {
+			waitForSpace(++tries);
+		}
+	}
+
+	@Override
+	public boolean offer(Line line) {
+		for(;;) {
+			Segment segment = tail.get();
+			int index = segment.claim();
+			if(index >= 0) {
+				segment.slots.lazySet(index, line);
+				super.push(line);
+				return true;
+			}
+			Segment next = segment.next.get();
+			if(next != null) {
+				tail.compareAndSet(segment, next);
+				continue;
+			}
+			// 소비자가 이전 segment 를 아직 읽고 있다면 밀려 있는 것이므로 크게, 아니라면 작게 만든다.
+			int size = head != segment ? segment.length << 1 : segment.length >> 1;
+			next = tryNewSegment(Math.max(initialSegmentSize, Math.min(size, MAX_SEGMENT_SIZE)));
+			if(next == null) {
+				return false;
+			}
+			if(segment.next.compareAndSet(null, next)) {
+				tail.compareAndSet(segment, next);
+			} else {
+				// 다른 생산자가 먼저 이어 붙였다.
+				reserved.addAndGet(-next.length);
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		int size = -readIndex;
+		for(Segment segment = head; segment != null; segment = segment.next.get()) {
+			size += segment.claimed();
+		}
+		return Math.max(0, Math.min(size, capacity));
+	}
+
+	@Override
+	protected boolean hasSpace() {
+		return reserved.get() < capacity;
+	}
+
+	@Override
+	public Line pop() {
+		Segment segment = head;
+		int index = readIndex;
+		for(;;) {
+			if(index < segment.length) {
+				Line line = segment.slots.get(index);
+				if(line == null) {
+					// 비어 있거나 생산자가 아직 기록 중이다.
+					readIndex = index;
+					if(segment.claimed() == index) {
+						shrinkIfIdle(segment);
+					}
+					return null;
+				}
+				segment.slots.lazySet(index, null);
+				readIndex = index + 1;
+				lastActiveTime = 0;
+				return line;
+			}
+			Segment next = segment.next.get();
+			if(next == null) {
+				readIndex = index;
+				releaseExhausted(segment);
+				return null;
+			}
+			segment = releaseHead(segment, next);
+			index = 0;
+		}
+	}
+
+	@Override
+	public int drainTo(Line[] batch, int max) {
+		int limit = Math.min(max, batch.length);
+		int count = 0;
+		Segment segment = head;
+		int index = readIndex;
+		while(count < limit) {
+			if(index < segment.length) {
+				Line line = segment.slots.get(index);
+				if(line == null) {
+					break;
+				}
+				segment.slots.lazySet(index, null);
+				batch[count++] = line;
+				++index;
+				continue;
+			}
+			Segment next = segment.next.get();
+			if(next == null) {
+				releaseExhausted(segment);
+				break;
+			}
+			readIndex = index;
+			segment = releaseHead(segment, next);
+			index = 0;
+		}
+		readIndex = index;
+		if(count > 0) {
+			lastActiveTime = 0;
+			signalNotFull();
+		} else if(index < segment.length && segment.claimed() == index) {
+			shrinkIfIdle(segment);
+		}
+		return count;
+	}
+
+	private Segment releaseHead(Segment segment, Segment next) {
+		head = next;
+		readIndex = 0;
+		if(!segment.released) {
+			reserved.addAndGet(-segment.length);
+		}
+		signalNotFull();
+		return next;
+	}
+
+	/**
+	 * 다 읽었지만 다음 segment 가 없어 버릴 수 없는 head segment 의 크기를 미리 돌려준다.
+	 * 그렇지 않으면 segment 하나가 큐 크기 전체를 차지할 때 생산자가 다음 segment 를 만들 수 없다.
+	 */
+	private void releaseExhausted(Segment segment) {
+		if(!segment.released) {
+			segment.released = true;
+			reserved.addAndGet(-segment.length);
+			signalNotFull();
+		}
+	}
+
+	/**
+	 * 비어 있는 head segment 가 처음 크기보다 크고 한동안 쓰이지 않았다면 닫고 처음 크기의 segment 로 바꾼다.
+	 */
+	private void shrinkIfIdle(Segment segment) {
+		if(segment.length <= initialSegmentSize || segment.next.get() != null) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		if(lastActiveTime == 0) {
+			lastActiveTime = now;
+			return;
+		}
+		if(now - lastActiveTime < IDLE_SHRINK_MILLIS) {
+			return;
+		}
+		int index = readIndex;
+		// 남은 슬롯을 모두 선점하여 생산자가 더 이상 쓰지 못하게 한다. 그 사이 생산자가 기록했다면 다음에 다시 시도한다.
+		if(!segment.seal(index)) {
+			return;
+		}
+		Segment next = tryNewSegment(initialSegmentSize);
+		if(next == null) {
+			next = newSegment(initialSegmentSize);
+		}
+		if(!segment.next.compareAndSet(null, next)) {
+			reserved.addAndGet(-next.length);
+		}
+		tail.compareAndSet(segment, segment.next.get());
+		releaseHead(segment, segment.next.get());
+		lastActiveTime = now;
+	}
+
+	private Segment tryNewSegment(int size) {
+		for(;;) {
+			int current = reserved.get();
+			int remain = capacity - current;
+			if(remain <= 0) {
+				return null;
+			}
+			int length = Integer.highestOneBit(Math.min(size, remain));
+			if(reserved.compareAndSet(current, current + length)) {
+				return new Segment(length);
+			}
+		}
+	}
+
+	private Segment newSegment(int size) {
+		reserved.addAndGet(size);
+		return new Segment(size);
+	}
+
+
+	private static class Segment {
+		private final int length;
+		private final AtomicReferenceArray<Line> slots;
+		private final AtomicInteger writeIndex = new AtomicInteger(0);
+		private final AtomicReference<Segment> next = new AtomicReference<Segment>(null);
+		/**
+		 * 소비자가 크기를 이미 돌려주었는지 여부. 소비자만 접근한다.
+		 */
+		private boolean released = false;
+
+		private Segment(int length) {
+			this.length = length;
+			this.slots = new AtomicReferenceArray<Line>(length);
+		}
+
+		/**
+		 * @return 선점한 슬롯 번호. 가득 찼다면 -1
+		 */
+		private int claim() {
+			for(;;) {
+				int index = writeIndex.get();
+				if(index >= length) {
+					return -1;
+				}
+				if(writeIndex.compareAndSet(index, index + 1)) {
+					return index;
+				}
+			}
+		}
+
+		private int claimed() {
+			return Math.min(writeIndex.get(), length);
+		}
+
+		/**
+		 * 쓰기 위치가 from 이라면 segment 를 가득 찬 것으로 만든다.
+		 */
+		private boolean seal(int from) {
+			return writeIndex.compareAndSet(from, length);
+		}
+	}
+
+}
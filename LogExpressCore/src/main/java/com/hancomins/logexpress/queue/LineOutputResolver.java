@@ -0,0 +1,16 @@
+package com.hancomins.logexpress.queue;
+
+import com.hancomins.logexpress.Line;
+
+/**
+ * 라인이 기록될 곳을 구분한다. {@link PriorityLineQueue} 가 우선 라인보다 먼저 기록해야 할 일반 라인을 가려낼 때 사용한다.
+ */
+public interface LineOutputResolver {
+	/**
+	 * 같은 파일이나 콘솔에 기록될 수 있는 라인에는 같은 키를, 기록될 곳이 겹치지 않는 라인에는 다른 키를 반환한다.
+	 * 소비자 스레드에서만 호출된다.
+	 * @param line 라인
+	 * @return 기록될 곳의 키
+	 */
+	Object outputKeyOf(Line line);
+}
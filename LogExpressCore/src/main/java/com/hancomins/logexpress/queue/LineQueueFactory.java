@@ -1,11 +1,83 @@
 package com.hancomins.logexpress.queue;
 
 import com.hancomins.logexpress.InLogger;
+import com.hancomins.logexpress.Level;
+import com.hancomins.logexpress.configuration.Configuration;
+
+import java.io.File;
 
 public class LineQueueFactory {
 
     public enum LineQueueType {
-        Blocking,NonBlocking
+        Blocking,NonBlocking,Ring,Striped,OffHeap,Elastic;
+
+        public static LineQueueType typeNameOf(String name) {
+            if(name == null) {
+                return null;
+            }
+            name = name.trim();
+            LineQueueType[] types = values();
+            //noinspection ForLoopReplaceableByForEach
+            for(int i = 0; i < types.length; ++i) {
+                if(types[i].name().equalsIgnoreCase(name)) {
+                    return types[i];
+                }
+            }
+            return null;
+        }
+    }
+
+
+    /**
+     * 설정의 큐 종류와 크기로 큐를 만든다.<br>
+     * 메모리 한도가 설정되어 있다면 {@link MemoryBudgetLineQueue} 로, spill 디렉토리가 설정되어 있다면 {@link SpillLineQueue} 로,
+     * overflow 정책이 Block 이 아니라면 {@link OverflowLineQueue} 로, 우선 레벨이 설정되어 있다면 {@link PriorityLineQueue} 로 차례대로 감싼다.<br>
+     * 우선 lane 의 라인이 overflow 정책으로 버려지지 않도록 {@link PriorityLineQueue} 는 가장 바깥에 둔다.
+     */
+    public static AbsLineQueue create(Configuration configuration) {
+        AbsLineQueue queue;
+        if(configuration.getQueueType() == LineQueueType.Striped) {
+            queue = createStriped(configuration.getQueueSize(), configuration.getQueueStripes(), configuration.isQueueStrictOrder());
+        } else if(configuration.getQueueType() == LineQueueType.OffHeap) {
+            queue = createOffHeap(configuration.getQueueSize(), configuration.getQueueRecordSize());
+        } else {
+            queue = create(configuration.getQueueType(), configuration.getQueueSize());
+        }
+        if(configuration.getQueueMemoryLimit() > 0) {
+            queue = new MemoryBudgetLineQueue(queue, configuration.getQueueMemoryLimit() * 1024L * 1024L,
+                    configuration.getQueueMemoryHighWatermark(), configuration.getQueueMemoryLowWatermark());
+            if(InLogger.isEnabled()) {
+                InLogger.DEBUG("MemoryBudgetLineQueue is created. limit : " + configuration.getQueueMemoryLimit() + "MiB");
+            }
+        }
+        String spillDir = configuration.getQueueSpillDir();
+        if(spillDir != null && !spillDir.isEmpty()) {
+            queue = new SpillLineQueue(queue, new File(spillDir), configuration.getQueueSpillSegmentSize() * 1024 * 1024,
+                    configuration.getQueueSpillMaxSize() * 1024L * 1024L, configuration.getQueueSpillWatermark());
+            if(InLogger.isEnabled()) {
+                InLogger.DEBUG("SpillLineQueue is created. dir : " + spillDir);
+            }
+        }
+        queue.setProducerWaitStrategy(configuration.getProducerWaitStrategy());
+        OverflowPolicy policy = configuration.getOverflowPolicy();
+        if(policy != null && policy != OverflowPolicy.Block) {
+            if(InLogger.isEnabled()) {
+                InLogger.DEBUG("OverflowLineQueue is created. policy : " + policy);
+            }
+            queue = new OverflowLineQueue(queue, policy, configuration.getOverflowLevel(), configuration.getOverflowTimeout(),
+                    configuration.getOverflowHighWatermark(), configuration.getOverflowSampleRate());
+        }
+        Level priorityLevel = configuration.getQueuePriorityLevel();
+        if(priorityLevel != null && priorityLevel != Level.OFF) {
+            PriorityLineQueue priorityQueue = new PriorityLineQueue(queue, priorityLevel);
+            // 우선 lane 을 만든 뒤에 설정해야 lane 에도 전달된다.
+            priorityQueue.setProducerWaitStrategy(configuration.getProducerWaitStrategy());
+            if(InLogger.isEnabled()) {
+                InLogger.DEBUG("PriorityLineQueue is created. level : " + priorityLevel + ", capacity : " + priorityQueue.getPriorityCapacity());
+            }
+            queue = priorityQueue;
+        }
+        return queue;
     }
 
 
@@ -15,10 +87,42 @@ public class LineQueueFactory {
                 InLogger.DEBUG("BlockingLineQueue is created. capacity : " + capacity);
             }
             return new BlockingLineQueue(capacity);
+        } else if(type == LineQueueType.Striped) {
+            return createStriped(capacity, 0, false);
+        } else if(type == LineQueueType.OffHeap) {
+            return createOffHeap(capacity, OffHeapLineQueue.DEFAULT_RECORD_SIZE);
+        } else if(type == LineQueueType.Elastic) {
+            ElasticLineQueue queue = new ElasticLineQueue(capacity);
+            if(InLogger.isEnabled()) {
+                InLogger.DEBUG("ElasticLineQueue is created. capacity : " + queue.getCapacity() + ", allocated : " + queue.getAllocatedCapacity());
+            }
+            return queue;
+        } else if(type == LineQueueType.Ring) {
+            RingLineQueue queue = new RingLineQueue(capacity);
+            if(InLogger.isEnabled()) {
+                InLogger.DEBUG("RingLineQueue is created. capacity : " + queue.getCapacity());
+            }
+            return queue;
         }
         InLogger.DEBUG("Non-BlockingLineQueue is created. capacity : " + capacity);
 
         return new ConcurrentLineQueue(capacity);
     }
 
+    private static OffHeapLineQueue createOffHeap(int capacity, int recordSize) {
+        OffHeapLineQueue queue = new OffHeapLineQueue(capacity, recordSize);
+        if(InLogger.isEnabled()) {
+            InLogger.DEBUG("OffHeapLineQueue is created. capacity : " + queue.getCapacity() + ", recordSize : " + queue.getRecordSize());
+        }
+        return queue;
+    }
+
+    private static StripedLineQueue createStriped(int capacity, int stripeCount, boolean strictOrder) {
+        StripedLineQueue queue = new StripedLineQueue(capacity, stripeCount, strictOrder);
+        if(InLogger.isEnabled()) {
+            InLogger.DEBUG("StripedLineQueue is created. capacity : " + queue.getCapacity() + ", stripes : " + queue.getStripeCount() + ", strictOrder : " + strictOrder);
+        }
+        return queue;
+    }
+
 }
@@ -0,0 +1,128 @@
+package com.hancomins.logexpress.queue;
+
+import com.hancomins.logexpress.Line;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 다른 큐를 감싸서 쌓인 라인의 개수가 아니라 추정 메모리({@link Line#getEstimatedSize()})로 큐의 크기를 제한하는 큐.<br>
+ * 사용량이 high watermark 를 넘으면 가득 찬 것으로 취급하고, low watermark 아래로 내려갈 때까지 새 라인을 받지 않는다.<br>
+ * 가득 찬 상태에서 {@link #offer(Line)} 는 false 를 반환하므로 바깥의 {@link OverflowLineQueue} 가 overflow 정책을 적용한다.<br>
+ * 큐가 비어 있다면 한도보다 큰 라인이라도 받아들인다. 그렇지 않으면 그 라인은 영원히 들어갈 수 없다.
+ */
+public class MemoryBudgetLineQueue extends AbsLineQueue {
+
+	private final AbsLineQueue queue;
+	private final long limitBytes;
+	private final long highWatermarkBytes;
+	private final long lowWatermarkBytes;
+	private final AtomicLong usedBytes = new AtomicLong(0);
+	/**
+	 * high watermark 를 넘은 뒤 low watermark 아래로 내려가기 전까지 true.
+	 */
+	private volatile boolean saturated = false;
+
+
+	MemoryBudgetLineQueue(AbsLineQueue queue, long limitBytes, float highWatermark, float lowWatermark) {
+		super(queue.getCapacity());
+		this.queue = queue;
+		this.limitBytes = Math.max(1, limitBytes);
+		highWatermark = Math.max(0f, Math.min(1f, highWatermark));
+		lowWatermark = Math.max(0f, Math.min(highWatermark, lowWatermark));
+		this.highWatermarkBytes = Math.max(1, (long)(this.limitBytes * (double)highWatermark));
+		this.lowWatermarkBytes = (long)(this.limitBytes * (double)lowWatermark);
+	}
+
+	public long getLimitBytes() {
+		return limitBytes;
+	}
+
+	/**
+	 * 큐에 쌓인 라인의 추정 메모리(byte).
+	 */
+	public long getUsedBytes() {
+		return usedBytes.get();
+	}
+
+	@Override
+	public void setPushLineEvent(OnPushLineListener pushLineListener) {
+		queue.setPushLineEvent(pushLineListener);
+	}
+
+	@Override
+	public void setProducerWaitStrategy(WaitStrategy waitStrategy) {
+		super.setProducerWaitStrategy(waitStrategy);
+		queue.setProducerWaitStrategy(waitStrategy);
+	}
+
+
+	@Override
+	public void push(Line line) {
+		int tries = 0;
+		while(!offer(line)) {
+			waitForSpace(++tries);
+		}
+	}
+
+	@Override
+	public boolean offer(Line line) {
+		if(saturated) {
+			if(usedBytes.get() > lowWatermarkBytes) {
+				return false;
+			}
+			saturated = false;
+		}
+		int size = line.getEstimatedSize();
+		long used = usedBytes.addAndGet(size);
+		if(used > highWatermarkBytes && used != size) {
+			usedBytes.addAndGet(-size);
+			saturated = true;
+			return false;
+		}
+		if(!queue.offer(line)) {
+			usedBytes.addAndGet(-size);
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	protected boolean hasSpace() {
+		return usedBytes.get() <= (saturated ? lowWatermarkBytes : highWatermarkBytes) && queue.hasSpace();
+	}
+
+	@Override
+	public long takeDroppedCount() {
+		return queue.takeDroppedCount();
+	}
+
+	@Override
+	public Line pop() {
+		Line line = queue.pop();
+		if(line != null) {
+			usedBytes.addAndGet(-line.getEstimatedSize());
+			signalNotFull();
+		}
+		return line;
+	}
+
+	@Override
+	public int drainTo(Line[] batch, int max) {
+		int count = queue.drainTo(batch, max);
+		if(count > 0) {
+			long bytes = 0;
+			for(int i = 0; i < count; ++i) {
+				bytes += batch[i].getEstimatedSize();
+			}
+			usedBytes.addAndGet(-bytes);
+			signalNotFull();
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.hancomins.logexpress.queue;
+
+import com.hancomins.logexpress.Line;
+import com.hancomins.logexpress.LineCodec;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Line 객체 대신 {@link LineCodec} 으로 직렬화한 레코드를 미리 할당한 direct ByteBuffer 에 담는 MPSC 원형 큐.<br>
+ * 슬롯을 선점하고 발행하는 방법은 {@link RingLineQueue} 와 같고, 슬롯마다 recordSize byte 의 레코드 영역을 갖는다.<br>
+ * 큐에 머무는 동안 라인이 힙을 차지하지 않기 때문에, 소비자가 밀려도 큐에 쌓인 라인이 old 영역으로 넘어가지 않는다.<br>
+ * 예외를 갖거나 레코드에 들어가지 않는 라인은 슬롯에 Line 객체를 그대로 담으며, 그 수는 {@link #getHeapLineCount()} 로 확인할 수 있다.
+ */
+public class OffHeapLineQueue extends AbsLineQueue {
+
+	public static final int DEFAULT_RECORD_SIZE = 512;
+
+	private final int mask;
+	private final int recordSize;
+	private final ByteBuffer records;
+	/**
+	 * 레코드로 기록하지 못한 라인. 레코드로 기록한 슬롯은 null 이다.
+	 */
+	private final Line[] heapLines;
+	private final LineCodec codec = new LineCodec();
+	private final AtomicLong heapLineCount = new AtomicLong(0);
+	/**
+	 * 슬롯별 시퀀스. {@link RingLineQueue} 와 같은 규칙을 따른다.
+	 */
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong(0);
+	private volatile long head = 0;
+
+
+	protected OffHeapLineQueue(int capacity, int recordSize) {
+		super(ceilingCapacity(capacity, recordSize));
+		this.recordSize = Math.max(recordSize, LineCodec.HEADER_SIZE);
+		mask = this.capacity - 1;
+		records = ByteBuffer.allocateDirect(this.capacity * this.recordSize);
+		heapLines = new Line[this.capacity];
+		sequences = new AtomicLongArray(this.capacity);
+		for(int i = 0; i < this.capacity; ++i) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * 버퍼 전체 크기가 int 범위를 넘지 않도록 슬롯 수를 제한한다.
+	 */
+	private static int ceilingCapacity(int capacity, int recordSize) {
+		int maxCapacity = Integer.highestOneBit(Integer.MAX_VALUE / Math.max(recordSize, LineCodec.HEADER_SIZE));
+		return Math.min(RingLineQueue.ceilingPowerOfTwo(capacity), maxCapacity);
+	}
+
+	public int getRecordSize() {
+		return recordSize;
+	}
+
+	/**
+	 * 레코드로 기록하지 못해 슬롯에 Line 객체를 그대로 담은 라인의 누적 수.
+	 */
+	public long getHeapLineCount() {
+		return heapLineCount.get();
+	}
+
+
+	@Override
+	public void push(Line line) {
+		int tries = 0;
+		while(!offer(line)) {
+			waitForSpace(++tries);
+		}
+	}
+
+
+	@Override
+	public boolean offer(Line line) {
+		for(;;) {
+			long pos = tail.get();
+			int index = (int)pos & mask;
+			long diff = sequences.get(index) - pos;
+			if(diff == 0) {
+				if(tail.compareAndSet(pos, pos + 1)) {
+					if(codec.encode(line, records, index * recordSize, recordSize) < 0) {
+						heapLines[index] = line;
+						heapLineCount.incrementAndGet();
+					}
+					sequences.set(index, pos + 1);
+					super.push(line);
+					return true;
+				}
+			} else if(diff < 0) {
+				return false;
+			}
+		}
+	}
+
+
+	@Override
+	public int size() {
+		long size = tail.get() - head;
+		if(size <= 0) {
+			return 0;
+		}
+		return (int)Math.min(size, capacity);
+	}
+
+
+	@Override
+	public Line pop() {
+		long pos = head;
+		int index = (int)pos & mask;
+		if(sequences.get(index) != pos + 1) {
+			return null;
+		}
+		Line line = take(index);
+		sequences.lazySet(index, pos + capacity);
+		head = pos + 1;
+		signalNotFull();
+		return line;
+	}
+
+
+	@Override
+	public int drainTo(Line[] batch, int max) {
+		int limit = Math.min(max, batch.length);
+		long pos = head;
+		int count = 0;
+		while(count < limit) {
+			int index = (int)pos & mask;
+			if(sequences.get(index) != pos + 1) {
+				break;
+			}
+			batch[count++] = take(index);
+			sequences.lazySet(index, pos + capacity);
+			++pos;
+		}
+		head = pos;
+		if(count > 0) {
+			signalNotFull();
+		}
+		return count;
+	}
+
+	private Line take(int index) {
+		Line line = heapLines[index];
+		if(line != null) {
+			heapLines[index] = null;
+			return line;
+		}
+		return codec.decode(records, index * recordSize);
+	}
+
+}
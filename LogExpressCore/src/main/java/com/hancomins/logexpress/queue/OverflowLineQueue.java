@@ -0,0 +1,185 @@
+package com.hancomins.logexpress.queue;
+
+import com.hancomins.logexpress.Level;
+import com.hancomins.logexpress.Line;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 다른 큐를 감싸서 큐가 가득 찼을 때 {@link OverflowPolicy} 에 따라 라인을 처리하는 큐.<br>
+ * 큐에 빈 자리가 있으면 감싼 큐에 그대로 넣기 때문에 정상 상태에서의 비용은 offer 한 번이다.<br>
+ * 버려진 라인의 수는 누적되었다가 {@link #takeDroppedCount()} 로 WriteWorker 에 전달된다.
+ */
+public class OverflowLineQueue extends AbsLineQueue {
+
+	private final AbsLineQueue queue;
+	private final OverflowPolicy policy;
+	private final int dropLevelValue;
+	private final long timeoutNanos;
+	private final int highWatermark;
+	/**
+	 * 0 ~ 2^24 범위로 환산한 샘플링 비율.
+	 */
+	private final int sampleBound;
+	private final AtomicLong droppedCount = new AtomicLong(0);
+	/**
+	 * DropOldest 정책에서 생산자가 가장 오래된 라인을 꺼낼 때 소비자와 경합하지 않도록 사용한다.
+	 */
+	private final Object consumerLock = new Object();
+	private volatile CallerRunsHandler callerRunsHandler = null;
+
+
+	OverflowLineQueue(AbsLineQueue queue, OverflowPolicy policy, Level dropLevel, long timeoutMillis, float highWatermark, float sampleRate) {
+		super(queue.getCapacity());
+		this.queue = queue;
+		this.policy = policy;
+		this.dropLevelValue = dropLevel == null ? Level.WARN.getValue() : dropLevel.getValue();
+		this.timeoutNanos = Math.max(0, timeoutMillis) * 1000000L;
+		this.highWatermark = (int)(capacity * Math.max(0f, Math.min(1f, highWatermark)));
+		this.sampleBound = (int)(Math.max(0f, Math.min(1f, sampleRate)) * (1 << 24));
+	}
+
+	public OverflowPolicy getPolicy() {
+		return policy;
+	}
+
+	@Override
+	public void setCallerRunsHandler(CallerRunsHandler callerRunsHandler) {
+		this.callerRunsHandler = callerRunsHandler;
+	}
+
+	@Override
+	public void setPushLineEvent(OnPushLineListener pushLineListener) {
+		queue.setPushLineEvent(pushLineListener);
+	}
+
+	@Override
+	public void setProducerWaitStrategy(WaitStrategy waitStrategy) {
+		queue.setProducerWaitStrategy(waitStrategy);
+	}
+
+	@Override
+	public WaitStrategy getProducerWaitStrategy() {
+		return queue.getProducerWaitStrategy();
+	}
+
+
+	@Override
+	public void push(Line line) {
+		if(policy == OverflowPolicy.Sample && queue.size() >= highWatermark && !sample()) {
+			drop();
+			return;
+		}
+		if(queue.offer(line)) {
+			return;
+		}
+		switch (policy) {
+			case DropNewest:
+			case Sample:
+				drop();
+				break;
+			case DropOldest:
+				pushDropOldest(line);
+				break;
+			case DropBelowLevel:
+				if(line.getLevel().getValue() < dropLevelValue) {
+					drop();
+				} else {
+					queue.push(line);
+				}
+				break;
+			case BlockTimeout:
+				pushWithTimeout(line);
+				break;
+			case CallerRuns:
+				CallerRunsHandler handler = callerRunsHandler;
+				if(handler == null || !handler.runInCaller(line)) {
+					queue.push(line);
+				}
+				break;
+			default:
+				queue.push(line);
+		}
+	}
+
+	@Override
+	public boolean offer(Line line) {
+		return queue.offer(line);
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public long takeDroppedCount() {
+		if(droppedCount.get() == 0) {
+			return 0;
+		}
+		return droppedCount.getAndSet(0);
+	}
+
+	@Override
+	public Line pop() {
+		if(policy == OverflowPolicy.DropOldest) {
+			synchronized (consumerLock) {
+				return queue.pop();
+			}
+		}
+		return queue.pop();
+	}
+
+	@Override
+	public int drainTo(Line[] batch, int max) {
+		if(policy == OverflowPolicy.DropOldest) {
+			synchronized (consumerLock) {
+				return queue.drainTo(batch, max);
+			}
+		}
+		return queue.drainTo(batch, max);
+	}
+
+
+	private void pushDropOldest(Line line) {
+		synchronized (consumerLock) {
+			while(!queue.offer(line)) {
+				// 아직 기록 중인 슬롯이라면 null 이 반환될 수 있다.
+				if(queue.pop() != null) {
+					drop();
+				} else {
+					Thread.yield();
+				}
+			}
+		}
+	}
+
+	private void pushWithTimeout(Line line) {
+		long deadline = System.nanoTime() + timeoutNanos;
+		int tries = 0;
+		long remain;
+		while((remain = deadline - System.nanoTime()) > 0) {
+			queue.waitForSpace(++tries, remain);
+			if(queue.offer(line)) {
+				return;
+			}
+		}
+		drop();
+	}
+
+	private void drop() {
+		droppedCount.incrementAndGet();
+	}
+
+	/**
+	 * 스레드 간 공유 상태 없이 nanoTime 과 스레드 id 를 섞어서 샘플링 여부를 결정한다.
+	 */
+	private boolean sample() {
+		long x = System.nanoTime() ^ (Thread.currentThread().getId() * 0x9E3779B97F4A7C15L);
+		x ^= x >>> 33;
+		x *= 0xff51afd7ed558ccdL;
+		x ^= x >>> 33;
+		return (x & 0xFFFFFF) < sampleBound;
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.hancomins.logexpress.queue;
+
+/**
+ * 로그 큐가 가득 찼을 때 새로운 라인을 어떻게 처리할지 결정하는 정책.<br>
+ * Policy that decides what happens to a new line when the log queue is full.
+ */
+public enum OverflowPolicy {
+	/**
+	 * 큐에 빈 자리가 생길 때까지 호출한 스레드를 대기시킨다. (기본 값)<br>
+	 * Blocks the calling thread until the queue has room. (default)
+	 */
+	Block,
+	/**
+	 * 새로 들어온 라인을 버린다.<br>
+	 * Drops the incoming line.
+	 */
+	DropNewest,
+	/**
+	 * 큐에서 가장 오래된 라인을 버리고 새로운 라인을 넣는다.<br>
+	 * Drops the oldest queued line to make room for the incoming one.
+	 */
+	DropOldest,
+	/**
+	 * 설정된 레벨보다 낮은 라인은 버리고, 나머지는 대기한다.<br>
+	 * Drops lines below the configured level and blocks for the others.
+	 */
+	DropBelowLevel,
+	/**
+	 * 큐가 high watermark 를 넘으면 설정된 비율만큼만 라인을 받아들인다. 큐가 가득 차면 버린다.<br>
+	 * Above the high watermark only the configured ratio of lines is accepted. Drops when the queue is full.
+	 */
+	Sample,
+	/**
+	 * 설정된 시간 동안만 대기하고, 그래도 빈 자리가 없으면 버린다.<br>
+	 * Blocks for up to the configured timeout and drops the line if the queue is still full.
+	 */
+	BlockTimeout,
+	/**
+	 * 호출한 스레드가 직접 라인을 기록한다.<br>
+	 * The calling thread writes the line itself.
+	 */
+	CallerRuns;
+
+	public static OverflowPolicy typeNameOf(String name) {
+		if(name == null) {
+			return null;
+		}
+		name = name.trim();
+		OverflowPolicy[] policies = values();
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < policies.length; ++i) {
+			if(policies[i].name().equalsIgnoreCase(name)) {
+				return policies[i];
+			}
+		}
+		return null;
+	}
+}
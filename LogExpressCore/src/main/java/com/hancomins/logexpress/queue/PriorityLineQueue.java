@@ -0,0 +1,274 @@
+package com.hancomins.logexpress.queue;
+
+import com.hancomins.logexpress.Level;
+import com.hancomins.logexpress.Line;
+
+/**
+ * 설정한 레벨 이상의 라인을 별도의 우선 lane 에 담고, 소비자가 일반 큐보다 먼저 꺼내도록 하는 큐.<br>
+ * 우선 라인을 넣을 때 일반 큐에서 몇 번째 라인까지가 먼저 들어왔는지 {@link Line#setSequence(long)} 로 기록해 둔다.
+ * 소비자는 우선 라인을 꺼내면 그 위치까지의 일반 라인 중 같은 파일이나 콘솔에 기록될 라인을 먼저 꺼내고, 다른 곳에 기록될 라인은 우선 라인 뒤로 미룬다.
+ * 따라서 기록될 곳마다 들어온 순서가 유지되며, 우선 라인은 다른 파일에 밀려 있는 라인을 기다리지 않는다.<br>
+ * 기록될 곳은 {@link #setOutputResolver(LineOutputResolver)} 로 설정한 방법으로 구분한다. 설정하지 않았다면 모든 라인이 같은 곳에 기록된다고 본다.<br>
+ * 미뤄 두는 라인의 수는 우선 lane 의 크기까지이며, 넘치면 미뤄 둔 라인부터 차례대로 꺼낸다.<br>
+ * 우선 라인은 이후의 일반 라인과 같은 배치에 섞지 않는다. 배치가 가득 차지 않으므로 WriteWorker 는 기록한 뒤 바로 플러시한다.<br>
+ * 우선 lane 은 overflow 정책의 영향을 받지 않으며 가득 차면 생산자가 기다린다.
+ * 다만 DropOldest 정책으로 일반 라인이 버려지면 기록해 둔 위치가 그만큼 뒤로 밀린다.
+ */
+public class PriorityLineQueue extends AbsLineQueue {
+
+	private static final int MIN_PRIORITY_CAPACITY = 1024;
+	private static final int MAX_TRANSFER_SIZE = 1024;
+
+	private final AbsLineQueue queue;
+	private final RingLineQueue priorityLane;
+	private final int priorityLevelValue;
+	private final int deferCapacity;
+
+	private volatile LineOutputResolver outputResolver;
+
+	/**
+	 * 일반 큐에서 꺼낸 라인의 누적 수.
+	 */
+	private volatile long consumedCount;
+	/**
+	 * 소비자가 일반 큐에서 라인을 꺼내는 동안 홀수가 된다. 생산자는 짝수일 때 일반 큐의 위치를 읽는다.
+	 */
+	private volatile int drainVersion;
+
+	/**
+	 * 먼저 들어온 일반 라인이 꺼내지기를 기다리는 우선 라인.
+	 */
+	private Line pendingLine;
+	/**
+	 * pendingLine 보다 먼저 들어와 일반 큐에서 더 꺼내야 하는 라인의 수.
+	 */
+	private long pendingOwed;
+	/**
+	 * 일반 큐에서 꺼냈지만 기록될 곳이 달라 우선 라인 뒤로 미룬 라인들. 들어온 순서대로 deferredStart 부터 deferredCount 개가 있다.
+	 */
+	private Line[] deferred;
+	private int deferredStart;
+	private int deferredCount;
+	private Line[] transfer;
+	private final Line[] popBuffer = new Line[1];
+
+
+	PriorityLineQueue(AbsLineQueue queue, Level priorityLevel) {
+		super(queue.getCapacity());
+		this.queue = queue;
+		this.priorityLane = new RingLineQueue(Math.max(MIN_PRIORITY_CAPACITY, capacity >> 4));
+		this.priorityLevelValue = priorityLevel.getValue();
+		this.deferCapacity = priorityLane.getCapacity();
+	}
+
+	public int getPriorityCapacity() {
+		return priorityLane.getCapacity();
+	}
+
+	@Override
+	public void setPushLineEvent(OnPushLineListener pushLineListener) {
+		queue.setPushLineEvent(pushLineListener);
+		priorityLane.setPushLineEvent(pushLineListener);
+	}
+
+	@Override
+	public void setProducerWaitStrategy(WaitStrategy waitStrategy) {
+		super.setProducerWaitStrategy(waitStrategy);
+		queue.setProducerWaitStrategy(waitStrategy);
+		priorityLane.setProducerWaitStrategy(waitStrategy);
+	}
+
+	@Override
+	public void setCallerRunsHandler(CallerRunsHandler callerRunsHandler) {
+		queue.setCallerRunsHandler(callerRunsHandler);
+	}
+
+	@Override
+	public void setOutputResolver(LineOutputResolver outputResolver) {
+		this.outputResolver = outputResolver;
+	}
+
+	private boolean isPriority(Line line) {
+		Level level = line.getLevel();
+		return level != null && level.getValue() >= priorityLevelValue;
+	}
+
+
+	/**
+	 * 지금까지 일반 큐에 들어온 라인의 누적 수. 소비자가 라인을 꺼내는 중이라면 끝날 때까지 기다린다.
+	 */
+	private long tailPosition() {
+		while(true) {
+			int version = drainVersion;
+			if((version & 1) == 0) {
+				long position = consumedCount + queue.size();
+				if(version == drainVersion) {
+					return position;
+				}
+			}
+			Thread.yield();
+		}
+	}
+
+	@Override
+	public void push(Line line) {
+		if(isPriority(line)) {
+			line.setSequence(tailPosition());
+			priorityLane.push(line);
+		} else {
+			queue.push(line);
+		}
+	}
+
+	@Override
+	public boolean offer(Line line) {
+		if(isPriority(line)) {
+			line.setSequence(tailPosition());
+			return priorityLane.offer(line);
+		}
+		return queue.offer(line);
+	}
+
+	@Override
+	public int size() {
+		return queue.size() + priorityLane.size() + deferredCount + (pendingLine == null ? 0 : 1);
+	}
+
+	@Override
+	public long takeDroppedCount() {
+		return queue.takeDroppedCount();
+	}
+
+	@Override
+	public Line pop() {
+		if(drainTo(popBuffer, 1) == 0) {
+			return null;
+		}
+		Line line = popBuffer[0];
+		popBuffer[0] = null;
+		return line;
+	}
+
+	@Override
+	public int drainTo(Line[] batch, int max) {
+		int limit = Math.min(max, batch.length);
+		int count = 0;
+		// 우선 lane 을 확인하기 전의 위치까지만 일반 라인을 꺼낸다.
+		// 그 뒤에 들어온 우선 라인보다 나중에 들어온 일반 라인이 먼저 꺼내지지 않는다.
+		long tail = consumedCount + queue.size();
+		while(count < limit) {
+			if(pendingLine == null) {
+				pendingLine = priorityLane.pop();
+				if(pendingLine == null) {
+					break;
+				}
+				pendingOwed = pendingLine.getSequence() - consumedCount;
+			}
+			Object key = outputKeyOf(pendingLine);
+			count = takeDeferred(key, batch, count, limit);
+			if(count == limit) {
+				break;
+			}
+			if(pendingOwed <= 0) {
+				batch[count++] = pendingLine;
+				pendingLine = null;
+				continue;
+			}
+			if(deferredCount >= deferCapacity) {
+				// 더 미룰 수 없으므로 미뤄 둔 라인부터 기록한다.
+				count = takeDeferred(null, batch, count, limit);
+				continue;
+			}
+			int pulled = pullDeferred((int)Math.min(pendingOwed, deferCapacity - deferredCount));
+			if(pulled == 0) {
+				if(queue.size() > 0) {
+					// 순서가 정해지지 않은 라인이 남아 있다. 다음 호출에서 다시 꺼낸다.
+					break;
+				}
+				// 먼저 들어온 라인이 버려졌다.
+				pendingOwed = 0;
+			}
+			pendingOwed -= pulled;
+		}
+		if(count > 0 || pendingLine != null) {
+			return count;
+		}
+		if(deferredCount > 0) {
+			return takeDeferred(null, batch, 0, limit);
+		}
+		long owed = tail - consumedCount;
+		if(owed <= 0) {
+			return 0;
+		}
+		return drainQueue(batch, (int)Math.min(limit, owed));
+	}
+
+	private int drainQueue(Line[] batch, int max) {
+		// 소비자는 하나뿐이므로 증가시키는 동안 경쟁하지 않는다.
+		++drainVersion;
+		try {
+			int count = queue.drainTo(batch, max);
+			consumedCount += count;
+			return count;
+		} finally {
+			++drainVersion;
+		}
+	}
+
+	private Object outputKeyOf(Line line) {
+		LineOutputResolver resolver = outputResolver;
+		return resolver == null ? null : resolver.outputKeyOf(line);
+	}
+
+	/**
+	 * 미뤄 둔 라인 중 기록될 곳의 키가 key 인 라인을 순서대로 batch 로 옮긴다. key 가 null 이면 앞에서부터 모두 옮긴다.
+	 * @return 옮긴 뒤 batch 에 담긴 라인의 수
+	 */
+	private int takeDeferred(Object key, Line[] batch, int count, int limit) {
+		if(deferredCount == 0) {
+			return count;
+		}
+		int end = deferredStart + deferredCount;
+		int write = deferredStart;
+		for(int read = deferredStart; read < end; ++read) {
+			Line line = deferred[read];
+			deferred[read] = null;
+			if(count < limit && (key == null || key.equals(outputKeyOf(line)))) {
+				batch[count++] = line;
+			} else {
+				deferred[write++] = line;
+			}
+		}
+		deferredCount = write - deferredStart;
+		if(deferredCount == 0) {
+			deferredStart = 0;
+		}
+		return count;
+	}
+
+	/**
+	 * 일반 큐에서 최대 max 개의 라인을 꺼내어 미뤄 둔 라인 뒤에 붙인다.
+	 * @return 꺼낸 라인의 수
+	 */
+	private int pullDeferred(int max) {
+		if(deferred == null) {
+			deferred = new Line[deferCapacity];
+			transfer = new Line[Math.min(deferCapacity, MAX_TRANSFER_SIZE)];
+		}
+		if(deferredStart + deferredCount + max > deferred.length) {
+			System.arraycopy(deferred, deferredStart, deferred, 0, deferredCount);
+			for(int i = deferredCount, n = deferredStart + deferredCount; i < n; ++i) {
+				deferred[i] = null;
+			}
+			deferredStart = 0;
+		}
+		int pulled = drainQueue(transfer, Math.min(max, transfer.length));
+		System.arraycopy(transfer, 0, deferred, deferredStart + deferredCount, pulled);
+		for(int i = 0; i < pulled; ++i) {
+			transfer[i] = null;
+		}
+		deferredCount += pulled;
+		return pulled;
+	}
+
+}
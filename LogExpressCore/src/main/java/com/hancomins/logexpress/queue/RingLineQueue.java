@@ -0,0 +1,135 @@
+package com.hancomins.logexpress.queue;
+
+import com.hancomins.logexpress.Line;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 슬롯마다 시퀀스 번호를 갖는 MPSC(다중 생산자, 단일 소비자) 원형 큐.<br>
+ * 생산자는 tail 커서를 CAS 로 선점한 뒤 슬롯에 Line 을 기록하고, 마지막에 슬롯의 시퀀스를 갱신하여 발행한다.<br>
+ * 소비자는 슬롯의 시퀀스가 발행된 값일 때만 Line 을 꺼내기 때문에 아직 기록 중인 슬롯을 반환하지 않는다.<br>
+ * 큐의 크기를 공유 카운터로 관리하지 않기 때문에 생산자끼리 경합하는 지점은 tail 커서 하나뿐이다.
+ */
+public class RingLineQueue extends AbsLineQueue {
+
+	private final int mask;
+	private final Line[] slots;
+	/**
+	 * 슬롯별 시퀀스.<br>
+	 * 슬롯이 비어 있으면 다음에 기록할 위치(pos), 발행되었으면 pos + 1 값을 갖는다.
+	 */
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong(0);
+	/**
+	 * 소비자 스레드만 갱신하는 읽기 위치. size() 를 위해 생산자도 읽는다.
+	 */
+	private volatile long head = 0;
+
+
+	protected RingLineQueue(int capacity) {
+		super(ceilingPowerOfTwo(capacity));
+		mask = this.capacity - 1;
+		slots = new Line[this.capacity];
+		sequences = new AtomicLongArray(this.capacity);
+		for(int i = 0; i < this.capacity; ++i) {
+			sequences.set(i, i);
+		}
+	}
+
+
+	@Override
+	public void push(Line line) {
+		int tries = 0;
+		while(!offer(line)) {
+			// 큐가 가득 찼다. 소비자가 슬롯을 비울 때까지 기다린다.
+			waitForSpace(++tries);
+		}
+	}
+
+
+	@Override
+	public boolean offer(Line line) {
+		for(;;) {
+			long pos = tail.get();
+			int index = (int)pos & mask;
+			long diff = sequences.get(index) - pos;
+			if(diff == 0) {
+				if(tail.compareAndSet(pos, pos + 1)) {
+					slots[index] = line;
+					sequences.set(index, pos + 1);
+					super.push(line);
+					return true;
+				}
+			} else if(diff < 0) {
+				return false;
+			}
+		}
+	}
+
+
+	@Override
+	public int size() {
+		long size = tail.get() - head;
+		if(size <= 0) {
+			return 0;
+		}
+		return (int)Math.min(size, capacity);
+	}
+
+
+	@Override
+	public Line pop() {
+		long pos = head;
+		int index = (int)pos & mask;
+		if(sequences.get(index) != pos + 1) {
+			return null;
+		}
+		Line line = slots[index];
+		slots[index] = null;
+		// 한 바퀴 뒤의 위치를 기록하여 생산자에게 슬롯을 돌려준다.
+		sequences.lazySet(index, pos + capacity);
+		head = pos + 1;
+		signalNotFull();
+		return line;
+	}
+
+
+	/**
+	 * head 부터 연속으로 발행된 슬롯을 한 번에 선점하여 꺼낸다.
+	 * 읽기 위치는 마지막에 한 번만 갱신한다.
+	 */
+	@Override
+	public int drainTo(Line[] batch, int max) {
+		int limit = Math.min(max, batch.length);
+		long pos = head;
+		int count = 0;
+		while(count < limit) {
+			int index = (int)pos & mask;
+			if(sequences.get(index) != pos + 1) {
+				break;
+			}
+			batch[count++] = slots[index];
+			slots[index] = null;
+			sequences.lazySet(index, pos + capacity);
+			++pos;
+		}
+		head = pos;
+		if(count > 0) {
+			signalNotFull();
+		}
+		return count;
+	}
+
+
+	static int ceilingPowerOfTwo(int value) {
+		if(value <= 2) {
+			return 2;
+		}
+		if(value > (1 << 30)) {
+			return 1 << 30;
+		}
+		return Integer.highestOneBit(value - 1) << 1;
+	}
+
+}
@@ -0,0 +1,344 @@
+package com.hancomins.logexpress.queue;
+
+import com.hancomins.logexpress.InLogger;
+import com.hancomins.logexpress.Line;
+import com.hancomins.logexpress.LineCodec;
+import com.hancomins.logexpress.util.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+
+/**
+ * 다른 큐를 감싸서, 메모리 큐가 watermark 를 넘으면 라인을 메모리 맵 파일(segment)에 기록하는 큐.<br>
+ * 한 번 파일에 기록하기 시작하면 파일이 모두 비워질 때까지 새 라인은 모두 파일에 기록한다. 소비자는 메모리 큐를 먼저 비운 뒤
+ * 파일을 기록한 순서대로 읽기 때문에 스레드별 순서가 유지된다.<br>
+ * 다 읽은 segment 파일은 바로 삭제한다. 라인은 {@link LineCodec#encodeDetached} 로 기록하며 사전이 메모리에만 있으므로
+ * 프로세스가 종료된 뒤에 남은 파일은 다시 읽을 수 없다.<br>
+ * segment 보다 큰 라인은 그 라인이 들어갈 만큼 큰 segment 를 따로 만들어 기록한다.<br>
+ * 파일 크기의 합이 한도에 이르면 생산자는 파일이 비워질 때까지 기다리고, 파일을 만들 수 없다면 메모리 큐만 사용한다.
+ * 파일에 기록된 라인이 남아 있는 동안 파일에 기록하지 못한 라인은, 순서가 바뀌지 않도록 파일이 모두 비워진 뒤에 메모리 큐에 넣는다.
+ */
+public class SpillLineQueue extends AbsLineQueue {
+
+	private static final String FILE_PREFIX = "logexpress-spill-";
+	private static final String FILE_SUFFIX = ".seg";
+	/**
+	 * 레코드 앞에 기록되는 레코드 길이.
+	 */
+	private static final int LENGTH_SIZE = 4;
+
+	private static final int SPILLED = 0;
+	private static final int FULL = 1;
+	private static final int UNAVAILABLE = 2;
+	/**
+	 * 파일에 기록할 수 없지만 먼저 기록된 라인이 남아 있다. 파일이 모두 비워질 때까지 기다린다.
+	 */
+	private static final int BLOCKED = 3;
+
+	private final AbsLineQueue queue;
+	private final File directory;
+	private final int segmentSize;
+	private final long maxSpillBytes;
+	private final int spillThreshold;
+	private final LineCodec codec = new LineCodec();
+	private final Line[] popBuffer = new Line[1];
+
+	// 아래는 spillLock 으로 보호된다.
+	private final Object spillLock = new Object();
+	private final ArrayDeque<Segment> segments = new ArrayDeque<Segment>();
+	private boolean spillFailed = false;
+
+	/**
+	 * 파일에 기록된 라인이 남아 있는 동안 true. spillLock 안에서만 바뀐다.
+	 */
+	private volatile boolean spilling = false;
+	private volatile int spilledLines = 0;
+	private volatile long spilledBytes = 0;
+
+
+	SpillLineQueue(AbsLineQueue queue, File directory, int segmentSize, long maxSpillBytes, float watermark) {
+		super(queue.getCapacity());
+		this.queue = queue;
+		this.directory = directory;
+		this.segmentSize = Math.max(segmentSize, LENGTH_SIZE + LineCodec.HEADER_SIZE);
+		this.maxSpillBytes = Math.max(0, maxSpillBytes);
+		this.spillThreshold = (int)(capacity * Math.max(0f, Math.min(1f, watermark)));
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * 파일에 기록되어 아직 읽지 않은 라인의 수.
+	 */
+	public int getSpilledLines() {
+		return spilledLines;
+	}
+
+	@Override
+	public void setPushLineEvent(OnPushLineListener pushLineListener) {
+		super.setPushLineEvent(pushLineListener);
+		queue.setPushLineEvent(pushLineListener);
+	}
+
+	@Override
+	public void setProducerWaitStrategy(WaitStrategy waitStrategy) {
+		super.setProducerWaitStrategy(waitStrategy);
+		queue.setProducerWaitStrategy(waitStrategy);
+	}
+
+
+	@Override
+	public void push(Line line) {
+		int tries = 0;
+		for(;;) {
+			if(!spilling && queue.size() < spillThreshold && queue.offer(line)) {
+				return;
+			}
+			int result = spill(line);
+			if(result == SPILLED) {
+				super.push(line);
+				return;
+			} else if(result == UNAVAILABLE) {
+				queue.push(line);
+				return;
+			}
+			// 파일 크기의 합이 한도에 이르렀거나 파일에 기록할 수 없다. 소비자가 파일을 읽을 때까지 기다린다.
+			waitForSpace(++tries);
+		}
+	}
+
+	@Override
+	public boolean offer(Line line) {
+		if(!spilling && queue.size() < spillThreshold && queue.offer(line)) {
+			return true;
+		}
+		int result = spill(line);
+		if(result == SPILLED) {
+			super.push(line);
+			return true;
+		} else if(result == UNAVAILABLE) {
+			return queue.offer(line);
+		}
+		return false;
+	}
+
+	@Override
+	public int size() {
+		return queue.size() + spilledLines;
+	}
+
+	@Override
+	protected boolean hasSpace() {
+		if(spilling) {
+			return !spillFailed && (maxSpillBytes == 0 || spilledBytes < maxSpillBytes);
+		}
+		return queue.hasSpace();
+	}
+
+	@Override
+	public long takeDroppedCount() {
+		return queue.takeDroppedCount();
+	}
+
+	@Override
+	public Line pop() {
+		Line line = queue.pop();
+		if(line != null || !spilling) {
+			return line;
+		}
+		if(readSpill(popBuffer, 0, 1) == 0) {
+			return null;
+		}
+		line = popBuffer[0];
+		popBuffer[0] = null;
+		return line;
+	}
+
+	/**
+	 * 메모리 큐를 먼저 비우고, 남은 자리는 파일에 기록된 라인으로 채운다.
+	 */
+	@Override
+	public int drainTo(Line[] batch, int max) {
+		int limit = Math.min(max, batch.length);
+		int count = queue.drainTo(batch, limit);
+		if(count < limit && spilling) {
+			count = readSpill(batch, count, limit);
+		}
+		return count;
+	}
+
+
+	private int spill(Line line) {
+		synchronized (spillLock) {
+			if(spillFailed) {
+				return spilling ? BLOCKED : UNAVAILABLE;
+			}
+			if(maxSpillBytes > 0 && spilledBytes >= maxSpillBytes) {
+				return FULL;
+			}
+			Segment segment = segments.peekLast();
+			int written = segment == null ? -(LENGTH_SIZE + LineCodec.HEADER_SIZE) : segment.write(codec, line);
+			if(written < -1) {
+				// 새 segment 는 기록에 성공한 뒤에 목록에 넣는다.
+				segment = newSegment(Math.max(segmentSize, -written));
+				if(segment == null) {
+					return spilling ? BLOCKED : UNAVAILABLE;
+				}
+				written = segment.write(codec, line);
+				if(written < -1) {
+					// segment 보다 큰 라인이다. 라인이 들어갈 만큼 큰 segment 로 바꾼다.
+					segment.delete();
+					segment = newSegment(-written);
+					if(segment == null) {
+						return spilling ? BLOCKED : UNAVAILABLE;
+					}
+					written = segment.write(codec, line);
+				}
+				if(written < 0) {
+					segment.delete();
+				} else {
+					segments.addLast(segment);
+				}
+			}
+			if(written < 0) {
+				// 기록할 수 없는 라인은 메모리 큐에 넣는다.
+				return spilling ? BLOCKED : UNAVAILABLE;
+			}
+			spilledBytes += written;
+			++spilledLines;
+			spilling = true;
+			return SPILLED;
+		}
+	}
+
+	/**
+	 * spillLock 안에서 호출한다. 파일을 만들 수 없다면 더 이상 파일에 기록하지 않는다.
+	 * @return 만든 segment. 만들 수 없다면 null
+	 */
+	private Segment newSegment(int size) {
+		try {
+			return new Segment(directory, size);
+		} catch (IOException e) {
+			spillFailed = true;
+			InLogger.ERROR("Failed to create a spill file in " + directory.getAbsolutePath() + ". Only the memory queue is used.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * 파일에 기록된 라인을 batch 의 from 위치부터 limit 까지 채운다. 파일이 모두 비워지면 segment 를 삭제하고 메모리 큐로 돌아간다.
+	 * @return batch 에 채워진 라인의 총 개수
+	 */
+	private int readSpill(Line[] batch, int from, int limit) {
+		int count = from;
+		synchronized (spillLock) {
+			long readBytes = 0;
+			while(count < limit) {
+				Segment segment = segments.peekFirst();
+				if(segment == null) {
+					break;
+				}
+				int length = segment.read();
+				if(length >= 0) {
+					batch[count++] = codec.decode(segment.buffer, segment.readPos + LENGTH_SIZE);
+					segment.readPos += LENGTH_SIZE + length;
+					readBytes += LENGTH_SIZE + length;
+					continue;
+				}
+				if(segments.size() == 1) {
+					break;
+				}
+				segments.pollFirst().delete();
+			}
+			if(count > from) {
+				spilledBytes -= readBytes;
+				spilledLines -= count - from;
+				if(spilledLines == 0) {
+					Segment segment;
+					while((segment = segments.pollFirst()) != null) {
+						segment.delete();
+					}
+					spilling = false;
+				}
+			}
+		}
+		if(count > from) {
+			signalNotFull();
+		}
+		return count;
+	}
+
+
+	private static class Segment {
+		private final File file;
+		private final MappedByteBuffer buffer;
+		private final int size;
+		private int writePos = 0;
+		private int readPos = 0;
+
+		private Segment(File directory, int size) throws IOException {
+			if(!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+				throw new IOException("Cannot create directory " + directory.getAbsolutePath());
+			}
+			this.size = size;
+			this.file = File.createTempFile(FILE_PREFIX, FILE_SUFFIX, directory);
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try {
+				randomAccessFile.setLength(size);
+				this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			} catch (IOException e) {
+				randomAccessFile.close();
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+				throw e;
+			}
+			// 매핑은 파일을 닫은 뒤에도 유지된다.
+			randomAccessFile.close();
+		}
+
+		/**
+		 * @return 기록한 byte 수. 남은 공간이 부족하면 빈 segment 에 필요한 byte 수에 -1 을 곱한 값, 기록할 수 없는 라인이라면 -1
+		 */
+		private int write(LineCodec codec, Line line) {
+			int written = codec.encodeDetached(line, buffer, writePos + LENGTH_SIZE, size - writePos - LENGTH_SIZE);
+			if(written < -1) {
+				return written - LENGTH_SIZE;
+			}
+			if(written < 0) {
+				return -1;
+			}
+			buffer.putInt(writePos, written);
+			writePos += LENGTH_SIZE + written;
+			return LENGTH_SIZE + written;
+		}
+
+		/**
+		 * @return 읽을 레코드의 길이. 더 읽을 레코드가 없다면 -1
+		 */
+		private int read() {
+			if(readPos >= writePos) {
+				return -1;
+			}
+			return buffer.getInt(readPos);
+		}
+
+		/**
+		 * 매핑을 해제하고 파일을 삭제한다. 매핑이 남아 있으면 GC 가 해제할 때까지 디스크 공간이 반환되지 않고,
+		 * Windows 에서는 파일을 삭제할 수 없다. 삭제한 뒤에는 이 segment 를 사용하면 안 된다.
+		 */
+		private void delete() {
+			Files.unmap(buffer);
+			if(!file.delete()) {
+				// 매핑을 해제할 수 없어 삭제하지 못한 환경에서는 종료할 때 삭제한다.
+				file.deleteOnExit();
+			}
+		}
+	}
+
+}
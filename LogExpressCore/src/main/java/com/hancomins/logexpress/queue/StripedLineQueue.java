@@ -0,0 +1,247 @@
+package com.hancomins.logexpress.queue;
+
+import com.hancomins.logexpress.Line;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 생산자 스레드를 스레드 id 로 나누어 각자의 {@link RingLineQueue}(stripe)에 넣는 큐.<br>
+ * 생산자끼리는 같은 stripe 에 배정된 스레드하고만 경합하기 때문에 코어가 많은 환경에서 tail 커서가 한 곳에 몰리지 않는다.<br>
+ * 소비자는 각 stripe 의 맨 앞 라인을 힙으로 관리하며 {@link Line#getTime()} 순서로 합친다.<br>
+ * 한 스레드는 항상 같은 stripe 를 사용하기 때문에 스레드별 순서는 유지된다.<br>
+ * 각 stripe 는 전체 크기를 stripe 수로 나눈 크기를 갖지만, 최소 min(전체 크기, 1024) 이상이다.<br>
+ * strict 모드에서는 라인마다 전역 순서 번호를 매기고 번호 순서대로만 꺼낸다. 번호를 매기는 카운터를 모든 생산자가 공유하므로
+ * 경합이 다시 생기지만, 스레드 간의 순서까지 지켜야 할 때 사용한다.
+ */
+public class StripedLineQueue extends AbsLineQueue {
+
+	private static final int MAX_STRIPES = 64;
+	/**
+	 * 한 스레드가 몰아서 로그를 남겨도 자신의 stripe 만 금방 가득 차지 않도록 보장하는 stripe 의 최소 크기.
+	 */
+	private static final int MIN_STRIPE_CAPACITY = 1024;
+
+	private final RingLineQueue[] stripes;
+	private final int stripeMask;
+	private final boolean strictOrder;
+	private final AtomicLong sequence = new AtomicLong(0);
+
+	// 아래는 소비자 스레드만 접근한다.
+	/**
+	 * stripe 별로 꺼내 두었지만 아직 내보내지 않은 라인.
+	 */
+	private final Line[] heads;
+	/**
+	 * heads 에 라인이 있는 stripe 번호를 key 가 작은 순서로 담는 최소 힙.
+	 */
+	private final int[] heap;
+	private int heapSize = 0;
+	private long nextSequence = 0;
+	private final Line[] popBuffer = new Line[1];
+
+
+	protected StripedLineQueue(int capacity, int stripeCount, boolean strictOrder) {
+		this(createStripes(capacity, stripeCount), strictOrder);
+	}
+
+	private StripedLineQueue(RingLineQueue[] stripes, boolean strictOrder) {
+		super(stripes.length * stripes[0].getCapacity());
+		this.stripes = stripes;
+		this.stripeMask = stripes.length - 1;
+		this.strictOrder = strictOrder;
+		this.heads = new Line[stripes.length];
+		this.heap = new int[stripes.length];
+	}
+
+	private static RingLineQueue[] createStripes(int capacity, int stripeCount) {
+		if(stripeCount <= 0) {
+			stripeCount = Runtime.getRuntime().availableProcessors();
+		}
+		stripeCount = Math.min(RingLineQueue.ceilingPowerOfTwo(stripeCount), MAX_STRIPES);
+		int stripeCapacity = Math.max((capacity + stripeCount - 1) / stripeCount, Math.min(capacity, MIN_STRIPE_CAPACITY));
+		RingLineQueue[] stripes = new RingLineQueue[stripeCount];
+		for(int i = 0; i < stripeCount; ++i) {
+			stripes[i] = new RingLineQueue(stripeCapacity);
+		}
+		return stripes;
+	}
+
+	public int getStripeCount() {
+		return stripes.length;
+	}
+
+	public boolean isStrictOrder() {
+		return strictOrder;
+	}
+
+	@Override
+	public void setPushLineEvent(OnPushLineListener pushLineListener) {
+		for(RingLineQueue stripe : stripes) {
+			stripe.setPushLineEvent(pushLineListener);
+		}
+	}
+
+	@Override
+	public void setProducerWaitStrategy(WaitStrategy waitStrategy) {
+		super.setProducerWaitStrategy(waitStrategy);
+		for(RingLineQueue stripe : stripes) {
+			stripe.setProducerWaitStrategy(waitStrategy);
+		}
+	}
+
+	private RingLineQueue stripeOfCurrentThread() {
+		return stripes[(int)Thread.currentThread().getId() & stripeMask];
+	}
+
+
+	@Override
+	public void push(Line line) {
+		RingLineQueue stripe = stripeOfCurrentThread();
+		if(!strictOrder) {
+			stripe.push(line);
+			return;
+		}
+		// 같은 stripe 안에서 번호 순서와 슬롯 순서가 어긋나지 않도록 번호를 매기고 넣는 동안 stripe 를 잠근다.
+		synchronized (stripe) {
+			line.setSequence(sequence.getAndIncrement());
+			stripe.push(line);
+		}
+	}
+
+	@Override
+	public boolean offer(Line line) {
+		RingLineQueue stripe = stripeOfCurrentThread();
+		if(!strictOrder) {
+			return stripe.offer(line);
+		}
+		synchronized (stripe) {
+			// 잠금 안에서는 다른 생산자가 없으므로 빈 자리가 있다면 offer 는 실패하지 않는다.
+			if(stripe.size() >= stripe.getCapacity()) {
+				return false;
+			}
+			line.setSequence(sequence.getAndIncrement());
+			return stripe.offer(line);
+		}
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for(RingLineQueue stripe : stripes) {
+			size += stripe.size();
+		}
+		return size + heapSize;
+	}
+
+	@Override
+	public Line pop() {
+		if(drainTo(popBuffer, 1) == 0) {
+			return null;
+		}
+		Line line = popBuffer[0];
+		popBuffer[0] = null;
+		return line;
+	}
+
+	/**
+	 * 각 stripe 의 맨 앞 라인 중에서 가장 이른 라인부터 꺼낸다.<br>
+	 * strict 모드에서 다음 번호의 라인이 아직 발행 중이라면 거기서 멈춘다.
+	 */
+	@Override
+	public int drainTo(Line[] batch, int max) {
+		int limit = Math.min(max, batch.length);
+		int count = 0;
+		boolean refilled = true;
+		refill();
+		while(count < limit && heapSize > 0) {
+			int index = heap[0];
+			Line line = heads[index];
+			if(strictOrder && line.getSequence() != nextSequence) {
+				if(refilled) {
+					break;
+				}
+				refill();
+				refilled = true;
+				continue;
+			}
+			batch[count++] = line;
+			++nextSequence;
+			refilled = false;
+			Line next = stripes[index].pop();
+			heads[index] = next;
+			if(next == null) {
+				removeTop();
+			} else {
+				siftDown(0);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 비어 있는 stripe 의 맨 앞 라인을 꺼내서 힙에 넣는다.
+	 */
+	private void refill() {
+		for(int i = 0; i < stripes.length; ++i) {
+			if(heads[i] != null) {
+				continue;
+			}
+			Line line = stripes[i].pop();
+			if(line != null) {
+				heads[i] = line;
+				heap[heapSize] = i;
+				siftUp(heapSize++);
+			}
+		}
+	}
+
+	private long keyOf(int index) {
+		Line line = heads[index];
+		return strictOrder ? line.getSequence() : line.getTime();
+	}
+
+	private boolean less(int a, int b) {
+		long keyA = keyOf(a);
+		long keyB = keyOf(b);
+		return keyA < keyB || (keyA == keyB && a < b);
+	}
+
+	private void removeTop() {
+		heap[0] = heap[--heapSize];
+		if(heapSize > 0) {
+			siftDown(0);
+		}
+	}
+
+	private void siftUp(int pos) {
+		int value = heap[pos];
+		while(pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if(!less(value, heap[parent])) {
+				break;
+			}
+			heap[pos] = heap[parent];
+			pos = parent;
+		}
+		heap[pos] = value;
+	}
+
+	private void siftDown(int pos) {
+		int value = heap[pos];
+		int half = heapSize >>> 1;
+		while(pos < half) {
+			int child = (pos << 1) + 1;
+			int right = child + 1;
+			if(right < heapSize && less(heap[right], heap[child])) {
+				child = right;
+			}
+			if(!less(heap[child], value)) {
+				break;
+			}
+			heap[pos] = heap[child];
+			pos = child;
+		}
+		heap[pos] = value;
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.hancomins.logexpress.queue;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 생산자는 큐에 빈 자리가 생길 때까지, 소비자(WriteWorker)는 큐에 라인이 들어올 때까지 기다리는 방법.<br>
+ * Strategy used while producers wait for room in the queue and while the consumer (WriteWorker) waits for lines.
+ */
+public enum WaitStrategy {
+	/**
+	 * 쉬지 않고 다시 시도한다. 지연 시간은 가장 짧지만 CPU 코어 하나를 계속 사용한다.<br>
+	 * Retries without pausing. Lowest latency, but keeps a CPU core busy.
+	 */
+	BusySpin {
+		@Override
+		public void idle(WaitSignal signal, int tries, long maxWaitNanos) {
+		}
+	},
+	/**
+	 * 다시 시도하기 전에 다른 스레드에게 CPU 를 양보한다.<br>
+	 * Yields the CPU to other threads before retrying.
+	 */
+	Yield {
+		@Override
+		public void idle(WaitSignal signal, int tries, long maxWaitNanos) {
+			Thread.yield();
+		}
+	},
+	/**
+	 * 잠시 스핀하고, 양보한 뒤, 점점 길게 park 한다. (최대 약 1ms)<br>
+	 * Spins briefly, then yields, then parks for increasing periods. (up to about 1ms)
+	 */
+	ParkNanos {
+		@Override
+		public void idle(WaitSignal signal, int tries, long maxWaitNanos) {
+			if(tries < SPIN_TRIES) {
+				return;
+			}
+			if(tries < YIELD_TRIES) {
+				Thread.yield();
+				return;
+			}
+			long parkNanos = MIN_PARK_NANOS << Math.min(tries - YIELD_TRIES, MAX_PARK_SHIFT);
+			LockSupport.parkNanos(Math.min(parkNanos, maxWaitNanos));
+		}
+	},
+	/**
+	 * 상대편이 신호를 보낼 때까지 잠든다. 대기 중의 CPU 사용량이 가장 적다.<br>
+	 * Sleeps until the other side signals. Lowest idle CPU usage.
+	 */
+	Blocking {
+		@Override
+		public void idle(WaitSignal signal, int tries, long maxWaitNanos) {
+			signal.await(maxWaitNanos);
+		}
+	};
+
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 200;
+	private static final long MIN_PARK_NANOS = 1000L;
+	private static final int MAX_PARK_SHIFT = 10;
+
+	/**
+	 * 기다리던 조건이 아직 만족되지 않아 다시 시도하기 전에 호출된다.
+	 * @param signal 상대편이 조건을 만족시켰을 때 보내는 신호
+	 * @param tries 연속으로 실패한 횟수. 1 부터 시작한다.
+	 * @param maxWaitNanos 한 번에 기다릴 최대 시간(ns)
+	 */
+	public abstract void idle(WaitSignal signal, int tries, long maxWaitNanos);
+
+	public static WaitStrategy typeNameOf(String name) {
+		if(name == null) {
+			return null;
+		}
+		name = name.trim();
+		WaitStrategy[] strategies = values();
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < strategies.length; ++i) {
+			if(strategies[i].name().equalsIgnoreCase(name)) {
+				return strategies[i];
+			}
+		}
+		return null;
+	}
+}
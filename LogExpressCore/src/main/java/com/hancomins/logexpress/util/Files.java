@@ -3,6 +3,10 @@ package com.hancomins.logexpress.util;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 
 public class Files {
 
@@ -46,6 +50,49 @@ public class Files {
         return name.substring(index + 1);
     }
 
+    private static Object unsafe;
+    private static Method invokeCleaner;
+    private static volatile boolean unmapUnsupported = false;
+
+    /**
+     * 매핑을 바로 해제한다. Java 에는 매핑을 해제하는 공개 API 가 없으므로 reflection 으로 Cleaner 를 호출하며,
+     * 실패하면 GC 가 해제할 때까지 둔다. (Windows 에서는 매핑이 남아 있으면 파일 길이를 줄일 수 없다.)<br>
+     * 매핑한 파일을 지우거나 줄이기 전에 호출한다. 해제한 뒤에 buffer 에 접근하면 JVM 이 비정상 종료되므로 buffer 에 대한 참조를 모두 버린 뒤에 호출해야 한다.
+     */
+    public static void unmap(MappedByteBuffer buffer) {
+        if (unmapUnsupported) return;
+        try {
+            synchronized (Files.class) {
+                if (invokeCleaner == null && unsafe == null) {
+                    try {
+                        // Java 9 이상
+                        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                        invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                        theUnsafe.setAccessible(true);
+                        unsafe = theUnsafe.get(null);
+                    } catch (NoSuchMethodException e) {
+                        invokeCleaner = null;
+                        unsafe = Boolean.FALSE;
+                    }
+                }
+            }
+            if (invokeCleaner != null) {
+                invokeCleaner.invoke(unsafe, buffer);
+                return;
+            }
+            // Java 8 이하
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Throwable e) {
+            unmapUnsupported = true;
+        }
+    }
+
     // OS System Environment load method.
     /*public static String getEnv(String key) {
         return System.getenv(key);
@@ -76,4 +76,94 @@ public class StringUtil {
     public static String trimToNonNull(String str) {
         return str == null ? "" : str.trim();
     }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * 문자열을 JSON 문자열 값(따옴표 포함)으로 이스케이프하여 stringBuilder 뒤에 붙입니다.
+     * 중간 문자열을 만들지 않고 stringBuilder 에 바로 씁니다. value 가 null 이면 null 을 붙입니다.
+     *
+     * @param stringBuilder 출력 버퍼
+     * @param value         붙일 문자열
+     */
+    public static void appendJsonString(StringBuilder stringBuilder, CharSequence value) {
+        if (value == null) {
+            stringBuilder.append("null");
+            return;
+        }
+        stringBuilder.append('"');
+        appendJsonEscaped(stringBuilder, value);
+        stringBuilder.append('"');
+    }
+
+    /**
+     * 문자열을 JSON 문자열 값 안에 들어갈 수 있도록 이스케이프하여 stringBuilder 뒤에 붙입니다. 따옴표는 붙이지 않습니다.
+     *
+     * @param stringBuilder 출력 버퍼
+     * @param value         붙일 문자열
+     */
+    public static void appendJsonEscaped(StringBuilder stringBuilder, CharSequence value) {
+        appendJsonEscaped(stringBuilder, value, 0, value.length());
+    }
+
+    /**
+     * 문자열의 start 부터 end 앞까지를 JSON 문자열 값 안에 들어갈 수 있도록 이스케이프하여 stringBuilder 뒤에 붙입니다.
+     *
+     * @param stringBuilder 출력 버퍼
+     * @param value         붙일 문자열
+     * @param start         시작 위치
+     * @param end           끝 위치 (포함하지 않음)
+     */
+    public static void appendJsonEscaped(StringBuilder stringBuilder, CharSequence value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            appendJsonEscaped(stringBuilder, value.charAt(i));
+        }
+    }
+
+    /**
+     * 문자 배열의 일부를 JSON 문자열 값 안에 들어갈 수 있도록 이스케이프하여 stringBuilder 뒤에 붙입니다.
+     *
+     * @param stringBuilder 출력 버퍼
+     * @param chars         붙일 문자 배열
+     * @param offset        시작 위치
+     * @param length        길이
+     */
+    public static void appendJsonEscaped(StringBuilder stringBuilder, char[] chars, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            appendJsonEscaped(stringBuilder, chars[i]);
+        }
+    }
+
+    private static void appendJsonEscaped(StringBuilder stringBuilder, char c) {
+        switch (c) {
+            case '"':
+                stringBuilder.append('\\').append('"');
+                break;
+            case '\\':
+                stringBuilder.append('\\').append('\\');
+                break;
+            case '\n':
+                stringBuilder.append('\\').append('n');
+                break;
+            case '\r':
+                stringBuilder.append('\\').append('r');
+                break;
+            case '\t':
+                stringBuilder.append('\\').append('t');
+                break;
+            case '\b':
+                stringBuilder.append('\\').append('b');
+                break;
+            case '\f':
+                stringBuilder.append('\\').append('f');
+                break;
+            default:
+                if (c < 0x20) {
+                    // 나머지 제어 문자는 유니코드 이스케이프(u00XX)로 쓴다.
+                    stringBuilder.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+                } else {
+                    stringBuilder.append(c);
+                }
+        }
+    }
 }
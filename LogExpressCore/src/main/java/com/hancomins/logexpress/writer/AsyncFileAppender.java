@@ -0,0 +1,316 @@
+package com.hancomins.logexpress.writer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 여러 버퍼를 번갈아 사용하여 파일에 비동기로 이어 쓴다.<br>
+ * 기록하는 스레드는 버퍼를 채우기만 하고, 가득 찬 버퍼는 기록할 파일 위치와 함께 I/O 스레드에 넘긴 뒤 다음 버퍼를 채운다.
+ * 이전 버퍼들이 기록되는 동안에도 포맷과 인코딩을 계속할 수 있으므로 느린 저장소가 로그 기록을 멈추지 않으며,
+ * 모든 버퍼가 기록 중일 때만 기다린다.<br>
+ * 버퍼마다 파일 위치를 미리 정해 두므로 여러 버퍼를 동시에 기록해도 순서가 바뀌지 않는다.<br>
+ * 기록은 한 스레드에서만 해야 한다.
+ */
+final class AsyncFileAppender {
+
+	/**
+	 * 파일 하나가 사용하는 버퍼 수. 하나를 채우는 동안 나머지는 기록 중일 수 있다.
+	 */
+	static final int BUFFER_COUNT = 3;
+
+	/**
+	 * 버퍼의 최소 크기. 작은 버퍼를 하나씩 넘기면 I/O 스레드에 넘기는 비용이 더 크다.
+	 */
+	static final int MIN_BUFFER_SIZE = 64 * 1024;
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private static ThreadPoolExecutor executor = null;
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	private final int bufferSize;
+	private final boolean preallocated;
+	/**
+	 * 버퍼 하나의 기록이 파일에 끝날 때마다 I/O 스레드에서 호출된다. fsync 할 데이터가 생겼음을 알리는 데 사용한다.
+	 */
+	private final Runnable writtenListener;
+	/**
+	 * 미리 늘려 둔 파일의 끝 위치. 끝에 WrittenLengthMarker 가 있다. 늘려 둔 영역을 다 쓰면 0 이 된다.
+	 */
+	private long preallocatedEnd;
+	/**
+	 * 표시에 마지막으로 적은 기록한 길이.
+	 */
+	private long markedLength;
+	private final Object lock = new Object();
+	private final ByteBuffer[] freeBuffers = new ByteBuffer[BUFFER_COUNT];
+	private int freeCount = 0;
+	private int allocatedCount = 0;
+	private int inFlightCount = 0;
+	private IOException failure;
+	/**
+	 * 채우고 있는 버퍼. 없으면 null.
+	 */
+	private ByteBuffer current;
+	/**
+	 * 다음 버퍼를 기록할 파일 위치. 기록하는 스레드만 사용한다.
+	 */
+	private long position;
+
+
+	/**
+	 * @param preallocateSize 0 보다 크면 파일을 이 크기로 미리 늘리고, 닫을 때 실제 기록한 길이로 줄인다.
+	 * @param writtenListener 버퍼가 파일에 기록된 뒤 I/O 스레드에서 호출된다. 기록이 끝나기 전에 호출되지 않는다.
+	 */
+	AsyncFileAppender(File file, int bufferSize, long preallocateSize, Runnable writtenListener) throws IOException {
+		this.file = file;
+		this.writtenListener = writtenListener;
+		this.bufferSize = Math.max(MIN_BUFFER_SIZE, bufferSize);
+		this.preallocated = preallocateSize > 0;
+		randomAccessFile = new RandomAccessFile(file, "rw");
+		channel = randomAccessFile.getChannel();
+		try {
+			position = WrittenLengthMarker.recover(channel);
+			if (preallocated && preallocateSize > position + WrittenLengthMarker.SIZE) {
+				WrittenLengthMarker.mark(channel, preallocateSize, position);
+				preallocatedEnd = preallocateSize;
+				markedLength = position;
+			}
+		} catch (IOException e) {
+			closeQuietly();
+			throw e;
+		}
+	}
+
+	/**
+	 * fsync 에 사용할 채널.
+	 */
+	FileChannel channel() {
+		return channel;
+	}
+
+	void write(byte[] data, int offset, int length) throws IOException {
+		while (length > 0) {
+			if (current == null) {
+				current = takeBuffer();
+			}
+			int writeLen = Math.min(current.remaining(), length);
+			current.put(data, offset, writeLen);
+			offset += writeLen;
+			length -= writeLen;
+			if (!current.hasRemaining()) {
+				submit();
+			}
+		}
+	}
+
+	/**
+	 * 채우고 있는 버퍼를 I/O 스레드에 넘긴다. 기록이 끝날 때까지 기다리지 않는다.
+	 */
+	void flush() throws IOException {
+		if (current != null && current.position() > 0) {
+			submit();
+		}
+		throwIfFailed();
+	}
+
+	/**
+	 * 채우고 있는 버퍼를 넘기고 모든 버퍼의 기록이 끝날 때까지 기다린다.
+	 */
+	void drain() throws IOException {
+		flush();
+		boolean interrupted = false;
+		synchronized (lock) {
+			while (inFlightCount > 0) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		throwIfFailed();
+	}
+
+	/**
+	 * 남은 버퍼를 모두 기록하고 닫는다.
+	 *
+	 * @param sync 닫기 전에 디스크에 강제로 기록할지 여부
+	 */
+	void close(boolean sync) throws IOException {
+		try {
+			drain();
+			if (preallocated) {
+				channel.truncate(position);
+			}
+			if (sync) {
+				channel.force(false);
+			}
+		} finally {
+			closeQuietly();
+		}
+	}
+
+	private void submit() throws IOException {
+		final ByteBuffer buffer = current;
+		current = null;
+		buffer.flip();
+		final long writePosition = position;
+		position += buffer.remaining();
+		if (preallocatedEnd > 0) {
+			try {
+				updatePreallocation(writePosition, position);
+			} catch (IOException e) {
+				buffer.clear();
+				synchronized (lock) {
+					freeBuffers[freeCount++] = buffer;
+				}
+				throw new IOException("Failed to write data to file: " + file.getAbsolutePath(), e);
+			}
+		}
+		synchronized (lock) {
+			++inFlightCount;
+		}
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				writeAt(buffer, writePosition);
+			}
+		};
+		try {
+			getExecutor().execute(task);
+		} catch (RejectedExecutionException e) {
+			// I/O 스레드를 만들 수 없다면 직접 기록한다.
+			task.run();
+		}
+		throwIfFailed();
+	}
+
+	/**
+	 * 미리 늘려 둔 파일에 writePosition 부터 end 까지 기록하기 전에 호출한다.<br>
+	 * 늘려 둔 영역을 넘어선다면 파일을 줄이고 더 이상 미리 늘리지 않는다. 그렇지 않다면 가끔 표시에 기록한 길이를 갱신한다.
+	 */
+	private void updatePreallocation(long writePosition, long end) throws IOException {
+		boolean idle;
+		synchronized (lock) {
+			idle = inFlightCount == 0;
+		}
+		if (end > preallocatedEnd - WrittenLengthMarker.SIZE) {
+			// 기록 중인 버퍼는 모두 writePosition 앞에 있다.
+			channel.truncate(writePosition);
+			preallocatedEnd = 0;
+		} else if (idle && writePosition - markedLength >= WrittenLengthMarker.UPDATE_INTERVAL) {
+			// 기록 중인 버퍼가 없을 때만 writePosition 앞이 모두 기록되었다고 할 수 있다.
+			WrittenLengthMarker.mark(channel, preallocatedEnd, writePosition);
+			markedLength = writePosition;
+		}
+	}
+
+	private void writeAt(ByteBuffer buffer, long writePosition) {
+		IOException error = null;
+		long start = writePosition;
+		try {
+			while (buffer.hasRemaining()) {
+				writePosition += channel.write(buffer, writePosition);
+			}
+		} catch (IOException e) {
+			error = e;
+		}
+		// drain() 이 반환되기 전에 알릴 수 있도록 기록 중인 버퍼 수를 줄이기 전에 호출한다.
+		if (writePosition > start && writtenListener != null) {
+			writtenListener.run();
+		}
+		buffer.clear();
+		synchronized (lock) {
+			if (error != null && failure == null) {
+				failure = error;
+			}
+			freeBuffers[freeCount++] = buffer;
+			--inFlightCount;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * 사용할 수 있는 버퍼를 반환한다. 모든 버퍼가 기록 중이라면 하나가 끝날 때까지 기다린다.
+	 */
+	private ByteBuffer takeBuffer() throws IOException {
+		boolean interrupted = false;
+		try {
+			synchronized (lock) {
+				for (;;) {
+					if (freeCount > 0) {
+						return freeBuffers[--freeCount];
+					}
+					if (allocatedCount < BUFFER_COUNT) {
+						++allocatedCount;
+						return ByteBuffer.allocateDirect(bufferSize);
+					}
+					try {
+						lock.wait();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * I/O 스레드에서 발생한 예외가 있다면 한 번 던진다.
+	 */
+	private void throwIfFailed() throws IOException {
+		IOException error;
+		synchronized (lock) {
+			error = failure;
+			failure = null;
+		}
+		if (error != null) {
+			throw new IOException("Failed to write data to file: " + file.getAbsolutePath(), error);
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			channel.close();
+		} catch (Exception ignored) {}
+		try {
+			randomAccessFile.close();
+		} catch (Exception ignored) {}
+	}
+
+	/**
+	 * 모든 파일이 함께 사용하는 I/O 스레드 풀. 기록 중인 버퍼 수만큼 스레드가 만들어지고, 일이 없으면 잠시 뒤 종료된다.
+	 */
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (executor == null) {
+			executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "LogExpressAsyncFileWriter");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+}
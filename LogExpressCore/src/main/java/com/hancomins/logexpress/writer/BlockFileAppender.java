@@ -0,0 +1,354 @@
+package com.hancomins.logexpress.writer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 라인을 모아 서로 독립적으로 압축한 블록으로 기록한다.<br>
+ * 각 블록은 앞의 블록 없이 따로 풀 수 있으며 블록 헤더에 블록 안 라인들의 처음과 마지막 시간을 담으므로,
+ * 도구는 원하는 시간대의 블록만 찾아 풀 수 있다. 파일을 닫을 때 블록 위치와 시간을 담은 색인을 파일 끝에 붙인다.
+ * 닫지 못하고 종료된 파일도 블록 헤더를 따라가며 읽을 수 있다.<br>
+ * 블록은 라인을 나누지 않는다. 블록은 모은 라인이 {@link #BLOCK_SIZE} 에 이르거나 플러시할 때 압축하여 기록한다.<br>
+ * 파일 형식 (big-endian)
+ * <pre>
+ * 파일 헤더 : magic "LXBLOCK1" (8)
+ * 블록      : compressedLength(int) rawLength(int) firstTime(long) lastTime(long) crc32(int) 압축한 데이터(raw deflate)
+ * 색인      : "LXIX"(int) blockCount(int) { offset(long) firstTime(long) lastTime(long) rawLength(int) } * blockCount
+ * 트레일러  : indexOffset(long) blockCount(int) "LXBE"(int)
+ * </pre>
+ * 기록은 한 스레드에서만 해야 한다.
+ */
+final class BlockFileAppender {
+
+	static final byte[] FILE_MAGIC = new byte[] {'L', 'X', 'B', 'L', 'O', 'C', 'K', '1'};
+	static final int BLOCK_HEADER_SIZE = 28;
+	static final int INDEX_MAGIC = 0x4C584958; // "LXIX"
+	static final int INDEX_HEADER_SIZE = 8;
+	static final int INDEX_ENTRY_SIZE = 28;
+	static final int TRAILER_MAGIC = 0x4C584245; // "LXBE"
+	static final int TRAILER_SIZE = 16;
+	/**
+	 * 블록 하나에 모으는 라인의 크기 (압축 전).
+	 */
+	static final int BLOCK_SIZE = 64 * 1024;
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	private final CRC32 crc32 = new CRC32();
+	private byte[] raw = new byte[BLOCK_SIZE];
+	private int rawLength = 0;
+	private byte[] compressed = new byte[BLOCK_SIZE / 2];
+	private long firstTime;
+	private long lastTime;
+	/**
+	 * 다음 블록을 기록할 파일 위치.
+	 */
+	private long position;
+	private final BlockIndex index = new BlockIndex();
+	private boolean closed = false;
+
+
+	BlockFileAppender(File file) throws IOException {
+		this.file = file;
+		randomAccessFile = new RandomAccessFile(file, "rw");
+		channel = randomAccessFile.getChannel();
+		try {
+			position = open();
+		} catch (IOException e) {
+			close(randomAccessFile);
+			deflater.end();
+			throw e;
+		}
+	}
+
+	/**
+	 * fsync 에 사용할 채널.
+	 */
+	FileChannel channel() {
+		return channel;
+	}
+
+	/**
+	 * 파일에 기록한 byte 수. 아직 블록으로 기록하지 않은 라인은 포함하지 않는다.
+	 */
+	long length() {
+		return position;
+	}
+
+	/**
+	 * 라인 하나를 블록에 넣는다. 블록에 자리가 없다면 지금까지 모은 블록을 먼저 기록한다.
+	 * @param time 라인의 시간
+	 */
+	void write(byte[] data, int offset, int length, long time) throws IOException {
+		if (rawLength > 0 && rawLength + length > raw.length) {
+			writeBlock();
+		}
+		if (length > raw.length) {
+			// 블록보다 큰 라인은 그 라인만으로 블록을 만든다.
+			raw = new byte[length];
+		}
+		if (rawLength == 0) {
+			firstTime = time;
+			lastTime = time;
+		} else {
+			firstTime = Math.min(firstTime, time);
+			lastTime = Math.max(lastTime, time);
+		}
+		System.arraycopy(data, offset, raw, rawLength, length);
+		rawLength += length;
+		if (rawLength >= BLOCK_SIZE) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * 모은 라인을 블록으로 기록한다.
+	 */
+	void flush() throws IOException {
+		if (rawLength > 0) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * 남은 라인을 기록하고 색인을 붙인 뒤 닫는다.
+	 *
+	 * @param sync 닫기 전에 디스크에 강제로 기록할지 여부
+	 */
+	void close(boolean sync) throws IOException {
+		if (closed) return;
+		closed = true;
+		try {
+			flush();
+			writeFully(index.toFooter(position));
+			if (sync) {
+				channel.force(false);
+			}
+		} finally {
+			deflater.end();
+			close(randomAccessFile);
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		deflater.reset();
+		deflater.setInput(raw, 0, rawLength);
+		deflater.finish();
+		int compressedLength = 0;
+		while (!deflater.finished()) {
+			if (compressedLength == compressed.length) {
+				byte[] newCompressed = new byte[compressed.length * 2];
+				System.arraycopy(compressed, 0, newCompressed, 0, compressedLength);
+				compressed = newCompressed;
+			}
+			compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+		}
+		crc32.reset();
+		crc32.update(raw, 0, rawLength);
+		ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+		header.putInt(compressedLength).putInt(rawLength).putLong(firstTime).putLong(lastTime).putInt((int) crc32.getValue());
+		header.flip();
+		long blockOffset = position;
+		writeFully(header);
+		writeFully(ByteBuffer.wrap(compressed, 0, compressedLength));
+		index.add(blockOffset, firstTime, lastTime, rawLength);
+		rawLength = 0;
+		if (raw.length > BLOCK_SIZE) {
+			raw = new byte[BLOCK_SIZE];
+		}
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		try {
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+		} catch (IOException e) {
+			throw new IOException("Failed to write data to file: " + file.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * 파일을 열어 이어 쓸 위치를 반환한다. 새 파일이면 헤더를 쓰고, 기존 파일이면 색인을 읽은 뒤 색인과 트레일러를 잘라낸다.
+	 * 색인이 없는 파일은 블록 헤더를 따라가며 색인을 다시 만들고, 마지막에 덜 기록된 블록이 있다면 잘라낸다.
+	 */
+	private long open() throws IOException {
+		long size = channel.size();
+		if (size == 0) {
+			position = 0;
+			writeFully(ByteBuffer.wrap(FILE_MAGIC));
+			return position;
+		}
+		if (!BlockIndex.read(channel, size, index)) {
+			throw new IOException("Not a block-compressed log file: " + file.getAbsolutePath());
+		}
+		long end = index.getEnd();
+		channel.truncate(end);
+		return end;
+	}
+
+	private static void close(RandomAccessFile randomAccessFile) {
+		try {
+			randomAccessFile.getChannel().close();
+		} catch (Exception ignored) {}
+		try {
+			randomAccessFile.close();
+		} catch (Exception ignored) {}
+	}
+
+
+	/**
+	 * 블록의 위치와 시간을 담는 색인.
+	 */
+	static final class BlockIndex {
+		private long[] offsets = new long[64];
+		private long[] firstTimes = new long[64];
+		private long[] lastTimes = new long[64];
+		private int[] rawLengths = new int[64];
+		private int count = 0;
+		/**
+		 * 마지막 블록이 끝나는 위치. 색인과 트레일러는 포함하지 않는다.
+		 */
+		private long end = FILE_MAGIC.length;
+
+		int size() {
+			return count;
+		}
+
+		long getOffset(int i) {
+			return offsets[i];
+		}
+
+		long getFirstTime(int i) {
+			return firstTimes[i];
+		}
+
+		long getLastTime(int i) {
+			return lastTimes[i];
+		}
+
+		int getRawLength(int i) {
+			return rawLengths[i];
+		}
+
+		long getEnd() {
+			return end;
+		}
+
+		void add(long offset, long firstTime, long lastTime, int rawLength) {
+			if (count == offsets.length) {
+				int capacity = count * 2;
+				long[] newOffsets = new long[capacity];
+				long[] newFirstTimes = new long[capacity];
+				long[] newLastTimes = new long[capacity];
+				int[] newRawLengths = new int[capacity];
+				System.arraycopy(offsets, 0, newOffsets, 0, count);
+				System.arraycopy(firstTimes, 0, newFirstTimes, 0, count);
+				System.arraycopy(lastTimes, 0, newLastTimes, 0, count);
+				System.arraycopy(rawLengths, 0, newRawLengths, 0, count);
+				offsets = newOffsets;
+				firstTimes = newFirstTimes;
+				lastTimes = newLastTimes;
+				rawLengths = newRawLengths;
+			}
+			offsets[count] = offset;
+			firstTimes[count] = firstTime;
+			lastTimes[count] = lastTime;
+			rawLengths[count] = rawLength;
+			++count;
+		}
+
+		/**
+		 * 색인과 트레일러를 만든다.
+		 * @param indexOffset 색인을 기록할 위치
+		 */
+		ByteBuffer toFooter(long indexOffset) {
+			ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER_SIZE + count * INDEX_ENTRY_SIZE + TRAILER_SIZE);
+			buffer.putInt(INDEX_MAGIC).putInt(count);
+			for (int i = 0; i < count; ++i) {
+				buffer.putLong(offsets[i]).putLong(firstTimes[i]).putLong(lastTimes[i]).putInt(rawLengths[i]);
+			}
+			buffer.putLong(indexOffset).putInt(count).putInt(TRAILER_MAGIC);
+			buffer.flip();
+			return buffer;
+		}
+
+		/**
+		 * 파일에서 색인을 읽는다. 색인이 없다면 블록 헤더를 따라가며 만든다.
+		 * @return 블록 압축 파일이 아니라면 false
+		 */
+		static boolean read(FileChannel channel, long size, BlockIndex index) throws IOException {
+			if (size < FILE_MAGIC.length) {
+				return false;
+			}
+			ByteBuffer magic = readAt(channel, 0, FILE_MAGIC.length);
+			for (int i = 0; i < FILE_MAGIC.length; ++i) {
+				if (magic.get(i) != FILE_MAGIC[i]) {
+					return false;
+				}
+			}
+			if (size >= FILE_MAGIC.length + INDEX_HEADER_SIZE + TRAILER_SIZE && readFooter(channel, size, index)) {
+				return true;
+			}
+			index.count = 0;
+			scan(channel, size, index);
+			return true;
+		}
+
+		private static boolean readFooter(FileChannel channel, long size, BlockIndex index) throws IOException {
+			ByteBuffer trailer = readAt(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+			long indexOffset = trailer.getLong();
+			int count = trailer.getInt();
+			if (trailer.getInt() != TRAILER_MAGIC || count < 0 || indexOffset < FILE_MAGIC.length
+					|| indexOffset + INDEX_HEADER_SIZE + (long) count * INDEX_ENTRY_SIZE + TRAILER_SIZE != size) {
+				return false;
+			}
+			ByteBuffer buffer = readAt(channel, indexOffset, INDEX_HEADER_SIZE + count * INDEX_ENTRY_SIZE);
+			if (buffer.getInt() != INDEX_MAGIC || buffer.getInt() != count) {
+				return false;
+			}
+			for (int i = 0; i < count; ++i) {
+				index.add(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getInt());
+			}
+			index.end = indexOffset;
+			return true;
+		}
+
+		private static void scan(FileChannel channel, long size, BlockIndex index) throws IOException {
+			long offset = FILE_MAGIC.length;
+			while (offset + BLOCK_HEADER_SIZE <= size) {
+				ByteBuffer header = readAt(channel, offset, BLOCK_HEADER_SIZE);
+				int compressedLength = header.getInt();
+				int rawLength = header.getInt();
+				long firstTime = header.getLong();
+				long lastTime = header.getLong();
+				if (compressedLength <= 0 || rawLength <= 0 || offset + BLOCK_HEADER_SIZE + compressedLength > size) {
+					break;
+				}
+				index.add(offset, firstTime, lastTime, rawLength);
+				offset += BLOCK_HEADER_SIZE + compressedLength;
+			}
+			index.end = offset;
+		}
+
+		static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(length);
+			while (buffer.hasRemaining()) {
+				int read = channel.read(buffer, position + buffer.position());
+				if (read < 0) {
+					throw new IOException("Unexpected end of file.");
+				}
+			}
+			buffer.flip();
+			return buffer;
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+package com.hancomins.logexpress.writer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * FileMode.Block 으로 기록한 로그 파일을 읽는다.<br>
+ * 파일 끝의 색인으로 블록의 위치와 시간 범위를 찾으며, 색인이 없는 파일(기록 중이거나 비정상 종료된 파일)은 블록 헤더를 따라가며 찾는다.
+ * 블록은 서로 독립적이므로 필요한 블록만 골라 풀 수 있다.<br>
+ * Reads log files written with FileMode.Block.
+ * Block positions and time ranges are taken from the index at the end of the file, or found by walking the block headers
+ * when the file has no index (a file that is still being written or was not closed).
+ * Blocks are independent, so only the needed blocks have to be decompressed.
+ * <pre>
+ * BlockFileReader reader = new BlockFileReader(file);
+ * try {
+ *     for(int i = reader.findBlock(from); i &gt;= 0 &amp;&amp; i &lt; reader.getBlockCount() &amp;&amp; reader.getBlockFirstTime(i) &lt;= to; ++i) {
+ *         byte[] lines = reader.readBlock(i);
+ *         ...
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ */
+public class BlockFileReader {
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	private final BlockFileAppender.BlockIndex index = new BlockFileAppender.BlockIndex();
+	private final Inflater inflater = new Inflater(true);
+	private final CRC32 crc32 = new CRC32();
+
+
+	/**
+	 * @param file FileMode.Block 으로 기록한 로그 파일<br>
+	 *             log file written with FileMode.Block
+	 * @throws IOException 파일을 읽을 수 없거나 블록 압축 파일이 아닌 경우<br>
+	 *                     if the file cannot be read or is not a block-compressed log file
+	 */
+	public BlockFileReader(File file) throws IOException {
+		this.file = file;
+		randomAccessFile = new RandomAccessFile(file, "r");
+		channel = randomAccessFile.getChannel();
+		try {
+			if (!BlockFileAppender.BlockIndex.read(channel, channel.size(), index)) {
+				throw new IOException("Not a block-compressed log file: " + file.getAbsolutePath());
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * 파일이 FileMode.Block 으로 기록한 파일인지 헤더를 확인한다.<br>
+	 * Checks the header to see whether the file was written with FileMode.Block.
+	 */
+	public static boolean isBlockFile(File file) throws IOException {
+		byte[] magic = new byte[BlockFileAppender.FILE_MAGIC.length];
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			return randomAccessFile.read(magic) == magic.length && Arrays.equals(magic, BlockFileAppender.FILE_MAGIC);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * 블록 수를 반환한다.<br>
+	 * Returns the number of blocks.
+	 */
+	public int getBlockCount() {
+		return index.size();
+	}
+
+	/**
+	 * 블록에 있는 라인 중 가장 이른 시간 (밀리초).<br>
+	 * Returns the earliest line time in the block (milliseconds).
+	 */
+	public long getBlockFirstTime(int block) {
+		checkBlock(block);
+		return index.getFirstTime(block);
+	}
+
+	/**
+	 * 블록에 있는 라인 중 가장 늦은 시간 (밀리초).<br>
+	 * Returns the latest line time in the block (milliseconds).
+	 */
+	public long getBlockLastTime(int block) {
+		checkBlock(block);
+		return index.getLastTime(block);
+	}
+
+	/**
+	 * time 이후의 라인이 있는 첫 번째 블록을 찾는다. 블록은 기록한 순서대로 있으므로 블록 안의 라인 시간이 대체로 늘어난다고 가정한다.<br>
+	 * Finds the first block that holds a line at or after time. Blocks are in write order, so line times are assumed to mostly increase.
+	 *
+	 * @param time 찾을 시간 (밀리초)<br>
+	 *             time to look for (milliseconds)
+	 * @return 블록 번호. 그런 블록이 없다면 -1<br>
+	 *         block number, or -1 if there is no such block
+	 */
+	public int findBlock(long time) {
+		int count = index.size();
+		for (int i = 0; i < count; ++i) {
+			if (index.getLastTime(i) >= time) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 블록의 압축을 풀어 라인들을 반환한다.<br>
+	 * Decompresses a block and returns its lines.
+	 *
+	 * @param block 블록 번호<br>
+	 *              block number
+	 * @return 블록에 기록한 byte (인코딩한 라인들)<br>
+	 *         bytes written in the block (encoded lines)
+	 * @throws IOException 블록을 읽을 수 없거나 손상된 경우<br>
+	 *                     if the block cannot be read or is corrupted
+	 */
+	public byte[] readBlock(int block) throws IOException {
+		checkBlock(block);
+		ByteBuffer header = BlockFileAppender.BlockIndex.readAt(channel, index.getOffset(block), BlockFileAppender.BLOCK_HEADER_SIZE);
+		int compressedLength = header.getInt();
+		int rawLength = header.getInt();
+		header.getLong();
+		header.getLong();
+		int crc = header.getInt();
+		if (compressedLength <= 0 || rawLength != index.getRawLength(block)) {
+			throw new IOException("Corrupted block " + block + " in file: " + file.getAbsolutePath());
+		}
+		ByteBuffer compressed = BlockFileAppender.BlockIndex.readAt(channel, index.getOffset(block) + BlockFileAppender.BLOCK_HEADER_SIZE, compressedLength);
+		byte[] raw = new byte[rawLength];
+		inflater.reset();
+		inflater.setInput(compressed.array(), 0, compressedLength);
+		try {
+			int length = 0;
+			while (length < rawLength && !inflater.finished()) {
+				int inflated = inflater.inflate(raw, length, rawLength - length);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += inflated;
+			}
+			if (length != rawLength) {
+				throw new IOException("Corrupted block " + block + " in file: " + file.getAbsolutePath());
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupted block " + block + " in file: " + file.getAbsolutePath(), e);
+		}
+		crc32.reset();
+		crc32.update(raw, 0, rawLength);
+		if ((int) crc32.getValue() != crc) {
+			throw new IOException("Checksum mismatch in block " + block + " of file: " + file.getAbsolutePath());
+		}
+		return raw;
+	}
+
+	/**
+	 * 파일을 닫는다.<br>
+	 * Closes the file.
+	 */
+	public void close() {
+		inflater.end();
+		try {
+			channel.close();
+		} catch (Exception ignored) {}
+		try {
+			randomAccessFile.close();
+		} catch (Exception ignored) {}
+	}
+
+	private void checkBlock(int block) {
+		if (block < 0 || block >= index.size()) {
+			throw new IndexOutOfBoundsException("Block " + block + " is out of range. (block count: " + index.size() + ")");
+		}
+	}
+
+}
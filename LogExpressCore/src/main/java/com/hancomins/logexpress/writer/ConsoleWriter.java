@@ -1,58 +1,190 @@
 package com.hancomins.logexpress.writer;
 
-import java.nio.Buffer;
-import java.nio.ByteBuffer;
+import com.hancomins.logexpress.InLogger;
+import com.hancomins.logexpress.configuration.ConsoleAnsi;
 
+import java.io.Console;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+
+/**
+ * 콘솔에 로그를 출력한다.<br>
+ * 대기열을 사용하면 로그를 기록하는 스레드는 인코딩한 byte 를 대기열에 복사하기만 하고, 별도의 스레드가 모인 byte 를 한 번에 출력한다.
+ * 콘솔이 느려 대기열이 가득 차면 라인을 버리고 버린 라인 수를 출력하므로, 느린 콘솔이 파일 기록을 늦추지 않는다.<br>
+ * System.setOut() 으로 바꾼 스트림에도 출력되도록 출력할 때마다 System.out(System.err) 을 사용한다.
+ * byte 배열을 그대로 출력하므로 PrintStream 의 인코더는 거치지 않는다.
+ */
 public class ConsoleWriter {
 
-	private final int mBufferSize;
-	private Buffer mBuffer;
+	private static final int MIN_BUFFER_SIZE = 1024;
+
+	private final boolean stderr;
+	private final int capacity;
+	private final boolean ansi;
+	private final LineEncoder encoder = new LineEncoder(Charset.defaultCharset());
+	private final Object lock = new Object();
+	/**
+	 * 쓰는 스레드가 byte 를 모으는 버퍼. 콘솔 스레드는 이 버퍼와 writing 을 맞바꾼 뒤 출력한다.
+	 */
+	private byte[] pending;
+	private int pendingLength = 0;
+	private byte[] writing;
+	private long droppedCount = 0;
+	private boolean waiting = false;
+	private boolean ending = false;
+	private final Thread thread;
 
-	private byte[] mRawBuffer;
-	
-	ConsoleWriter(int bufferSize) {
 
-		mBufferSize = bufferSize;
-		if(bufferSize < 0) return;
-		mRawBuffer = new byte[bufferSize];
-		mBuffer = ByteBuffer.wrap(mRawBuffer);
+	/**
+	 * @param bufferSize 대기열의 크기 (byte). 0 이하이면 대기열 없이 호출한 스레드에서 바로 출력한다.
+	 * @param stderr 표준 에러로 출력할지 여부
+	 * @param consoleAnsi ANSI 스타일 출력 방식
+	 * @param daemon 콘솔 스레드를 데몬 스레드로 만들지 여부
+	 */
+	ConsoleWriter(int bufferSize, boolean stderr, ConsoleAnsi consoleAnsi, boolean daemon) {
+		this.stderr = stderr;
+		this.ansi = consoleAnsi == ConsoleAnsi.Always || (consoleAnsi == ConsoleAnsi.Auto && isTerminal());
+		if(bufferSize <= 0) {
+			capacity = 0;
+			thread = null;
+			return;
+		}
+		bufferSize = Math.max(MIN_BUFFER_SIZE, bufferSize);
+		capacity = bufferSize;
+		pending = new byte[bufferSize];
+		writing = new byte[bufferSize];
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				loop();
+			}
+		}, "LogExpressConsoleWriter");
+		thread.setDaemon(daemon);
+		thread.start();
+	}
+
+	/**
+	 * 콘솔에 ANSI 스타일을 출력할 수 있는지 여부를 반환한다.
+	 */
+	boolean isAnsiEnabled() {
+		return ansi;
 	}
-	
-	void write(byte[] data) {
-		if(mBuffer == null) {
-			System.out.write(data, 0, data.length);
+
+	/**
+	 * 라인을 출력한다. 대기열을 사용한다면 대기열에 넣기만 하며, 대기열에 자리가 없다면 라인을 버린다.
+	 */
+	void write(CharSequence message) {
+		synchronized (lock) {
+			int length = encoder.encode(message);
+			if(thread == null) {
+				stream().write(encoder.array(), 0, length);
+				return;
+			}
+			if(ending || (pendingLength > 0 && pendingLength + length > capacity)) {
+				++droppedCount;
+			} else {
+				// 대기열보다 큰 라인도 대기열이 비어 있다면 출력한다.
+				if(pendingLength + length > pending.length) {
+					pending = new byte[pendingLength + length];
+				}
+				System.arraycopy(encoder.array(), 0, pending, pendingLength, length);
+				pendingLength += length;
+			}
+			if(waiting) {
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * 대기열에 남은 라인을 모두 출력할 때까지 최대 timeoutMillis 만큼 기다린 뒤 콘솔 스레드를 종료한다.
+	 */
+	void end(long timeoutMillis) {
+		if(thread == null) {
 			return;
 		}
-				
-		int leftLen = data.length;
-		int dataPos = 0;
-		int bufferPos = mBuffer.position();
-		int readLen = Math.min(mBufferSize - bufferPos, data.length);// - bufferPos;
-		
-		do {
-			((ByteBuffer)mBuffer).put(data, dataPos, readLen);
-			dataPos += readLen;
-			leftLen -= readLen;
-			if(mBuffer.position() == mBufferSize) {
-				Buffer buffer = mBuffer;
-				mBuffer.flip();
-				System.out.write(mRawBuffer, 0, mRawBuffer.length);
-				mBuffer.clear();
-				bufferPos = 0;
-				readLen = Math.min(mBufferSize,leftLen);// - bufferPos;
-			}
-			
-		} while(leftLen > 0);
+		synchronized (lock) {
+			ending = true;
+			lock.notifyAll();
+		}
+		boolean interrupted = false;
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while(thread.isAlive()) {
+			long remain = deadline - System.currentTimeMillis();
+			if(remain <= 0) {
+				InLogger.WARN("The console is too slow. Some console logs may not be printed.", null);
+				break;
+			}
+			try {
+				thread.join(remain);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void loop() {
+		for(;;) {
+			int length;
+			long dropped;
+			byte[] buffer;
+			synchronized (lock) {
+				while(pendingLength == 0 && droppedCount == 0 && !ending) {
+					waiting = true;
+					try {
+						lock.wait();
+					} catch (InterruptedException ignored) {
+					}
+					waiting = false;
+				}
+				if(pendingLength == 0 && droppedCount == 0) {
+					return;
+				}
+				buffer = pending;
+				pending = writing;
+				writing = buffer;
+				length = pendingLength;
+				pendingLength = 0;
+				if(pending.length > capacity) {
+					pending = new byte[capacity];
+				}
+				dropped = droppedCount;
+				droppedCount = 0;
+			}
+			PrintStream out = stream();
+			out.write(buffer, 0, length);
+			if(dropped > 0) {
+				out.print("[logexpress::WARN] " + dropped + " console lines dropped because the console was too slow.\n");
+			}
+			out.flush();
+		}
+	}
+
+	private PrintStream stream() {
+		return stderr ? System.err : System.out;
 	}
-	
-	
-	
-	
-	void flush() {
-		if(mBuffer != null && mBuffer.position() > 0) {
-			mBuffer.flip();
-			System.out.write(mRawBuffer, 0, mBuffer.limit());
-			mBuffer.clear();
+
+	/**
+	 * 프로세스가 터미널에 연결되어 있는지 확인한다. Java 22 부터는 출력이 터미널이 아니어도 System.console() 이 null 이 아닐 수 있으므로
+	 * Console.isTerminal() 이 있다면 그 결과를 따른다.
+	 */
+	static boolean isTerminal() {
+		Console console = System.console();
+		if(console == null) {
+			return false;
+		}
+		try {
+			Method isTerminal = Console.class.getMethod("isTerminal");
+			return (Boolean)isTerminal.invoke(console);
+		} catch (NoSuchMethodException e) {
+			return true;
+		} catch (Exception e) {
+			return false;
 		}
 	}
+
 }
@@ -0,0 +1,146 @@
+package com.hancomins.logexpress.writer;
+
+import com.hancomins.logexpress.InLogger;
+import com.hancomins.logexpress.configuration.Compression;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 교체되어 닫힌 로그 파일을 압축한다.<br>
+ * 압축은 임시 파일에 한 뒤 압축 파일 이름으로 바꾸고(rename) 원본을 삭제하므로, 중간에 종료되어도 원본이나 완성된 압축 파일 중 하나는 남는다.
+ */
+final class FileCompressor {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String TEMP_EXTENSION = ".tmp";
+
+	private FileCompressor() {
+	}
+
+	/**
+	 * file 을 압축한 파일을 반환한다.
+	 */
+	static File compressedFileOf(File file, Compression compression) {
+		return new File(file.getPath() + compression.getExtension());
+	}
+
+	/**
+	 * file 을 압축하고 원본을 삭제한다. 실패하면 원본을 그대로 둔다.
+	 * @return 압축했다면 true
+	 */
+	static boolean compress(File file, Compression compression) {
+		if(compression == null || compression.getExtension() == null || !file.isFile()) {
+			return false;
+		}
+		File target = compressedFileOf(file, compression);
+		File temp = new File(target.getPath() + TEMP_EXTENSION);
+		InputStream in = null;
+		OutputStream out = null;
+		Deflater deflater = null;
+		try {
+			in = new FileInputStream(file);
+			OutputStream fileOut = new FileOutputStream(temp);
+			if(compression == Compression.Gzip) {
+				out = new GZIPOutputStream(fileOut, BUFFER_SIZE);
+			} else {
+				deflater = new Deflater();
+				out = new DeflaterOutputStream(fileOut, deflater, BUFFER_SIZE);
+			}
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while((read = in.read(buffer)) > 0) {
+				out.write(buffer, 0, read);
+			}
+			out.close();
+			out = null;
+			in.close();
+			in = null;
+			//noinspection ResultOfMethodCallIgnored
+			temp.setLastModified(file.lastModified());
+			// 같은 디렉토리 안에서 이름을 바꾸므로 압축 파일은 완성된 상태로만 보인다.
+			if(!temp.renameTo(target)) {
+				// Windows 에서는 이미 있는 파일로 이름을 바꿀 수 없다.
+				//noinspection ResultOfMethodCallIgnored
+				target.delete();
+				if(!temp.renameTo(target)) {
+					throw new IOException("Cannot rename `" + temp.getAbsolutePath() + "` to `" + target.getAbsolutePath() + "`.");
+				}
+			}
+			if(!file.delete()) {
+				InLogger.WARN("Cannot delete the compressed log file `" + file.getAbsolutePath() + "`.", null);
+			}
+			return true;
+		} catch (IOException e) {
+			InLogger.WARN("Cannot compress the log file `" + file.getAbsolutePath() + "`.", e);
+			closeQuietly(in);
+			closeQuietly(out);
+			//noinspection ResultOfMethodCallIgnored
+			temp.delete();
+			return false;
+		} finally {
+			if(deflater != null) {
+				deflater.end();
+			}
+		}
+	}
+
+	/**
+	 * file 을 압축한 파일이 하나라도 있는지 확인한다.
+	 */
+	static boolean hasCompressedFile(File file) {
+		Compression[] compressions = Compression.values();
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < compressions.length; ++i) {
+			if(compressions[i].getExtension() != null && compressedFileOf(file, compressions[i]).exists()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * file 을 압축한 파일과 압축하다 남은 임시 파일을 삭제한다.
+	 * @return 압축한 파일이 하나라도 있었다면 true
+	 */
+	@SuppressWarnings("ResultOfMethodCallIgnored")
+	static boolean deleteCompressedFiles(File file) {
+		boolean exists = false;
+		Compression[] compressions = Compression.values();
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < compressions.length; ++i) {
+			if(compressions[i].getExtension() == null) {
+				continue;
+			}
+			File compressed = compressedFileOf(file, compressions[i]);
+			if(compressed.exists()) {
+				exists = true;
+				compressed.delete();
+			}
+			File temp = new File(compressed.getPath() + TEMP_EXTENSION);
+			if(temp.exists()) {
+				temp.delete();
+			}
+		}
+		return exists;
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if(closeable == null) {
+			return;
+		}
+		try {
+			closeable.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+}
@@ -48,16 +48,24 @@ public class FileNamePattern {
 	
 	
 	public File toFileOverMaxSize(String marker, int maxSize) throws IOException {
+		return toFileOverMaxSize(marker, maxSize, CurrentTimeMillisGetter.currentTimeMillis(), null);
+	}
+
+	/**
+	 * timestamp 시점에 쓸 파일을 찾는다. 최대 크기에 도달한 파일과 exclude 파일은 건너뛴다.
+	 * 파일 번호가 있다면 교체된 뒤 압축된 파일의 번호도 건너뛴다.
+	 * @param exclude 건너뛸 파일. 지금 쓰고 있는 파일의 다음 파일을 찾을 때 사용한다. null 이면 사용하지 않는다.
+	 */
+	File toFileOverMaxSize(String marker, int maxSize, long timestamp, File exclude) throws IOException {
 		long pid = SysTool.pid();
 		String hostName = SysTool.hostname();
-		long currentTime = CurrentTimeMillisGetter.currentTimeMillis();
 		File file;
 		long maxSizeOfByte = (long)maxSize * 1024L * 1024L;
 		int number = 0;
 		do {
-			file = toFile(pid, hostName, marker, currentTime, number);
+			file = toFile(pid, hostName, marker, timestamp, number);
 			++number;
-		} while(file.isDirectory() || (file.exists() && file.length() >= maxSizeOfByte));
+		} while(file.isDirectory() || (file.exists() && file.length() >= maxSizeOfByte) || (numberInPattern && (file.equals(exclude) || FileCompressor.hasCompressedFile(file))));
 		return file;
 	}
 	
@@ -70,7 +78,10 @@ public class FileNamePattern {
 					stringBuilder.append(item.text.replace('/', File.separatorChar));
 					break;
 				case Date:
-					stringBuilder.append(item.dateFormat.format(new Date(timestamp)));
+					// housekeeper 스레드와 WriteWorker 가 같은 패턴을 함께 사용한다.
+					synchronized (item.dateFormat) {
+						stringBuilder.append(item.dateFormat.format(new Date(timestamp)));
+					}
 					break;
 				case Marker:
 					stringBuilder.append(marker);
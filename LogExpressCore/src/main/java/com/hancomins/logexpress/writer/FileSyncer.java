@@ -0,0 +1,82 @@
+package com.hancomins.logexpress.writer;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 로그를 기록하는 스레드 대신 fsync 를 수행하는 데몬 스레드.<br>
+ * fsync 는 디스크에 따라 수십 ms 가 걸릴 수 있으므로, 기록하는 스레드는 요청만 하고 바로 돌아간다.<br>
+ * 주기적으로 fsync 해야 하는 FileWriter 는 등록해 두면 이 스레드가 주기에 맞추어 fsync 한다.
+ */
+final class FileSyncer extends Thread {
+
+	/**
+	 * 주기적으로 fsync 할 FileWriter 가 없을 때 요청을 기다리는 최대 시간.
+	 */
+	private static final long IDLE_WAIT_MILLIS = 1000;
+
+	private static FileSyncer instance = null;
+
+	private final LinkedBlockingQueue<FileWriter> requests = new LinkedBlockingQueue<FileWriter>();
+	private final CopyOnWriteArrayList<FileWriter> intervalWriters = new CopyOnWriteArrayList<FileWriter>();
+
+
+	private FileSyncer() {
+		setName("LogExpressFileSyncer");
+		setDaemon(true);
+	}
+
+	static synchronized FileSyncer getInstance() {
+		if(instance == null) {
+			instance = new FileSyncer();
+			instance.start();
+		}
+		return instance;
+	}
+
+	/**
+	 * FileWriter 를 가능한 빨리 fsync 하도록 요청한다.
+	 */
+	void request(FileWriter fileWriter) {
+		requests.offer(fileWriter);
+	}
+
+	/**
+	 * FileWriter 를 주기적으로 fsync 하도록 등록한다.
+	 */
+	void register(FileWriter fileWriter) {
+		intervalWriters.addIfAbsent(fileWriter);
+		requests.offer(fileWriter);
+	}
+
+	void unregister(FileWriter fileWriter) {
+		intervalWriters.remove(fileWriter);
+	}
+
+	@Override
+	public void run() {
+		//noinspection InfiniteLoopStatement
+		for(;;) {
+			long now = System.currentTimeMillis();
+			long waitMillis = IDLE_WAIT_MILLIS;
+			for(FileWriter fileWriter : intervalWriters) {
+				long remain = fileWriter.getNextSyncTime() - now;
+				if(remain <= 0) {
+					fileWriter.sync();
+					remain = fileWriter.getNextSyncTime() - now;
+				}
+				waitMillis = Math.max(1, Math.min(waitMillis, remain));
+			}
+			try {
+				FileWriter fileWriter = requests.poll(waitMillis, TimeUnit.MILLISECONDS);
+				while(fileWriter != null) {
+					fileWriter.sync();
+					fileWriter = requests.poll();
+				}
+			} catch (InterruptedException ignored) {
+			}
+		}
+	}
+
+}
@@ -1,11 +1,19 @@
 package com.hancomins.logexpress.writer;
 
+import com.hancomins.logexpress.BinaryLineEncoder;
+import com.hancomins.logexpress.InLogger;
+import com.hancomins.logexpress.Line;
+import com.hancomins.logexpress.configuration.FileMode;
+
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -19,6 +27,16 @@ public class FileWriter {
 	 */
 	private static final int MIN_BUFFER_SIZE = 32;
 
+	/**
+	 * group commit 한 번에 기록하는 최대 라인 수.
+	 */
+	public static final int MAX_GROUP_COMMIT_SIZE = 1024;
+
+	/**
+	 * group commit 을 위해 모아 둘 수 있는 최대 byte 수. 이만큼 모이면 라인 수와 관계없이 기록한다.
+	 */
+	private static final int MAX_GROUP_COMMIT_BYTES = 1024 * 1024;
+
 	/**
 	 * 최대 파일 크기
 	 */
@@ -49,6 +67,31 @@ public class FileWriter {
 	 */
 	private FileOutputStream outputStream;
 
+	/**
+	 * 파일을 미리 늘려 둘 때 outputStream 대신 사용한다. 파일 끝이 아닌 실제 기록한 위치에 이어 써야 하기 때문이다.
+	 */
+	private RandomAccessFile randomAccessFile;
+
+	/**
+	 * 파일을 열 때 최대 파일 크기로 미리 늘리고 닫을 때 실제 길이로 줄일지 여부
+	 */
+	private final boolean preallocate;
+
+	/**
+	 * 미리 늘려 둔 파일의 끝 위치. 끝에 WrittenLengthMarker 가 있다. 늘려 둔 영역을 다 쓰면 0 이 된다.
+	 */
+	private long preallocatedEnd;
+
+	/**
+	 * 표시에 마지막으로 적은 기록한 길이
+	 */
+	private long markedLength;
+
+	/**
+	 * 이 FileWriter 가 파일을 새로 만들었는지 여부
+	 */
+	private final boolean created;
+
 	/**
 	 * 파일 채널
 	 */
@@ -59,11 +102,127 @@ public class FileWriter {
 	 */
 	private Buffer buffer;
 
+	/**
+	 * FileMode.Mmap 으로 열었을 때 파일을 매핑하여 기록하는 객체. 이때 outputStream, channel, buffer 는 사용하지 않는다.
+	 */
+	private volatile MappedFileAppender mappedFile;
+
+	/**
+	 * FileMode.Async 로 열었을 때 여러 버퍼로 비동기 기록하는 객체. 이때 outputStream, channel, buffer 는 사용하지 않는다.
+	 */
+	private AsyncFileAppender asyncFile;
+
+	/**
+	 * FileMode.Block 으로 열었을 때 라인을 블록으로 모아 압축하여 기록하는 객체. 이때 outputStream, channel, buffer 는 사용하지 않는다.
+	 */
+	private BlockFileAppender blockFile;
+
+	/**
+	 * WriterType.Binary 로 기록할 때 사용하는 인코더. 레코드가 참조하는 사전을 파일마다 다시 기록하도록 파일을 새로 열 때마다 새로 만든다.
+	 */
+	private BinaryLineEncoder binaryEncoder;
+
+	/**
+	 * 지금 기록하는 라인의 시간. 0 이면 현재 시간을 사용한다. FileMode.Block 에서 블록의 시간 범위에 사용한다.
+	 */
+	private long lineTime;
+
 	/**
 	 * 참조 카운터
 	 */
 	private int refCount;
 
+	/**
+	 * group commit 을 위해 라인을 모아 두는 버퍼들. 첫 번째는 buffer 이며, 필요할 때 할당한 뒤 재사용한다.<br>
+	 * null 이면 group commit 을 사용하지 않는다.
+	 */
+	private ByteBuffer[] chunks;
+
+	/**
+	 * 할당된 chunk 의 수
+	 */
+	private int chunkCount;
+
+	/**
+	 * 지금 채우고 있는 chunk 의 번호
+	 */
+	private int chunkIndex;
+
+	/**
+	 * 한 번에 기록할 최대 라인 수
+	 */
+	private int groupCommitSize;
+
+	/**
+	 * 모아 둔 라인의 수
+	 */
+	private int pendingCount;
+
+	/**
+	 * 첫 라인을 모아 둔 시간
+	 */
+	private long pendingSince;
+
+	/**
+	 * 라인을 모아 둘 수 있는 최대 시간 (밀리초 단위)
+	 */
+	private long groupCommitLatency;
+
+	/**
+	 * 플러시 주기 (밀리초 단위). 0 이면 사용하지 않는다.
+	 */
+	private long flushInterval;
+
+	/**
+	 * 마지막 플러시 이후 이만큼 기록하면 플러시한다 (byte 단위). 0 이면 사용하지 않는다.
+	 */
+	private int flushSize;
+
+	/**
+	 * WriteWorker 가 배치 하나를 기록할 때마다 플러시할지 여부
+	 */
+	private boolean flushPerBatch;
+
+	/**
+	 * 마지막 플러시 이후 기록한 byte 수
+	 */
+	private long unflushedBytes;
+
+	/**
+	 * 마지막 플러시 이후 처음 기록한 시간
+	 */
+	private long unflushedSince;
+
+	/**
+	 * 파일을 닫을 때 fsync 할지 여부
+	 */
+	private boolean syncOnClose;
+
+	/**
+	 * fsync 주기 (밀리초 단위). 0 이면 주기적으로 fsync 하지 않는다.
+	 */
+	private volatile long syncInterval;
+
+	/**
+	 * 마지막으로 fsync 한 시간. FileSyncer 스레드가 갱신한다.
+	 */
+	private volatile long lastSyncTime = System.currentTimeMillis();
+
+	/**
+	 * 마지막 fsync 이후 파일에 기록한 데이터가 있는지 여부
+	 */
+	private volatile boolean syncDirty;
+
+	/**
+	 * FileSyncer 에 fsync 를 요청해 두었는지 여부
+	 */
+	private final AtomicBoolean syncRequested = new AtomicBoolean(false);
+
+	/**
+	 * FileSyncer 스레드가 fsync 할 채널. 파일이 닫히면 null 이다.
+	 */
+	private volatile FileChannel syncChannel;
+
 	/**
 	 * 열려 있는 파일 수
 	 */
@@ -78,12 +237,54 @@ public class FileWriter {
 	 * @throws IOException 입출력 예외 발생 시
 	 */
 	FileWriter(File file, int bufferSize, int maxSize) throws IOException {
+		this(file, bufferSize, maxSize, FileMode.Stream);
+	}
+
+	/**
+	 * 지정된 파일, 버퍼 크기, 최대 파일 크기 및 기록 방식으로 FileWriter를 생성합니다.
+	 * FileMode.Mmap 이면 버퍼를 사용하지 않고 파일을 매핑하여 기록합니다.
+	 * FileMode.Async 이면 여러 버퍼를 번갈아 채우며 별도의 스레드에서 기록합니다.
+	 * FileMode.Block 이면 라인을 블록으로 모아 블록마다 압축하여 기록합니다.
+	 *
+	 * @param file 파일 객체
+	 * @param bufferSize 버퍼 크기
+	 * @param maxSize 최대 파일 크기 (메가바이트 단위)
+	 * @param fileMode 기록 방식
+	 * @throws IOException 입출력 예외 발생 시
+	 */
+	FileWriter(File file, int bufferSize, int maxSize, FileMode fileMode) throws IOException {
+		this(file, bufferSize, maxSize, fileMode, false);
+	}
+
+	/**
+	 * 지정된 파일, 버퍼 크기, 최대 파일 크기 및 기록 방식으로 FileWriter를 생성합니다.
+	 * preallocate 가 true 이고 최대 파일 크기가 있다면 파일을 최대 파일 크기로 미리 늘려 두고, 닫을 때 실제 기록한 길이로 줄입니다.
+	 * FileMode.Block 은 블록을 이어 붙이며 파일 끝에 색인을 두므로 미리 늘리지 않습니다.
+	 *
+	 * @param file 파일 객체
+	 * @param bufferSize 버퍼 크기
+	 * @param maxSize 최대 파일 크기 (메가바이트 단위)
+	 * @param fileMode 기록 방식
+	 * @param preallocate 파일을 미리 늘려 둘지 여부
+	 * @throws IOException 입출력 예외 발생 시
+	 */
+	FileWriter(File file, int bufferSize, int maxSize, FileMode fileMode, boolean preallocate) throws IOException {
 		if (bufferSize < MIN_BUFFER_SIZE) bufferSize = MIN_BUFFER_SIZE;
 		this.file = file;
 		this.bufferSize = bufferSize;
-		buffer = ByteBuffer.allocateDirect(bufferSize);
 		maxFileSize = (long) maxSize * 1024 * 1024;
-		initStream(file);
+		this.preallocate = preallocate && maxFileSize > 0 && fileMode != FileMode.Block;
+		this.created = !file.exists();
+		if (fileMode == FileMode.Mmap) {
+			initMappedFile(file);
+		} else if (fileMode == FileMode.Async) {
+			initAsyncFile(file);
+		} else if (fileMode == FileMode.Block) {
+			initBlockFile(file);
+		} else {
+			buffer = ByteBuffer.allocateDirect(bufferSize);
+			initStream(file);
+		}
 		refCount = 1;
 	}
 
@@ -100,6 +301,13 @@ public class FileWriter {
 		return this;
 	}
 
+	/**
+	 * 여러 rack 이 이 FileWriter 를 함께 쓰고 있는지 확인합니다.
+	 */
+	boolean isShared() {
+		return refCount > 1;
+	}
+
 	/**
 	 * 열려 있는 FileWriter 인스턴스의 수를 반환합니다.
 	 *
@@ -118,17 +326,196 @@ public class FileWriter {
 		return file;
 	}
 
+	/**
+	 * group commit 을 설정합니다.<br>
+	 * 설정하면 버퍼가 가득 차도 바로 기록하지 않고 다음 버퍼에 이어서 모아 두었다가, size 개의 라인이 모이거나 첫 라인을 받은 지
+	 * latencyMillis 가 지나거나 flush() 가 호출될 때 모아 둔 버퍼들을 한 번의 gathering write 로 기록합니다.
+	 *
+	 * @param size 한 번에 기록할 최대 라인 수. 1 이하이면 사용하지 않습니다.
+	 * @param latencyMillis 라인을 모아 둘 수 있는 최대 시간 (밀리초 단위)
+	 */
+	void setGroupCommit(int size, int latencyMillis) throws IOException {
+		// 매핑한 파일은 write 시스템 콜을 호출하지 않으므로 모아 둘 필요가 없다.
+		if (isClosed() || mappedFile != null || asyncFile != null || blockFile != null) return;
+		flush();
+		if (size <= 1) {
+			chunks = null;
+			chunkCount = 0;
+			return;
+		}
+		groupCommitSize = Math.min(size, MAX_GROUP_COMMIT_SIZE);
+		groupCommitLatency = Math.max(0, latencyMillis);
+		if (chunks == null) {
+			chunks = new ByteBuffer[Math.max(1, MAX_GROUP_COMMIT_BYTES / bufferSize)];
+			chunks[0] = (ByteBuffer) buffer;
+			chunkCount = 1;
+		}
+	}
+
+	/**
+	 * 플러시와 fsync 정책을 설정합니다.<br>
+	 * 여러 writer 가 같은 파일을 쓴다면 정책을 합쳐 더 자주 기록하는 쪽을 따릅니다.
+	 *
+	 * @param flushInterval 플러시 주기 (밀리초 단위). 0 이하이면 사용하지 않습니다.
+	 * @param flushSize 이만큼 기록하면 플러시합니다 (byte 단위). 0 이하이면 사용하지 않습니다.
+	 * @param flushPerBatch 배치마다 플러시할지 여부
+	 * @param syncOnClose 파일을 닫을 때 fsync 할지 여부
+	 * @param syncInterval fsync 주기 (밀리초 단위). 0 이하이면 주기적으로 fsync 하지 않습니다.
+	 */
+	void setDurability(int flushInterval, int flushSize, boolean flushPerBatch, boolean syncOnClose, int syncInterval) {
+		if (isClosed()) return;
+		this.flushInterval = minPositive(this.flushInterval, flushInterval);
+		this.flushSize = (int) minPositive(this.flushSize, flushSize);
+		this.flushPerBatch |= flushPerBatch;
+		this.syncOnClose |= syncOnClose;
+		long newSyncInterval = minPositive(this.syncInterval, syncInterval);
+		if (newSyncInterval > 0 && newSyncInterval != this.syncInterval) {
+			this.syncInterval = newSyncInterval;
+			FileSyncer.getInstance().register(this);
+		}
+	}
+
+	private static long minPositive(long a, long b) {
+		if (a <= 0) return Math.max(0, b);
+		if (b <= 0) return a;
+		return Math.min(a, b);
+	}
+
 	/**
 	 * 지정된 데이터를 파일에 씁니다.
 	 *
 	 * @param data 쓸 데이터
 	 */
 	public void write(byte[] data) throws IOException {
+		write(data, 0, data.length);
+	}
+
+	/**
+	 * 지정된 데이터의 일부를 파일에 씁니다.
+	 *
+	 * @param data 쓸 데이터
+	 * @param offset 쓸 데이터의 시작 위치
+	 * @param length 쓸 데이터의 길이
+	 */
+	public void write(byte[] data, int offset, int length) throws IOException {
 		if (isClosed()) return;
-		int leftLen = data.length;
-		int dataPos = 0;
+		if (mappedFile != null) {
+			mappedFile.write(data, offset, length);
+			currentFileSize += length;
+			syncDirty = true;
+			return;
+		}
+		if (unflushedBytes == 0 && flushInterval > 0) {
+			unflushedSince = System.currentTimeMillis();
+		}
+		unflushedBytes += length;
+		if (asyncFile != null) {
+			// 파일 위치는 버퍼를 넘길 때 정해지므로 기록이 끝나기 전에도 파일 크기에 반영한다.
+			// syncDirty 는 I/O 스레드가 버퍼를 파일에 기록한 뒤에 설정한다.
+			currentFileSize += length;
+			asyncFile.write(data, offset, length);
+		} else if (blockFile != null) {
+			// 블록을 기록할 때만 파일이 커지므로 압축한 크기를 파일 크기에 반영한다.
+			long before = blockFile.length();
+			blockFile.write(data, offset, length, lineTime > 0 ? lineTime : CurrentTimeMillisGetter.currentTimeMillis());
+			long written = blockFile.length() - before;
+			if (written > 0) {
+				currentFileSize += written;
+				syncDirty = true;
+			}
+		} else if (chunks != null) {
+			append(data, offset, length);
+		} else {
+			writeBuffer(data, offset, length);
+		}
+		if (flushSize > 0 && unflushedBytes >= flushSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * 문자열을 encoder 로 인코딩하여 파일에 씁니다. 중간에 String 이나 byte[] 를 만들지 않습니다.
+	 *
+	 * @param text 쓸 문자열
+	 * @param encoder 인코딩에 사용할 encoder. 쓰는 스레드만 사용해야 합니다.
+	 */
+	void write(CharSequence text, LineEncoder encoder) throws IOException {
+		if (isClosed()) return;
+		int length = encoder.encode(text);
+		write(encoder.array(), 0, length);
+	}
+
+	/**
+	 * 문자열을 encoder 로 인코딩하여 파일에 씁니다. FileMode.Block 이면 time 을 라인이 속한 블록의 시간 범위에 반영합니다.
+	 *
+	 * @param text 쓸 문자열
+	 * @param encoder 인코딩에 사용할 encoder. 쓰는 스레드만 사용해야 합니다.
+	 * @param time 라인의 시간 (밀리초)
+	 */
+	void write(CharSequence text, LineEncoder encoder, long time) throws IOException {
+		lineTime = time;
+		try {
+			write(text, encoder);
+		} finally {
+			lineTime = 0;
+		}
+	}
+
+	/**
+	 * 라인을 포맷하지 않고 바이너리 레코드로 파일에 씁니다. (WriterType.Binary)
+	 *
+	 * @param line 쓸 라인
+	 * @param time 라인의 시간 (밀리초)
+	 */
+	void write(Line line, long time) throws IOException {
+		if (isClosed()) return;
+		BinaryLineEncoder encoder = binaryEncoder();
+		int length = encoder.encode(line);
+		write(encoder.array(), length, time);
+	}
+
+	/**
+	 * 라인이 아닌 텍스트를 바이너리 레코드로 파일에 씁니다. (WriterType.Binary)
+	 *
+	 * @param text 쓸 텍스트
+	 * @param time 텍스트의 시간 (밀리초)
+	 */
+	void writeText(CharSequence text, long time) throws IOException {
+		if (isClosed()) return;
+		BinaryLineEncoder encoder = binaryEncoder();
+		int length = encoder.encodeText(time, text);
+		write(encoder.array(), length, time);
+	}
+
+	private BinaryLineEncoder binaryEncoder() {
+		if (binaryEncoder == null) {
+			binaryEncoder = new BinaryLineEncoder();
+		}
+		return binaryEncoder;
+	}
+
+	/**
+	 * 이미 인코딩한 라인이나 레코드를 파일에 씁니다. FileMode.Block 이면 time 을 라인이 속한 블록의 시간 범위에 반영합니다.
+	 *
+	 * @param data 쓸 데이터
+	 * @param length data 의 앞에서부터 쓸 길이
+	 * @param time 라인의 시간 (밀리초)
+	 */
+	void write(byte[] data, int length, long time) throws IOException {
+		if (isClosed()) return;
+		lineTime = time;
+		try {
+			write(data, 0, length);
+		} finally {
+			lineTime = 0;
+		}
+	}
+
+	private void writeBuffer(byte[] data, int offset, int length) throws IOException {
+		int leftLen = length;
+		int dataPos = offset;
 		int bufferPos = buffer.position();
-		int readLen = Math.min(bufferSize - bufferPos, data.length);
+		int readLen = Math.min(bufferSize - bufferPos, length);
 
 		do {
 			((ByteBuffer) buffer).put(data, dataPos, readLen);
@@ -144,6 +531,125 @@ public class FileWriter {
 		} while (leftLen > 0);
 	}
 
+	/**
+	 * 데이터를 chunk 에 이어서 모아 둡니다. 모든 chunk 가 가득 차면 기록합니다.<br>
+	 * 파일 크기는 바로 반영하여 파일 교체 시점이 늦어지지 않도록 합니다.
+	 */
+	private void append(byte[] data, int offset, int length) throws IOException {
+		if (pendingCount == 0) {
+			pendingSince = System.currentTimeMillis();
+		}
+		currentFileSize += length;
+		int dataPos = offset;
+		int leftLen = length;
+		while (leftLen > 0) {
+			ByteBuffer chunk = chunks[chunkIndex];
+			int readLen = Math.min(chunk.remaining(), leftLen);
+			chunk.put(data, dataPos, readLen);
+			dataPos += readLen;
+			leftLen -= readLen;
+			if (!chunk.hasRemaining()) {
+				if (chunkIndex + 1 == chunks.length) {
+					commit();
+				} else if (++chunkIndex == chunkCount) {
+					chunks[chunkCount++] = ByteBuffer.allocateDirect(bufferSize);
+				}
+			}
+		}
+		if (++pendingCount >= groupCommitSize || System.currentTimeMillis() - pendingSince >= groupCommitLatency) {
+			commit();
+		}
+	}
+
+	/**
+	 * WriteWorker 가 배치 하나를 기록한 뒤 호출합니다. 배치마다 플러시하거나 플러시 주기가 지났다면 플러시합니다.
+	 *
+	 * @param now 현재 시간
+	 */
+	void onBatchEnd(long now) throws IOException {
+		if (unflushedBytes > 0 && (flushPerBatch || (flushInterval > 0 && now - unflushedSince >= flushInterval))) {
+			flush();
+		}
+	}
+
+	/**
+	 * FileSyncer 스레드에 fsync 를 요청합니다. 기록하는 스레드는 fsync 가 끝날 때까지 기다리지 않습니다.<br>
+	 * 비동기 파일이라면 I/O 스레드에 넘긴 버퍼가 모두 파일에 기록될 때까지 기다린 뒤 요청합니다.
+	 * 기록 중인 버퍼가 남아 있으면 fsync 가 먼저 끝나 요청한 라인이 디스크에 남지 않을 수 있습니다.
+	 */
+	void requestSync() throws IOException {
+		if (asyncFile != null) {
+			asyncFile.drain();
+		}
+		if (syncDirty && !syncRequested.getAndSet(true)) {
+			FileSyncer.getInstance().request(this);
+		}
+	}
+
+	/**
+	 * 다음에 주기적으로 fsync 할 시간을 반환합니다.
+	 */
+	long getNextSyncTime() {
+		return lastSyncTime + syncInterval;
+	}
+
+	/**
+	 * 파일에 기록된 데이터를 디스크에 강제로 기록합니다. FileSyncer 스레드에서 호출됩니다.
+	 */
+	void sync() {
+		syncRequested.set(false);
+		lastSyncTime = System.currentTimeMillis();
+		if (!syncDirty) return;
+		syncDirty = false;
+		MappedFileAppender mappedFile = this.mappedFile;
+		FileChannel channel = syncChannel;
+		if (channel == null && mappedFile == null) return;
+		try {
+			if (mappedFile != null) {
+				mappedFile.force();
+			} else {
+				channel.force(false);
+			}
+		} catch (ClosedChannelException ignored) {
+			// 파일이 교체되었다. 닫을 때 fsync 한다.
+		} catch (IOException e) {
+			InLogger.WARN("Cannot fsync the file `" + file.getAbsolutePath() + "`.", e);
+		}
+	}
+
+	/**
+	 * 모아 둔 chunk 들을 한 번의 gathering write 로 기록합니다.
+	 */
+	private void commit() throws IOException {
+		int count = chunks[chunkIndex].position() > 0 ? chunkIndex + 1 : chunkIndex;
+		pendingCount = 0;
+		if (count == 0) return;
+		long remain = 0;
+		for (int i = 0; i < count; ++i) {
+			chunks[i].flip();
+			remain += chunks[i].remaining();
+		}
+		try {
+			beforeWrite(remain);
+			int offset = 0;
+			while (remain > 0) {
+				remain -= channel.write(chunks, offset, count - offset);
+				while (offset < count && !chunks[offset].hasRemaining()) {
+					++offset;
+				}
+			}
+			// 기록을 마친 뒤에 설정해야 FileSyncer 가 기록 전에 fsync 하고 지워 버리지 않는다.
+			syncDirty = true;
+		} catch (IOException e) {
+			throw new IOException("Failed to write data to file: " + file.getAbsolutePath(), e);
+		} finally {
+			for (int i = 0; i < count; ++i) {
+				chunks[i].clear();
+			}
+			chunkIndex = 0;
+		}
+	}
+
 	/**
 	 * 파일 크기가 최대 파일 크기를 초과하는지 확인합니다.
 	 *
@@ -161,11 +667,45 @@ public class FileWriter {
 		end();
 	}
 
+	/**
+	 * 사용하지 않은 FileWriter를 닫습니다. 이 FileWriter가 새로 만든 파일에 아무것도 기록하지 않았다면 파일을 삭제합니다.
+	 */
+	void discard() {
+		boolean empty = currentFileSize == 0;
+		close();
+		if (created && empty) {
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+		}
+	}
+
 	/**
 	 * 버퍼를 플러시하고 남은 데이터를 파일에 씁니다.
 	 */
 	public void flush() throws IOException {
 		if (isClosed()) return;
+		unflushedBytes = 0;
+		// 매핑한 파일에 복사한 내용은 이미 운영체제의 페이지 캐시에 있다.
+		if (mappedFile != null) return;
+		if (asyncFile != null) {
+			asyncFile.flush();
+			return;
+		}
+		if (blockFile != null) {
+			// 모은 라인을 블록으로 만들어 기록한다.
+			long before = blockFile.length();
+			blockFile.flush();
+			long written = blockFile.length() - before;
+			if (written > 0) {
+				currentFileSize += written;
+				syncDirty = true;
+			}
+			return;
+		}
+		if (chunks != null) {
+			commit();
+			return;
+		}
 		if (buffer.position() > 0) {
 			buffer.flip();
 			writeFile(channel, (ByteBuffer) buffer);
@@ -183,17 +723,52 @@ public class FileWriter {
 		if (isClosed()) return;
 
 		if (!file.exists()) {
+			// 새로 만든 파일에는 사전을 다시 기록한다.
+			binaryEncoder = null;
 			try {
+				if (mappedFile != null) {
+					// 지워진 파일에 매핑하여 기록한 내용은 되살릴 수 없다.
+					try {
+						mappedFile.close(false);
+					} catch (Exception ignored) {
+					}
+					OPEN_FILE_COUNT.decrementAndGet();
+					initMappedFile(file);
+					currentFileSize = 0;
+					return;
+				}
+				if (asyncFile != null) {
+					try {
+						asyncFile.close(false);
+					} catch (Exception ignored) {
+					}
+					OPEN_FILE_COUNT.decrementAndGet();
+					initAsyncFile(file);
+					currentFileSize = 0;
+					return;
+				}
+				if (blockFile != null) {
+					// 모으고 있던 라인은 버린다.
+					try {
+						blockFile.close(false);
+					} catch (Exception ignored) {
+					}
+					OPEN_FILE_COUNT.decrementAndGet();
+					initBlockFile(file);
+					currentFileSize = 0;
+					return;
+				}
 				try {
 					channel.close();
 					OPEN_FILE_COUNT.decrementAndGet();
-					outputStream.close();
+					if (outputStream != null) outputStream.close();
+					if (randomAccessFile != null) randomAccessFile.close();
 				} catch (Exception ignored) {
 				}
 				file.createNewFile();
 				initStream(file);
+				// 아직 기록되지 않은 버퍼의 내용은 새로 만든 파일에 이어서 기록된다.
 				currentFileSize = 0;
-				buffer.flip();
 			} catch (IOException e) {
 				throw new IOException("Failed to ensure file exists and reinitialize stream for file: " + file.getAbsolutePath(), e);
 			}
@@ -252,8 +827,53 @@ public class FileWriter {
 	}
 
 	private void initStream(File file) throws IOException {
-		outputStream = new FileOutputStream(file, true);
-		channel = outputStream.getChannel();
+		if (preallocate) {
+			randomAccessFile = new RandomAccessFile(file, "rw");
+			channel = randomAccessFile.getChannel();
+			try {
+				long length = WrittenLengthMarker.recover(channel);
+				channel.position(length);
+				preallocatedEnd = 0;
+				if (maxFileSize > length + WrittenLengthMarker.SIZE) {
+					WrittenLengthMarker.mark(channel, maxFileSize, length);
+					preallocatedEnd = maxFileSize;
+					markedLength = length;
+				}
+			} catch (IOException e) {
+				try {
+					randomAccessFile.close();
+				} catch (Exception ignored) {}
+				throw e;
+			}
+		} else {
+			// 미리 늘려 둔 채로 종료된 파일이라면 기록한 길이로 줄인 뒤 이어 쓴다.
+			WrittenLengthMarker.recover(file);
+			outputStream = new FileOutputStream(file, true);
+			channel = outputStream.getChannel();
+		}
+		syncChannel = channel;
+		OPEN_FILE_COUNT.incrementAndGet();
+	}
+
+	private void initMappedFile(File file) throws IOException {
+		mappedFile = new MappedFileAppender(file, preallocate ? maxFileSize : 0);
+		OPEN_FILE_COUNT.incrementAndGet();
+	}
+
+	private void initAsyncFile(File file) throws IOException {
+		asyncFile = new AsyncFileAppender(file, bufferSize, preallocate ? maxFileSize : 0, new Runnable() {
+			@Override
+			public void run() {
+				syncDirty = true;
+			}
+		});
+		syncChannel = asyncFile.channel();
+		OPEN_FILE_COUNT.incrementAndGet();
+	}
+
+	private void initBlockFile(File file) throws IOException {
+		blockFile = new BlockFileAppender(file);
+		syncChannel = blockFile.channel();
 		OPEN_FILE_COUNT.incrementAndGet();
 	}
 
@@ -263,15 +883,35 @@ public class FileWriter {
 
 		try {
 			currentFileSize += buffer.limit();
+			beforeWrite(buffer.remaining());
 			while (buffer.hasRemaining()) {
 				fileChannel.write(buffer);
 			}
+			// 기록을 마친 뒤에 설정해야 FileSyncer 가 기록 전에 fsync 하고 지워 버리지 않는다.
+			syncDirty = true;
 		} catch (IOException e) {
 			throw new IOException("Failed to write data to file: " + file.getAbsolutePath(), e);
 		}
 
 	}
 
+	/**
+	 * 미리 늘려 둔 파일에 length 만큼 기록하기 전에 호출합니다.<br>
+	 * 늘려 둔 영역을 넘어선다면 파일을 기록한 길이로 줄이고 더 이상 미리 늘리지 않습니다.
+	 * 그렇지 않다면 가끔 표시에 기록한 길이를 갱신하여, 닫지 못하고 종료되었을 때 길이를 찾는 범위를 줄입니다.
+	 */
+	private void beforeWrite(long length) throws IOException {
+		if (preallocatedEnd == 0) return;
+		long position = channel.position();
+		if (position + length > preallocatedEnd - WrittenLengthMarker.SIZE) {
+			channel.truncate(position);
+			preallocatedEnd = 0;
+		} else if (position - markedLength >= WrittenLengthMarker.UPDATE_INTERVAL) {
+			WrittenLengthMarker.mark(channel, preallocatedEnd, position);
+			markedLength = position;
+		}
+	}
+
 	/**
 	 * FileWriter를 종료합니다.
 	 * 만약 참조 카운터가 1보다 크면 참조 카운터만 감소시킵니다.
@@ -293,14 +933,69 @@ public class FileWriter {
 		}
 		closed = true;
 		buffer = null;
+		chunks = null;
+		syncChannel = null;
+		if (syncInterval > 0) {
+			FileSyncer.getInstance().unregister(this);
+		}
+		if (mappedFile != null) {
+			// 매핑을 해제하고 파일을 실제 기록한 길이로 줄인다.
+			try {
+				mappedFile.close(syncOnClose);
+			} catch (IOException e) {
+				InLogger.WARN("Cannot close the mapped file `" + file.getAbsolutePath() + "`.", e);
+			}
+			mappedFile = null;
+			OPEN_FILE_COUNT.decrementAndGet();
+			return;
+		}
+		if (asyncFile != null) {
+			// 기록 중인 버퍼가 모두 끝날 때까지 기다린 뒤 닫는다.
+			try {
+				asyncFile.close(syncOnClose);
+			} catch (IOException e) {
+				InLogger.WARN("Cannot close the file `" + file.getAbsolutePath() + "`.", e);
+			}
+			asyncFile = null;
+			OPEN_FILE_COUNT.decrementAndGet();
+			return;
+		}
+		if (blockFile != null) {
+			// 남은 라인을 블록으로 기록하고 색인을 붙인 뒤 닫는다.
+			try {
+				blockFile.close(syncOnClose);
+			} catch (IOException e) {
+				InLogger.WARN("Cannot close the file `" + file.getAbsolutePath() + "`.", e);
+			}
+			blockFile = null;
+			OPEN_FILE_COUNT.decrementAndGet();
+			return;
+		}
+		if (preallocate) {
+			// 미리 늘려 둔 파일을 실제 기록한 길이로 줄인다.
+			try {
+				channel.truncate(channel.position());
+			} catch (IOException e) {
+				InLogger.WARN("Cannot trim the preallocated file `" + file.getAbsolutePath() + "`.", e);
+			}
+		}
+		if (syncOnClose) {
+			try {
+				channel.force(false);
+			} catch (IOException e) {
+				InLogger.WARN("Cannot fsync the file `" + file.getAbsolutePath() + "`.", e);
+			}
+		}
 		try {
 			channel.close();
 		} catch (Exception ignored) {}
 		try {
-			outputStream.close();
+			if (outputStream != null) outputStream.close();
+			if (randomAccessFile != null) randomAccessFile.close();
 		} catch (Exception ignored) {}
 		channel = null;
 		outputStream = null;
+		randomAccessFile = null;
 		OPEN_FILE_COUNT.decrementAndGet();
 	}
-}
\ No newline at end of file
+}
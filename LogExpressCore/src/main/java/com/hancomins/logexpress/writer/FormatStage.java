@@ -0,0 +1,100 @@
+package com.hancomins.logexpress.writer;
+
+import com.hancomins.logexpress.InLogger;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 배치 하나를 여러 구간으로 나누어 formatter 스레드들이 동시에 포맷하고 인코딩하도록 하는 단계.<br>
+ * 배치를 넘긴 스레드도 첫 구간을 렌더링하며, 모든 구간이 끝날 때까지 기다린 뒤 돌아온다.
+ * 기록은 호출한 스레드가 배치의 순서대로 하므로 파일에는 여전히 한 스레드만 쓴다.<br>
+ * 여러 WriteWorker shard 가 하나의 FormatStage 를 함께 사용할 수 있다.
+ */
+final class FormatStage {
+
+	private static final AtomicInteger TR_NUMBER = new AtomicInteger(0);
+	/**
+	 * 구간 하나의 최소 라인 수. 이보다 작게 나누면 스레드에 넘기는 비용이 포맷 비용보다 커진다.
+	 */
+	private static final int MIN_LINES_PER_TASK = 64;
+
+	private final int threads;
+	private final ThreadPoolExecutor executor;
+
+
+	FormatStage(int threads, final boolean daemon) {
+		this.threads = threads;
+		final int number = TR_NUMBER.incrementAndGet();
+		executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger index = new AtomicInteger(0);
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "LogExpressFormatter#" + number + "-" + index.incrementAndGet());
+				thread.setDaemon(daemon);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * batch 의 앞에서 count 개의 라인을 렌더링한다. 모든 라인이 렌더링된 뒤에 돌아온다.
+	 */
+	void render(final RenderedBatch batch, int count) {
+		int tasks = Math.min(threads + 1, count / MIN_LINES_PER_TASK);
+		if(tasks <= 1) {
+			batch.render(0, count, 0);
+			return;
+		}
+		int chunk = (count + tasks - 1) / tasks;
+		batch.ensureSlices((count + chunk - 1) / chunk);
+		// 첫 구간은 호출한 스레드가 렌더링한다.
+		final CountDownLatch latch = new CountDownLatch((count - 1) / chunk);
+		for(int from = chunk, slice = 1; from < count; from += chunk, ++slice) {
+			final int start = from;
+			final int index = slice;
+			final int end = Math.min(from + chunk, count);
+			Runnable task = new Runnable() {
+				@Override
+				public void run() {
+					try {
+						batch.render(start, end, index);
+					} catch (Throwable e) {
+						InLogger.ERROR("Failed to format log lines.", e);
+					} finally {
+						latch.countDown();
+					}
+				}
+			};
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				// 종료 중이라면 직접 렌더링한다.
+				task.run();
+			}
+		}
+		batch.render(0, chunk, 0);
+		boolean interrupted = false;
+		for(;;) {
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	void shutdown() {
+		executor.shutdown();
+	}
+
+}
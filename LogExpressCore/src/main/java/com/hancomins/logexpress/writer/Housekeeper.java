@@ -0,0 +1,198 @@
+package com.hancomins.logexpress.writer;
+
+import com.hancomins.logexpress.InLogger;
+import com.hancomins.logexpress.configuration.Compression;
+import com.hancomins.logexpress.configuration.FileMode;
+import com.hancomins.logexpress.util.SysTool;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 로그를 기록하는 스레드 대신 오래된 파일 삭제, 다음 파일 탐색과 같은 파일 시스템 작업을 수행하는 스레드.<br>
+ * 오래된 파일이 많은 디렉토리에서는 이런 작업이 수 초씩 걸릴 수 있으므로, 기록하는 스레드는 작업을 넘기기만 하고
+ * 파일을 교체할 때는 미리 찾아 둔 파일로 바꾸기만 한다.<br>
+ * 작업이 없으면 스레드는 잠시 뒤 종료되고, 새 작업이 들어오면 다시 만들어진다.
+ */
+final class Housekeeper {
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private static Housekeeper instance = null;
+
+	private final ThreadPoolExecutor executor;
+	/**
+	 * 압축은 오래 걸리므로 다음 파일 탐색이 기다리지 않도록 별도의 스레드에서 한다.
+	 */
+	private final ThreadPoolExecutor compressor;
+
+
+	private Housekeeper() {
+		executor = newExecutor("LogExpressHousekeeper");
+		compressor = newExecutor("LogExpressCompressor");
+	}
+
+	private static ThreadPoolExecutor newExecutor(final String threadName) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, threadName);
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	static synchronized Housekeeper getInstance() {
+		if(instance == null) {
+			instance = new Housekeeper();
+		}
+		return instance;
+	}
+
+	/**
+	 * history 일이 지난 파일을 삭제한다.
+	 */
+	void cleanup(final FileNamePattern fileNamePattern, final String marker, final int history) {
+		if(history < 1) {
+			return;
+		}
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				OldFileCleaner cleaner = new OldFileCleaner(fileNamePattern, SysTool.pid(), SysTool.hostname(), marker);
+				cleaner.clean(history);
+			}
+		});
+	}
+
+	/**
+	 * rack 이 지금 쓰고 있는 파일 다음에 쓸 파일을 미리 찾아 rack 에 넣어 둔다.<br>
+	 * 크기 때문에 교체할 파일과 날짜가 바뀌어 교체할 파일을 모두 찾으며, 디렉토리도 미리 만든다.
+	 */
+	void prepareNextFile(WriterRackStruct rack) {
+		final FileWriter fileWriter = rack.fileWriter;
+		final FileNamePattern fileNamePattern = rack.fileNamePattern;
+		if(fileWriter == null || fileNamePattern == null || (!fileNamePattern.isNumberInPattern() && !fileNamePattern.isDateInPattern())) {
+			return;
+		}
+		final WriterRackStruct target = rack;
+		final String marker = rack.marker;
+		final int maxSize = rack.getFileMaxSize();
+		final int bufferSize = rack.getFileBufferSize();
+		final FileMode fileMode = rack.fileMode;
+		final boolean preOpen = rack.preOpenNextFile && maxSize > 0;
+		final long tomorrow = rack.tomorrow;
+		final File current = fileWriter.getFile();
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				File nextNumberFile = null;
+				FileWriter nextNumberWriter = null;
+				File nextDateFile = null;
+				try {
+					if(fileNamePattern.isNumberInPattern()) {
+						nextNumberFile = fileNamePattern.toFileOverMaxSize(marker, maxSize, CurrentTimeMillisGetter.currentTimeMillis(), current);
+						makeDirParentsOf(nextNumberFile);
+						if(preOpen) {
+							// 파일을 열고 미리 늘려 두어, 교체할 때는 FileWriter 만 바꾸도록 한다.
+							nextNumberWriter = new FileWriter(nextNumberFile, bufferSize, maxSize, fileMode, true);
+						}
+					}
+					if(fileNamePattern.isDateInPattern()) {
+						nextDateFile = fileNamePattern.toFileOverMaxSize(marker, maxSize, tomorrow, null);
+						makeDirParentsOf(nextDateFile);
+					}
+				} catch (IOException e) {
+					InLogger.WARN("Cannot prepare the next file of marker `" + marker + "`.", e);
+				}
+				target.setPreparedFiles(new PreparedFiles(current, tomorrow, nextNumberFile, nextNumberWriter, nextDateFile));
+			}
+		});
+	}
+
+	/**
+	 * 교체되어 닫힌 파일을 압축하고 원본을 삭제한다.
+	 */
+	void compress(final File file, final Compression compression) {
+		if(compression == null || compression == Compression.None) {
+			return;
+		}
+		execute(compressor, new Runnable() {
+			@Override
+			public void run() {
+				FileCompressor.compress(file, compression);
+			}
+		});
+	}
+
+	/**
+	 * 사용하지 않은, 미리 열어 둔 FileWriter 를 닫는다.
+	 */
+	void discard(final FileWriter fileWriter) {
+		execute(new Runnable() {
+			@Override
+			public void run() {
+				fileWriter.discard();
+			}
+		});
+	}
+
+	private void execute(Runnable task) {
+		execute(executor, task);
+	}
+
+	private static void execute(ThreadPoolExecutor executor, Runnable task) {
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			InLogger.WARN("Cannot run the housekeeping task.", e);
+		}
+	}
+
+	static void makeDirParentsOf(File file) {
+		File dir = file.getParentFile();
+		if(dir != null && !dir.exists()) {
+			//noinspection ResultOfMethodCallIgnored
+			dir.mkdirs();
+		}
+	}
+
+
+	/**
+	 * housekeeper 가 미리 찾아 둔 다음 파일.
+	 */
+	static final class PreparedFiles {
+		/**
+		 * 탐색할 때 쓰고 있던 파일.
+		 */
+		final File current;
+		/**
+		 * 탐색할 때의 다음 날 0시.
+		 */
+		final long tomorrow;
+		final File nextNumberFile;
+		/**
+		 * 미리 열어 둔 nextNumberFile 의 FileWriter. 미리 열지 않았다면 null.
+		 */
+		final FileWriter nextNumberWriter;
+		final File nextDateFile;
+
+		private PreparedFiles(File current, long tomorrow, File nextNumberFile, FileWriter nextNumberWriter, File nextDateFile) {
+			this.current = current;
+			this.tomorrow = tomorrow;
+			this.nextNumberFile = nextNumberFile;
+			this.nextNumberWriter = nextNumberWriter;
+			this.nextDateFile = nextDateFile;
+		}
+	}
+
+}
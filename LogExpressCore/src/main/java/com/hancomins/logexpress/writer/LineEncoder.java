@@ -0,0 +1,209 @@
+package com.hancomins.logexpress.writer;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 라인 문자열을 재사용하는 byte 배열에 인코딩한다.<br>
+ * US-ASCII, ISO-8859-1, UTF-8 은 직접 인코딩하고, 그 밖의 문자셋은 재사용하는 CharsetEncoder 로 인코딩한다.
+ * 인코딩할 수 없는 문자는 String.getBytes() 와 같이 '?' 로 바꾼다.<br>
+ * 스레드에 안전하지 않다. 한 스레드에서만 사용해야 한다.
+ */
+final class LineEncoder {
+
+	private static final int MODE_ASCII = 0;
+	private static final int MODE_LATIN1 = 1;
+	private static final int MODE_UTF8 = 2;
+	private static final int MODE_OTHER = 3;
+
+	private static final int INITIAL_CAPACITY = 256;
+	/**
+	 * 큰 라인을 한 번 인코딩한 뒤에도 이보다 큰 배열은 붙잡아 두지 않는다.
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	private final Charset charset;
+	private final int mode;
+	private final CharsetEncoder encoder;
+	private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+
+	LineEncoder(Charset charset) {
+		this.charset = charset;
+		String name = charset.name();
+		if("UTF-8".equalsIgnoreCase(name)) {
+			mode = MODE_UTF8;
+		} else if("US-ASCII".equalsIgnoreCase(name)) {
+			mode = MODE_ASCII;
+		} else if("ISO-8859-1".equalsIgnoreCase(name)) {
+			mode = MODE_LATIN1;
+		} else {
+			mode = MODE_OTHER;
+		}
+		if(mode == MODE_OTHER) {
+			encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		} else {
+			encoder = null;
+		}
+	}
+
+	/**
+	 * text 를 인코딩한다. 결과는 {@link #array()} 의 0 부터 반환한 길이만큼이다.
+	 * @return 인코딩된 byte 수
+	 */
+	int encode(CharSequence text) {
+		int length = text.length();
+		if(bytes.length > MAX_RETAINED_CAPACITY && length * 3 <= MAX_RETAINED_CAPACITY) {
+			bytes = new byte[MAX_RETAINED_CAPACITY];
+		}
+		switch (mode) {
+			case MODE_ASCII:
+				return encodeSingleByte(text, length, 0x80);
+			case MODE_LATIN1:
+				return encodeSingleByte(text, length, 0x100);
+			case MODE_UTF8:
+				return encodeUTF8(text, length);
+			default:
+				return encodeOther(text);
+		}
+	}
+
+	/**
+	 * buffer 에 text 를 인코딩한다. buffer 가 모자라면 더 큰 배열을 만들므로 결과는 {@link #array()} 의 0 부터 반환한 길이만큼이다.<br>
+	 * 라인마다 결과를 담을 배열을 따로 두고 재사용할 때 사용한다.
+	 * @return 인코딩된 byte 수
+	 */
+	int encode(CharSequence text, byte[] buffer) {
+		bytes = buffer;
+		return encode(text);
+	}
+
+	Charset charset() {
+		return charset;
+	}
+
+	byte[] array() {
+		return bytes;
+	}
+
+	private int encodeSingleByte(CharSequence text, int length, int limit) {
+		byte[] out = ensureCapacity(length);
+		for(int i = 0; i < length; ++i) {
+			char ch = text.charAt(i);
+			if(ch < limit) {
+				out[i] = (byte)ch;
+			} else {
+				// 서로게이트 쌍은 문자 하나로 취급한다.
+				if(Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+					return encodeSingleByteSlow(text, length, limit, i);
+				}
+				out[i] = '?';
+			}
+		}
+		return length;
+	}
+
+	private int encodeSingleByteSlow(CharSequence text, int length, int limit, int start) {
+		byte[] out = bytes;
+		int pos = start;
+		for(int i = start; i < length; ++i) {
+			char ch = text.charAt(i);
+			if(ch < limit) {
+				out[pos++] = (byte)ch;
+			} else {
+				if(Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+					++i;
+				}
+				out[pos++] = '?';
+			}
+		}
+		return pos;
+	}
+
+	private int encodeUTF8(CharSequence text, int length) {
+		byte[] out = ensureCapacity(length);
+		int pos = 0;
+		int i = 0;
+		// 대부분의 로그는 ASCII 이므로 먼저 한 byte 씩 복사한다.
+		for(; i < length; ++i) {
+			char ch = text.charAt(i);
+			if(ch >= 0x80) {
+				break;
+			}
+			out[pos++] = (byte)ch;
+		}
+		if(i == length) {
+			return pos;
+		}
+		// 문자 하나는 최대 3 byte 이다. (서로게이트 쌍은 문자 두 개에 4 byte)
+		out = ensureCapacity(pos, pos + (length - i) * 3);
+		for(; i < length; ++i) {
+			char ch = text.charAt(i);
+			if(ch < 0x80) {
+				out[pos++] = (byte)ch;
+			} else if(ch < 0x800) {
+				out[pos++] = (byte)(0xC0 | (ch >> 6));
+				out[pos++] = (byte)(0x80 | (ch & 0x3F));
+			} else if(ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+				if(Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(ch, text.charAt(++i));
+					out[pos++] = (byte)(0xF0 | (codePoint >> 18));
+					out[pos++] = (byte)(0x80 | ((codePoint >> 12) & 0x3F));
+					out[pos++] = (byte)(0x80 | ((codePoint >> 6) & 0x3F));
+					out[pos++] = (byte)(0x80 | (codePoint & 0x3F));
+				} else {
+					out[pos++] = '?';
+				}
+			} else {
+				out[pos++] = (byte)(0xE0 | (ch >> 12));
+				out[pos++] = (byte)(0x80 | ((ch >> 6) & 0x3F));
+				out[pos++] = (byte)(0x80 | (ch & 0x3F));
+			}
+		}
+		return pos;
+	}
+
+	private int encodeOther(CharSequence text) {
+		CharBuffer in = CharBuffer.wrap(text);
+		ByteBuffer out = ByteBuffer.wrap(ensureCapacity((int)(text.length() * encoder.averageBytesPerChar()) + 16));
+		encoder.reset();
+		boolean flushing = false;
+		for(;;) {
+			CoderResult result = flushing ? encoder.flush(out) : encoder.encode(in, out, true);
+			if(result.isUnderflow()) {
+				if(flushing) {
+					return out.position();
+				}
+				flushing = true;
+			} else if(result.isOverflow()) {
+				int position = out.position();
+				out = ByteBuffer.wrap(ensureCapacity(position, bytes.length * 2));
+				out.position(position);
+			}
+		}
+	}
+
+	private byte[] ensureCapacity(int capacity) {
+		if(bytes.length < capacity) {
+			bytes = new byte[Math.max(capacity, bytes.length * 2)];
+		}
+		return bytes;
+	}
+
+	/**
+	 * 앞에서 keep 만큼 인코딩한 내용을 유지하면서 배열을 늘린다.
+	 */
+	private byte[] ensureCapacity(int keep, int capacity) {
+		if(bytes.length < capacity) {
+			byte[] newBytes = new byte[Math.max(capacity, bytes.length * 2)];
+			System.arraycopy(bytes, 0, newBytes, 0, keep);
+			bytes = newBytes;
+		}
+		return bytes;
+	}
+
+}
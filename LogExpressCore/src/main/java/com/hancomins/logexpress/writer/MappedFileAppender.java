@@ -0,0 +1,165 @@
+package com.hancomins.logexpress.writer;
+
+import com.hancomins.logexpress.util.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 파일을 메모리에 매핑하여 이어 쓴다.<br>
+ * 파일 끝에서부터 큰 단위로 매핑해 두고 byte 를 복사하기만 하므로 기록할 때 write 시스템 콜을 호출하지 않는다.
+ * 매핑한 영역에 복사한 byte 는 운영체제의 페이지 캐시에 있으므로 JVM 이 비정상 종료되어도 파일에 남는다.<br>
+ * 매핑하는 동안 파일은 실제 기록한 길이보다 길며 뒷부분은 0 으로 채워져 있고 끝에 {@link WrittenLengthMarker} 가 있다.
+ * 닫을 때 실제 길이로 줄이며, 닫지 못하고 종료된 파일만 다시 열 때 표시를 보고 기록한 길이를 찾는다.<br>
+ * 기록은 한 스레드에서만 해야 한다. {@link #force()} 는 다른 스레드에서 호출할 수 있다.
+ */
+final class MappedFileAppender {
+
+	/**
+	 * 한 번에 매핑하는 크기.
+	 */
+	static final int MAP_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	private final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	/**
+	 * 매핑 영역을 바꾸거나 해제하는 동안 다른 스레드가 force 하지 않도록 막는다.
+	 */
+	private final Object mapLock = new Object();
+	private MappedByteBuffer window;
+	/**
+	 * 매핑 영역이 시작하는 파일 위치.
+	 */
+	private long windowStart;
+	/**
+	 * 파일 끝 위치. 매핑한 뒤로는 끝에 표시가 있다.
+	 */
+	private long fileEnd;
+	private boolean marked = false;
+	private boolean closed = false;
+
+
+	/**
+	 * @param preallocateSize 0 보다 크면 파일을 이 크기로 미리 늘린다.
+	 */
+	MappedFileAppender(File file, long preallocateSize) throws IOException {
+		this.file = file;
+		randomAccessFile = new RandomAccessFile(file, "rw");
+		channel = randomAccessFile.getChannel();
+		try {
+			windowStart = WrittenLengthMarker.recover(channel);
+			fileEnd = windowStart;
+			if (preallocateSize > windowStart + WrittenLengthMarker.SIZE) {
+				fileEnd = preallocateSize;
+			}
+			map(windowStart);
+		} catch (IOException e) {
+			closeQuietly();
+			throw e;
+		}
+	}
+
+	/**
+	 * 지금까지 기록한 byte 수. 다시 연 파일이라면 기존 내용을 포함한다.
+	 */
+	long length() {
+		return windowStart + window.position();
+	}
+
+	void write(byte[] data, int offset, int length) throws IOException {
+		MappedByteBuffer window = this.window;
+		while (length > 0) {
+			if (!window.hasRemaining()) {
+				window = map(windowStart + window.position());
+			}
+			int writeLen = Math.min(window.remaining(), length);
+			window.put(data, offset, writeLen);
+			offset += writeLen;
+			length -= writeLen;
+		}
+	}
+
+	/**
+	 * 매핑한 영역의 내용을 디스크에 강제로 기록한다.
+	 */
+	void force() throws IOException {
+		synchronized (mapLock) {
+			if (closed) return;
+			window.force();
+			channel.force(false);
+		}
+	}
+
+	/**
+	 * 매핑을 해제하고 파일을 실제 기록한 길이로 줄인 뒤 닫는다.
+	 *
+	 * @param sync 닫기 전에 디스크에 강제로 기록할지 여부
+	 */
+	void close(boolean sync) throws IOException {
+		synchronized (mapLock) {
+			if (closed) return;
+			closed = true;
+			long length = windowStart + window.position();
+			try {
+				if (sync) {
+					window.force();
+				}
+				MappedByteBuffer old = window;
+				window = null;
+				Files.unmap(old);
+				channel.truncate(length);
+				if (sync) {
+					channel.force(true);
+				}
+			} finally {
+				closeQuietly();
+			}
+		}
+	}
+
+	/**
+	 * position 부터 매핑한다. 매핑 영역은 파일 끝의 표시 앞에서 끝나며, 미리 늘려 둔 영역을 다 쓰면 파일을 MAP_CHUNK_SIZE 만큼 늘린다.
+	 * 새 영역을 매핑할 때마다 표시에 적힌 길이를 position 으로 갱신하므로, 닫지 못한 파일은 마지막 매핑 영역만 살펴보면 된다.
+	 */
+	private MappedByteBuffer map(long position) throws IOException {
+		synchronized (mapLock) {
+			MappedByteBuffer old = window;
+			long end = fileEnd;
+			if (end - WrittenLengthMarker.SIZE <= position) {
+				end = position + MAP_CHUNK_SIZE;
+			}
+			long size = Math.min(end - WrittenLengthMarker.SIZE - position, MAP_CHUNK_SIZE);
+			try {
+				// 새 표시를 쓴 뒤에 이전 표시를 지운다. 그 사이에 종료되어도 이전 표시는 길이를 찾을 때 건너뛴다.
+				WrittenLengthMarker.mark(channel, end, position);
+				if (marked && end != fileEnd) {
+					WrittenLengthMarker.erase(channel, fileEnd);
+				}
+				fileEnd = end;
+				marked = true;
+				window = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+			} catch (IOException e) {
+				throw new IOException("Failed to map file: " + file.getAbsolutePath(), e);
+			}
+			windowStart = position;
+			if (old != null) {
+				Files.unmap(old);
+			}
+			return window;
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			channel.close();
+		} catch (Exception ignored) {}
+		try {
+			randomAccessFile.close();
+		} catch (Exception ignored) {}
+	}
+
+}
@@ -39,13 +39,20 @@ public class OldFileCleaner {
 			for(int i = 0;;++i) {
 				try {
 					File file = fileNamePattern.toFile(pid, hostname, marker, calendar.getTimeInMillis(), i);
-					if(file.exists()) {
-						success = true;
+					boolean exists = file.exists();
+					if(exists) {
 						try {
 							file.delete();
 						} catch (Exception e) {
 							//TODO 파일 삭제 실패 메시지 출력해야함.
 						}
+					}
+					// 교체된 뒤 압축된 파일도 함께 삭제한다.
+					if(FileCompressor.deleteCompressedFiles(file)) {
+						exists = true;
+					}
+					if(exists) {
+						success = true;
 					} else {
 						if(++lossNumberCount > TRY_COUNT) {
 							break;
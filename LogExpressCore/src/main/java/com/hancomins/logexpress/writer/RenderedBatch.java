@@ -0,0 +1,207 @@
+package com.hancomins.logexpress.writer;
+
+import com.hancomins.logexpress.Line;
+import com.hancomins.logexpress.StyleSpans;
+import com.hancomins.logexpress.configuration.WriterType;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * 큐에서 배치로 꺼낸 라인과, 그 라인을 포맷한 결과를 같은 순서로 담는다.<br>
+ * 서로 겹치지 않는 구간은 여러 스레드에서 동시에 렌더링할 수 있으며, 파일에 기록할 메시지는 렌더링하는 스레드가 rack 의 문자셋으로 인코딩까지 한다.
+ * 기록은 한 스레드가 순서대로 한다.<br>
+ * 포맷 결과를 담는 StringBuilder 와 인코딩 결과를 담는 byte 배열은 배치마다 재사용한다. 인코더는 구간마다, 문자셋마다 하나씩 두고 재사용한다.
+ */
+final class RenderedBatch {
+
+	final Line[] lines;
+	final WriterRackStruct[] racks;
+	/**
+	 * 콘솔에 출력할 메시지. 콘솔과 파일의 출력이 같다면 fileMessages 와 같은 객체이다. 렌더링하지 않은 라인은 null.
+	 */
+	final CharSequence[] consoleMessages;
+	final StringBuilder[] fileMessages;
+	/**
+	 * fileMessages 를 rack 의 문자셋으로 인코딩한 결과. 앞에서부터 fileLengths 만큼이며, 인코딩하지 않은 라인의 길이는 -1 이다.
+	 */
+	final byte[][] fileBytes;
+	final int[] fileLengths;
+	/**
+	 * 구간마다 사용하는 인코더. 렌더링을 나누기 전에 {@link #ensureSlices(int)} 로 구간 수만큼 준비한다.
+	 */
+	private LineEncoder[][] sliceEncoders = new LineEncoder[1][0];
+	/**
+	 * 파일에 바이너리 레코드로 기록할 라인. 레코드는 파일마다 사전을 갖기 때문에 기록하는 스레드에서 순서대로 인코딩하며,
+	 * 라인은 {@link #clear(int)} 에서 해제한다. 바이너리로 기록하지 않는 라인은 null.
+	 */
+	final Line[] binaryLines;
+	private final StringBuilder[] consoleBuilders;
+	/**
+	 * 콘솔에 ANSI 스타일을 출력할 수 있는지 여부. false 이면 콘솔 메시지는 스타일 설정과 관계없이 스타일 없이 만든다.<br>
+	 * 렌더링을 시작하기 전에 정해야 한다.
+	 */
+	boolean consoleAnsi = true;
+	final long[] times;
+	private static final int INITIAL_CAPACITY = 256;
+	/**
+	 * 큰 라인을 한 번 렌더링한 뒤에도 이보다 큰 StringBuilder 는 붙잡아 두지 않는다.
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+	final int[] levelValues;
+
+	RenderedBatch(int size) {
+		lines = new Line[size];
+		racks = new WriterRackStruct[size];
+		consoleMessages = new CharSequence[size];
+		fileMessages = new StringBuilder[size];
+		binaryLines = new Line[size];
+		consoleBuilders = new StringBuilder[size];
+		fileBytes = new byte[size][];
+		fileLengths = new int[size];
+		for(int i = 0; i < size; ++i) {
+			fileMessages[i] = new StringBuilder(INITIAL_CAPACITY);
+			fileBytes[i] = new byte[INITIAL_CAPACITY];
+		}
+		Arrays.fill(fileLengths, -1);
+		times = new long[size];
+		levelValues = new int[size];
+	}
+
+	int size() {
+		return lines.length;
+	}
+
+	/**
+	 * 렌더링을 slices 개의 구간으로 나누어 동시에 할 수 있도록 구간마다 인코더를 준비한다. 나누기 전에 호출한 스레드에서 호출해야 한다.
+	 */
+	void ensureSlices(int slices) {
+		if(sliceEncoders.length < slices) {
+			LineEncoder[][] newEncoders = new LineEncoder[slices][];
+			System.arraycopy(sliceEncoders, 0, newEncoders, 0, sliceEncoders.length);
+			for(int i = sliceEncoders.length; i < slices; ++i) {
+				newEncoders[i] = new LineEncoder[0];
+			}
+			sliceEncoders = newEncoders;
+		}
+	}
+
+	/**
+	 * slice 번째 구간이 charset 으로 인코딩할 때 사용하는 인코더.
+	 */
+	private LineEncoder encoderOf(int slice, Charset charset) {
+		LineEncoder[] encoders = sliceEncoders[slice];
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < encoders.length; ++i) {
+			if(encoders[i].charset().equals(charset)) {
+				return encoders[i];
+			}
+		}
+		LineEncoder encoder = new LineEncoder(charset);
+		LineEncoder[] newEncoders = new LineEncoder[encoders.length + 1];
+		System.arraycopy(encoders, 0, newEncoders, 0, encoders.length);
+		newEncoders[encoders.length] = encoder;
+		sliceEncoders[slice] = newEncoders;
+		return encoder;
+	}
+
+	/**
+	 * from 부터 to 전까지의 라인을 포맷하고 라인 객체를 해제한다. rack 이 없는 라인은 건너뛴다.
+	 * @param slice 구간 번호. 동시에 렌더링하는 구간끼리는 달라야 한다.
+	 */
+	void render(int from, int to, int slice) {
+		StyleSpans styleSpans = null;
+		for(int i = from; i < to; ++i) {
+			Line line = lines[i];
+			lines[i] = null;
+			WriterRackStruct rack = racks[i];
+			if(line == null || rack == null) {
+				continue;
+			}
+			// 콘솔에 출력할 메시지와 파일에 출력할 메시지를 만든다.
+			StringBuilder fileMessage = fileMessages[i];
+			CharSequence consoleMessage;
+			times[i] = line.getTime();
+			levelValues[i] = line.getLevel().getValue();
+			if(rack.isWriteBinary) {
+				// 파일에는 포맷하지 않고 레코드로 기록한다. 콘솔 메시지는 쓰지 않는 파일 메시지 버퍼에 만든다.
+				binaryLines[i] = line;
+				if(rack.isWriteConsole) {
+					if(consoleAnsi) {
+						line.makeLine(WriterType.Console, fileMessage);
+					} else {
+						line.makePlainLine(fileMessage);
+					}
+					consoleMessages[i] = fileMessage;
+				}
+				continue;
+			}
+
+			// 만약 출력이 일관적인 경우에는 콘솔과 파일에 동시에 출력한다.
+			// 1.0.3 버전~: 컬러 옵션에 따라 콘솔과 파일에 일관된 출력을 할지, 아니면 분리할지 결정한다.
+			// 예를들어 콘솔에는 컬러를 출력하고 파일에는 컬러를 출력하지 않는다 : 분리
+			// 콘솔에도 컬러를 출력하고 파일에도 컬러를 출력한다 : 일관된 출력
+			// 콘솔이 터미널이 아니어서 ANSI 를 출력할 수 없다면 콘솔에는 스타일 없이 출력한다.
+			boolean consoleStyled = consoleAnsi && line.isStyledOutput(WriterType.Console);
+			boolean fileStyled = line.isStyledOutput(WriterType.File);
+			if(!rack.isWriteConsole || consoleStyled == fileStyled) {
+				line.makeLine(WriterType.File, fileMessage);
+				consoleMessage = fileMessage;
+			} else {
+				StringBuilder consoleBuilder = consoleBuilders[i];
+				if(consoleBuilder == null) {
+					consoleBuilder = consoleBuilders[i] = new StringBuilder(INITIAL_CAPACITY);
+				}
+				if(styleSpans == null) {
+					styleSpans = new StyleSpans();
+				}
+				styleSpans.clear();
+				// 라인은 스타일 없이 한 번만 포맷하고, 스타일이 있는 쪽은 기록해 둔 ANSI 코드 위치로 만든다.
+				if(consoleStyled) {
+					line.makeLine(fileMessage, styleSpans);
+					styleSpans.applyTo(fileMessage, consoleBuilder);
+				} else {
+					line.makeLine(consoleBuilder, styleSpans);
+					styleSpans.applyTo(consoleBuilder, fileMessage);
+				}
+				consoleMessage = consoleBuilder;
+			}
+			if(rack.fileWriter != null) {
+				LineEncoder encoder = encoderOf(slice, rack.charset);
+				fileLengths[i] = encoder.encode(fileMessage, fileBytes[i]);
+				fileBytes[i] = encoder.array();
+			}
+			// 라인 객체를 해제한다.
+			line.release();
+			consoleMessages[i] = consoleMessage;
+		}
+	}
+
+	/**
+	 * 기록을 마친 결과를 비운다.
+	 */
+	void clear(int count) {
+		Arrays.fill(racks, 0, count, null);
+		Arrays.fill(consoleMessages, 0, count, null);
+		for(int i = 0; i < count; ++i) {
+			if(binaryLines[i] != null) {
+				binaryLines[i].release();
+				binaryLines[i] = null;
+			}
+			fileMessages[i] = reuse(fileMessages[i]);
+			fileLengths[i] = -1;
+			if(consoleBuilders[i] != null) {
+				consoleBuilders[i] = reuse(consoleBuilders[i]);
+			}
+		}
+	}
+
+	private static StringBuilder reuse(StringBuilder stringBuilder) {
+		if(stringBuilder.capacity() > MAX_RETAINED_CAPACITY) {
+			return new StringBuilder(INITIAL_CAPACITY);
+		}
+		stringBuilder.setLength(0);
+		return stringBuilder;
+	}
+
+}
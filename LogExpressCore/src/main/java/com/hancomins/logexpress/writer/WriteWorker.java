@@ -2,22 +2,29 @@ package com.hancomins.logexpress.writer;
 
 
 import com.hancomins.logexpress.configuration.Configuration;
+import com.hancomins.logexpress.configuration.FsyncPolicy;
 import com.hancomins.logexpress.configuration.WriterOption;
 import com.hancomins.logexpress.configuration.WriterType;
 import com.hancomins.logexpress.queue.AbsLineQueue;
+import com.hancomins.logexpress.queue.CallerRunsHandler;
+import com.hancomins.logexpress.queue.LineOutputResolver;
+import com.hancomins.logexpress.queue.LineQueueFactory;
+import com.hancomins.logexpress.queue.LineQueueFactory.LineQueueType;
 import com.hancomins.logexpress.queue.OnPushLineListener;
+import com.hancomins.logexpress.queue.WaitSignal;
+import com.hancomins.logexpress.queue.WaitStrategy;
 import com.hancomins.logexpress.util.Files;
-import com.hancomins.logexpress.util.SysTool;
 import com.hancomins.logexpress.InLogger;
 import com.hancomins.logexpress.Line;
 
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 @SuppressWarnings("ResultOfMethodCallIgnored")
-final public class WriteWorker extends Thread implements OnPushLineListener {
+final public class WriteWorker extends Thread implements OnPushLineListener, CallerRunsHandler, LineOutputResolver {
 
 	private static final AtomicInteger TR_NUMBER = new AtomicInteger(0);
 
@@ -29,14 +36,56 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 	private boolean isExistCheck = false;
 
 	
+	/**
+	 * 큐에서 한 번에 꺼내어 처리하는 최대 라인 수.
+	 */
+	private static final int LINE_BATCH_SIZE = 512;
+	/**
+	 * shard 하나가 갖는 큐의 크기. 가득 차면 WriteWorker 가 기다리며, 그동안 라인은 로그 큐에 쌓인다.
+	 */
+	private static final int SHARD_QUEUE_SIZE = LINE_BATCH_SIZE * 16;
+	/**
+	 * 종료할 때 콘솔 대기열에 남은 라인을 출력하기를 기다리는 최대 시간.
+	 */
+	private static final long CONSOLE_END_TIMEOUT = 3000;
+
 	private int waitTimeout = 3000;
+	private int groupCommitSize = 0;
+	private int groupCommitLatency = 0;
 	private AbsLineQueue lineQueue = null;
+	private final RenderedBatch renderedBatch = new RenderedBatch(LINE_BATCH_SIZE);
+	private final Line[] lineBatch = renderedBatch.lines;
 	private final Object monitor = new Object();
+	/**
+	 * 큐에서 라인을 꺼내어 기록하는 동안 잡는 락.<br>
+	 * CallerRuns 정책에서 로그를 남기는 스레드가 직접 기록할 때 WriteWorker 와 순서가 섞이지 않도록 한다.
+	 */
+	private final Object writeLock = new Object();
 	private LinkedHashMap<String, WriterRackStruct> writerMap = new LinkedHashMap<String, WriterRackStruct>();
 	private WriterRackStruct[] writerRackArray = null;
 	private WriterRackStruct defaultWriterRack;
-	private OnTerminatedListener onTerminatedListener = null;
+	private volatile OnTerminatedListener onTerminatedListener = null;
+	private WaitStrategy waitStrategy = WaitStrategy.Blocking;
+	/**
+	 * 큐에 라인이 들어왔거나 종료 요청이 있을 때 잠든 WriteWorker 를 깨운다.
+	 */
+	private final WaitSignal pushSignal = new WaitSignal() {
+		@Override
+		protected boolean isReady() {
+			AbsLineQueue queue = lineQueue;
+			return !isAlive || onTerminatedListener != null || (queue != null && queue.size() > 0);
+		}
+	};
 	private Runnable onCallShutdown = null;
+	/**
+	 * workerThreads 가 2 이상일 때 rack 을 나누어 맡는 스레드. null 이면 WriteWorker 가 직접 기록한다.
+	 */
+	private Shard[] shards = null;
+	/**
+	 * formatterThreads 가 1 이상일 때 배치를 나누어 포맷하는 스레드 풀. null 이면 기록하는 스레드가 직접 포맷한다.
+	 */
+	private FormatStage formatStage = null;
+	private ConsoleWriter consoleWriter;
 
 
 
@@ -45,13 +94,21 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 	public WriteWorker(Configuration configure) {
 		try {
 			waitTimeout = configure.getWorkerInterval();
+			waitStrategy = configure.getConsumerWaitStrategy();
+			groupCommitSize = configure.getGroupCommitSize();
+			groupCommitLatency = configure.getGroupCommitLatency();
 			buildWriterRackStruct(configure);
-			//mConsoleWriter = new ConsoleWriter(configure.getConsoleBufferSize());
+			consoleWriter = new ConsoleWriter(configure.getConsoleBufferSize(), configure.isConsoleStderr(), configure.getConsoleAnsi(), configure.isDaemonThread());
+			renderedBatch.consoleAnsi = consoleWriter.isAnsiEnabled();
 			isDebug = InLogger.isEnabled();
 			isAutoShutdown = configure.isAutoShutdown();
 			isExistCheck = configure.isFileExistCheck();
 			setName("LogExpressWriteWorker#" + TR_NUMBER.incrementAndGet());
 			setDaemon(configure.isDaemonThread());
+			buildShards(configure);
+			if(configure.getFormatterThreads() > 0) {
+				formatStage = new FormatStage(configure.getFormatterThreads(), configure.isDaemonThread());
+			}
 			if (isDebug) {
 				InLogger.DEBUG("Create WriteWorker thread (" + getName() + ")");
 				for(WriterRackStruct writerRackStruct : writerMap.values()) {
@@ -69,6 +126,8 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 	public void setLineQueue(AbsLineQueue lineQueue) {
 		this.lineQueue = lineQueue;
 		lineQueue.setPushLineEvent(this);
+		lineQueue.setCallerRunsHandler(this);
+		lineQueue.setOutputResolver(this);
 	}
 	
 	
@@ -84,6 +143,12 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 			InLogger.INFO("start WriteWorker");
 		}
 		isAlive = true;
+		if(shards != null) {
+			//noinspection ForLoopReplaceableByForEach
+			for(int i = 0; i < shards.length; ++i) {
+				shards[i].start();
+			}
+		}
 		super.start();
 	}
 	
@@ -94,12 +159,11 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 
 	
 	
+	/**
+	 * WriteWorker 가 실제로 잠들어 있을 때만 깨운다.
+	 */
 	public void wakeup() {
-		if(!isWait) return;
-		synchronized (monitor) {
-			if(!isWait) return;
-			monitor.notify();
-		}
+		pushSignal.signal();
 	}
 
 	private static final AtomicInteger FILE_NUMBER_FOR_PATTERN_TEST = new AtomicInteger(0);
@@ -117,7 +181,7 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 			 }
 			 file = new File( file.getParentFile(),Files.getNameWithoutExtension(file) + "-test" + FILE_NUMBER_FOR_PATTERN_TEST + "." + Files.getExtension(file));
 
-			 makeDirParentsOf(file);
+			 Housekeeper.makeDirParentsOf(file);
 			 file.delete();
 			 if(!file.createNewFile()) {
 				 InLogger.ERROR("Cannot use a file path or pattern. `" + strFileNamePattern + "` (Real path: " +file.getAbsolutePath() + ")", null);
@@ -196,6 +260,7 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 				defaultWriterRack = firstRack;
 			}
 			initWriterRackArray();
+			enablePreOpenNextFile();
 		}
 	}
 
@@ -204,16 +269,117 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 		writerRackArray = new WriterRackStruct[writerMap.size()];
 		writerMap.values().toArray(writerRackArray);
 	}
+
+	/**
+	 * 파일을 미리 늘려 두는 rack 중 다른 rack 과 파일을 함께 쓰지 않는 rack 은 housekeeper 가 다음 파일을 미리 열어 두도록 한다.<br>
+	 * 파일을 함께 쓰는 rack 들이 각자 다음 파일을 미리 열면 같은 파일을 두 FileWriter 가 열게 되므로 제외한다.
+	 */
+	private void enablePreOpenNextFile() {
+		IdentityHashMap<WriterRackStruct, Boolean> racks = new IdentityHashMap<WriterRackStruct, Boolean>();
+		IdentityHashMap<FileWriter, Integer> rackCountByFileWriter = new IdentityHashMap<FileWriter, Integer>();
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < writerRackArray.length; ++i) {
+			WriterRackStruct rack = writerRackArray[i];
+			if(rack.fileWriter == null || racks.put(rack, Boolean.TRUE) != null) {
+				continue;
+			}
+			Integer count = rackCountByFileWriter.get(rack.fileWriter);
+			rackCountByFileWriter.put(rack.fileWriter, count == null ? 1 : count + 1);
+		}
+		for(WriterRackStruct rack : racks.keySet()) {
+			if(rack.preallocate && rackCountByFileWriter.get(rack.fileWriter) == 1) {
+				rack.preOpenNextFile = true;
+				Housekeeper.getInstance().prepareNextFile(rack);
+			}
+		}
+	}
+
+	/**
+	 * 같은 FileWriter 를 쓰는 rack 끼리 묶어 shard 에 나누어 맡긴다. 파일이 없는 rack 들은 하나로 묶는다.<br>
+	 * 묶음이 하나뿐이라면 나눌 것이 없으므로 shard 를 만들지 않는다.
+	 */
+	private void buildShards(Configuration configure) {
+		int threads = configure.getWorkerThreads();
+		if(threads <= 1 || writerRackArray == null) {
+			return;
+		}
+		ArrayList<WriterRackStruct> racks = new ArrayList<WriterRackStruct>();
+		if(defaultWriterRack != null) {
+			racks.add(defaultWriterRack);
+		}
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < writerRackArray.length; ++i) {
+			if(!racks.contains(writerRackArray[i])) {
+				racks.add(writerRackArray[i]);
+			}
+		}
+		ArrayList<ArrayList<WriterRackStruct>> groups = new ArrayList<ArrayList<WriterRackStruct>>();
+		IdentityHashMap<FileWriter, ArrayList<WriterRackStruct>> groupByFileWriter = new IdentityHashMap<FileWriter, ArrayList<WriterRackStruct>>();
+		ArrayList<WriterRackStruct> consoleGroup = null;
+		for(WriterRackStruct rack : racks) {
+			ArrayList<WriterRackStruct> group = rack.fileWriter == null ? consoleGroup : groupByFileWriter.get(rack.fileWriter);
+			if(group == null) {
+				group = new ArrayList<WriterRackStruct>();
+				groups.add(group);
+				if(rack.fileWriter == null) {
+					consoleGroup = group;
+				} else {
+					groupByFileWriter.put(rack.fileWriter, group);
+				}
+			}
+			group.add(rack);
+		}
+		if(groups.size() <= 1) {
+			return;
+		}
+		int shardCount = Math.min(threads, groups.size());
+		ArrayList<ArrayList<WriterRackStruct>> shardRacks = new ArrayList<ArrayList<WriterRackStruct>>();
+		for(int i = 0; i < shardCount; ++i) {
+			shardRacks.add(new ArrayList<WriterRackStruct>());
+		}
+		for(int i = 0, n = groups.size(); i < n; ++i) {
+			int shardIndex = i % shardCount;
+			for(WriterRackStruct rack : groups.get(i)) {
+				rack.shardIndex = shardIndex;
+				shardRacks.get(shardIndex).add(rack);
+			}
+		}
+		shards = new Shard[shardCount];
+		for(int i = 0; i < shardCount; ++i) {
+			ArrayList<WriterRackStruct> list = shardRacks.get(i);
+			shards[i] = new Shard(i, list.toArray(new WriterRackStruct[list.size()]), configure.getProducerWaitStrategy());
+		}
+	}
 	
 	private WriterRackStruct makeRack(String marker,FileNamePattern pattern,WriterOption configure) throws IOException {
 		 WriterRackStruct rack = new WriterRackStruct(marker,configure.getEncoding(), configure.getMaxSize(), configure.getBufferSize(), configure.getHistory());
 		 rack.fileNamePattern = pattern;
+		 rack.flushInterval = configure.getFlushInterval();
+		 rack.flushSize = configure.getFlushSize();
+		 rack.flushPerBatch = configure.isFlushPerBatch();
+		 rack.fileMode = configure.getFileMode();
+		 rack.preallocate = configure.isPreallocate();
+		 rack.compression = configure.getCompression();
+		 FsyncPolicy fsyncPolicy = configure.getFsyncPolicy();
+		 rack.syncOnClose = fsyncPolicy != FsyncPolicy.Never;
+		 if(fsyncPolicy == FsyncPolicy.Interval) {
+			 rack.syncInterval = configure.getFsyncInterval();
+		 } else if(fsyncPolicy == FsyncPolicy.Level) {
+			 rack.fsyncLevelValue = configure.getFsyncLevel().getValue();
+		 }
 		 WriterType[] types = configure.getWriterTypes();
 
         //noinspection ForLoopReplaceableByForEach
         for(int i = 0; i < types.length; ++i) {
 			 WriterType type = types[i];
-			 if(type == WriterType.File) {
+			 if(type == WriterType.File || type == WriterType.Binary) {
+				if(type == WriterType.Binary) {
+					// 파일에는 텍스트 대신 레코드를 기록한다.
+					rack.isWriteBinary = true;
+				}
+				if(rack.fileWriter != null) {
+					continue;
+				}
 				if(pattern == null) {
 					if(isDebug) {
 						InLogger.ERROR("You cannot use a file path or pattern.");
@@ -222,8 +388,9 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 				}
 				int maxSize = configure.getMaxSize();
 				File newFile = pattern.toFileOverMaxSize(marker,maxSize);
-				makeDirParentsOf(newFile);
+				Housekeeper.makeDirParentsOf(newFile);
 				injectFileWriterToRack(rack, newFile);
+				Housekeeper.getInstance().prepareNextFile(rack);
 			 } else if(type == WriterType.Console) {
 				 rack.isWriteConsole = true;
 			 }
@@ -235,6 +402,10 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 	 * 파일이 존재하는지 확인하고, 존재하지 않으면 생성한다.
 	 */
 	private void checkExistFile() {
+		if(shards != null) {
+			// 각 shard 가 맡은 파일을 확인한다.
+			return;
+		}
 		if(defaultWriterRack != null && defaultWriterRack.fileWriter != null) {
 			try {
 				defaultWriterRack.fileWriter.ensureFileExists();
@@ -257,6 +428,10 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 	
 	
 	private void flushWrite()  {
+		if(shards != null) {
+			// 각 shard 가 맡은 파일을 비운다.
+			return;
+		}
 		if(defaultWriterRack != null && defaultWriterRack.fileWriter != null) {
             try {
                 defaultWriterRack.fileWriter.flush();
@@ -300,78 +475,209 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 		setUncaughtExceptionHandler();
 
 		// 성능을 위하여 가능하면 스택을 아낀다.
+		int count;
+		int idleTries = 0;
+		long waitNanos = waitTimeout * 1000000L;
+		long lastAutoShutdownCheck = 0;
 		while(isAlive) {
-			// 라인큐에서 라인을 꺼낸다.
-			Line line = lineQueue.pop();
-			if(line == null) {
-				if(!isWait) {
+			synchronized (writeLock) {
+				// 라인큐에서 라인을 배치 단위로 꺼내어 기록한다.
+				count = drainAndWrite();
+				if(count == 0 && !isWait) {
 					if(isExistCheck) checkExistFile();
+					// 마지막 배치가 가득 찬 채로 큐가 비었을 수 있으므로 대기하기 전에 버퍼를 비운다.
 					flushWrite();
-                    line = lineQueue.pop();
+					count = drainAndWrite();
 				}
 			}
+			if(count > 0) {
+				isWait = false;
+				idleTries = 0;
+				continue;
+			}
 
-			if(line == null) {
-				if(onTerminatedListener != null ) {
-					endLoop();
-					return;
+			if(onTerminatedListener != null ) {
+				endLoop();
+				return;
+			}
+			if(!isWait) {
+				if (isDebug) {
+					InLogger.INFO("WriteWorker in Wait (" + getName() + ")");
 				}
-				try {
-					synchronized (monitor) {
-						line = lineQueue.pop();
-						if(line == null) {
-							if (isDebug && !isWait) {
-								InLogger.INFO("WriteWorker in Wait (" + getName() + ")");
-							}
-							isWait = true;
-							if(isAutoShutdown && !isMainThread()) {
-								if(InLogger.isEnabled()) {
-									InLogger.INFO("Thread id 1 has ended. WriteWorker in AutoShutdown (" + getName() + ")");
-								}
-								shutdownAsync();
-								continue;
-							}
-							monitor.wait(waitTimeout);
+				isWait = true;
+				lastAutoShutdownCheck = 0;
+			}
+			if(isAutoShutdown) {
+				// 스레드 목록을 확인하는 비용이 크기 때문에 대기에 들어갈 때와 workerInterval 마다 한 번씩만 확인한다.
+				long now = System.currentTimeMillis();
+				if(now - lastAutoShutdownCheck >= waitTimeout) {
+					lastAutoShutdownCheck = now;
+					if(!isMainThread()) {
+						if(InLogger.isEnabled()) {
+							InLogger.INFO("Thread id 1 has ended. WriteWorker in AutoShutdown (" + getName() + ")");
 						}
+						shutdownAsync();
 					}
-				} catch (InterruptedException e) {
-					throw new RuntimeException(e);
 				}
-				continue;
 			}
+			waitStrategy.idle(pushSignal, ++idleTries, waitNanos);
+		}
+		endLoop();
+	}
 
-			isWait = false;
-			WriterRackStruct rack = getWriterRack(line);
-			if(rack != null) {
-				// 콘솔에 출력할 메시지와 파일에 출력할 메시지를 만든다.
-				String consoleMessage;
-				String fileMessage;
-
-				// 만약 출력이 일관적인 경우에는 콘솔과 파일에 동시에 출력한다.
-				// 1.0.3 버전~: 컬러 옵션에 따라 콘솔과 파일에 일관된 출력을 할지, 아니면 분리할지 결정한다.
-				// 예를들어 콘솔에는 컬러를 출력하고 파일에는 컬러를 출력하지 않는다 : 분리
-				// 콘솔에도 컬러를 출력하고 파일에도 컬러를 출력한다 : 일관된 출력
-				if(line.isConsistentOutputLine()) {
-					consoleMessage = fileMessage = line.makeLine(null).toString();
-				} else {
-					consoleMessage = line.makeLine(WriterType.Console).toString();
-					fileMessage = line.makeLine(WriterType.File).toString();
-				}
-				// 라인 객체를 해제한다.
-				line.release();
-				writeConsole(rack, consoleMessage);
-				byte[] stringBuffer = fileMessage.getBytes(rack.charset);
-				try {
-					writeFile(rack, line.getTime(), stringBuffer);
-				} catch (IOException e) {
-					InLogger.WARN("Cannot write to the file `" + rack.fileWriter.getFile() + "`. (" + consoleMessage + ")", e);
+	/**
+	 * 큐에서 배치 하나를 꺼내어 기록한다. writeLock 을 잡은 상태에서 호출해야 한다.
+	 * @return 기록한 라인 수
+	 */
+	private int drainAndWrite() {
+		int count = lineQueue.drainTo(lineBatch, lineBatch.length);
+		if(count > 0) {
+			writeLines(lineBatch, count);
+		}
+		writeDroppedCount();
+		// 배치 하나에 한 번만 플러시 여부를 결정한다.
+		// 배치를 가득 채우지 못했다면 큐가 비었다는 뜻이므로 버퍼를 비운다.
+		if(count > 0 && count < lineBatch.length) {
+			flushWrite();
+		}
+		return count;
+	}
+
+	/**
+	 * CallerRuns 정책에서 큐가 가득 찼을 때 로그를 남기는 스레드에서 호출된다.<br>
+	 * 순서를 지키기 위해 큐에 먼저 들어온 라인들을 기록한 뒤 전달받은 라인을 기록한다.
+	 */
+	@Override
+	public boolean runInCaller(Line line) {
+		synchronized (writeLock) {
+			if(!isAlive || lineQueue == null) {
+				return false;
+			}
+			int rounds = lineQueue.getCapacity() / lineBatch.length + 1;
+			//noinspection StatementWithEmptyBody
+			while(rounds-- > 0 && drainAndWrite() == lineBatch.length);
+			dispatchLine(line);
+			flushWrite();
+			return true;
+		}
+	}
+
+	/**
+	 * 큐가 가득 차서 버려진 라인이 있다면 기본 writer 에 요약 라인을 기록한다.
+	 */
+	private void writeDroppedCount() {
+		if(defaultWriterRack == null) {
+			return;
+		}
+		long dropped = lineQueue.takeDroppedCount();
+		if(dropped == 0) {
+			return;
+		}
+		if(shards != null) {
+			shards[defaultWriterRack.shardIndex].addDroppedCount(dropped);
+			return;
+		}
+		writeDroppedMessage(dropped);
+	}
+
+	private void writeDroppedMessage(long dropped) {
+		String message = "[logexpress::WARN] " + dropped + " lines dropped because the log queue was full.\n";
+		writeConsole(defaultWriterRack, message);
+		try {
+			writeFile(defaultWriterRack, CurrentTimeMillisGetter.currentTimeMillis(), message, null, -1, null);
+		} catch (IOException e) {
+			InLogger.WARN("Cannot write to the file `" + defaultWriterRack.fileWriter.getFile() + "`. (" + message + ")", e);
+		}
+	}
+
+	/**
+	 * 배치로 꺼낸 라인들을 포맷, 인코딩한 뒤 순서대로 기록한다.<br>
+	 * shard 가 있다면 라인을 rack 이 속한 shard 의 큐로 보내기만 한다.
+	 */
+	private void writeLines(Line[] lines, int count) {
+		if(shards == null) {
+			writeBatch(renderedBatch, count);
+			onBatchEnd(defaultWriterRack);
+			//noinspection ForLoopReplaceableByForEach
+			for(int i = 0; i < writerRackArray.length; ++i) {
+				onBatchEnd(writerRackArray[i]);
+			}
+			return;
+		}
+		for(int i = 0; i < count; ++i) {
+			Line line = lines[i];
+			lines[i] = null;
+			dispatchLine(line);
+		}
+	}
+
+	private void dispatchLine(Line line) {
+		if(shards == null) {
+			lineBatch[0] = line;
+			writeBatch(renderedBatch, 1);
+			return;
+		}
+		WriterRackStruct rack = getWriterRack(line);
+		if(rack == null) {
+			InLogger.ERROR("Cannot find the writer for the marker `" + line.getMarker() + "`.", null);
+			return;
+		}
+		shards[rack.shardIndex].queue.push(line);
+	}
+
+	/**
+	 * batch 의 앞에서 count 개의 라인을 포맷, 인코딩한 뒤 순서대로 기록한다.<br>
+	 * formatter 스레드가 있다면 포맷과 인코딩을 나누어 맡기고, 호출한 스레드는 인코딩된 byte 를 순서대로 파일에 쓰기만 한다.
+	 */
+	private void writeBatch(RenderedBatch batch, int count) {
+		Line[] lines = batch.lines;
+		WriterRackStruct[] racks = batch.racks;
+		for(int i = 0; i < count; ++i) {
+			WriterRackStruct rack = getWriterRack(lines[i]);
+			if(rack == null) {
+				InLogger.ERROR("Cannot find the writer for the marker `" + lines[i].getMarker() + "`.", null);
+			}
+			racks[i] = rack;
+		}
+		if(formatStage != null) {
+			formatStage.render(batch, count);
+		} else {
+			batch.render(0, count, 0);
+		}
+		for(int i = 0; i < count; ++i) {
+			WriterRackStruct rack = racks[i];
+			CharSequence consoleMessage = batch.consoleMessages[i];
+			Line binaryLine = batch.binaryLines[i];
+			if(rack == null || (consoleMessage == null && binaryLine == null)) {
+				continue;
+			}
+			writeConsole(rack, consoleMessage);
+			try {
+				writeFile(rack, batch.times[i], batch.fileMessages[i], batch.fileBytes[i], batch.fileLengths[i], binaryLine);
+				if(batch.levelValues[i] >= rack.fsyncLevelValue && rack.fileWriter != null) {
+					// 기록은 바로 하고 fsync 는 FileSyncer 스레드에 맡긴다.
+					rack.fileWriter.flush();
+					rack.fileWriter.requestSync();
 				}
-			} else {
-				InLogger.ERROR("Cannot find the writer for the marker `" + line.getMarker() + "`.", null);
+			} catch (IOException e) {
+				InLogger.WARN("Cannot write to the file `" + rack.fileWriter.getFile() + "`." + (consoleMessage == null ? "" : " (" + consoleMessage + ")"), e);
 			}
+		}
+		batch.clear(count);
+	}
 
+	/**
+	 * 배치 하나를 기록한 뒤 플러시 정책(배치마다, 주기)에 따라 버퍼를 비운다.
+	 */
+	private static void onBatchEnd(WriterRackStruct rack) {
+		if(rack == null || rack.fileWriter == null) {
+			return;
+		}
+		try {
+			rack.fileWriter.onBatchEnd(CurrentTimeMillisGetter.currentTimeMillis());
+		} catch (IOException e) {
+			InLogger.ERROR("Cannot flush the write buffer.", e);
 		}
-		endLoop();
 	}
 
 	private void shutdownAsync() {
@@ -390,14 +696,51 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 	}
 
 	private void endLoop() {
-		flushWrite();
-        terminate();
+		synchronized (writeLock) {
+			writeDroppedCount();
+			flushWrite();
+			endShards();
+			consoleWriter.end(CONSOLE_END_TIMEOUT);
+			if(formatStage != null) {
+				formatStage.shutdown();
+			}
+			terminate();
+		}
 		if(isDebug) {
 			InLogger.DEBUG("WriteWorker Terminated (" + getName() + ")" );
 		}
 	}
 
 
+	/**
+	 * shard 에 종료를 알리고, 큐에 남은 라인을 모두 기록할 때까지 기다린다.
+	 */
+	private void endShards() {
+		Shard[] shards = this.shards;
+		if(shards == null) {
+			return;
+		}
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < shards.length; ++i) {
+			shards[i].end();
+		}
+		boolean interrupted = false;
+		//noinspection ForLoopReplaceableByForEach
+		for(int i = 0; i < shards.length; ++i) {
+			while(shards[i].isAlive()) {
+				try {
+					shards[i].join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if(interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
 	// 모든 스레드를 탐색하여 thread id 가 1이 있으면 true를 반환하는 메서드.
 	private boolean isMainThread() {
 		Set<Thread> threads =  Thread.getAllStackTraces().keySet();
@@ -407,35 +750,70 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 		return false;
 	}
 
-	private void writeFile(WriterRackStruct rack,long time,  byte[] stringBuffer) throws IOException {
+	/**
+	 * rack 의 파일에 기록한다. line 이 null 이 아니라면 text 대신 line 을 바이너리 레코드로 기록한다.
+	 * @param bytes text 를 rack 의 문자셋으로 인코딩한 결과. length 가 -1 이면 rack 의 encoder 로 인코딩한다.
+	 */
+	private void writeFile(WriterRackStruct rack,long time,  CharSequence text, byte[] bytes, int length, Line line) throws IOException {
 
 		if(rack.fileWriter != null) {
 			// 파일 패턴에 파일 번호가 있고, 설정한 최대 파일 크기를 넘어갈 경우.
 			if(rack.fileNamePattern.isDateInPattern() && time >= rack.tomorrow) {
-				cleanupLogFileByHistory(rack);
+				Housekeeper.getInstance().cleanup(rack.fileNamePattern, rack.marker, rack.getHistory());
 				rack.newDate();
-				nextFile(rack);
+				nextFile(rack, true);
 
-				rack.fileWriter.write(stringBuffer);
+				writeTo(rack, time, text, bytes, length, line);
 				rack.fileWriter.flush();
 				return;
 			}
-			rack.fileWriter.write(stringBuffer);
+			writeTo(rack, time, text, bytes, length, line);
 			if(rack.fileNamePattern.isNumberInPattern() && rack.fileWriter.isOverSize()) {
-				nextFile(rack);
+				nextFile(rack, false);
 			}
 		}	
 	}
 	
-	private void writeConsole(WriterRackStruct rack, String message) {
+	private static void writeTo(WriterRackStruct rack, long time, CharSequence text, byte[] bytes, int length, Line line) throws IOException {
+		if(line != null) {
+			rack.fileWriter.write(line, time);
+		} else if(rack.isWriteBinary) {
+			rack.fileWriter.writeText(text, time);
+		} else if(length >= 0) {
+			rack.fileWriter.write(bytes, length, time);
+		} else {
+			rack.fileWriter.write(text, rack.encoder, time);
+		}
+	}
+
+	private void writeConsole(WriterRackStruct rack, CharSequence message) {
 		if(rack.isWriteConsole) {
-			//mConsoleWriter.write(stringBuffer);
-			System.out.print(message);
+			consoleWriter.write(message);
 
 		}
 	}
 	
 	
+	/**
+	 * 콘솔에 쓰는 rack 과 여러 rack 이 함께 쓰는 파일은 하나로 묶고, 혼자 쓰는 파일은 rack 마다 구분한다.<br>
+	 * shard 가 있다면 파일은 같은 shard 안에서만 함께 쓰므로 shard 마다 구분하고, 콘솔에 쓰는 rack 이 있는 shard 는 콘솔과 묶는다.
+	 */
+	@Override
+	public Object outputKeyOf(Line line) {
+		WriterRackStruct rack = getWriterRack(line);
+		if(rack == null || rack.isWriteConsole) {
+			return this;
+		}
+		if(shards != null) {
+			Shard shard = shards[rack.shardIndex];
+			return shard.writeConsole ? this : shard;
+		}
+		if(rack.fileWriter != null && rack.fileWriter.isShared()) {
+			return this;
+		}
+		return rack;
+	}
+
 	private WriterRackStruct getWriterRack(Line line) {
 		String marker = line.getMarker();
 		WriterRackStruct rack = writerMap.get(marker);
@@ -446,40 +824,37 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 		
 	}
 	
-	private static void makeDirParentsOf(File file) {
-		File dir = file.getParentFile();
-		if(!dir.exists()) {
-			dir.mkdirs();
-		}
-	}
-
-
-	
-	private void nextFile(WriterRackStruct rack) {
+	/**
+	 * 다음 파일로 교체한다. housekeeper 가 미리 찾아 둔 파일이 있다면 파일 시스템을 탐색하지 않고 바로 바꾼다.
+	 * @param dateChanged 날짜가 바뀌어 교체하는 경우 true
+	 */
+	private void nextFile(WriterRackStruct rack, boolean dateChanged) {
+		File newFile = rack.takePreparedFile(dateChanged);
 		FileWriter oldFileWriter = rack.fileWriter;
 		rack.fileWriter = null;
 		try {
-			File newFile = rack.fileNamePattern.toFileOverMaxSize(rack.marker, rack.getFileMaxSize());
-			makeDirParentsOf(newFile);
+			if(newFile == null) {
+				newFile = rack.fileNamePattern.toFileOverMaxSize(rack.marker, rack.getFileMaxSize());
+				Housekeeper.makeDirParentsOf(newFile);
+			}
 			if(isDebug) {
 				 InLogger.INFO("Write to the next file. `" + newFile + "` (" + getName() + ")" );
 			 }
 			injectFileWriterToRack(rack, newFile);
+			Housekeeper.getInstance().prepareNextFile(rack);
 		} catch (IOException e) {
 			InLogger.ERROR("Cannot advance to the next file of marker `" + rack.marker + "`.", e);
 		} finally {
 			if(oldFileWriter != null) {
 				oldFileWriter.end();
+				// 다른 rack 이 아직 쓰고 있다면 그 rack 이 파일을 교체하며 닫을 때 압축한다.
+				if(oldFileWriter.isClosed() && (rack.fileWriter == null || !oldFileWriter.getFile().equals(rack.fileWriter.getFile()))) {
+					Housekeeper.getInstance().compress(oldFileWriter.getFile(), rack.compression);
+				}
 			}
 		}
 	}
 	
-	private void cleanupLogFileByHistory(WriterRackStruct rack) {		
-		OldFileCleaner cleaner = new OldFileCleaner(rack.fileNamePattern, SysTool.pid(), SysTool.hostname(),rack.marker);
-		cleaner.clean(rack.getHistory());
-	}
-	
-	
 	private void terminate() {
 		synchronized (monitor) {
 			if(!isAlive) {
@@ -504,28 +879,48 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 			writerRackArray = null;
 			if (defaultWriterRack != null) defaultWriterRack.end();
 			defaultWriterRack = null;
-			//mConsoleWriter = null;
+			for (FileWriter writer : set) {
+				writer.close();
+			}
+			// 종료를 기다리는 스레드가 파일을 바로 읽을 수 있도록 파일을 모두 닫은 뒤에 알린다.
 			if (onTerminatedListener != null) {
 				onTerminatedListener.onTerminated();
 			}
 			onTerminatedListener = null;
-			for (FileWriter writer : set) {
-				writer.close();
-			}
 		}
 	}
 
 	private void injectFileWriterToRack(WriterRackStruct rack, File newFile) throws IOException {
 		FileWriter fileWriter = findFileWriter(rack,newFile);
-		rack.fileWriter = fileWriter == null ? new FileWriter(newFile, rack.getFileBufferSize(), rack.getFileMaxSize()) : fileWriter.addReference();
+		FileWriter preparedWriter = rack.preparedWriter;
+		rack.preparedWriter = null;
+		if(fileWriter == null) {
+			if(preparedWriter != null && !preparedWriter.isClosed() && preparedWriter.getFile().equals(newFile)) {
+				// housekeeper 가 미리 열어 둔 파일로 바꾸기만 한다.
+				fileWriter = preparedWriter;
+				preparedWriter = null;
+			} else {
+				fileWriter = new FileWriter(newFile, rack.getFileBufferSize(), rack.getFileMaxSize(), rack.fileMode, rack.preallocate);
+			}
+			fileWriter.setGroupCommit(groupCommitSize, groupCommitLatency);
+			rack.fileWriter = fileWriter;
+		} else {
+			rack.fileWriter = fileWriter.addReference();
+		}
+		if(preparedWriter != null) {
+			Housekeeper.getInstance().discard(preparedWriter);
+		}
+		// 같은 파일을 여러 rack 이 쓴다면 더 엄격한 정책을 따른다.
+		fileWriter.setDurability(rack.flushInterval, rack.flushSize, rack.flushPerBatch, rack.syncOnClose, rack.syncInterval);
 	}
 
 
 	private FileWriter findFileWriter(WriterRackStruct originRack, File file) {
 		for(WriterRackStruct rack : writerMap.values()) {
-
-
-
+			// 다른 shard 의 rack 은 다른 스레드가 쓰고 있으므로 건드리지 않는다.
+			if(rack.shardIndex != originRack.shardIndex) {
+				continue;
+			}
 			if(rack.fileWriter != null && !rack.fileWriter.isClosed() && rack.fileWriter.getFile().equals(file)) {
                 rack.syncFileWriteOptionFromMoreLargeValue(originRack);
 				return rack.fileWriter;
@@ -548,6 +943,130 @@ final public class WriteWorker extends Thread implements OnPushLineListener {
 		this.onTerminatedListener = onTerminatedListener;
 		wakeup();
 	}
+
+
+	/**
+	 * 같은 파일을 쓰는 rack 묶음을 맡아 포맷, 인코딩, 기록하는 스레드.<br>
+	 * WriteWorker 는 로그 큐에서 꺼낸 라인을 rack 이 속한 shard 의 큐로 보내기만 한다.
+	 * 한 파일을 쓰는 rack 은 모두 같은 shard 에 속하고 shard 의 큐는 FIFO 이므로 파일 안의 순서가 유지된다.
+	 */
+	private final class Shard extends Thread {
+
+		private final AbsLineQueue queue;
+		private final WriterRackStruct[] racks;
+		/**
+		 * 콘솔에 쓰는 rack 이 있는지 여부.
+		 */
+		private final boolean writeConsole;
+		private final RenderedBatch batch = new RenderedBatch(LINE_BATCH_SIZE);
+		private final AtomicLong droppedCount = new AtomicLong(0);
+		private volatile boolean ending = false;
+		private final WaitSignal signal = new WaitSignal() {
+			@Override
+			protected boolean isReady() {
+				return ending || queue.size() > 0 || droppedCount.get() > 0;
+			}
+		};
+
+		private Shard(int index, WriterRackStruct[] racks, WaitStrategy producerWaitStrategy) {
+			this.racks = racks;
+			boolean writeConsole = false;
+			for(WriterRackStruct rack : racks) {
+				writeConsole |= rack.isWriteConsole;
+			}
+			this.writeConsole = writeConsole;
+			this.batch.consoleAnsi = consoleWriter.isAnsiEnabled();
+			this.queue = LineQueueFactory.create(LineQueueType.Ring, SHARD_QUEUE_SIZE);
+			queue.setProducerWaitStrategy(producerWaitStrategy);
+			queue.setPushLineEvent(new OnPushLineListener() {
+				@Override
+				public void onPushLine() {
+					signal.signal();
+				}
+			});
+			setName(WriteWorker.this.getName() + "-" + index);
+			setDaemon(WriteWorker.this.isDaemon());
+		}
+
+		private void addDroppedCount(long dropped) {
+			droppedCount.addAndGet(dropped);
+			signal.signal();
+		}
+
+		private void end() {
+			ending = true;
+			signal.signal();
+		}
+
+		@Override
+		public void run() {
+			WriteWorker.this.setUncaughtExceptionHandler();
+			int idleTries = 0;
+			boolean idle = false;
+			long waitNanos = waitTimeout * 1000000L;
+			for(;;) {
+				int count = queue.drainTo(batch.lines, batch.size());
+				if(count > 0) {
+					writeBatch(batch, count);
+					//noinspection ForLoopReplaceableByForEach
+					for(int i = 0; i < racks.length; ++i) {
+						onBatchEnd(racks[i]);
+					}
+				}
+				long dropped = droppedCount.getAndSet(0);
+				if(dropped > 0) {
+					writeDroppedMessage(dropped);
+				}
+				if(count > 0) {
+					if(count < batch.size()) {
+						flush();
+					}
+					idle = false;
+					idleTries = 0;
+					continue;
+				}
+				if(!idle) {
+					if(isExistCheck) checkExistFile();
+					flush();
+					idle = true;
+					continue;
+				}
+				if(ending && queue.size() == 0) {
+					break;
+				}
+				waitStrategy.idle(signal, ++idleTries, waitNanos);
+			}
+			flush();
+		}
+
+		private void checkExistFile() {
+			//noinspection ForLoopReplaceableByForEach
+			for(int i = 0; i < racks.length; ++i) {
+				WriterRackStruct rack = racks[i];
+				if(rack.fileWriter != null) {
+					try {
+						rack.fileWriter.ensureFileExists();
+					} catch (IOException e) {
+						InLogger.ERROR(e);
+					}
+				}
+			}
+		}
+
+		private void flush() {
+			//noinspection ForLoopReplaceableByForEach
+			for(int i = 0; i < racks.length; ++i) {
+				WriterRackStruct rack = racks[i];
+				if(rack.fileWriter != null) {
+					try {
+						rack.fileWriter.flush();
+					} catch (IOException e) {
+						InLogger.ERROR("Cannot flush the write buffer.", e);
+					}
+				}
+			}
+		}
+	}
 	
 
 	
@@ -1,5 +1,9 @@
 package com.hancomins.logexpress.writer;
 
+import com.hancomins.logexpress.configuration.Compression;
+import com.hancomins.logexpress.configuration.FileMode;
+
+import java.io.File;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.TimeZone;
@@ -15,10 +19,59 @@ final class WriterRackStruct {
 	long today;
 	long tomorrow;
 	Charset charset;
+	/**
+	 * 배치 밖에서 기록하는 메시지를 인코딩한다. 이 rack 을 맡은 스레드만 사용한다.
+	 */
+	LineEncoder encoder;
 	FileNamePattern fileNamePattern;
 	
 	boolean isWriteConsole = false;
+	/**
+	 * 파일에 라인을 포맷하지 않고 바이너리 레코드로 기록할지 여부. (WriterType.Binary)
+	 */
+	boolean isWriteBinary = false;
 	FileWriter fileWriter;
+	/**
+	 * 이 rack 을 맡은 WriteWorker shard 의 번호. shard 를 사용하지 않으면 -1.
+	 */
+	int shardIndex = -1;
+	/**
+	 * WriterOption 의 플러시, fsync 정책. 파일을 새로 열 때마다 FileWriter 에 전달한다.
+	 */
+	int flushInterval;
+	int flushSize;
+	boolean flushPerBatch;
+	boolean syncOnClose;
+	int syncInterval;
+	/**
+	 * 이 값 이상의 레벨을 가진 라인을 기록하면 바로 플러시하고 fsync 를 요청한다.
+	 */
+	int fsyncLevelValue = Integer.MAX_VALUE;
+	/**
+	 * 파일에 byte 를 기록하는 방식. 파일을 새로 열 때 FileWriter 에 전달한다.
+	 */
+	FileMode fileMode = FileMode.Stream;
+	/**
+	 * 파일을 최대 크기로 미리 늘려 두고, 다음 파일도 housekeeper 스레드에서 미리 열어 둘지 여부.
+	 */
+	boolean preallocate;
+	/**
+	 * housekeeper 스레드가 다음 파일을 미리 열어 둘지 여부. 다른 rack 과 파일을 함께 쓰지 않을 때만 true 이다.
+	 */
+	volatile boolean preOpenNextFile;
+	/**
+	 * 교체되어 닫힌 파일을 압축하는 방식.
+	 */
+	Compression compression = Compression.None;
+	/**
+	 * housekeeper 스레드가 미리 찾아 둔 다음 파일. rack 으로 동기화한다.
+	 */
+	Housekeeper.PreparedFiles preparedFiles;
+	/**
+	 * takePreparedFile() 이 꺼낸, 미리 열어 둔 다음 파일의 FileWriter. 파일을 교체할 때 사용한다.
+	 */
+	FileWriter preparedWriter;
+	private boolean ended = false;
 
 	int getFileMaxSize() {
 		return fileMaxSize;
@@ -84,6 +137,7 @@ final class WriterRackStruct {
 		} else {
 			this.charset = Charset.defaultCharset();
 		}
+		this.encoder = new LineEncoder(this.charset);
 		this.marker = marker;
 		this.fileBufferSize = fileBufferSize;
 		this.fileMaxSize = fileMaxSize;
@@ -91,6 +145,57 @@ final class WriterRackStruct {
 		newDate();
 	}
 	
+	/**
+	 * 미리 찾아 둔 다음 파일을 꺼낸다. 지금 쓰고 있는 파일이나 날짜가 탐색할 때와 다르다면 null 을 반환한다.
+	 * @param dateChanged 날짜가 바뀌어 교체하는 경우 true. newDate() 를 호출한 뒤에 불러야 한다.
+	 */
+	File takePreparedFile(boolean dateChanged) {
+		Housekeeper.PreparedFiles prepared;
+		synchronized (this) {
+			prepared = preparedFiles;
+			preparedFiles = null;
+		}
+		if(prepared == null) {
+			return null;
+		}
+		File file = null;
+		if(fileWriter != null && prepared.current.equals(fileWriter.getFile())) {
+			if(dateChanged) {
+				file = prepared.tomorrow == today ? prepared.nextDateFile : null;
+			} else if(prepared.tomorrow == tomorrow) {
+				file = prepared.nextNumberFile;
+				preparedWriter = prepared.nextNumberWriter;
+				return file;
+			}
+		}
+		if(prepared.nextNumberWriter != null) {
+			Housekeeper.getInstance().discard(prepared.nextNumberWriter);
+		}
+		return file;
+	}
+
+	/**
+	 * housekeeper 스레드가 찾은 다음 파일을 넣어 둔다. rack 이 이미 종료되었거나 꺼내지 않은 이전 파일이 있다면 미리 열어 둔 FileWriter 를 닫는다.
+	 */
+	void setPreparedFiles(Housekeeper.PreparedFiles prepared) {
+		Housekeeper.PreparedFiles old;
+		synchronized (this) {
+			if(ended) {
+				old = prepared;
+			} else {
+				old = preparedFiles;
+				preparedFiles = prepared;
+			}
+		}
+		if(old != null && old.nextNumberWriter != null) {
+			old.nextNumberWriter.discard();
+		}
+	}
+
+	synchronized boolean hasPreparedFiles() {
+		return preparedFiles != null;
+	}
+
 	void newDate() {
 		long current = CurrentTimeMillisGetter.currentTimeMillis();
 		this.tomorrow = addDate(current, 1);
@@ -117,6 +222,19 @@ final class WriterRackStruct {
 	
 	
 	void end() {
+		Housekeeper.PreparedFiles prepared;
+		synchronized (this) {
+			ended = true;
+			prepared = preparedFiles;
+			preparedFiles = null;
+		}
+		if(prepared != null && prepared.nextNumberWriter != null) {
+			prepared.nextNumberWriter.discard();
+		}
+		if(preparedWriter != null) {
+			preparedWriter.discard();
+			preparedWriter = null;
+		}
 		fileNamePattern = null;
 		if(fileWriter != null) {
 			fileWriter.end();
@@ -0,0 +1,145 @@
+package com.hancomins.logexpress.writer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 미리 늘려 두거나 매핑하여 실제 기록한 길이보다 길어진 파일의 끝에 두는 표시.<br>
+ * 파일을 늘릴 때 마지막 {@link #SIZE} byte 에 [기록한 길이 (8 byte)][MAGIC (8 byte)] 를 쓰고, 닫을 때 실제 길이로 줄이면서 함께 지운다.
+ * 다시 연 파일의 끝에 표시가 없다면 정상적으로 닫힌 파일이므로 파일 길이가 곧 기록한 길이이다.
+ * 기록한 내용이 0 으로 끝나더라도(바이너리 레코드, UTF-16 의 줄바꿈 등) 잘리지 않는다.<br>
+ * 표시가 있다면 닫지 못하고 종료된 파일이므로, 표시에 적힌 길이부터 표시 앞까지에서 0 이 아닌 마지막 byte 를 찾아 기록한 길이로 삼는다.
+ * 기록하는 쪽은 표시에 적힌 길이를 가끔 갱신하여 찾는 범위를 줄인다.
+ */
+final class WrittenLengthMarker {
+
+	/**
+	 * 표시의 크기.
+	 */
+	static final int SIZE = 16;
+
+	/**
+	 * 이만큼 더 기록할 때마다 표시에 적힌 길이를 갱신한다.
+	 */
+	static final long UPDATE_INTERVAL = 8 * 1024 * 1024;
+
+	/**
+	 * "LXOPEN!" + 1
+	 */
+	private static final long MAGIC = 0x4C584F50454E2101L;
+
+	/**
+	 * 닫지 못한 파일의 길이를 찾을 때 한 번에 읽는 크기.
+	 */
+	private static final int READ_SIZE = 64 * 1024;
+
+	private WrittenLengthMarker() {}
+
+	/**
+	 * 파일 끝의 표시를 확인하여 기록한 길이를 반환한다. 닫지 못하고 종료된 파일이라면 기록한 길이로 줄인다.
+	 *
+	 * @param channel 읽고 쓸 수 있는 파일 채널
+	 * @return 기록한 길이
+	 */
+	static long recover(FileChannel channel) throws IOException {
+		long size = channel.size();
+		if (size < SIZE) return size;
+		ByteBuffer marker = ByteBuffer.allocate(SIZE);
+		readFully(channel, marker, size - SIZE);
+		long hint = marker.getLong(0);
+		if (marker.getLong(8) != MAGIC) {
+			return size;
+		}
+		long length = findLength(channel, Math.max(0, Math.min(hint, size - SIZE)), size - SIZE);
+		channel.truncate(length);
+		return length;
+	}
+
+	/**
+	 * 파일을 열지 않고 스트림으로 이어 쓰기 전에 사용한다. 닫지 못하고 종료된 파일이라면 기록한 길이로 줄인다.
+	 */
+	static void recover(File file) throws IOException {
+		if (file.length() < SIZE) return;
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			recover(randomAccessFile.getChannel());
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * end 까지 늘린 파일의 끝에 표시를 쓴다. 파일이 end 보다 짧다면 end 까지 늘어난다.
+	 *
+	 * @param channel 파일 채널
+	 * @param end 파일 끝 위치
+	 * @param writtenLength 지금까지 기록을 마친 길이
+	 */
+	static void mark(FileChannel channel, long end, long writtenLength) throws IOException {
+		ByteBuffer marker = ByteBuffer.allocate(SIZE);
+		marker.putLong(0, writtenLength);
+		marker.putLong(8, MAGIC);
+		writeFully(channel, marker, end - SIZE);
+	}
+
+	/**
+	 * end 에 있던 표시를 0 으로 지운다. 파일을 더 늘려 표시를 옮긴 뒤에 호출한다.
+	 */
+	static void erase(FileChannel channel, long end) throws IOException {
+		writeFully(channel, ByteBuffer.allocate(SIZE), end - SIZE);
+	}
+
+	/**
+	 * from 부터 end 앞까지에서 0 이 아닌 마지막 byte 를 찾는다.
+	 * 표시를 옮기는 도중에 종료되어 남은 이전 표시는 기록한 내용이 아니므로 건너뛴다.
+	 */
+	private static long findLength(FileChannel channel, long from, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+		ByteBuffer magic = ByteBuffer.allocate(8);
+		while (end > from) {
+			long start = Math.max(from, end - READ_SIZE);
+			buffer.clear();
+			buffer.limit((int) (end - start));
+			readFully(channel, buffer, start);
+			int i = buffer.limit() - 1;
+			while (i >= 0 && buffer.get(i) == 0) {
+				--i;
+			}
+			if (i < 0) {
+				end = start;
+				continue;
+			}
+			long length = start + i + 1;
+			if (length - SIZE >= from) {
+				magic.clear();
+				readFully(channel, magic, length - 8);
+				if (magic.getLong(0) == MAGIC) {
+					end = length - SIZE;
+					continue;
+				}
+			}
+			return length;
+		}
+		return from;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of file.");
+			}
+			position += read;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+}
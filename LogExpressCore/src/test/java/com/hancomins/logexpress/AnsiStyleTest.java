@@ -2,6 +2,7 @@ package com.hancomins.logexpress;
 
 import com.hancomins.logexpress.configuration.StyleOption;
 import com.hancomins.logexpress.configuration.Configuration;
+import com.hancomins.logexpress.configuration.ConsoleAnsi;
 import com.hancomins.logexpress.configuration.WriterOption;
 import org.junit.Test;
 
@@ -33,6 +34,8 @@ public class AnsiStyleTest {
 
 
         Configuration configuration = LogExpress.cloneConfiguration();
+        // System.setOut() 으로 바꾼 스트림은 터미널이 아니므로 스타일을 항상 출력하도록 한다.
+        configuration.setConsoleAnsi(ConsoleAnsi.Always);
         WriterOption writerOption = configuration.getDefaultWriterOption();
         writerOption.setFile(file);
         @SuppressWarnings("UnusedAssignment")
@@ -113,6 +116,8 @@ public class AnsiStyleTest {
 
 
         Configuration configuration = LogExpress.cloneConfiguration();
+        // System.setOut() 으로 바꾼 스트림은 터미널이 아니므로 스타일을 항상 출력하도록 한다.
+        configuration.setConsoleAnsi(ConsoleAnsi.Always);
         WriterOption writerOption = configuration.getDefaultWriterOption();
         writerOption.setFile(file);
         @SuppressWarnings("UnusedAssignment")
@@ -198,6 +203,8 @@ public class AnsiStyleTest {
 
 
         Configuration configuration = LogExpress.cloneConfiguration();
+        // System.setOut() 으로 바꾼 스트림은 터미널이 아니므로 스타일을 항상 출력하도록 한다.
+        configuration.setConsoleAnsi(ConsoleAnsi.Always);
         WriterOption writerOption = configuration.getDefaultWriterOption();
         writerOption.setFile(file);
         StyleOption styleOption = writerOption.styleOption();
@@ -280,6 +287,8 @@ public class AnsiStyleTest {
 
 
         Configuration configuration = LogExpress.cloneConfiguration();
+        // System.setOut() 으로 바꾼 스트림은 터미널이 아니므로 스타일을 항상 출력하도록 한다.
+        configuration.setConsoleAnsi(ConsoleAnsi.Always);
         WriterOption writerOption = configuration.getDefaultWriterOption();
         writerOption.setFile(file);
         StyleOption styleOption = writerOption.styleOption();
@@ -361,6 +370,8 @@ public class AnsiStyleTest {
 
 
         Configuration configuration = LogExpress.cloneConfiguration();
+        // System.setOut() 으로 바꾼 스트림은 터미널이 아니므로 스타일을 항상 출력하도록 한다.
+        configuration.setConsoleAnsi(ConsoleAnsi.Always);
         WriterOption writerOption = configuration.getDefaultWriterOption();
         writerOption.setFile(file);
         StyleOption styleOption = writerOption.styleOption();
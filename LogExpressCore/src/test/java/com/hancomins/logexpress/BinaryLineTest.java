@@ -0,0 +1,125 @@
+package com.hancomins.logexpress;
+
+import com.hancomins.logexpress.configuration.Configuration;
+import com.hancomins.logexpress.configuration.FileMode;
+import com.hancomins.logexpress.configuration.WriterOption;
+import com.hancomins.logexpress.configuration.WriterType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class BinaryLineTest {
+
+	@Test
+	public void roundTripTest() throws IOException {
+		String pattern = "{time::HH:mm:ss.SSS} [{level}] {marker} <{thread}:{tid}> {caller} {method}:{line} | {message}";
+		LineFormatter formatter = LineFormatter.parse(pattern);
+		Line[] lines = new Line[] {
+				new Line(formatter, BinaryLineTest.class, Level.INFO, "marker", "ascii message", null, 0),
+				new Line(formatter, BinaryLineTest.class, Level.WARN, null, "한글 메시지 😀", null, 0),
+				new Line(formatter, BinaryLineTest.class, Level.DEBUG, "marker", MessageFormatter.newFormat("{} + {} = {} {} {} {} {} {}", 1, 2L, 3.5, 1.5f, true, 'c', null, new StringBuilder("sb")), null, 0),
+				new Line(formatter, BinaryLineTest.class, Level.DEBUG, "marker", MessageFormatter.newFormat("{} + {}", -7, (short)-3), null, 0),
+				new Line(formatter, BinaryLineTest.class, Level.ERROR, "marker", "error", new RuntimeException("error", new IllegalStateException("cause")), 0)
+		};
+		BinaryLineEncoder encoder = new BinaryLineEncoder();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		StringBuilder expected = new StringBuilder();
+		for(Line line : lines) {
+			write(out, encoder, encoder.encode(line));
+			expected.append(line.makeLine(WriterType.File));
+		}
+		write(out, encoder, encoder.encodeText(0, "text record\n"));
+		expected.append("text record\n");
+
+		// 같은 문자열은 한 번만 정의하므로 두 번째 파일 세션(새 인코더)이 이어져도 읽을 수 있다.
+		BinaryLineEncoder nextEncoder = new BinaryLineEncoder();
+		write(out, nextEncoder, nextEncoder.encode(lines[2]));
+		expected.append(lines[2].makeLine(WriterType.File));
+
+		BinaryLineDecoder decoder = new BinaryLineDecoder(new ByteArrayInputStream(out.toByteArray()), pattern);
+		StringBuilder actual = new StringBuilder();
+		//noinspection StatementWithEmptyBody
+		while(decoder.read(actual));
+		decoder.close();
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void repeatedStringsTest() throws IOException {
+		LineFormatter formatter = LineFormatter.parse("{message}");
+		BinaryLineEncoder encoder = new BinaryLineEncoder();
+		Line line = new Line(formatter, BinaryLineTest.class, Level.INFO, "marker", MessageFormatter.newFormat("a long message pattern with an argument {}", 1), null, 0);
+		int first = encoder.encode(line);
+		int second = encoder.encode(line);
+		// 두 번째부터는 정의 레코드 없이 번호로만 기록한다.
+		assertTrue(second < first);
+		assertTrue(second < "a long message pattern with an argument 1".length());
+	}
+
+	@Test
+	public void preallocatedTailTest() throws IOException {
+		LineFormatter formatter = LineFormatter.parse("{message}");
+		BinaryLineEncoder encoder = new BinaryLineEncoder();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(out, encoder, encoder.encode(new Line(formatter, BinaryLineTest.class, Level.INFO, null, "a", null, 0)));
+		ByteArrayOutputStream zeroTail = new ByteArrayOutputStream();
+		zeroTail.write(out.toByteArray());
+		zeroTail.write(new byte[64]);
+		int length = encoder.encode(new Line(formatter, BinaryLineTest.class, Level.INFO, null, "b", null, 0));
+		out.write(encoder.array(), 0, length - 1);
+		// 덜 기록된 레코드와 미리 늘려 둔 파일의 0 은 읽지 않는다.
+		for(byte[] data : new byte[][] {out.toByteArray(), zeroTail.toByteArray()}) {
+			BinaryLineDecoder decoder = new BinaryLineDecoder(new ByteArrayInputStream(data), "{message}");
+			StringBuilder actual = new StringBuilder();
+			//noinspection StatementWithEmptyBody
+			while(decoder.read(actual));
+			assertEquals("a\n", actual.toString());
+		}
+	}
+
+	@Test
+	public void reopenTest() throws IOException, InterruptedException {
+		// 레코드는 0 으로 끝날 수 있다. 매핑하거나 미리 늘려 둔 파일을 다시 열어도 마지막 레코드가 잘리지 않아야 한다.
+		FileMode[] fileModes = new FileMode[] {FileMode.Mmap, FileMode.Mmap, FileMode.Stream, FileMode.Async};
+		boolean[] preallocates = new boolean[] {false, true, true, true};
+		for(int i = 0; i < fileModes.length; ++i) {
+			File file = File.createTempFile("binaryReopenTest", ".bin");
+			assertTrue(file.delete());
+			for(int count : new int[] {0, 7}) {
+				Configuration configuration = LogExpress.cloneConfiguration();
+				// 종료 메시지가 마지막 레코드가 되지 않도록 마커로 구분한 writer 에 기록한다.
+				WriterOption writerOption = configuration.newWriterOption("binaryReopen");
+				writerOption.setFile(file.getAbsolutePath());
+				writerOption.setMaxSize(1);
+				writerOption.clearWriterType();
+				writerOption.addWriterType(WriterType.Binary);
+				writerOption.setFileMode(fileModes[i]);
+				writerOption.setPreallocate(preallocates[i]);
+				writerOption.setLinePattern("{message}");
+				LogExpress.updateConfig(configuration);
+				LogExpress.newLogger("binaryReopen").info("count={}", count);
+				LogExpress.shutdown().await();
+			}
+			BinaryLineDecoder decoder = new BinaryLineDecoder(BinaryLineDecoder.open(file), "{message}");
+			StringBuilder actual = new StringBuilder();
+			//noinspection StatementWithEmptyBody
+			while(decoder.read(actual));
+			decoder.close();
+			assertEquals(fileModes[i] + "/" + preallocates[i], "count=0\ncount=7\n", actual.toString());
+			assertTrue(file.delete());
+		}
+	}
+
+	/**
+	 * encode 가 버퍼를 늘릴 수 있으므로 인코딩한 뒤에 array() 를 읽는다.
+	 */
+	private static void write(ByteArrayOutputStream out, BinaryLineEncoder encoder, int length) {
+		out.write(encoder.array(), 0, length);
+	}
+
+}
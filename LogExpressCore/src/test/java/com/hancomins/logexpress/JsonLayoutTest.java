@@ -0,0 +1,54 @@
+package com.hancomins.logexpress;
+
+import com.hancomins.logexpress.configuration.LineLayout;
+import com.hancomins.logexpress.configuration.WriterType;
+import com.hancomins.logexpress.util.StringUtil;
+import com.hancomins.logexpress.util.SysTool;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JsonLayoutTest {
+
+	@Test
+	public void escapeTest() {
+		StringBuilder stringBuilder = new StringBuilder("prefix:");
+		StringUtil.appendJsonString(stringBuilder, "a\"b\\c\nd\re\tf\bg\fh\u0001i\u001fj/한글😀");
+		assertEquals("prefix:\"a\\\"b\\\\c\\nd\\re\\tf\\bg\\fh\\u0001i\\u001fj/한글😀\"", stringBuilder.toString());
+		stringBuilder.setLength(0);
+		StringUtil.appendJsonString(stringBuilder, null);
+		assertEquals("null", stringBuilder.toString());
+	}
+
+	@Test
+	public void fieldsTest() {
+		String pattern = "[{level}] {marker} <{thread}:{tid}> {caller} {caller-simple} {class-name} {method}:{line} {pid} {hostname} {level} | {message}";
+		LineFormatter formatter = LineFormatter.parse(pattern, null, LineLayout.Json);
+		Line line = new Line(formatter, JsonLayoutTest.class, Level.INFO, "marker", "say \"hi\"\n", null, 0);
+		line.setCallerElement(new StackTraceElement("com.example.Foo", "bar", "Foo.java", 12));
+		String json = line.makeLine(WriterType.File).toString();
+		String expected = "{\"level\":\"INFO\",\"marker\":\"marker\",\"thread\":" + quote(line.getThreadName()) + ",\"tid\":" + line.getTID() +
+				",\"caller\":" + quote(line.getCallerFQCN()) + ",\"caller-simple\":\"JsonLayoutTest\",\"class-name\":\"Foo\",\"method\":\"bar\",\"line\":12" +
+				",\"pid\":" + SysTool.pid() + ",\"hostname\":" + quote(SysTool.hostname()) + ",\"message\":\"say \\\"hi\\\"\\n\"}\n";
+		assertEquals(expected, json);
+	}
+
+	@Test
+	public void errorTest() {
+		LineFormatter formatter = LineFormatter.parse("{level} {message}", null, LineLayout.Json);
+		Line line = new Line(formatter, JsonLayoutTest.class, Level.ERROR, null, "failed", new IllegalStateException("bad\tstate"), 0);
+		String json = line.makeLine(WriterType.File).toString();
+		assertTrue(json.startsWith("{\"level\":\"ERROR\",\"message\":\"failed\",\"error\":\"java.lang.IllegalStateException: bad\\tstate"));
+		assertTrue(json.endsWith("\"}\n"));
+		// 스택 트레이스의 줄바꿈도 이스케이프하여 라인 하나로 출력한다.
+		assertEquals(json.length() - 1, json.indexOf('\n'));
+		assertTrue(json.contains("\\n\\tat "));
+	}
+
+	private static String quote(CharSequence value) {
+		StringBuilder stringBuilder = new StringBuilder();
+		StringUtil.appendJsonString(stringBuilder, value);
+		return stringBuilder.toString();
+	}
+
+}
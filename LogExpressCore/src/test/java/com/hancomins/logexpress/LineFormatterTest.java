@@ -118,6 +118,36 @@ public class LineFormatterTest {
 
     }
 
+    @Test
+    public void concurrentTimeFormatTest() throws InterruptedException {
+        // 여러 포맷 스레드가 같은 패턴의 {time} 을 잠그지 않고 동시에 만들어도 결과가 섞이지 않아야 한다.
+        final String datePattern = "yyyy-MM-dd HH:mm:ss.SSS";
+        final LineCombiner lineCombiner = LineFormatter.parse("{time::" + datePattern + "}").getLineCombiner();
+        final java.util.concurrent.atomic.AtomicInteger failures = new java.util.concurrent.atomic.AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; ++i) {
+            final long base = 1000000000000L + i * 86400000L * 400;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    SimpleDateFormat expected = new SimpleDateFormat(datePattern);
+                    for(int j = 0; j < 20000; ++j) {
+                        long time = base + j * 997L;
+                        Line line = new Line(lineCombiner, Level.INFO, time, 0, "thread", null, "", "", 0, 0);
+                        if(!(expected.format(new Date(time)) + "\n").equals(lineCombiner.combine(line).toString())) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+    }
+
     @Test
     public void parseLenRangeTest() {
         LineFormatter.LenRange lenRange = LineFormatter.parseLenRange("[ 1:10]");
@@ -0,0 +1,716 @@
+package com.hancomins.logexpress;
+
+import com.hancomins.logexpress.configuration.Configuration;
+import com.hancomins.logexpress.configuration.WriterType;
+import com.hancomins.logexpress.queue.AbsLineQueue;
+import com.hancomins.logexpress.queue.CallerRunsHandler;
+import com.hancomins.logexpress.queue.ElasticLineQueue;
+import com.hancomins.logexpress.queue.LineOutputResolver;
+import com.hancomins.logexpress.queue.LineQueueFactory;
+import com.hancomins.logexpress.queue.OffHeapLineQueue;
+import com.hancomins.logexpress.queue.OverflowLineQueue;
+import com.hancomins.logexpress.queue.OverflowPolicy;
+import com.hancomins.logexpress.queue.WaitStrategy;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class LineQueueTest {
+
+	private static final LineFormatter FORMATTER = LineFormatter.parse("{message}");
+
+	private static Line newLine(String message) {
+		return newLine(Level.INFO, message);
+	}
+
+	private static Line newLine(Level level, String message) {
+		return new Line(FORMATTER, level, "test", message, null, 0);
+	}
+
+	private static AbsLineQueue newOverflowQueue(OverflowPolicy policy, int capacity) {
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueType(LineQueueFactory.LineQueueType.Ring);
+		configuration.setQueueSize(capacity);
+		configuration.setOverflowPolicy(policy);
+		configuration.setOverflowTimeout(10);
+		return LineQueueFactory.create(configuration);
+	}
+
+	@Test
+	public void ringCapacityTest() {
+		AbsLineQueue queue = LineQueueFactory.create(LineQueueFactory.LineQueueType.Ring, 100);
+		assertEquals(128, queue.getCapacity());
+		assertNull(queue.pop());
+	}
+
+	@Test
+	public void ringOrderTest() {
+		AbsLineQueue queue = LineQueueFactory.create(LineQueueFactory.LineQueueType.Ring, 16);
+		for(int round = 0; round < 5; ++round) {
+			for(int i = 0; i < 16; ++i) {
+				queue.push(newLine(round + ":" + i));
+			}
+			for(int i = 0; i < 16; ++i) {
+				assertEquals(round + ":" + i, queue.pop().getMessage().toString());
+			}
+			assertNull(queue.pop());
+		}
+	}
+
+	@Test
+	public void drainToTest() {
+		LineQueueFactory.LineQueueType[] types = LineQueueFactory.LineQueueType.values();
+		for(LineQueueFactory.LineQueueType type : types) {
+			AbsLineQueue queue = LineQueueFactory.create(type, 64);
+			for(int i = 0; i < 40; ++i) {
+				queue.push(newLine(i + ""));
+			}
+			Line[] batch = new Line[32];
+			assertEquals(type.name(), 16, queue.drainTo(batch, 16));
+			assertEquals(type.name(), 24, queue.drainTo(batch, 32));
+			assertEquals(type.name(), 0, queue.drainTo(batch, 32));
+		}
+	}
+
+	@Test
+	public void ringDrainOrderTest() {
+		AbsLineQueue queue = LineQueueFactory.create(LineQueueFactory.LineQueueType.Ring, 16);
+		Line[] batch = new Line[10];
+		int next = 0;
+		for(int round = 0; round < 10; ++round) {
+			for(int i = 0; i < 12; ++i) {
+				queue.push(newLine((round * 12 + i) + ""));
+			}
+			int count;
+			while((count = queue.drainTo(batch, batch.length)) > 0) {
+				for(int i = 0; i < count; ++i) {
+					assertEquals(next++ + "", batch[i].getMessage().toString());
+				}
+			}
+		}
+		assertEquals(120, next);
+	}
+
+	@Test
+	public void overflowDropNewestTest() {
+		AbsLineQueue queue = newOverflowQueue(OverflowPolicy.DropNewest, 16);
+		for(int i = 0; i < 20; ++i) {
+			queue.push(newLine(i + ""));
+		}
+		assertEquals(4, queue.takeDroppedCount());
+		assertEquals(0, queue.takeDroppedCount());
+		for(int i = 0; i < 16; ++i) {
+			assertEquals(i + "", queue.pop().getMessage().toString());
+		}
+		assertNull(queue.pop());
+	}
+
+	@Test
+	public void overflowDropOldestTest() {
+		AbsLineQueue queue = newOverflowQueue(OverflowPolicy.DropOldest, 16);
+		for(int i = 0; i < 20; ++i) {
+			queue.push(newLine(i + ""));
+		}
+		assertEquals(4, queue.takeDroppedCount());
+		for(int i = 4; i < 20; ++i) {
+			assertEquals(i + "", queue.pop().getMessage().toString());
+		}
+		assertNull(queue.pop());
+	}
+
+	@Test
+	public void overflowDropBelowLevelTest() {
+		AbsLineQueue queue = newOverflowQueue(OverflowPolicy.DropBelowLevel, 16);
+		for(int i = 0; i < 16; ++i) {
+			queue.push(newLine(Level.ERROR, i + ""));
+		}
+		queue.push(newLine(Level.DEBUG, "debug"));
+		queue.push(newLine(Level.INFO, "info"));
+		assertEquals(2, queue.takeDroppedCount());
+		assertEquals(16, queue.size());
+	}
+
+	@Test
+	public void overflowBlockTimeoutTest() {
+		AbsLineQueue queue = newOverflowQueue(OverflowPolicy.BlockTimeout, 16);
+		for(int i = 0; i < 17; ++i) {
+			queue.push(newLine(i + ""));
+		}
+		assertEquals(1, queue.takeDroppedCount());
+		assertEquals(16, queue.size());
+	}
+
+	@Test
+	public void overflowSampleTest() {
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueSize(16);
+		configuration.setOverflowPolicy(OverflowPolicy.Sample);
+		configuration.setOverflowHighWatermark(0.5f);
+		configuration.setOverflowSampleRate(0f);
+		AbsLineQueue queue = LineQueueFactory.create(configuration);
+		for(int i = 0; i < 16; ++i) {
+			queue.push(newLine(i + ""));
+		}
+		// high watermark 를 넘은 뒤의 라인은 모두 버려진다.
+		assertEquals(8, queue.size());
+		assertEquals(8, queue.takeDroppedCount());
+	}
+
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		java.util.Arrays.fill(chars, c);
+		return new String(chars);
+	}
+
+	@Test
+	public void estimatedSizeTest() {
+		Line small = newLine("a");
+		Line large = newLine(repeat('a', 10000));
+		assertEquals(2 * 9999, large.getEstimatedSize() - small.getEstimatedSize());
+		Line withArgs = new Line(FORMATTER, Level.INFO, "test", MessageFormatter.newFormat("{}{}{}", "a", "b", "c"), null, 0);
+		assertTrue(withArgs.getEstimatedSize() > newLine("abc").getEstimatedSize());
+		Line withError = new Line(FORMATTER, Level.ERROR, "test", "a", new RuntimeException("error", new IllegalStateException()), 0);
+		assertTrue(withError.getEstimatedSize() > small.getEstimatedSize() + 2 * 64);
+	}
+
+	@Test
+	public void memoryBudgetTest() {
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueSize(1000);
+		configuration.setQueueMemoryLimit(1);
+		configuration.setQueueMemoryLowWatermark(0.5f);
+		configuration.setOverflowPolicy(OverflowPolicy.DropNewest);
+		AbsLineQueue queue = LineQueueFactory.create(configuration);
+		// 라인 하나가 약 200KB 이므로 1MiB 에는 5개까지 들어간다.
+		String message = repeat('a', 100000);
+		for(int i = 0; i < 10; ++i) {
+			queue.push(newLine(message));
+		}
+		assertEquals(5, queue.size());
+		assertEquals(5, queue.takeDroppedCount());
+		// low watermark 아래로 내려가기 전에는 계속 가득 찬 상태다.
+		assertNotNull(queue.pop());
+		assertNotNull(queue.pop());
+		queue.push(newLine(message));
+		assertEquals(3, queue.size());
+		assertEquals(1, queue.takeDroppedCount());
+		assertNotNull(queue.pop());
+		queue.push(newLine(message));
+		assertEquals(3, queue.size());
+		assertEquals(0, queue.takeDroppedCount());
+	}
+
+	@Test
+	public void memoryBudgetOversizedLineTest() {
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueMemoryLimit(1);
+		configuration.setOverflowPolicy(OverflowPolicy.DropNewest);
+		AbsLineQueue queue = LineQueueFactory.create(configuration);
+		// 비어 있는 큐는 한도보다 큰 라인도 받아들인다.
+		queue.push(newLine(repeat('a', 1024 * 1024)));
+		assertEquals(1, queue.size());
+		queue.push(newLine("a"));
+		assertEquals(1, queue.takeDroppedCount());
+		assertNotNull(queue.pop());
+		queue.push(newLine("a"));
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	public void offHeapRoundTripTest() {
+		LineFormatter formatter = LineFormatter.parse("{level} [{marker}] {thread} {message}");
+		AbsLineQueue queue = LineQueueFactory.create(LineQueueFactory.LineQueueType.OffHeap, 16);
+		Line[] lines = new Line[] {
+				new Line(formatter, Level.INFO, "marker", "ascii message", null, 0),
+				new Line(formatter, Level.WARN, null, "한글 메시지", null, 0),
+				new Line(formatter, Level.DEBUG, "marker", MessageFormatter.newFormat("{} + {}", 1, 2), null, 0),
+				// 레코드보다 긴 메시지와 예외를 갖는 라인은 힙에 그대로 담긴다.
+				new Line(formatter, Level.INFO, "marker", repeat('a', 1000), null, 0),
+				new Line(formatter, Level.ERROR, "marker", "error", new RuntimeException("error"), 0)
+		};
+		for(Line line : lines) {
+			queue.push(line);
+		}
+		for(int i = 0; i < lines.length; ++i) {
+			Line line = lines[i];
+			Line decoded = queue.pop();
+			if(i >= 3) {
+				assertSame(line, decoded);
+				continue;
+			}
+			assertNotSame(line, decoded);
+			assertEquals(line.getLevel(), decoded.getLevel());
+			assertEquals(line.getMarker(), decoded.getMarker());
+			assertEquals(line.getTime(), decoded.getTime());
+			assertEquals(line.getTID(), decoded.getTID());
+			assertEquals(line.getThreadName(), decoded.getThreadName());
+			assertEquals(line.getMessage().toString(), decoded.getMessage().toString());
+			assertEquals(line.getEstimatedSize(), decoded.getEstimatedSize());
+			assertEquals(line.makeLine(WriterType.File).toString(), decoded.makeLine(WriterType.File).toString());
+		}
+		assertNull(queue.pop());
+		assertEquals(2, ((OffHeapLineQueue)queue).getHeapLineCount());
+	}
+
+	@Test
+	public void offHeapDictionaryFullTest() {
+		LineFormatter formatter = LineFormatter.parse("[{marker}] {message}");
+		OffHeapLineQueue queue = (OffHeapLineQueue)LineQueueFactory.create(LineQueueFactory.LineQueueType.OffHeap, 16);
+		// 사전에 다 담을 수 없을 만큼 마커가 많아도 문자열을 레코드에 그대로 기록한다.
+		for(int i = 0; i < 5000; ++i) {
+			Line line = new Line(formatter, Level.INFO, "marker-" + i, "message", null, 0);
+			queue.push(line);
+			Line decoded = queue.pop();
+			assertNotSame(line, decoded);
+			assertEquals("[marker-" + i + "] message", decoded.makeLine(WriterType.File).toString().trim());
+		}
+		assertEquals(0, queue.getHeapLineCount());
+	}
+
+	private static File newSpillDir() {
+		File dir = new File(System.getProperty("java.io.tmpdir"), "logexpress-spill-test-" + System.nanoTime());
+		assertTrue(dir.mkdirs());
+		return dir;
+	}
+
+	@Test
+	public void spillOrderTest() {
+		File dir = newSpillDir();
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueSize(16);
+		configuration.setQueueSpillDir(dir.getAbsolutePath());
+		configuration.setQueueSpillSegmentSize(1);
+		AbsLineQueue queue = LineQueueFactory.create(configuration);
+		// 약 1.5MB 를 기록하므로 segment 가 두 개 이상 만들어진다.
+		int total = 10000;
+		for(int i = 0; i < total; ++i) {
+			queue.push(newLine(i + " " + repeat('a', 100)));
+		}
+		assertEquals(total, queue.size());
+		assertTrue(dir.listFiles().length >= 2);
+		Line[] batch = new Line[100];
+		int next = 0;
+		int count;
+		while((count = queue.drainTo(batch, batch.length)) > 0) {
+			for(int i = 0; i < count; ++i) {
+				assertEquals(next++ + " " + repeat('a', 100), batch[i].getMessage().toString());
+			}
+		}
+		assertEquals(total, next);
+		assertEquals(0, queue.size());
+		// 다 읽은 segment 는 삭제된다.
+		assertEquals(0, dir.listFiles().length);
+		queue.push(newLine("memory"));
+		assertEquals(0, dir.listFiles().length);
+		assertEquals("memory", queue.pop().getMessage().toString());
+		assertTrue(dir.delete());
+	}
+
+	@Test
+	public void spillOversizeLineTest() {
+		File dir = newSpillDir();
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueSize(16);
+		configuration.setQueueSpillDir(dir.getAbsolutePath());
+		configuration.setQueueSpillSegmentSize(1);
+		configuration.setQueueSpillWatermark(0f);
+		AbsLineQueue queue = LineQueueFactory.create(configuration);
+		// UTF-16 으로 기록되어 1MiB segment 보다 크다.
+		String large = repeat('가', 600 * 1024);
+		queue.push(newLine(large));
+		queue.push(newLine("first"));
+		queue.push(newLine(large));
+		queue.push(newLine("second"));
+		assertEquals(4, queue.size());
+		// 파일에 기록하는 중에도 큰 라인이 먼저 기록된 라인을 앞지르지 않는다.
+		String[] expected = new String[] {large, "first", large, "second"};
+		for(String message : expected) {
+			assertEquals(message, queue.pop().getMessage().toString());
+		}
+		assertNull(queue.pop());
+		// 기록에 실패한 segment 가 남지 않는다.
+		assertEquals(0, dir.listFiles().length);
+		assertTrue(dir.delete());
+	}
+
+	@Test
+	public void spillDetachedLineTest() {
+		File dir = newSpillDir();
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueSize(2);
+		configuration.setQueueSpillDir(dir.getAbsolutePath());
+		configuration.setQueueSpillWatermark(0f);
+		AbsLineQueue queue = LineQueueFactory.create(configuration);
+		LineFormatter formatter = LineFormatter.parse("{level} {class}.{method}():{line} {message}");
+		Line line = new Line(formatter, Level.ERROR, "marker", "failed", new IllegalStateException("cause"), 0);
+		queue.push(line);
+		Line spilled = queue.pop();
+		assertNotSame(line, spilled);
+		assertEquals(line.makeLine(WriterType.File).toString(), spilled.makeLine(WriterType.File).toString());
+		assertNull(queue.pop());
+		assertTrue(dir.delete());
+	}
+
+	@Test
+	public void priorityLaneTest() {
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueSize(16);
+		configuration.setQueuePriorityLevel(Level.ERROR);
+		configuration.setOverflowPolicy(OverflowPolicy.DropNewest);
+		AbsLineQueue queue = LineQueueFactory.create(configuration);
+		for(int i = 0; i < 20; ++i) {
+			queue.push(newLine(Level.DEBUG, i + ""));
+		}
+		// 일반 큐가 가득 차 있어도 우선 lane 의 라인은 버려지지 않는다.
+		queue.push(newLine(Level.ERROR, "error"));
+		queue.push(newLine(Level.FATAL, "fatal"));
+		assertEquals(4, queue.takeDroppedCount());
+		assertEquals(18, queue.size());
+		Line[] batch = new Line[32];
+		// 기록될 곳을 구분하지 않으면 먼저 들어온 일반 라인이 우선 라인보다 먼저 꺼내진다.
+		assertEquals(18, queue.drainTo(batch, batch.length));
+		for(int i = 0; i < 16; ++i) {
+			assertEquals(i + "", batch[i].getMessage().toString());
+		}
+		assertEquals("error", batch[16].getMessage().toString());
+		assertEquals("fatal", batch[17].getMessage().toString());
+		assertEquals(0, queue.drainTo(batch, batch.length));
+	}
+
+	@Test
+	public void priorityLaneOrderTest() {
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueSize(64);
+		configuration.setQueuePriorityLevel(Level.ERROR);
+		AbsLineQueue queue = LineQueueFactory.create(configuration);
+		queue.setOutputResolver(new LineOutputResolver() {
+			@Override
+			public Object outputKeyOf(Line line) {
+				return line.getMarker();
+			}
+		});
+		for(int i = 0; i < 10; ++i) {
+			queue.push(new Line(FORMATTER, Level.DEBUG, i % 2 == 0 ? "a" : "b", i + "", null, 0));
+		}
+		queue.push(new Line(FORMATTER, Level.ERROR, "b", "error", null, 0));
+		queue.push(new Line(FORMATTER, Level.DEBUG, "b", "10", null, 0));
+		Line[] batch = new Line[4];
+		// 같은 곳에 먼저 들어온 라인이 우선 라인보다 먼저 꺼내지고, 다른 곳의 라인은 뒤로 미뤄진다.
+		assertEquals(4, queue.drainTo(batch, batch.length));
+		assertArrayEquals(new String[] {"1", "3", "5", "7"}, messagesOf(batch, 4));
+		assertEquals(2, queue.drainTo(batch, batch.length));
+		assertArrayEquals(new String[] {"9", "error"}, messagesOf(batch, 2));
+		assertEquals(4, queue.drainTo(batch, batch.length));
+		assertArrayEquals(new String[] {"0", "2", "4", "6"}, messagesOf(batch, 4));
+		assertEquals(2, queue.size());
+		assertEquals(1, queue.drainTo(batch, batch.length));
+		assertEquals("8", batch[0].getMessage().toString());
+		assertEquals(1, queue.drainTo(batch, batch.length));
+		assertEquals("10", batch[0].getMessage().toString());
+		assertEquals(0, queue.drainTo(batch, batch.length));
+	}
+
+	@Test
+	public void priorityLaneConfigurationTest() {
+		// 들어온 순서대로 꺼내지 않는 큐와 함께 설정하면 설정을 닫을 때 바로잡는다.
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueType(LineQueueFactory.LineQueueType.Striped);
+		configuration.setQueuePriorityLevel(Level.ERROR);
+		configuration.close();
+		assertTrue(configuration.isQueueStrictOrder());
+		assertEquals(Level.ERROR, configuration.getQueuePriorityLevel());
+
+		configuration = Configuration.newConfiguration();
+		configuration.setQueueSpillDir("spill");
+		configuration.setQueuePriorityLevel(Level.ERROR);
+		configuration.close();
+		assertEquals(Level.OFF, configuration.getQueuePriorityLevel());
+
+		configuration = Configuration.newConfiguration();
+		configuration.setQueueType(LineQueueFactory.LineQueueType.Ring);
+		configuration.setQueuePriorityLevel(Level.ERROR);
+		configuration.close();
+		assertFalse(configuration.isQueueStrictOrder());
+		assertEquals(Level.ERROR, configuration.getQueuePriorityLevel());
+	}
+
+	@Test
+	public void priorityLaneThreadOrderTest() throws InterruptedException {
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueSize(256);
+		configuration.setQueuePriorityLevel(Level.ERROR);
+		final AbsLineQueue queue = LineQueueFactory.create(configuration);
+		final int threadCount = 4;
+		final int lineCount = 20000;
+		Thread[] threads = new Thread[threadCount];
+		for(int t = 0; t < threadCount; ++t) {
+			final String marker = t + "";
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for(int i = 0; i < lineCount; ++i) {
+						queue.push(new Line(FORMATTER, i % 10 == 0 ? Level.ERROR : Level.DEBUG, marker, i + "", null, 0));
+					}
+				}
+			};
+			threads[t].start();
+		}
+		int[] next = new int[threadCount];
+		Line[] batch = new Line[64];
+		int total = 0;
+		while(total < threadCount * lineCount) {
+			int count = queue.drainTo(batch, batch.length);
+			for(int i = 0; i < count; ++i) {
+				int thread = Integer.parseInt(batch[i].getMarker());
+				// 우선 라인도 같은 스레드가 먼저 남긴 라인보다 앞서지 않는다.
+				assertEquals(next[thread]++ + "", batch[i].getMessage().toString());
+			}
+			total += count;
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+	private static String[] messagesOf(Line[] batch, int count) {
+		String[] messages = new String[count];
+		for(int i = 0; i < count; ++i) {
+			messages[i] = batch[i].getMessage().toString();
+		}
+		return messages;
+	}
+
+	@Test
+	public void elasticGrowTest() {
+		ElasticLineQueue queue = (ElasticLineQueue)LineQueueFactory.create(LineQueueFactory.LineQueueType.Elastic, 3000);
+		assertEquals(1024, queue.getAllocatedCapacity());
+		int count = 0;
+		while(queue.offer(newLine(count + ""))) {
+			++count;
+		}
+		// segment 크기의 합은 큐 크기를 넘지 않는다.
+		assertEquals(3000, count);
+		assertEquals(3000, queue.getAllocatedCapacity());
+		assertEquals(3000, queue.size());
+		Line[] batch = new Line[500];
+		int next = 0;
+		int drained;
+		while((drained = queue.drainTo(batch, batch.length)) > 0) {
+			for(int i = 0; i < drained; ++i) {
+				assertEquals(next++ + "", batch[i].getMessage().toString());
+			}
+		}
+		assertEquals(3000, next);
+		assertEquals(0, queue.size());
+		// 다 읽은 segment 는 버려지고 마지막 segment 만 남는다.
+		assertTrue(queue.getAllocatedCapacity() < 1024);
+	}
+
+	@Test
+	public void overflowCallerRunsTest() {
+		AbsLineQueue queue = newOverflowQueue(OverflowPolicy.CallerRuns, 16);
+		final ArrayList<String> callerLines = new ArrayList<String>();
+		((OverflowLineQueue)queue).setCallerRunsHandler(new CallerRunsHandler() {
+			@Override
+			public boolean runInCaller(Line line) {
+				callerLines.add(line.getMessage().toString());
+				return true;
+			}
+		});
+		for(int i = 0; i < 18; ++i) {
+			queue.push(newLine(i + ""));
+		}
+		assertEquals(0, queue.takeDroppedCount());
+		assertEquals(16, queue.size());
+		assertEquals(2, callerLines.size());
+		assertEquals("16", callerLines.get(0));
+	}
+
+	@Test
+	public void producerWaitStrategyTest() throws InterruptedException {
+		for(WaitStrategy strategy : WaitStrategy.values()) {
+			for(LineQueueFactory.LineQueueType type : new LineQueueFactory.LineQueueType[]{LineQueueFactory.LineQueueType.Ring, LineQueueFactory.LineQueueType.NonBlocking}) {
+				final AbsLineQueue queue = LineQueueFactory.create(type, 16);
+				queue.setProducerWaitStrategy(strategy);
+				final int total = 2000;
+				Thread producer = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for(int i = 0; i < total; ++i) {
+							queue.push(newLine(i + ""));
+						}
+					}
+				});
+				producer.setDaemon(true);
+				producer.start();
+				Line[] batch = new Line[8];
+				int next = 0;
+				long deadline = System.currentTimeMillis() + 30000;
+				while(next < total) {
+					assertTrue(strategy + " timeout", System.currentTimeMillis() < deadline);
+					int count = queue.drainTo(batch, batch.length);
+					for(int i = 0; i < count; ++i) {
+						assertEquals(strategy.name(), next++ + "", batch[i].getMessage().toString());
+					}
+					if(count == 0) {
+						Thread.yield();
+					}
+				}
+				producer.join(5000);
+				assertFalse(producer.isAlive());
+			}
+		}
+	}
+
+	@Test
+	public void stripedTimeOrderTest() throws InterruptedException {
+		Configuration configuration = Configuration.newConfiguration();
+		configuration.setQueueType(LineQueueFactory.LineQueueType.Striped);
+		configuration.setQueueStripes(4);
+		configuration.setQueueSize(64);
+		AbsLineQueue queue = LineQueueFactory.create(configuration);
+		// stripe 하나가 전체 크기를 갖기 때문에 전체 용량은 stripe 수만큼 늘어난다.
+		assertEquals(64 * 4, queue.getCapacity());
+		// 서로 다른 stripe 에 배정되는 스레드들이 시간 차이를 두고 라인을 넣는다.
+		for(int i = 0; i < 4; ++i) {
+			final AbsLineQueue target = queue;
+			final int index = i;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					target.push(newLine(index + ""));
+				}
+			});
+			thread.start();
+			thread.join();
+			Thread.sleep(5);
+		}
+		Line[] batch = new Line[8];
+		assertEquals(4, queue.drainTo(batch, batch.length));
+		for(int i = 1; i < 4; ++i) {
+			assertTrue(batch[i - 1].getTime() <= batch[i].getTime());
+		}
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void stripedMultiProducerTest() throws InterruptedException {
+		for(boolean strict : new boolean[]{false, true}) {
+			Configuration configuration = Configuration.newConfiguration();
+			configuration.setQueueType(LineQueueFactory.LineQueueType.Striped);
+			configuration.setQueueStripes(4);
+			configuration.setQueueSize(256);
+			configuration.setQueueStrictOrder(strict);
+			final AbsLineQueue queue = LineQueueFactory.create(configuration);
+			final int producerCount = 8;
+			final int linesPerProducer = 20000;
+			for(int p = 0; p < producerCount; ++p) {
+				final int producer = p;
+				Thread thread = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for(int i = 0; i < linesPerProducer; ++i) {
+							queue.push(newLine(producer + ":" + i));
+						}
+					}
+				});
+				thread.setDaemon(true);
+				thread.start();
+			}
+			int[] lastIndexes = new int[producerCount];
+			java.util.Arrays.fill(lastIndexes, -1);
+			Line[] batch = new Line[64];
+			long lastSequence = -1;
+			int received = 0;
+			long deadline = System.currentTimeMillis() + 60000;
+			while(received < producerCount * linesPerProducer) {
+				assertTrue("timeout", System.currentTimeMillis() < deadline);
+				int count = queue.drainTo(batch, batch.length);
+				for(int i = 0; i < count; ++i) {
+					String[] parts = batch[i].getMessage().toString().split(":");
+					int producer = Integer.parseInt(parts[0]);
+					int index = Integer.parseInt(parts[1]);
+					// 생산자별 순서는 유지되어야 한다.
+					assertEquals(lastIndexes[producer] + 1, index);
+					lastIndexes[producer] = index;
+					if(strict) {
+						assertEquals(lastSequence + 1, batch[i].getSequence());
+						lastSequence = batch[i].getSequence();
+					}
+				}
+				received += count;
+				if(count == 0) {
+					Thread.yield();
+				}
+			}
+			assertNull(queue.pop());
+		}
+	}
+
+	@Test
+	public void ringMultiProducerTest() throws InterruptedException {
+		assertMultiProducerOrder(LineQueueFactory.LineQueueType.Ring);
+	}
+
+	@Test
+	public void offHeapMultiProducerTest() throws InterruptedException {
+		assertMultiProducerOrder(LineQueueFactory.LineQueueType.OffHeap);
+	}
+
+	@Test
+	public void elasticMultiProducerTest() throws InterruptedException {
+		assertMultiProducerOrder(LineQueueFactory.LineQueueType.Elastic);
+	}
+
+	private static void assertMultiProducerOrder(LineQueueFactory.LineQueueType type) throws InterruptedException {
+		final int producerCount = 8;
+		final int linesPerProducer = 50000;
+		final AbsLineQueue queue = LineQueueFactory.create(type, 1024);
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		for(int p = 0; p < producerCount; ++p) {
+			final int producer = p;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						startLatch.await();
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+					for(int i = 0; i < linesPerProducer; ++i) {
+						queue.push(newLine(producer + ":" + i));
+					}
+				}
+			});
+			thread.setDaemon(true);
+			thread.start();
+		}
+		startLatch.countDown();
+
+		int[] lastIndexes = new int[producerCount];
+		java.util.Arrays.fill(lastIndexes, -1);
+		int received = 0;
+		long deadline = System.currentTimeMillis() + 60000;
+		while(received < producerCount * linesPerProducer) {
+			assertTrue("timeout", System.currentTimeMillis() < deadline);
+			Line line = queue.pop();
+			if(line == null) {
+				Thread.yield();
+				continue;
+			}
+			String[] parts = line.getMessage().toString().split(":");
+			int producer = Integer.parseInt(parts[0]);
+			int index = Integer.parseInt(parts[1]);
+			// 생산자별 순서는 유지되어야 한다.
+			assertEquals(lastIndexes[producer] + 1, index);
+			lastIndexes[producer] = index;
+			++received;
+		}
+		assertNull(queue.pop());
+	}
+
+}
@@ -548,6 +548,111 @@ public class LogExpressTest {
 
 
 
+	@Test
+	public void shardedWorkerTest() throws InterruptedException, IOException {
+		final int testCase = 100000;
+		String[] markers = {"shardA", "shardB", "shardC"};
+		File[] files = new File[markers.length];
+		Configuration configuration = LogExpress.cloneConfiguration();
+		configuration.setWorkerThreads(2);
+		configuration.setGroupCommitSize(256);
+		for(int i = 0; i < markers.length; ++i) {
+			files[i] = new File(markers[i] + "Test.log");
+			files[i].delete();
+			WriterOption option = configuration.newWriterOption(markers[i]);
+			option.setFile(files[i].getAbsolutePath());
+			option.setLinePattern("{message}");
+			option.clearWriterType();
+			option.addWriterType(WriterType.File);
+		}
+		LogExpress.updateConfig(configuration);
+
+		Thread[] threads = new Thread[markers.length];
+		for(int i = 0; i < markers.length; ++i) {
+			final Logger logger = LogExpress.newLogger(markers[i]);
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for(int n = 0; n < testCase; ++n) {
+						logger.info(n + "");
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		LogExpress.shutdown().await();
+		awaitFilesClosed();
+
+		// 파일마다 모든 라인이 순서대로 기록되어야 한다.
+		for(File file : files) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+			int expected = 0;
+			String line;
+			while((line = reader.readLine()) != null) {
+				assertEquals(expected + "", line);
+				++expected;
+			}
+			reader.close();
+			assertEquals(testCase, expected);
+			assertTrue(file.delete());
+		}
+	}
+
+
+	@Test
+	public void parallelFormatTest() throws InterruptedException, IOException {
+		int testCase = 200000;
+		File file = new File("parallelFormatTest.log");
+		file.delete();
+		Configuration configuration = LogExpress.cloneConfiguration();
+		configuration.setFormatterThreads(3);
+		WriterOption option = configuration.newWriterOption("format");
+		option.setFile(file.getAbsolutePath());
+		option.setLinePattern("{time::HH:mm:ss.SSS} {level} {message}");
+		option.setEncoding("UTF-8");
+		option.clearWriterType();
+		option.addWriterType(WriterType.File);
+		LogExpress.updateConfig(configuration);
+
+		Logger logger = LogExpress.newLogger("format");
+		for(int i = 0; i < testCase; ++i) {
+			logger.info("로그 " + i);
+		}
+		LogExpress.shutdown().await();
+		awaitFilesClosed();
+
+		// 여러 스레드가 포맷하고 인코딩하더라도 파일에는 로그를 남긴 순서대로 기록되어야 한다.
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		String prefix = " INFO 로그 ";
+		int expected = 0;
+		String line;
+		while((line = reader.readLine()) != null) {
+			int index = line.indexOf(prefix);
+			assertTrue(line, index > 0);
+			assertEquals("line " + expected + " is out of order: " + line, expected, Integer.parseInt(line.substring(index + prefix.length())));
+			++expected;
+		}
+		reader.close();
+		assertEquals(testCase, expected);
+		assertTrue(file.delete());
+	}
+
+
+	/**
+	 * 모든 writer 가 파일을 닫을 때까지 기다린다. 종료를 기다린 뒤에 호출하며, 파일을 읽기 전에 기록이 끝났는지 확인한다.
+	 */
+	private static void awaitFilesClosed() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while(FileWriter.getOpenFileCount() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, FileWriter.getOpenFileCount());
+	}
+
+
 	// java6 기반으로 파일을 읽어서 String 으로 변환하는 메서드.
 	public static String readFileToString(File file) throws IOException {
 		FileInputStream fileInputStream = new FileInputStream(file);
@@ -0,0 +1,28 @@
+package com.hancomins.logexpress;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StyleSpansTest {
+
+    @Test
+    public void applyToTest() {
+        StyleSpans styleSpans = new StyleSpans();
+        assertEquals("plain", styleSpans.applyTo("plain", new StringBuilder()).toString());
+
+        String plain = "12 [INFO] message\n";
+        for(int i = 0; i < 20; ++i) {
+            styleSpans.add(0, "<a>");
+        }
+        styleSpans.clear();
+        styleSpans.add(0, "<t>");
+        styleSpans.add(2, "<r>");
+        styleSpans.add(4, "<l>");
+        styleSpans.add(8, "<r>");
+        styleSpans.add(plain.length() - 1, "<r>");
+        assertEquals(5, styleSpans.size());
+        assertEquals("> <t>12<r> [<l>INFO<r>] message<r>\n", styleSpans.applyTo(plain, new StringBuilder("> ")).toString());
+    }
+
+}
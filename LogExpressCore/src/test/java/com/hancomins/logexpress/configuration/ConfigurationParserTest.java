@@ -2,6 +2,7 @@ package com.hancomins.logexpress.configuration;
 
 import com.hancomins.logexpress.Level;
 import com.hancomins.logexpress.LinePatternItemType;
+import com.hancomins.logexpress.queue.OverflowPolicy;
 import junit.framework.TestCase;
 import org.junit.Test;
 
@@ -33,6 +34,20 @@ public class ConfigurationParserTest extends TestCase {
         configuration.setDefaultLevel(Level.WARN);
         configuration.setDefaultMarker("test0");
         configuration.setQueueSize(213123);
+        configuration.setOverflowPolicy(OverflowPolicy.DropBelowLevel);
+        configuration.setOverflowLevel(Level.ERROR);
+        configuration.setOverflowTimeout(250);
+        configuration.setOverflowSampleRate(0.25f);
+        configuration.setQueueMemoryLimit(64);
+        configuration.setQueueMemoryLowWatermark(0.5f);
+        configuration.setQueuePriorityLevel(Level.ERROR);
+        configuration.setWorkerThreads(4);
+        configuration.setFormatterThreads(3);
+        configuration.setGroupCommitSize(256);
+        configuration.setGroupCommitLatency(20);
+        configuration.setConsoleBufferSize(4096);
+        configuration.setConsoleStderr(true);
+        configuration.setConsoleAnsi(ConsoleAnsi.Never);
 
 
 
@@ -56,6 +71,19 @@ public class ConfigurationParserTest extends TestCase {
             writerOption.setHistory(30 + i * 10);
             writerOption.addWriterType(i % 2 == 0 ? WriterType.Console : WriterType.File);
             writerOption.addWriterType(WriterType.File);
+            if (i == 3) {
+                writerOption.addWriterType(WriterType.Binary);
+            }
+            writerOption.setFlushInterval(i * 100);
+            writerOption.setFlushSize(i * 4096);
+            writerOption.setFlushPerBatch(i % 2 == 0);
+            writerOption.setFsyncPolicy(FsyncPolicy.values()[i % FsyncPolicy.values().length]);
+            writerOption.setFsyncInterval(500 + i);
+            writerOption.setFsyncLevel(i % 2 == 0 ? Level.WARN : Level.FATAL);
+            writerOption.setFileMode(FileMode.values()[i % FileMode.values().length]);
+            writerOption.setPreallocate(i % 2 == 1);
+            writerOption.setCompression(Compression.values()[i % Compression.values().length]);
+            writerOption.setLayout(LineLayout.values()[i % LineLayout.values().length]);
         }
 
 
@@ -64,6 +92,31 @@ public class ConfigurationParserTest extends TestCase {
 
         Configuration configurationParsed = Configuration.newConfiguration(new StringReader(value));
         assertEquals(configuration.toString(), configurationParsed.clone().toString());
+        assertEquals(OverflowPolicy.DropBelowLevel, configurationParsed.getOverflowPolicy());
+        assertEquals(Level.ERROR, configurationParsed.getOverflowLevel());
+        assertEquals(250, configurationParsed.getOverflowTimeout());
+        assertEquals(64, configurationParsed.getQueueMemoryLimit());
+        assertEquals(0.5f, configurationParsed.getQueueMemoryLowWatermark(), 0f);
+        assertEquals(Level.ERROR, configurationParsed.getQueuePriorityLevel());
+        assertEquals(4, configurationParsed.getWorkerThreads());
+        assertEquals(3, configurationParsed.getFormatterThreads());
+        assertEquals(256, configurationParsed.getGroupCommitSize());
+        assertEquals(20, configurationParsed.getGroupCommitLatency());
+        assertEquals(4096, configurationParsed.getConsoleBufferSize());
+        assertTrue(configurationParsed.isConsoleStderr());
+        assertEquals(ConsoleAnsi.Never, configurationParsed.getConsoleAnsi());
+        WriterOption parsedOption = configurationParsed.getWriterOption("test3");
+        assertEquals(300, parsedOption.getFlushInterval());
+        assertEquals(3 * 4096, parsedOption.getFlushSize());
+        assertFalse(parsedOption.isFlushPerBatch());
+        assertEquals(FsyncPolicy.Level, parsedOption.getFsyncPolicy());
+        assertEquals(503, parsedOption.getFsyncInterval());
+        assertEquals(Level.FATAL, parsedOption.getFsyncLevel());
+        assertEquals(FileMode.values()[3 % FileMode.values().length], parsedOption.getFileMode());
+        assertTrue(parsedOption.isPreallocate());
+        assertEquals(Compression.values()[3 % Compression.values().length], parsedOption.getCompression());
+        assertEquals(LineLayout.values()[3 % LineLayout.values().length], parsedOption.getLayout());
+        assertEquals(WriterType.Binary, parsedOption.getWriterTypes()[parsedOption.getWriterTypes().length - 1]);
     }
 
 
@@ -0,0 +1,116 @@
+package com.hancomins.logexpress.writer;
+
+import com.hancomins.logexpress.configuration.FileMode;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class BlockFileTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Test
+	public void writeAndReadTest() throws IOException {
+		File file = File.createTempFile("blockFileTest", ".log");
+		assertTrue(file.delete());
+		FileWriter fileWriter = new FileWriter(file, 8192, 0, FileMode.Block);
+		LineEncoder encoder = new LineEncoder(UTF8);
+		StringBuilder expected = new StringBuilder();
+		long startTime = 1000000L;
+		for(int i = 0; i < 20000; ++i) {
+			String line = "block line " + i + " time " + (startTime + i) + "\n";
+			expected.append(line);
+			fileWriter.write(line, encoder, startTime + i);
+		}
+		fileWriter.close();
+		// 압축하여 기록한다.
+		assertTrue(file.length() < expected.length() / 4);
+
+		BlockFileReader reader = new BlockFileReader(file);
+		try {
+			assertTrue(reader.getBlockCount() > 1);
+			assertEquals(expected.toString(), readAll(reader, 0));
+			for(int i = 1; i < reader.getBlockCount(); ++i) {
+				assertTrue(reader.getBlockFirstTime(i) > reader.getBlockLastTime(i - 1));
+			}
+
+			// 원하는 시간의 라인이 있는 블록부터 읽는다.
+			long time = startTime + 15000;
+			int block = reader.findBlock(time);
+			assertTrue(block > 0);
+			assertTrue(reader.getBlockFirstTime(block) <= time && reader.getBlockLastTime(block) >= time);
+			assertTrue(new String(reader.readBlock(block), UTF8).contains("block line 15000 "));
+			assertEquals(-1, reader.findBlock(startTime + 20000));
+		} finally {
+			reader.close();
+		}
+		assertTrue(file.delete());
+	}
+
+	@Test
+	public void appendAndRecoverTest() throws IOException {
+		File file = File.createTempFile("blockFileAppendTest", ".log");
+		assertTrue(file.delete());
+		LineEncoder encoder = new LineEncoder(UTF8);
+		FileWriter fileWriter = new FileWriter(file, 8192, 0, FileMode.Block);
+		fileWriter.write("first\n", encoder, 1);
+		fileWriter.close();
+
+		// 다시 열면 색인을 떼어 내고 이어 쓴다.
+		fileWriter = new FileWriter(file, 8192, 0, FileMode.Block);
+		fileWriter.write("second\n", encoder, 2);
+		fileWriter.flush();
+		fileWriter.write("third\n", encoder, 3);
+		fileWriter.flush();
+		long lengthWithoutIndex = file.length();
+
+		// 닫기 전에는 색인이 없어도 블록 헤더를 따라가며 읽는다.
+		BlockFileReader reader = new BlockFileReader(file);
+		assertEquals(3, reader.getBlockCount());
+		assertEquals("first\nsecond\nthird\n", readAll(reader, 0));
+		assertEquals(2, reader.findBlock(3));
+		reader.close();
+
+		// 덜 기록된 블록은 다시 열 때 잘라낸다.
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		randomAccessFile.setLength(lengthWithoutIndex + 10);
+		randomAccessFile.seek(lengthWithoutIndex);
+		randomAccessFile.writeInt(1000);
+		randomAccessFile.close();
+		fileWriter.close();
+		fileWriter = new FileWriter(file, 8192, 0, FileMode.Block);
+		fileWriter.write("fourth\n", encoder, 4);
+		fileWriter.close();
+
+		reader = new BlockFileReader(file);
+		assertEquals(4, reader.getBlockCount());
+		assertEquals("first\nsecond\nthird\nfourth\n", readAll(reader, 0));
+		reader.close();
+		assertTrue(file.delete());
+	}
+
+	@Test(expected = IOException.class)
+	public void notBlockFileTest() throws IOException {
+		File file = File.createTempFile("notBlockFileTest", ".log");
+		file.deleteOnExit();
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		randomAccessFile.write("plain text log line\n".getBytes("UTF-8"));
+		randomAccessFile.close();
+		new BlockFileReader(file);
+	}
+
+	private static String readAll(BlockFileReader reader, int from) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for(int i = from; i < reader.getBlockCount(); ++i) {
+			out.write(reader.readBlock(i));
+		}
+		return new String(out.toByteArray(), UTF8);
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.hancomins.logexpress.writer;
+
+import com.hancomins.logexpress.configuration.ConsoleAnsi;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class ConsoleWriterTest {
+
+	@Test
+	public void writeTest() throws InterruptedException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		PrintStream origin = System.out;
+		System.setOut(new PrintStream(baos));
+		try {
+			ConsoleWriter consoleWriter = new ConsoleWriter(4096, false, ConsoleAnsi.Never, true);
+			assertFalse(consoleWriter.isAnsiEnabled());
+			for(int i = 0; i < 100; ++i) {
+				consoleWriter.write("line" + i + "\n");
+			}
+			// 대기열보다 큰 라인도 출력된다.
+			StringBuilder large = new StringBuilder();
+			for(int i = 0; i < 1000; ++i) {
+				large.append("0123456789");
+			}
+			large.append('\n');
+			Thread.sleep(100);
+			consoleWriter.write(large);
+			consoleWriter.end(3000);
+		} finally {
+			System.setOut(origin);
+		}
+		String[] lines = baos.toString().split("\n");
+		assertEquals(101, lines.length);
+		for(int i = 0; i < 100; ++i) {
+			assertEquals("line" + i, lines[i]);
+		}
+		assertEquals(10000, lines[100].length());
+	}
+
+	@Test
+	public void slowConsoleTest() {
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		PrintStream origin = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				baos.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException ignored) {
+				}
+				baos.write(b, off, len);
+			}
+		}));
+		try {
+			ConsoleWriter consoleWriter = new ConsoleWriter(1024, false, ConsoleAnsi.Always, true);
+			assertTrue(consoleWriter.isAnsiEnabled());
+			consoleWriter.write("first\n");
+			blocked.await();
+			// 콘솔이 멈춰 있어도 쓰는 스레드는 기다리지 않고, 대기열이 가득 차면 라인을 버린다.
+			long start = System.currentTimeMillis();
+			for(int i = 0; i < 1000; ++i) {
+				consoleWriter.write("0123456789012345678\n");
+			}
+			assertTrue(System.currentTimeMillis() - start < 1000);
+			release.countDown();
+			consoleWriter.end(3000);
+		} catch (InterruptedException e) {
+			fail();
+		} finally {
+			System.setOut(origin);
+		}
+		String result = baos.toString();
+		assertTrue(result.startsWith("first\n"));
+		assertTrue(result.contains("[logexpress::WARN] 949 console lines dropped because the console was too slow."));
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.hancomins.logexpress.writer;
+
+import com.hancomins.logexpress.configuration.Compression;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.*;
+
+public class FileCompressorTest {
+
+	@Test
+	public void compressTest() throws IOException {
+		StringBuilder stringBuilder = new StringBuilder();
+		for(int i = 0; i < 100000; ++i) {
+			stringBuilder.append("log line ").append(i).append('\n');
+		}
+		byte[] content = stringBuilder.toString().getBytes("UTF-8");
+		for(Compression compression : new Compression[] {Compression.Gzip, Compression.Deflate}) {
+			File file = File.createTempFile("compressTest", ".log");
+			FileOutputStream out = new FileOutputStream(file);
+			out.write(content);
+			out.close();
+
+			assertFalse(FileCompressor.hasCompressedFile(file));
+			assertTrue(FileCompressor.compress(file, compression));
+			File compressed = FileCompressor.compressedFileOf(file, compression);
+			// 원본은 삭제하고 압축 파일만 남긴다.
+			assertFalse(file.exists());
+			assertTrue(compressed.exists());
+			assertTrue(compressed.length() < content.length / 4);
+			assertTrue(FileCompressor.hasCompressedFile(file));
+
+			InputStream in = compression == Compression.Gzip ? new GZIPInputStream(new FileInputStream(compressed)) : new InflaterInputStream(new FileInputStream(compressed));
+			assertArrayEquals(content, readAll(in));
+
+			assertTrue(FileCompressor.deleteCompressedFiles(file));
+			assertFalse(compressed.exists());
+			assertFalse(FileCompressor.deleteCompressedFiles(file));
+		}
+		// 없는 파일은 압축하지 않는다.
+		assertFalse(FileCompressor.compress(new File("notExistsCompressTest.log"), Compression.Gzip));
+	}
+
+	@Test
+	public void skipCompressedNumberTest() throws IOException {
+		File dir = new File(System.getProperty("java.io.tmpdir"), "compressedNumberTest" + System.nanoTime());
+		assertTrue(dir.mkdirs());
+		FileNamePattern pattern = FileNamePattern.parse(dir.getAbsolutePath() + "/{marker}.{number}.log");
+		File first = pattern.toFileOverMaxSize("test", 1);
+		File compressed = FileCompressor.compressedFileOf(first, Compression.Gzip);
+		assertTrue(compressed.createNewFile());
+		// 압축된 파일의 번호는 다시 사용하지 않는다.
+		File next = pattern.toFileOverMaxSize("test", 1);
+		assertFalse(first.equals(next));
+		assertTrue(compressed.delete());
+		assertTrue(dir.delete());
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while((read = in.read(buffer)) > 0) {
+			out.write(buffer, 0, read);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+
+}
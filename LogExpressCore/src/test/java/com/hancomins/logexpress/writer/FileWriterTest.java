@@ -0,0 +1,334 @@
+package com.hancomins.logexpress.writer;
+
+import com.hancomins.logexpress.configuration.FileMode;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class FileWriterTest {
+
+	@Test
+	public void groupCommitTest() throws IOException {
+		File file = File.createTempFile("groupCommitTest", ".log");
+		FileWriter fileWriter = new FileWriter(file, 1024, 0);
+		fileWriter.setGroupCommit(4, 60000);
+		try {
+			for(int i = 0; i < 3; ++i) {
+				fileWriter.write((i + "\n").getBytes());
+			}
+			// 4개가 모이기 전에는 파일에 기록되지 않는다.
+			assertEquals(0, file.length());
+			fileWriter.write("3\n".getBytes());
+			assertEquals(8, file.length());
+
+			// 버퍼를 사용하다가 group commit 으로 바꾸어도 순서가 유지되어야 한다.
+			fileWriter.setGroupCommit(0, 0);
+			fileWriter.write("4\n".getBytes());
+			fileWriter.setGroupCommit(2, 60000);
+			fileWriter.write("5\n".getBytes());
+			fileWriter.flush();
+			assertEquals(12, file.length());
+
+			// 최대 대기 시간이 0 이면 바로 기록한다.
+			fileWriter.setGroupCommit(1024, 0);
+			for(int i = 6; i < 10; ++i) {
+				fileWriter.write((i + "\n").getBytes());
+			}
+			assertEquals(20, file.length());
+		} finally {
+			fileWriter.close();
+		}
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+		String line;
+		int expected = 0;
+		while((line = reader.readLine()) != null) {
+			assertEquals(expected + "", line);
+			++expected;
+		}
+		reader.close();
+		assertEquals(10, expected);
+		assertTrue(file.delete());
+	}
+
+	@Test
+	public void durabilityTest() throws IOException {
+		File file = File.createTempFile("durabilityTest", ".log");
+		FileWriter fileWriter = new FileWriter(file, 1024, 0);
+		try {
+			// 8 byte 마다 플러시한다.
+			fileWriter.setDurability(0, 8, false, true, 0);
+			fileWriter.write("0\n1\n2\n".getBytes());
+			assertEquals(0, file.length());
+			fileWriter.write("3\n".getBytes());
+			assertEquals(8, file.length());
+
+			// 배치가 끝날 때마다 플러시한다.
+			fileWriter.write("4\n".getBytes());
+			assertEquals(8, file.length());
+			fileWriter.onBatchEnd(System.currentTimeMillis());
+			assertEquals(8, file.length());
+			fileWriter.setDurability(0, 0, true, false, 0);
+			fileWriter.onBatchEnd(System.currentTimeMillis());
+			assertEquals(10, file.length());
+
+			fileWriter.write("5\n".getBytes());
+			fileWriter.flush();
+			fileWriter.sync();
+			fileWriter.requestSync();
+		} finally {
+			fileWriter.close();
+		}
+		assertEquals(12, file.length());
+		// 닫힌 파일에 fsync 해도 예외가 발생하지 않는다.
+		fileWriter.sync();
+		assertTrue(file.delete());
+	}
+
+	@Test
+	public void mmapTest() throws IOException {
+		File file = File.createTempFile("mmapTest", ".log");
+		FileWriter fileWriter = new FileWriter(file, 1024, 0, FileMode.Mmap);
+		try {
+			fileWriter.setGroupCommit(4, 60000);
+			fileWriter.setDurability(0, 0, true, true, 0);
+			fileWriter.write("0\n1\n".getBytes());
+			// 플러시하지 않아도 매핑한 영역에 바로 기록된다. 파일은 매핑한 크기만큼 늘어나 있다.
+			assertEquals(MappedFileAppender.MAP_CHUNK_SIZE, file.length());
+			assertEquals("0\n1\n", readPrefix(file, 4));
+			// 매핑한 크기보다 큰 데이터도 기록할 수 있다.
+			byte[] large = new byte[MappedFileAppender.MAP_CHUNK_SIZE + 10];
+			java.util.Arrays.fill(large, (byte)'a');
+			large[large.length - 1] = '\n';
+			fileWriter.write(large);
+			fileWriter.onBatchEnd(System.currentTimeMillis());
+			fileWriter.sync();
+		} finally {
+			fileWriter.close();
+		}
+		// 닫으면 실제 기록한 길이로 줄인다.
+		long written = 4 + MappedFileAppender.MAP_CHUNK_SIZE + 10;
+		assertEquals(written, file.length());
+
+		// 닫지 못하고 종료되어 뒷부분이 0 으로 남은 파일은 끝의 표시를 보고 기록한 길이를 찾아 이어 쓴다.
+		fileWriter = new FileWriter(file, 1024, 0, FileMode.Mmap);
+		File crashed = File.createTempFile("mmapTestCrashed", ".log");
+		try {
+			fileWriter.write("2\n".getBytes());
+			copy(file, crashed);
+		} finally {
+			fileWriter.close();
+		}
+		assertTrue(crashed.length() > written + 2);
+		fileWriter = new FileWriter(crashed, 1024, 0, FileMode.Mmap);
+		try {
+			fileWriter.write("3\n".getBytes());
+		} finally {
+			fileWriter.close();
+		}
+		assertEquals(written + 4, crashed.length());
+		RandomAccessFile reader = new RandomAccessFile(crashed, "r");
+		reader.seek(written - 1);
+		assertEquals('\n', reader.read());
+		assertEquals('2', reader.read());
+		assertEquals('\n', reader.read());
+		assertEquals('3', reader.read());
+		assertEquals('\n', reader.read());
+		assertEquals(-1, reader.read());
+		reader.close();
+		// 닫힌 파일에 fsync 해도 예외가 발생하지 않는다.
+		fileWriter.sync();
+		assertTrue(file.delete());
+		assertTrue(crashed.delete());
+	}
+
+	@Test
+	public void zeroEndingReopenTest() throws IOException {
+		// 0 으로 끝나는 내용(바이너리 레코드, UTF-16 의 줄바꿈 등)도 정상적으로 닫았다면 다시 열 때 잘리지 않는다.
+		byte[] first = new byte[] {'a', 0, 0};
+		byte[] second = new byte[] {'b', 0};
+		for(FileMode fileMode : FileMode.values()) {
+			if(fileMode == FileMode.Block) continue;
+			for(boolean preallocate : new boolean[] {false, true}) {
+				File file = File.createTempFile("zeroEndingReopenTest", ".log");
+				FileWriter fileWriter = new FileWriter(file, 1024, 1, fileMode, preallocate);
+				try {
+					fileWriter.write(first);
+				} finally {
+					fileWriter.close();
+				}
+				assertEquals(fileMode + "/" + preallocate, first.length, file.length());
+				fileWriter = new FileWriter(file, 1024, 1, fileMode, preallocate);
+				try {
+					fileWriter.write(second);
+				} finally {
+					fileWriter.close();
+				}
+				assertEquals(fileMode + "/" + preallocate, "a\0\0b\0", readPrefix(file, (int)file.length()));
+				assertTrue(file.delete());
+			}
+		}
+	}
+
+	@Test
+	public void crashedPreallocatedFileTest() throws IOException {
+		// 닫지 못하고 종료된 파일은 마지막으로 기록한 0 이 아닌 byte 까지를 기록한 길이로 보고 이어 쓴다.
+		for(FileMode fileMode : new FileMode[] {FileMode.Stream, FileMode.Mmap}) {
+			File file = File.createTempFile("crashedPreallocatedFileTest", ".log");
+			File crashed = File.createTempFile("crashedPreallocatedFileTest", ".crashed");
+			FileWriter fileWriter = new FileWriter(file, 1024, 1, fileMode, true);
+			try {
+				fileWriter.write("0\n1\n".getBytes());
+				fileWriter.flush();
+				copy(file, crashed);
+			} finally {
+				fileWriter.close();
+			}
+			assertEquals(fileMode + "", 1024 * 1024, crashed.length());
+			fileWriter = new FileWriter(crashed, 1024, 1, fileMode, false);
+			try {
+				fileWriter.write("2\n".getBytes());
+			} finally {
+				fileWriter.close();
+			}
+			assertEquals(fileMode + "", "0\n1\n2\n", readPrefix(crashed, (int)crashed.length()));
+			assertTrue(file.delete());
+			assertTrue(crashed.delete());
+		}
+	}
+
+	@Test
+	public void asyncTest() throws IOException {
+		File file = File.createTempFile("asyncTest", ".log");
+		FileWriter fileWriter = new FileWriter(file, 1024, 0, FileMode.Async);
+		int count = 100000;
+		try {
+			fileWriter.setGroupCommit(4, 60000);
+			// 버퍼를 모두 채우고도 남을 만큼 기록한다.
+			for(int i = 0; i < count / 2; ++i) {
+				fileWriter.write((i + "\n").getBytes());
+			}
+			assertFalse(fileWriter.isOverSize());
+			fileWriter.flush();
+			for(int i = count / 2; i < count; ++i) {
+				fileWriter.write((i + "\n").getBytes());
+			}
+			// fsync 를 요청하면 I/O 스레드에 넘긴 버퍼가 모두 파일에 기록된 뒤에 요청한다.
+			fileWriter.flush();
+			fileWriter.requestSync();
+			long written = 0;
+			for(int i = 0; i < count; ++i) {
+				written += (i + "\n").length();
+			}
+			assertEquals(written, file.length());
+			fileWriter.sync();
+		} finally {
+			fileWriter.close();
+		}
+		// 다시 열면 파일 끝에 이어 쓴다.
+		fileWriter = new FileWriter(file, 1024, 0, FileMode.Async);
+		try {
+			fileWriter.write((count + "\n").getBytes());
+		} finally {
+			fileWriter.close();
+		}
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+		String line;
+		int expected = 0;
+		while((line = reader.readLine()) != null) {
+			assertEquals(expected + "", line);
+			++expected;
+		}
+		reader.close();
+		assertEquals(count + 1, expected);
+		assertTrue(file.delete());
+	}
+
+	@Test
+	public void preallocateTest() throws IOException {
+		long maxFileSize = 1024 * 1024;
+		for(FileMode fileMode : FileMode.values()) {
+			// 블록 파일은 끝에 색인을 붙이므로 미리 늘리지 않는다.
+			if(fileMode == FileMode.Block) continue;
+			File file = File.createTempFile("preallocateTest", ".log");
+			FileWriter fileWriter = new FileWriter(file, 1024, 1, fileMode, true);
+			try {
+				// 열 때 최대 파일 크기로 늘려 둔다.
+				assertEquals(fileMode + "", maxFileSize, file.length());
+				fileWriter.write("0\n1\n".getBytes());
+			} finally {
+				fileWriter.close();
+			}
+			// 닫으면 실제 기록한 길이로 줄인다.
+			assertEquals(fileMode + "", 4, file.length());
+
+			// 다시 열면 늘려 둔 영역이 아닌 실제 기록한 위치에 이어 쓴다.
+			fileWriter = new FileWriter(file, 1024, 1, fileMode, true);
+			try {
+				fileWriter.write("2\n".getBytes());
+			} finally {
+				fileWriter.close();
+			}
+			assertEquals(fileMode + "", "0\n1\n2\n", readPrefix(file, (int)file.length()));
+			assertTrue(file.delete());
+
+			// 새로 만든 파일에 아무것도 기록하지 않고 버리면 파일을 삭제한다.
+			fileWriter = new FileWriter(file, 1024, 1, fileMode, true);
+			assertEquals(maxFileSize, file.length());
+			fileWriter.discard();
+			assertFalse(file.exists());
+		}
+	}
+
+	@Test
+	public void movedMarkerTest() throws IOException {
+		// 파일을 늘리며 표시를 옮기는 도중에 종료되어 남은 이전 표시는 기록한 내용으로 보지 않는다.
+		File file = File.createTempFile("movedMarkerTest", ".log");
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			java.nio.channels.FileChannel channel = randomAccessFile.getChannel();
+			randomAccessFile.write(new byte[] {'a', 'b', 'c'});
+			WrittenLengthMarker.mark(channel, 1000, 1);
+			WrittenLengthMarker.mark(channel, 5000, 1);
+			assertEquals(3, WrittenLengthMarker.recover(channel));
+			assertEquals(3, channel.size());
+			// 표시가 없는 파일은 정상적으로 닫힌 파일이다.
+			randomAccessFile.write(new byte[] {0});
+			assertEquals(4, WrittenLengthMarker.recover(channel));
+		} finally {
+			randomAccessFile.close();
+		}
+		assertTrue(file.delete());
+	}
+
+	/**
+	 * 열려 있는 파일을 그대로 복사하여 닫지 못하고 종료된 파일을 만든다.
+	 */
+	private static void copy(File source, File target) throws IOException {
+		byte[] data = new byte[(int)source.length()];
+		RandomAccessFile reader = new RandomAccessFile(source, "r");
+		reader.readFully(data);
+		reader.close();
+		RandomAccessFile writer = new RandomAccessFile(target, "rw");
+		writer.setLength(0);
+		writer.write(data);
+		writer.close();
+	}
+
+	private static String readPrefix(File file, int length) throws IOException {
+		byte[] buffer = new byte[length];
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		randomAccessFile.readFully(buffer);
+		randomAccessFile.close();
+		return new String(buffer);
+	}
+
+}
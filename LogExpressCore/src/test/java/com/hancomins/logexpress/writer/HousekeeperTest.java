@@ -0,0 +1,88 @@
+package com.hancomins.logexpress.writer;
+
+import com.hancomins.logexpress.configuration.FileMode;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class HousekeeperTest {
+
+	@Test
+	public void prepareNextFileTest() throws IOException, InterruptedException {
+		File dir = new File(System.getProperty("java.io.tmpdir"), "housekeeperTest" + System.nanoTime());
+		FileNamePattern pattern = FileNamePattern.parse(dir.getAbsolutePath() + "/sub/{marker}.{date:yyyy-MM-dd}.{number}.log");
+		WriterRackStruct rack = new WriterRackStruct("test", null, 1, 1024, 0);
+		rack.fileNamePattern = pattern;
+		File first = pattern.toFileOverMaxSize("test", 1);
+		Housekeeper.makeDirParentsOf(first);
+		rack.fileWriter = new FileWriter(first, 1024, 1);
+		try {
+			Housekeeper.getInstance().prepareNextFile(rack);
+			for(int i = 0; i < 500 && !rack.hasPreparedFiles(); ++i) {
+				Thread.sleep(10);
+			}
+			assertTrue(rack.hasPreparedFiles());
+			// 지금 쓰고 있는 파일은 아직 가득 차지 않았지만 다음 파일로 건너뛴다.
+			File next = rack.takePreparedFile(false);
+			assertEquals(pattern.toFileOverMaxSize("test", 1, CurrentTimeMillisGetter.currentTimeMillis(), first), next);
+			assertFalse(first.equals(next));
+			assertFalse(rack.hasPreparedFiles());
+
+			// 쓰고 있는 파일이 바뀌었다면 미리 찾아 둔 파일을 사용하지 않는다.
+			Housekeeper.getInstance().prepareNextFile(rack);
+			for(int i = 0; i < 500 && !rack.hasPreparedFiles(); ++i) {
+				Thread.sleep(10);
+			}
+			FileWriter other = new FileWriter(next, 1024, 1);
+			FileWriter old = rack.fileWriter;
+			rack.fileWriter = other;
+			assertNull(rack.takePreparedFile(false));
+			other.close();
+			rack.fileWriter = old;
+		} finally {
+			rack.fileWriter.close();
+		}
+		File[] files = first.getParentFile().listFiles();
+		if(files != null) {
+			for(File file : files) {
+				assertTrue(file.delete());
+			}
+		}
+		assertTrue(first.getParentFile().delete());
+		assertTrue(dir.delete());
+	}
+
+	@Test
+	public void preOpenNextFileTest() throws IOException, InterruptedException {
+		File dir = new File(System.getProperty("java.io.tmpdir"), "housekeeperPreOpenTest" + System.nanoTime());
+		FileNamePattern pattern = FileNamePattern.parse(dir.getAbsolutePath() + "/{marker}.{number}.log");
+		WriterRackStruct rack = new WriterRackStruct("test", null, 1, 1024, 0);
+		rack.fileNamePattern = pattern;
+		rack.preallocate = true;
+		rack.preOpenNextFile = true;
+		File first = pattern.toFileOverMaxSize("test", 1);
+		Housekeeper.makeDirParentsOf(first);
+		rack.fileWriter = new FileWriter(first, 1024, 1, FileMode.Stream, true);
+		Housekeeper.getInstance().prepareNextFile(rack);
+		for(int i = 0; i < 500 && !rack.hasPreparedFiles(); ++i) {
+			Thread.sleep(10);
+		}
+		// 다음 파일은 미리 열고 최대 크기로 늘려 둔다.
+		File next = rack.takePreparedFile(false);
+		assertNotNull(next);
+		assertNotNull(rack.preparedWriter);
+		assertEquals(next, rack.preparedWriter.getFile());
+		assertEquals(1024 * 1024, next.length());
+
+		// rack 이 종료되면 사용하지 않은 파일은 닫고 삭제한다.
+		rack.end();
+		assertFalse(next.exists());
+		assertEquals(0, first.length());
+		assertTrue(first.delete());
+		assertTrue(dir.delete());
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.hancomins.logexpress.writer;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LineEncoderTest {
+
+	private static final String[] TEXTS = new String[] {
+			"",
+			"Hello World!!\n",
+			"한글 로그 메시지입니다.\n",
+			"mixed 혼합 ÀÉÎ ñ ÿĀ ߿ࠀ ￿\n",
+			"emoji 😀 👍 end\n",
+			"unpaired \uD800 high and \uDC00 low \uD800",
+	};
+
+	@Test
+	public void sameAsStringGetBytesTest() {
+		String[] charsets = new String[] {"UTF-8", "US-ASCII", "ISO-8859-1", "UTF-16LE", "EUC-KR"};
+		for(String charsetName : charsets) {
+			if(!Charset.isSupported(charsetName)) {
+				continue;
+			}
+			Charset charset = Charset.forName(charsetName);
+			LineEncoder encoder = new LineEncoder(charset);
+			for(String text : TEXTS) {
+				assertEncoded(encoder, charset, text);
+				assertEncoded(encoder, charset, new StringBuilder(text));
+			}
+		}
+	}
+
+	@Test
+	public void largeLineTest() {
+		Random random = new Random(7);
+		Charset charset = Charset.forName("UTF-8");
+		LineEncoder encoder = new LineEncoder(charset);
+		for(int length : new int[] {10, 300, 100000, 20}) {
+			StringBuilder stringBuilder = new StringBuilder();
+			for(int i = 0; i < length; ++i) {
+				stringBuilder.append((char)(random.nextBoolean() ? 'a' + random.nextInt(26) : 0xAC00 + random.nextInt(1000)));
+			}
+			assertEncoded(encoder, charset, stringBuilder);
+		}
+	}
+
+	@Test
+	public void encodeToBufferTest() {
+		Charset charset = Charset.forName("UTF-8");
+		LineEncoder encoder = new LineEncoder(charset);
+		byte[] first = new byte[4];
+		byte[] second = new byte[256];
+		// 라인마다 둔 배열에 번갈아 인코딩해도 서로 덮어쓰지 않는다.
+		int firstLength = encoder.encode(TEXTS[2], first);
+		first = encoder.array();
+		int secondLength = encoder.encode(TEXTS[1], second);
+		assertSame(second, encoder.array());
+		assertArrayEquals(TEXTS[2].getBytes(charset), Arrays.copyOf(first, firstLength));
+		assertArrayEquals(TEXTS[1].getBytes(charset), Arrays.copyOf(second, secondLength));
+	}
+
+	private static void assertEncoded(LineEncoder encoder, Charset charset, CharSequence text) {
+		byte[] expected = text.toString().getBytes(charset);
+		int length = encoder.encode(text);
+		assertArrayEquals(charset + ": " + text, expected, Arrays.copyOf(encoder.array(), length));
+	}
+
+}